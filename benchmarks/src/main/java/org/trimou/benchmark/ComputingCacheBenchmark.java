@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trimou.engine.cache.ComputingCache;
+import org.trimou.engine.cache.ComputingCacheFactory;
+
+/**
+ * Concurrent lookups in a computing cache created by the default factory. A
+ * single key represents a hot key, the bounded cache with more keys than the
+ * max size represents the eviction path. Use <code>-t</code> to change the
+ * number of threads.
+ *
+ * @author Martin Kouba
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ComputingCacheBenchmark {
+
+    @Param({ "1", "1000" })
+    public int keys;
+
+    @Param({ "0", "500" })
+    public long maxSize;
+
+    private ComputingCache<Integer, String> cache;
+
+    @Setup
+    public void setup() {
+        ComputingCacheFactory factory = Fixtures.engine().getConfiguration()
+                .getComputingCacheFactory();
+        cache = factory.create(ComputingCacheBenchmark.class.getName(),
+                String::valueOf, null, maxSize > 0 ? maxSize : null, null);
+    }
+
+    @Benchmark
+    public String get() {
+        return cache.get(keys == 1 ? 0
+                : ThreadLocalRandom.current().nextInt(keys));
+    }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Records the lock and CPU profile with JFR (one recording per step) and
+ * reports the contention hot spots aggregated over all the steps:
+ * <ul>
+ * <li>contended <code>synchronized</code> blocks (jdk.JavaMonitorEnter)</li>
+ * <li>parked threads, e.g. {@link java.util.concurrent.locks.Lock}
+ * (jdk.ThreadPark)</li>
+ * <li>execution samples in atomics and {@link java.util.concurrent}
+ * collections, attributed to the first engine frame - a CAS retry loop does
+ * not block and is only visible as CPU time</li>
+ * </ul>
+ *
+ * @author Martin Kouba
+ */
+class ContentionReport {
+
+    private static final String MONITOR_ENTER = "jdk.JavaMonitorEnter";
+
+    private static final String THREAD_PARK = "jdk.ThreadPark";
+
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+
+    private static final String ENGINE_PACKAGE = "org.trimou.";
+
+    private final Path directory;
+
+    private final Duration threshold;
+
+    private final List<Path> files;
+
+    private Recording recording;
+
+    ContentionReport(Path directory, Duration threshold) {
+        this.directory = directory;
+        this.threshold = threshold;
+        this.files = new ArrayList<>();
+    }
+
+    void start() {
+        recording = new Recording();
+        recording.setName("trimou-scalability");
+        recording.enable(MONITOR_ENTER).withThreshold(threshold)
+                .withStackTrace();
+        recording.enable(THREAD_PARK).withThreshold(threshold)
+                .withStackTrace();
+        recording.enable(EXECUTION_SAMPLE).withPeriod(Duration.ofMillis(10));
+        recording.start();
+    }
+
+    void stop(int threads) throws IOException {
+        recording.stop();
+        Files.createDirectories(directory);
+        Path file = directory.resolve("scalability-" + threads + ".jfr");
+        recording.dump(file);
+        recording.close();
+        files.add(file);
+    }
+
+    void print(PrintStream out, int limit) throws IOException {
+        Map<String, Stats> monitors = new HashMap<>();
+        Map<String, Stats> parks = new HashMap<>();
+        Map<String, Stats> concurrent = new HashMap<>();
+        Map<String, Stats> hotMethods = new HashMap<>();
+        long samples = 0;
+
+        List<RecordedEvent> events = new ArrayList<>();
+        for (Path file : files) {
+            events.addAll(RecordingFile.readAllEvents(file));
+        }
+        for (RecordedEvent event : events) {
+            String type = event.getEventType().getName();
+            RecordedStackTrace stackTrace = event.getStackTrace();
+            if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+                continue;
+            }
+            List<RecordedFrame> frames = stackTrace.getFrames();
+            switch (type) {
+            case MONITOR_ENTER:
+                add(monitors, className(event, "monitorClass") + " @ "
+                        + frame(frames.get(0)), event.getDuration());
+                break;
+            case THREAD_PARK:
+                add(parks,
+                        className(event, "parkedClass") + " @ "
+                                + frame(firstEngineFrame(frames)),
+                        event.getDuration());
+                break;
+            case EXECUTION_SAMPLE:
+                samples++;
+                RecordedFrame top = frames.get(0);
+                add(hotMethods, frame(top), null);
+                if (isConcurrent(top)) {
+                    add(concurrent, method(top) + " <- "
+                            + frame(firstEngineFrame(frames)), null);
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        out.println();
+        out.println("Contended monitors (" + MONITOR_ENTER + "):");
+        printStats(out, monitors, limit, true);
+        out.println();
+        out.println("Parked threads (" + THREAD_PARK + "):");
+        printStats(out, parks, limit, true);
+        out.println();
+        out.println("Samples in atomics and concurrent collections ("
+                + samples + " samples in total):");
+        printStats(out, concurrent, limit, false);
+        out.println();
+        out.println("Hot methods (" + samples + " samples in total):");
+        printStats(out, hotMethods, limit, false);
+        out.println();
+        out.println("JFR recordings: " + directory.toAbsolutePath());
+    }
+
+    private static boolean isConcurrent(RecordedFrame frame) {
+        String type = frame.getMethod().getType().getName();
+        return type.startsWith("java.util.concurrent.")
+                || type.startsWith("jdk.internal.misc.Unsafe")
+                || type.startsWith("sun.misc.Unsafe");
+    }
+
+    private static RecordedFrame firstEngineFrame(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            if (frame.getMethod().getType().getName()
+                    .startsWith(ENGINE_PACKAGE)) {
+                return frame;
+            }
+        }
+        return frames.get(0);
+    }
+
+    private static String className(RecordedEvent event, String field) {
+        RecordedClass clazz = event.getValue(field);
+        return clazz != null ? clazz.getName() : "?";
+    }
+
+    private static String method(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "."
+                + frame.getMethod().getName();
+    }
+
+    private static String frame(RecordedFrame frame) {
+        return method(frame) + ":" + frame.getLineNumber();
+    }
+
+    private static void add(Map<String, Stats> stats, String key,
+            Duration duration) {
+        Stats value = stats.computeIfAbsent(key, k -> new Stats());
+        value.count++;
+        if (duration != null) {
+            value.nanos += duration.toNanos();
+        }
+    }
+
+    private static void printStats(PrintStream out, Map<String, Stats> stats,
+            int limit, boolean printDuration) {
+        if (stats.isEmpty()) {
+            out.println("  none");
+            return;
+        }
+        List<Map.Entry<String, Stats>> entries = new ArrayList<>(
+                stats.entrySet());
+        entries.sort((e1, e2) -> printDuration
+                ? Long.compare(e2.getValue().nanos, e1.getValue().nanos)
+                : Long.compare(e2.getValue().count, e1.getValue().count));
+        for (Map.Entry<String, Stats> entry : entries.subList(0,
+                Math.min(limit, entries.size()))) {
+            if (printDuration) {
+                out.printf("  %8d events %10.2f ms  %s%n",
+                        entry.getValue().count,
+                        entry.getValue().nanos / 1_000_000.0, entry.getKey());
+            } else {
+                out.printf("  %8d samples  %s%n", entry.getValue().count,
+                        entry.getKey());
+            }
+        }
+    }
+
+    private static class Stats {
+
+        private long count;
+
+        private long nanos;
+
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.benchmark;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.trimou.engine.cache.ComputingCache;
+import org.trimou.engine.cache.ComputingCache.Function;
+import org.trimou.engine.cache.ComputingCache.Listener;
+import org.trimou.engine.cache.ComputingCacheFactory;
+import org.trimou.engine.config.Configuration;
+import org.trimou.engine.config.ConfigurationKey;
+
+/**
+ * Counts the lookups per key so that the hot keys may be reported. Note that
+ * the counting itself adds some overhead and contention.
+ *
+ * @author Martin Kouba
+ */
+class CountingComputingCacheFactory implements ComputingCacheFactory {
+
+    private final ComputingCacheFactory delegate;
+
+    private final Map<String, Map<Object, LongAdder>> lookups;
+
+    CountingComputingCacheFactory(ComputingCacheFactory delegate) {
+        this.delegate = delegate;
+        this.lookups = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void init(Configuration configuration) {
+        delegate.init(configuration);
+    }
+
+    @Override
+    public Set<ConfigurationKey> getConfigurationKeys() {
+        return delegate.getConfigurationKeys();
+    }
+
+    @Override
+    public <K, V> ComputingCache<K, V> create(String consumerId,
+            Function<K, V> computingFunction, Long expirationTimeout,
+            Long maxSize, Listener<K> listener) {
+        ComputingCache<K, V> cache = delegate.create(consumerId,
+                computingFunction, expirationTimeout, maxSize, listener);
+        Map<Object, LongAdder> counters = lookups.computeIfAbsent(consumerId,
+                id -> new ConcurrentHashMap<>());
+        return new ComputingCache<K, V>() {
+
+            @Override
+            public V get(K key) {
+                count(key);
+                return cache.get(key);
+            }
+
+            @Override
+            public V getIfPresent(K key) {
+                count(key);
+                return cache.getIfPresent(key);
+            }
+
+            @Override
+            public void clear() {
+                cache.clear();
+            }
+
+            @Override
+            public long size() {
+                return cache.size();
+            }
+
+            @Override
+            public void invalidate(KeyPredicate<K> keyPredicate) {
+                cache.invalidate(keyPredicate);
+            }
+
+            @Override
+            public Map<K, V> getAllPresent() {
+                return cache.getAllPresent();
+            }
+
+            private void count(K key) {
+                counters.computeIfAbsent(key, k -> new LongAdder())
+                        .increment();
+            }
+        };
+    }
+
+    void reset() {
+        lookups.values().forEach(Map::clear);
+    }
+
+    /**
+     *
+     * @param limit
+     * @return the hot keys per consumer, sorted by the number of lookups
+     */
+    Map<String, List<Entry<Object, Long>>> getHotKeys(int limit) {
+        Map<String, List<Entry<Object, Long>>> hotKeys = new ConcurrentHashMap<>();
+        for (Entry<String, Map<Object, LongAdder>> consumer : lookups
+                .entrySet()) {
+            List<Entry<Object, Long>> keys = new ArrayList<>();
+            for (Entry<Object, LongAdder> entry : consumer.getValue()
+                    .entrySet()) {
+                keys.add(new SimpleImmutableEntry<>(
+                        entry.getKey(), entry.getValue().sum()));
+            }
+            if (keys.isEmpty()) {
+                continue;
+            }
+            Collections.sort(keys,
+                    (e1, e2) -> Long.compare(e2.getValue(), e1.getValue()));
+            hotKeys.put(consumer.getKey(),
+                    keys.subList(0, Math.min(limit, keys.size())));
+        }
+        return hotKeys;
+    }
+
+    /**
+     *
+     * @return the total number of lookups per consumer
+     */
+    Map<String, Long> getLookups() {
+        Map<String, Long> totals = new ConcurrentHashMap<>();
+        for (Entry<String, Map<Object, LongAdder>> consumer : lookups
+                .entrySet()) {
+            totals.put(consumer.getKey(), consumer.getValue().values().stream()
+                    .mapToLong(LongAdder::sum).sum());
+        }
+        return totals;
+    }
+
+}
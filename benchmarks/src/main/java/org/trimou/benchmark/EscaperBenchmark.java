@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trimou.engine.text.DefaultTextSupport;
+import org.trimou.engine.text.TextSupport;
+
+/**
+ * The HTML escaping of {@link DefaultTextSupport}, i.e. what the engine uses
+ * by default, applied to values with no, few and many characters to escape.
+ *
+ * @author Martin Kouba
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EscaperBenchmark {
+
+    @Param({ "none", "few", "many" })
+    public String input;
+
+    private TextSupport textSupport;
+
+    private String value;
+
+    @Setup
+    public void setup() {
+        textSupport = new DefaultTextSupport();
+        switch (input) {
+        case "none":
+            value = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor";
+            break;
+        case "few":
+            value = "Lorem ipsum dolor sit amet, <consectetur> adipiscing elit & sed do eiusmod tempor";
+            break;
+        case "many":
+            value = "<p class=\"lorem\">Lorem & 'ipsum' <b>dolor</b> sit=\"amet\"</p>";
+            break;
+        default:
+            throw new IllegalArgumentException(input);
+        }
+    }
+
+    @Benchmark
+    public String escape() {
+        return textSupport.escapeHtml(value);
+    }
+
+    @Benchmark
+    public StringBuilder escapeToAppendable() throws IOException {
+        StringBuilder builder = new StringBuilder(value.length() + 16);
+        textSupport.appendEscapedHtml(value, builder);
+        return builder;
+    }
+
+}
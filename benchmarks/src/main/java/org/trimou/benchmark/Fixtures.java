@@ -0,0 +1,192 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.locator.MapTemplateLocator;
+import org.trimou.handlebars.HelpersBuilder;
+
+/**
+ * Representative templates and data shared by the benchmarks.
+ *
+ * @author Martin Kouba
+ */
+public final class Fixtures {
+
+    public static final String TEXT = "text";
+
+    public static final String LOOP = "loop";
+
+    public static final String HELPER = "helper";
+
+    public static final String PARTIAL = "partial";
+
+    public static final int ITEMS = 50;
+
+    private Fixtures() {
+    }
+
+    /**
+     *
+     * @return the engine with all the templates, built-in and extra helpers
+     */
+    public static MustacheEngine engine() {
+        return MustacheEngineBuilder.newBuilder()
+                .registerHelpers(HelpersBuilder.all().build())
+                .addTemplateLocator(templates()).build();
+    }
+
+    /**
+     *
+     * @return the template locator
+     */
+    public static MapTemplateLocator templates() {
+        return MapTemplateLocator.builder().put(TEXT, text())
+                .put(LOOP, loop()).put(HELPER, helper())
+                .put(PARTIAL, partial()).put("item", item()).build();
+    }
+
+    /**
+     *
+     * @param name
+     * @return the template contents
+     */
+    public static String template(String name) {
+        switch (name) {
+        case TEXT:
+            return text();
+        case LOOP:
+            return loop();
+        case HELPER:
+            return helper();
+        case PARTIAL:
+            return partial();
+        default:
+            throw new IllegalArgumentException(name);
+        }
+    }
+
+    /**
+     *
+     * @return the data
+     */
+    public static Map<String, Object> data() {
+        Map<String, Object> data = new HashMap<>();
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            items.add(new Item(i, "Item " + i, i * 10 + 0.5, i % 3 == 0));
+        }
+        data.put("title", "Trimou <benchmark> & \"friends\"");
+        data.put("items", items);
+        data.put("user", new User("Martin", "martin@trimou.org"));
+        return data;
+    }
+
+    private static String text() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("<html><head><title>{{title}}</title></head><body>\n");
+        for (int i = 0; i < 100; i++) {
+            builder.append(
+                    "<p class=\"lorem\">Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore.</p>\n");
+            if (i % 20 == 0) {
+                builder.append("<h2>{{user.name}}</h2>\n");
+            }
+        }
+        builder.append("</body></html>");
+        return builder.toString();
+    }
+
+    private static String loop() {
+        return "<h1>{{title}}</h1>\n<ul>\n{{#items}}\n  <li id=\"{{id}}\">{{name}} - {{price}}{{#active}} (active){{/active}}</li>\n{{/items}}\n</ul>\n"
+                + "<ol>\n{{#items}}\n  <li>{{iter.index}}: {{name}}{{#iter.hasNext}},{{/iter.hasNext}}</li>\n{{/items}}\n</ol>";
+    }
+
+    private static String helper() {
+        return "<h1>{{title}}</h1>\n<ul>\n{{#each items}}\n  {{#if active}}<li class=\"{{#isEven iter.index}}even{{/isEven}}\">{{fmt \"%s: %.2f\" name price}}</li>{{/if}}\n"
+                + "  {{#unless active}}<li>{{#with this}}{{name}}{{/with}}</li>{{/unless}}\n{{/each}}\n</ul>\n{{is items.size \"All items\"}}";
+    }
+
+    private static String partial() {
+        return "<h1>{{title}}</h1>\n<ul>\n{{#items}}\n  {{>item}}\n{{/items}}\n</ul>\n{{>item}}";
+    }
+
+    private static String item() {
+        return "<li id=\"{{id}}\">\n  {{name}}\n</li>";
+    }
+
+    public static final class Item {
+
+        private final int id;
+
+        private final String name;
+
+        private final double price;
+
+        private final boolean active;
+
+        Item(int id, String name, double price, boolean active) {
+            this.id = id;
+            this.name = name;
+            this.price = price;
+            this.active = active;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+    }
+
+    public static final class User {
+
+        private final String name;
+
+        private final String email;
+
+        User(String name, String email) {
+            this.name = name;
+            this.email = email;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.benchmark;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trimou.Mustache;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.parser.Parser;
+import org.trimou.engine.parser.ParserFactory;
+import org.trimou.engine.parser.ParsingHandler;
+import org.trimou.engine.parser.ParsingHandlerFactory;
+
+/**
+ * {@link #parse()} measures the default parser and parsing handler, i.e. the
+ * segment tree is built but not compiled. {@link #compile()} also includes the
+ * validation, the compilation and the listeners.
+ *
+ * @author Martin Kouba
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({ Fixtures.TEXT, Fixtures.LOOP, Fixtures.HELPER,
+            Fixtures.PARTIAL })
+    public String template;
+
+    private MustacheEngine engine;
+
+    private Parser parser;
+
+    private ParsingHandlerFactory handlerFactory;
+
+    private String contents;
+
+    @Setup
+    public void setup() {
+        engine = Fixtures.engine();
+        parser = new ParserFactory().createParser(engine);
+        handlerFactory = new ParsingHandlerFactory();
+        contents = Fixtures.template(template);
+    }
+
+    @Benchmark
+    public ParsingHandler parse() {
+        ParsingHandler handler = handlerFactory.createParsingHandler();
+        parser.parse(template, new StringReader(contents), handler);
+        return handler;
+    }
+
+    @Benchmark
+    public Mustache compile() {
+        return engine.compileMustache(template, contents);
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trimou.Mustache;
+
+/**
+ * Renders the representative templates, see also {@link Fixtures}.
+ *
+ * @author Martin Kouba
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({ Fixtures.TEXT, Fixtures.LOOP, Fixtures.HELPER,
+            Fixtures.PARTIAL })
+    public String template;
+
+    private Mustache mustache;
+
+    private Map<String, Object> data;
+
+    @Setup
+    public void setup() {
+        mustache = Fixtures.engine().getMustache(template);
+        data = Fixtures.data();
+    }
+
+    @Benchmark
+    public String render() {
+        return mustache.render(data);
+    }
+
+    @Benchmark
+    public StringBuilder renderToAppendable() {
+        StringBuilder builder = new StringBuilder();
+        mustache.render(builder, data);
+        return builder;
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.resolver.EnhancedResolver;
+import org.trimou.engine.resolver.EnhancedResolver.Hint;
+import org.trimou.engine.resolver.MapResolver;
+import org.trimou.engine.resolver.ReflectionResolver;
+import org.trimou.engine.resolver.ResolutionContext;
+import org.trimou.engine.resource.ReleaseCallback;
+
+/**
+ * Compares the {@link ReflectionResolver} and {@link MapResolver} lookups with
+ * and without hints. A hint is what a value segment uses once the first
+ * resolution succeeds.
+ *
+ * @author Martin Kouba
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolverBenchmark {
+
+    private static final String NAME = "name";
+
+    private static final ResolutionContext CONTEXT = new ResolutionContext() {
+
+        @Override
+        public void registerReleaseCallback(ReleaseCallback callback) {
+            // No-op
+        }
+
+        @Override
+        public String getKey() {
+            return NAME;
+        }
+
+        @Override
+        public int getKeyPartIndex() {
+            return 0;
+        }
+    };
+
+    private EnhancedResolver reflectionResolver;
+
+    private EnhancedResolver mapResolver;
+
+    private Hint reflectionHint;
+
+    private Hint mapHint;
+
+    private Fixtures.User user;
+
+    private Map<String, Object> map;
+
+    @Setup
+    public void setup() {
+        MustacheEngine engine = Fixtures.engine();
+        reflectionResolver = find(engine, ReflectionResolver.class);
+        mapResolver = find(engine, MapResolver.class);
+        map = Fixtures.data();
+        map.put(NAME, "Martin");
+        user = (Fixtures.User) map.get("user");
+        reflectionHint = reflectionResolver.createHint(user, NAME, CONTEXT);
+        mapHint = mapResolver.createHint(map, NAME, CONTEXT);
+    }
+
+    @Benchmark
+    public Object reflection() {
+        return reflectionResolver.resolve(user, NAME, CONTEXT);
+    }
+
+    @Benchmark
+    public Object reflectionHint() {
+        return reflectionHint.resolve(user, NAME, CONTEXT);
+    }
+
+    @Benchmark
+    public Object map() {
+        return mapResolver.resolve(map, NAME, CONTEXT);
+    }
+
+    @Benchmark
+    public Object mapHint() {
+        return mapHint.resolve(map, NAME, CONTEXT);
+    }
+
+    private static EnhancedResolver find(MustacheEngine engine,
+            Class<? extends EnhancedResolver> type) {
+        return engine.getConfiguration().getResolvers().stream()
+                .filter(type::isInstance).map(type::cast).findFirst()
+                .orElseThrow(() -> new IllegalStateException(
+                        "Resolver not found: " + type));
+    }
+
+}
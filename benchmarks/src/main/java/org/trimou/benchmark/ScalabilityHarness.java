@@ -0,0 +1,245 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.trimou.Mustache;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.cache.DefaultComputingCacheFactory;
+import org.trimou.handlebars.HelpersBuilder;
+
+/**
+ * Renders the templates from a single shared engine using 1..N threads and
+ * reports the throughput scaling. The measurement phases are recorded with JFR
+ * and the contention hot spots are reported at the end, see
+ * {@link ContentionReport}.
+ *
+ * <p>
+ * Options (<code>--name=value</code>):
+ * </p>
+ * <ul>
+ * <li><code>threads</code> - comma-separated thread counts, powers of two up
+ * to twice the number of processors by default</li>
+ * <li><code>templates</code> - comma-separated templates, see
+ * {@link Fixtures}</li>
+ * <li><code>mode</code> - <code>render</code> (default) or
+ * <code>compile</code></li>
+ * <li><code>warmup</code>, <code>duration</code> - seconds per step (3 and 5 by
+ * default)</li>
+ * <li><code>jfr</code> - the directory the recordings are dumped to,
+ * <code>none</code> to disable the recording</li>
+ * <li><code>lockThreshold</code> - the JFR threshold for lock events in
+ * microseconds (10 by default)</li>
+ * <li><code>cacheKeys</code> - if true, report the hot keys of the computing
+ * caches (adds some overhead)</li>
+ * </ul>
+ *
+ * @author Martin Kouba
+ */
+public final class ScalabilityHarness {
+
+    private static final PrintStream OUT = System.out;
+
+    private final int[] threads;
+
+    private final List<String> templates;
+
+    private final boolean compile;
+
+    private final long warmupMillis;
+
+    private final long durationMillis;
+
+    private final String jfr;
+
+    private final Duration lockThreshold;
+
+    private final boolean cacheKeys;
+
+    private final CountingComputingCacheFactory cacheFactory;
+
+    private final MustacheEngine engine;
+
+    private final Map<String, Object> data;
+
+    private ScalabilityHarness(Map<String, String> options) {
+        this.threads = parseThreads(options.get("threads"));
+        this.templates = Arrays.asList(options
+                .getOrDefault("templates", String.join(",", Fixtures.TEXT,
+                        Fixtures.LOOP, Fixtures.HELPER, Fixtures.PARTIAL))
+                .split(","));
+        this.compile = "compile".equals(options.get("mode"));
+        this.warmupMillis = Long.parseLong(options.getOrDefault("warmup", "3"))
+                * 1000;
+        this.durationMillis = Long
+                .parseLong(options.getOrDefault("duration", "5")) * 1000;
+        this.jfr = options.getOrDefault("jfr", "target/jfr");
+        this.lockThreshold = Duration.ofNanos(
+                Long.parseLong(options.getOrDefault("lockThreshold", "10"))
+                        * 1000);
+        this.cacheKeys = Boolean.parseBoolean(options.get("cacheKeys"));
+        this.cacheFactory = cacheKeys
+                ? new CountingComputingCacheFactory(
+                        new DefaultComputingCacheFactory())
+                : null;
+        MustacheEngineBuilder builder = MustacheEngineBuilder.newBuilder()
+                .registerHelpers(HelpersBuilder.all().build())
+                .addTemplateLocator(Fixtures.templates());
+        if (cacheFactory != null) {
+            builder.setComputingCacheFactory(cacheFactory);
+        }
+        this.engine = builder.build();
+        this.data = Fixtures.data();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException(
+                        "Invalid option, use --name=value: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')),
+                    arg.substring(arg.indexOf('=') + 1));
+        }
+        new ScalabilityHarness(options).run();
+    }
+
+    private void run() throws Exception {
+        OUT.printf("Trimou scalability [mode: %s, templates: %s, processors: %s]%n",
+                compile ? "compile" : "render", templates,
+                Runtime.getRuntime().availableProcessors());
+        ContentionReport report = "none".equals(jfr) ? null
+                : new ContentionReport(Paths.get(jfr), lockThreshold);
+        OUT.printf("%n%8s %14s %14s %9s %11s%n", "threads", "ops/s",
+                "ops/s/thread", "speedup", "efficiency");
+        double base = 0;
+        for (int count : threads) {
+            measure(count, warmupMillis);
+            if (cacheFactory != null) {
+                cacheFactory.reset();
+            }
+            if (report != null) {
+                report.start();
+            }
+            double throughput = measure(count, durationMillis);
+            if (report != null) {
+                report.stop(count);
+            }
+            if (base == 0) {
+                base = throughput / count;
+            }
+            double speedup = throughput / base;
+            OUT.printf("%8d %14.0f %14.0f %9.2f %10.0f%%%n", count, throughput,
+                    throughput / count, speedup, speedup / count * 100);
+        }
+        if (report != null) {
+            report.print(OUT, 10);
+        }
+        if (cacheFactory != null) {
+            printHotKeys();
+        }
+    }
+
+    private double measure(int count, long millis)
+            throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>(count);
+        long[] deadline = new long[1];
+        for (int i = 0; i < count; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                int idx = 0;
+                long done = 0;
+                while (System.nanoTime() < deadline[0]) {
+                    execute(templates.get(idx++ % templates.size()));
+                    done++;
+                }
+                ops.add(done);
+            }, "trimou-scalability-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        deadline[0] = begin + millis * 1_000_000;
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return ops.sum() / ((System.nanoTime() - begin) / 1_000_000_000.0);
+    }
+
+    private void execute(String template) {
+        if (compile) {
+            engine.compileMustache(template, Fixtures.template(template));
+        } else {
+            Mustache mustache = engine.getMustache(template);
+            mustache.render(data);
+        }
+    }
+
+    private void printHotKeys() {
+        Map<String, Long> lookups = cacheFactory.getLookups();
+        OUT.println();
+        OUT.println("Computing cache hot keys:");
+        for (Entry<String, List<Entry<Object, Long>>> consumer : cacheFactory
+                .getHotKeys(5).entrySet()) {
+            long total = lookups.get(consumer.getKey());
+            OUT.printf("  %s (%d lookups)%n", consumer.getKey(), total);
+            for (Entry<Object, Long> key : consumer.getValue()) {
+                String name = String.valueOf(key.getKey());
+                if (name.length() > 80) {
+                    name = name.substring(0, 77) + "...";
+                }
+                OUT.printf("    %5.1f%%  %s%n",
+                        key.getValue() * 100.0 / total, name);
+            }
+        }
+    }
+
+    private static int[] parseThreads(String value) {
+        if (value != null) {
+            return Arrays.stream(value.split(",")).map(String::trim)
+                    .mapToInt(Integer::parseInt).toArray();
+        }
+        List<Integer> counts = new ArrayList<>();
+        int max = Runtime.getRuntime().availableProcessors() * 2;
+        for (int i = 1; i <= max; i *= 2) {
+            counts.add(i);
+        }
+        return counts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+}
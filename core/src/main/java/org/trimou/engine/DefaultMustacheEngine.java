@@ -21,12 +21,14 @@ import static org.trimou.util.Checker.checkArgumentNotNull;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +37,7 @@ import org.trimou.engine.cache.ComputingCache;
 import org.trimou.engine.config.Configuration;
 import org.trimou.engine.config.ConfigurationFactory;
 import org.trimou.engine.config.EngineConfigurationKey;
+import org.trimou.engine.jfr.JfrEvents;
 import org.trimou.engine.listener.MustacheCompilationEvent;
 import org.trimou.engine.listener.MustacheListener;
 import org.trimou.engine.listener.MustacheParsingEvent;
@@ -218,9 +221,34 @@ class DefaultMustacheEngine implements MustacheEngine {
     }
 
     private Mustache parse(String templateId, Reader reader) {
-        ParsingHandler handler = parsingHandlerFactory.createParsingHandler();
-        reader = notifyListenersBeforeParsing(templateId, reader);
-        parserFactory.createParser(this).parse(templateId, reader, handler);
+        Object compileEvent = JfrEvents.beginCompile();
+        Mustache mustache = null;
+        try {
+            mustache = compile(templateId, reader);
+            return mustache;
+        } finally {
+            JfrEvents.endCompile(compileEvent, templateId,
+                    mustache != null ? mustache.getGeneratedId() : null);
+        }
+    }
+
+    private Mustache compile(String templateId, Reader reader) {
+        DefaultMustacheParsingEvent event = notifyListenersBeforeParsing(
+                templateId, reader);
+        ParsingHandler handler;
+        if (event != null) {
+            reader = event.getMustacheContents();
+            handler = parsingHandlerFactory
+                    .createParsingHandler(event.textProcessors);
+        } else {
+            handler = parsingHandlerFactory.createParsingHandler();
+        }
+        Object parseEvent = JfrEvents.beginParse();
+        try {
+            parserFactory.createParser(this).parse(templateId, reader, handler);
+        } finally {
+            JfrEvents.endParse(parseEvent, templateId);
+        }
         Mustache mustache = handler.getCompiledTemplate();
         notifyListenersAfterCompilation(mustache);
         return mustache;
@@ -231,12 +259,19 @@ class DefaultMustacheEngine implements MustacheEngine {
         if (locators == null || locators.isEmpty()) {
             return null;
         }
+        Object locateEvent = JfrEvents.beginLocate();
         Reader reader = null;
-        for (TemplateLocator locator : locators) {
-            reader = locator.locate(templateId);
-            if (reader != null) {
-                break;
+        TemplateLocator found = null;
+        try {
+            for (TemplateLocator locator : locators) {
+                reader = locator.locate(templateId);
+                if (reader != null) {
+                    found = locator;
+                    break;
+                }
             }
+        } finally {
+            JfrEvents.endLocate(locateEvent, templateId, found);
         }
         return reader;
     }
@@ -280,18 +315,18 @@ class DefaultMustacheEngine implements MustacheEngine {
         }
     }
 
-    private Reader notifyListenersBeforeParsing(String templateName,
-            Reader reader) {
+    private DefaultMustacheParsingEvent notifyListenersBeforeParsing(
+            String templateName, Reader reader) {
         if (configuration.getMustacheListeners() != null) {
-            MustacheParsingEvent event = new DefaultMustacheParsingEvent(
+            DefaultMustacheParsingEvent event = new DefaultMustacheParsingEvent(
                     templateName, reader);
             for (MustacheListener listener : configuration
                     .getMustacheListeners()) {
                 listener.parsingStarted(event);
             }
-            return event.getMustacheContents();
+            return event;
         }
-        return reader;
+        return null;
     }
 
     private void notifyListenersAfterCompilation(Mustache mustache) {
@@ -362,6 +397,8 @@ class DefaultMustacheEngine implements MustacheEngine {
 
         private Reader reader;
 
+        private List<UnaryOperator<String>> textProcessors;
+
         public DefaultMustacheParsingEvent(String mustacheName, Reader reader) {
             super();
             this.mustacheName = mustacheName;
@@ -382,6 +419,15 @@ class DefaultMustacheEngine implements MustacheEngine {
             this.reader = reader;
         }
 
+        @Override
+        public void addTextProcessor(UnaryOperator<String> processor) {
+            checkArgumentNotNull(processor);
+            if (textProcessors == null) {
+                textProcessors = new ArrayList<>();
+            }
+            textProcessors.add(processor);
+        }
+
     }
 
 }
@@ -27,6 +27,7 @@ import org.slf4j.LoggerFactory;
 import org.trimou.engine.cache.ComputingCache.Function;
 import org.trimou.engine.cache.ComputingCache.Listener;
 import org.trimou.engine.config.AbstractConfigurationAware;
+import org.trimou.engine.jfr.JfrEvents;
 import org.trimou.util.Checker;
 import org.trimou.util.ImmutableMap;
 import org.trimou.util.ImmutableMap.ImmutableMapBuilder;
@@ -68,8 +69,8 @@ public class DefaultComputingCacheFactory extends AbstractConfigurationAware
             throw new IllegalArgumentException(
                     "Max size limit not supported - use a different eviction strategy");
         }
-        return new ConcurrentHashMapAdapter<>(computingFunction, maxSize,
-                maxSizeStrategy, expirationTimeout, listener);
+        return new ConcurrentHashMapAdapter<>(consumerId, computingFunction,
+                maxSize, maxSizeStrategy, expirationTimeout, listener);
     }
 
     /**
@@ -85,6 +86,8 @@ public class DefaultComputingCacheFactory extends AbstractConfigurationAware
         private static final Logger LOGGER = LoggerFactory
                 .getLogger(ConcurrentHashMapAdapter.class);
 
+        private final String consumerId;
+
         private final MaxSizeStrategy maxSizeStrategy;
 
         private final Long maxSize;
@@ -99,14 +102,16 @@ public class DefaultComputingCacheFactory extends AbstractConfigurationAware
 
         /**
          *
+         * @param consumerId
          * @param computingFunction
          * @param maxSize
          * @param maxSizeStrategy
          */
-        ConcurrentHashMapAdapter(
+        ConcurrentHashMapAdapter(String consumerId,
                 ComputingCache.Function<K, V> computingFunction, Long maxSize,
                 MaxSizeStrategy maxSizeStrategy, Long expirationTimeout,
                 Listener<K> listener) {
+            this.consumerId = consumerId;
             this.map = new ConcurrentHashMap<>();
             this.maxSize = maxSize;
             this.expirationTimeout = expirationTimeout;
@@ -115,7 +120,12 @@ public class DefaultComputingCacheFactory extends AbstractConfigurationAware
                 if (maxSize != null && map.size() > maxSize) {
                     throw new MaxSizeExceededException();
                 }
-                return CacheEntry.of(computingFunction.compute(key));
+                Object jfrEvent = JfrEvents.beginCacheLoad();
+                try {
+                    return CacheEntry.of(computingFunction.compute(key));
+                } finally {
+                    JfrEvents.endCacheLoad(jfrEvent, consumerId, key);
+                }
             };
             this.maxSizeStrategy = maxSizeStrategy;
         }
@@ -181,6 +191,7 @@ public class DefaultComputingCacheFactory extends AbstractConfigurationAware
         }
 
         private void notifyListener(K key, RemovalCause cause) {
+            JfrEvents.cacheEviction(consumerId, key, cause, 1);
             if (listener != null) {
                 listener.entryInvalidated(key, cause.toString());
             }
@@ -220,7 +231,10 @@ public class DefaultComputingCacheFactory extends AbstractConfigurationAware
                         notifyListener(key, RemovalCause.MAX_SIZE_EXCEEDED);
                     }
                 } else {
+                    long size = map.size();
                     map.clear();
+                    JfrEvents.cacheEviction(consumerId, null,
+                            RemovalCause.MAX_SIZE_EXCEEDED, size);
                 }
                 break;
             default:
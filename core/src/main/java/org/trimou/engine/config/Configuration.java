@@ -29,6 +29,7 @@ import org.trimou.engine.interpolation.LiteralSupport;
 import org.trimou.engine.interpolation.MissingValueHandler;
 import org.trimou.engine.listener.MustacheListener;
 import org.trimou.engine.locale.LocaleSupport;
+import org.trimou.engine.locale.ResourceBundleCache;
 import org.trimou.engine.locator.TemplateLocator;
 import org.trimou.engine.resolver.Resolver;
 import org.trimou.engine.text.TextSupport;
@@ -175,4 +176,13 @@ public interface Configuration {
     * @since 2.5
     */
    List<ContextConverter> getContextConverters();
+
+    /**
+     *
+     * @return the resource bundle cache shared by all the components of the
+     *         engine
+     * @since 2.5.2
+     */
+    ResourceBundleCache getResourceBundleCache();
+
 }
@@ -49,6 +49,7 @@ import org.trimou.engine.interpolation.ThrowingExceptionMissingValueHandler;
 import org.trimou.engine.listener.MustacheListener;
 import org.trimou.engine.locale.DefaultLocaleSupport;
 import org.trimou.engine.locale.LocaleSupport;
+import org.trimou.engine.locale.ResourceBundleCache;
 import org.trimou.engine.locator.TemplateLocator;
 import org.trimou.engine.priority.Priorities;
 import org.trimou.engine.resolver.Resolver;
@@ -106,6 +107,8 @@ class DefaultConfiguration implements Configuration {
 
     private final List<ContextConverter> contextConverters;
 
+    private final ResourceBundleCache resourceBundleCache;
+
     /**
      *
      * @param builder
@@ -169,6 +172,7 @@ class DefaultConfiguration implements Configuration {
         } else {
             this.literalSupport = new DefaultLiteralSupport();
         }
+        this.resourceBundleCache = new ResourceBundleCache();
 
         // All configuration aware components must be availabe at this time
         // so that it's possible to collect all configuration keys
@@ -177,6 +181,7 @@ class DefaultConfiguration implements Configuration {
         Set<ConfigurationAware> components = new LinkedHashSet<>();
         components.add(computingCacheFactory);
         components.add(identifierGenerator);
+        components.add(resourceBundleCache);
         components.addAll(resolvers);
         components.add(textSupport);
         components.add(localeSupport);
@@ -394,6 +399,11 @@ class DefaultConfiguration implements Configuration {
         return contextConverters;
     }
 
+    @Override
+    public ResourceBundleCache getResourceBundleCache() {
+        return resourceBundleCache;
+    }
+
     private void initializeConfigurationAwareComponents(
             Set<ConfigurationAware> components) {
         for (ConfigurationAware component : components) {
@@ -137,6 +137,35 @@ public enum EngineConfigurationKey implements ConfigurationKey {
      * @see MustacheEngine#getMustacheSource(String)
      */
     TEMPLATE_CACHE_USED_FOR_SOURCE(false),
+    /**
+     * The max initial capacity of the output buffer used by
+     * {@link org.trimou.Mustache#render(Object)}. The initial capacity is
+     * estimated from the output size of previous renderings of the template.
+     * Zero and negative values disable the presizing. The pooling of buffers
+     * is configured separately, see {@link #OUTPUT_BUFFER_POOL_SIZE}.
+     *
+     * @since 2.5.2
+     */
+    OUTPUT_BUFFER_MAX_INITIAL_CAPACITY(1024 * 1024),
+    /**
+     * The max number of output buffers pooled per thread and reused by
+     * {@link org.trimou.Mustache#render(Object)}. Buffers with capacity
+     * greater than {@link #OUTPUT_BUFFER_POOL_MAX_CAPACITY} are never pooled.
+     * Zero and negative values disable the pooling. The pooling does not
+     * depend on {@link #OUTPUT_BUFFER_MAX_INITIAL_CAPACITY}.
+     *
+     * @since 2.5.2
+     */
+    OUTPUT_BUFFER_POOL_SIZE(0),
+    /**
+     * The max capacity of a pooled output buffer, see
+     * {@link #OUTPUT_BUFFER_POOL_SIZE}. Larger buffers are discarded so that
+     * a single huge output is not retained. Zero and negative values disable
+     * the pooling.
+     *
+     * @since 2.5.2
+     */
+    OUTPUT_BUFFER_POOL_MAX_CAPACITY(1024 * 1024),
     ;
 
     private Object defaultValue;
@@ -85,8 +85,14 @@ final class DefaultExecutionContext implements ExecutionContext {
     @Override
     public ValueWrapper getValue(String key, String[] keyParts,
             AtomicReference<Hint> hintRef) {
+        return getValue(key, keyParts, hintRef, null);
+    }
 
-        ValueWrapper value = new ValueWrapper(key);
+    @Override
+    public ValueWrapper getValue(String key, String[] keyParts,
+            AtomicReference<Hint> hintRef, ResolutionTrace trace) {
+
+        ValueWrapper value = new ValueWrapper(key, trace);
         Object lastValue;
 
         if (keyParts == null || keyParts.length == 0) {
@@ -123,6 +129,9 @@ final class DefaultExecutionContext implements ExecutionContext {
             }
         }
 
+        if (trace != null) {
+            trace.found();
+        }
         if (!Placeholder.NULL.equals(lastValue)) {
             value.set(lastValue);
         }
@@ -244,6 +253,9 @@ final class DefaultExecutionContext implements ExecutionContext {
             Hint hint = hintRef != null ? hintRef.get() : null;
             if (hint != null) {
                 leading = hint.resolve(null, name, value);
+                if (value.trace != null) {
+                    value.trace.hintUsed(leading != null);
+                }
             }
             if (leading == null) {
                 leading = resolve(null, name, value, hint == null
@@ -262,6 +274,9 @@ final class DefaultExecutionContext implements ExecutionContext {
             Hint hint = hintRef != null ? hintRef.get() : null;
             if (hint != null) {
                 leading = hint.resolve(contextObject, name, value);
+                if (value.trace != null) {
+                    value.trace.hintUsed(leading != null);
+                }
             }
             if (leading == null) {
                 leading = resolve(contextObject, name, value, hint == null
@@ -275,6 +290,9 @@ final class DefaultExecutionContext implements ExecutionContext {
     }
 
     private Object resolve(Object contextObject, String name, ValueWrapper value, boolean createHint) {
+        if (value.trace != null) {
+            return resolveTraced(contextObject, name, value, createHint);
+        }
         Object resolved = null;
         for (final Resolver resolver : resolvers) {
             resolved = resolver.resolve(contextObject, name, value);
@@ -289,4 +307,24 @@ final class DefaultExecutionContext implements ExecutionContext {
         return resolved;
     }
 
+    private Object resolveTraced(Object contextObject, String name, ValueWrapper value, boolean createHint) {
+        ResolutionTrace trace = value.trace;
+        for (final Resolver resolver : resolvers) {
+            trace.resolverInvoked();
+            Object resolved = resolver.resolve(contextObject, name, value);
+            if (resolved != null) {
+                trace.resolved(resolver);
+                if (createHint && resolver instanceof EnhancedResolver) {
+                    value.setHint(((EnhancedResolver) resolver).createHint(contextObject, name, value));
+                    if (value.getHint() != null) {
+                        trace.hintCreated();
+                    }
+                }
+                return resolved;
+            }
+        }
+        trace.fullChainWalked();
+        return null;
+    }
+
 }
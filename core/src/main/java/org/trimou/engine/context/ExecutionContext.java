@@ -43,6 +43,18 @@ public interface ExecutionContext {
     ValueWrapper getValue(String key, String[] keyParts,
             AtomicReference<Hint> hintRef);
 
+    /**
+     * @param key
+     * @param keyParts
+     * @param hintRef
+     * @param trace
+     *            If not <code>null</code> the resolution is recorded
+     * @return the wrapper for the given key
+     * @since 2.5.2
+     */
+    ValueWrapper getValue(String key, String[] keyParts,
+            AtomicReference<Hint> hintRef, ResolutionTrace trace);
+
     /**
      * @param key
      * @return the wrapper for the given key
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.engine.context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.trimou.engine.resolver.EnhancedResolver.Hint;
+import org.trimou.engine.resolver.Resolver;
+
+/**
+ * Records the resolution of a single value, e.g. which resolvers resolved the
+ * key parts, how many times the resolver chain was walked without success and
+ * whether a {@link Hint} was used. It is not thread-safe.
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ * @see org.trimou.engine.listener.ResolutionListener
+ */
+public final class ResolutionTrace {
+
+    private final String key;
+
+    private final List<Resolver> resolvers;
+
+    private int resolverInvocations;
+
+    private int fullChainWalks;
+
+    private int hintHits;
+
+    private int hintMisses;
+
+    private boolean hintCreated;
+
+    private boolean found;
+
+    /**
+     *
+     * @param key
+     */
+    public ResolutionTrace(String key) {
+        this.key = key;
+        this.resolvers = new ArrayList<>(2);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * The element is <code>null</code> if the key part was resolved by a hint.
+     * If the value was not found the list does not contain an element for the
+     * key part which could not be resolved.
+     *
+     * @return the resolvers which resolved the key parts
+     */
+    public List<Resolver> getResolvers() {
+        return Collections.unmodifiableList(resolvers);
+    }
+
+    /**
+     *
+     * @return the number of resolver invocations, hints not included
+     */
+    public int getResolverInvocations() {
+        return resolverInvocations;
+    }
+
+    /**
+     * The chain is walked to completion e.g. if the leading context object is
+     * not found on the top of the context stack.
+     *
+     * @return the number of times all the resolvers were invoked but none of
+     *         them resolved the key part
+     */
+    public int getFullChainWalks() {
+        return fullChainWalks;
+    }
+
+    /**
+     *
+     * @return the number of times a hint resolved the leading context object
+     */
+    public int getHintHits() {
+        return hintHits;
+    }
+
+    /**
+     * Note that the resolver chain is walked if a hint fails.
+     *
+     * @return the number of times a hint failed to resolve the leading context
+     *         object
+     */
+    public int getHintMisses() {
+        return hintMisses;
+    }
+
+    /**
+     *
+     * @return <code>true</code> if a new hint was created, <code>false</code>
+     *         otherwise
+     */
+    public boolean isHintCreated() {
+        return hintCreated;
+    }
+
+    /**
+     *
+     * @return <code>true</code> if all the key parts were resolved,
+     *         <code>false</code> otherwise
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    void resolverInvoked() {
+        resolverInvocations++;
+    }
+
+    void resolved(Resolver resolver) {
+        resolvers.add(resolver);
+    }
+
+    void fullChainWalked() {
+        fullChainWalks++;
+    }
+
+    void hintUsed(boolean hit) {
+        if (hit) {
+            hintHits++;
+            resolvers.add(null);
+        } else {
+            hintMisses++;
+        }
+    }
+
+    void hintCreated() {
+        hintCreated = true;
+    }
+
+    void found() {
+        found = true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "ResolutionTrace [key: %s, found: %s, resolverInvocations: %s, fullChainWalks: %s, hintHits: %s, hintMisses: %s, hintCreated: %s]",
+                key, found, resolverInvocations, fullChainWalks, hintHits,
+                hintMisses, hintCreated);
+    }
+
+}
@@ -41,12 +41,25 @@ public final class ValueWrapper extends AbstractReleaseCallbackContainer
 
     private Hint hint;
 
+    final ResolutionTrace trace;
+
     /**
      *
      * @param key
      */
     public ValueWrapper(String key) {
+        this(key, null);
+    }
+
+    /**
+     *
+     * @param key
+     * @param trace
+     *            May be <code>null</code>
+     */
+    ValueWrapper(String key, ResolutionTrace trace) {
         this.key = key;
+        this.trace = trace;
     }
 
     /**
@@ -0,0 +1,488 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.engine.jfr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trimou.annotations.Internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits JDK Flight Recorder events. All the events belong to the
+ * {@value #CATEGORY} category and are disabled unless enabled in the recording
+ * settings, e.g. <code>org.trimou.Render#enabled=true</code>.
+ *
+ * <p>
+ * A <code>begin</code> method returns an opaque event handle or
+ * <code>null</code> if the event type is not enabled. The corresponding
+ * <code>end</code> method must be called with the handle and does nothing if
+ * the handle is <code>null</code>. Therefore, if an event type is not enabled
+ * the overhead is negligible.
+ * </p>
+ *
+ * <p>
+ * The events are only used if the <code>jdk.jfr</code> module is available
+ * at runtime. Note that the event classes are never loaded otherwise.
+ * </p>
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ */
+@Internal
+public final class JfrEvents {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(JfrEvents.class);
+
+    public static final String CATEGORY = "Trimou";
+
+    private static final boolean AVAILABLE = isAvailable();
+
+    private JfrEvents() {
+    }
+
+    /**
+     *
+     * @return <code>true</code> if JFR is available at runtime,
+     *         <code>false</code> otherwise
+     */
+    public static boolean isJfrAvailable() {
+        return AVAILABLE;
+    }
+
+    public static Object beginLocate() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        LocateEvent event = new LocateEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     *
+     * @param handle
+     * @param templateId
+     * @param locator
+     *            The locator which found the template, may be
+     *            <code>null</code>
+     */
+    public static void endLocate(Object handle, String templateId,
+            Object locator) {
+        if (handle == null) {
+            return;
+        }
+        LocateEvent event = (LocateEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.templateId = templateId;
+            event.found = locator != null;
+            event.locator = locator != null ? locator.getClass().getName()
+                    : null;
+            event.commit();
+        }
+    }
+
+    public static Object beginParse() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        ParseEvent event = new ParseEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public static void endParse(Object handle, String templateName) {
+        if (handle == null) {
+            return;
+        }
+        ParseEvent event = (ParseEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.templateName = templateName;
+            event.commit();
+        }
+    }
+
+    public static Object beginCompile() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        CompileEvent event = new CompileEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     *
+     * @param handle
+     * @param templateName
+     * @param templateGeneratedId
+     *            May be <code>null</code> if the compilation failed
+     */
+    public static void endCompile(Object handle, String templateName,
+            Long templateGeneratedId) {
+        if (handle == null) {
+            return;
+        }
+        CompileEvent event = (CompileEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.templateName = templateName;
+            event.templateGeneratedId = templateGeneratedId != null
+                    ? templateGeneratedId
+                    : -1;
+            event.commit();
+        }
+    }
+
+    public static Object beginRender() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        RenderEvent event = new RenderEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     *
+     * @param handle
+     * @param templateName
+     * @param templateGeneratedId
+     * @param renderingId
+     * @param outputSize
+     *            The number of characters written, <code>-1</code> if not
+     *            known
+     */
+    public static void endRender(Object handle, String templateName,
+            long templateGeneratedId, long renderingId, long outputSize) {
+        if (handle == null) {
+            return;
+        }
+        RenderEvent event = (RenderEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.templateName = templateName;
+            event.templateGeneratedId = templateGeneratedId;
+            event.renderingId = renderingId;
+            event.outputSize = outputSize;
+            event.commit();
+        }
+    }
+
+    public static Object beginHelper() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        HelperEvent event = new HelperEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public static void endHelper(Object handle, String helperName,
+            String templateName, int line) {
+        if (handle == null) {
+            return;
+        }
+        HelperEvent event = (HelperEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.helperName = helperName;
+            event.templateName = templateName;
+            event.line = line;
+            event.commit();
+        }
+    }
+
+    public static Object beginAsyncWait() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        AsyncWaitEvent event = new AsyncWaitEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public static void endAsyncWait(Object handle) {
+        if (handle == null) {
+            return;
+        }
+        AsyncWaitEvent event = (AsyncWaitEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.commit();
+        }
+    }
+
+    public static Object beginCacheLoad() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        CacheLoadEvent event = new CacheLoadEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public static void endCacheLoad(Object handle, String consumerId,
+            Object key) {
+        if (handle == null) {
+            return;
+        }
+        CacheLoadEvent event = (CacheLoadEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.consumerId = consumerId;
+            event.key = String.valueOf(key);
+            event.commit();
+        }
+    }
+
+    /**
+     * An eviction is an instant event.
+     *
+     * @param consumerId
+     * @param key
+     *            May be <code>null</code> if all the entries were removed
+     * @param cause
+     * @param entries
+     *            The number of removed entries
+     */
+    public static void cacheEviction(String consumerId, Object key,
+            Object cause, long entries) {
+        if (!AVAILABLE) {
+            return;
+        }
+        CacheEvictionEvent event = new CacheEvictionEvent();
+        if (event.shouldCommit()) {
+            event.consumerId = consumerId;
+            event.key = key != null ? key.toString() : null;
+            event.cause = String.valueOf(cause);
+            event.entries = entries;
+            event.commit();
+        }
+    }
+
+    /**
+     * A slow rendering is an instant event.
+     *
+     * @param templateName
+     * @param renderingId
+     * @param elapsedNanos
+     * @param path
+     *            The current position of the rendering thread
+     */
+    public static void slowRendering(String templateName, long renderingId,
+            long elapsedNanos, String path) {
+        if (!AVAILABLE) {
+            return;
+        }
+        SlowRenderingEvent event = new SlowRenderingEvent();
+        if (event.shouldCommit()) {
+            event.templateName = templateName;
+            event.renderingId = renderingId;
+            event.elapsed = elapsedNanos;
+            event.path = path;
+            event.commit();
+        }
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false,
+                    JfrEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            LOGGER.debug("JFR not available - events will not be emitted");
+            return false;
+        }
+    }
+
+    @Name("org.trimou.Locate")
+    @Label("Template Locating")
+    @Description("A template was looked up by the template locators")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class LocateEvent extends Event {
+
+        @Label("Template Id")
+        String templateId;
+
+        @Label("Found")
+        boolean found;
+
+        @Label("Locator")
+        String locator;
+
+    }
+
+    @Name("org.trimou.Parse")
+    @Label("Template Parsing")
+    @Description("The template contents were parsed")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class ParseEvent extends Event {
+
+        @Label("Template Name")
+        String templateName;
+
+    }
+
+    @Name("org.trimou.Compile")
+    @Label("Template Compilation")
+    @Description("A template was compiled, including parsing and listener notifications")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class CompileEvent extends Event {
+
+        @Label("Template Name")
+        String templateName;
+
+        @Label("Template Generated Id")
+        long templateGeneratedId;
+
+    }
+
+    @Name("org.trimou.Render")
+    @Label("Template Rendering")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class RenderEvent extends Event {
+
+        @Label("Template Name")
+        String templateName;
+
+        @Label("Template Generated Id")
+        long templateGeneratedId;
+
+        @Label("Rendering Id")
+        long renderingId;
+
+        @Label("Output Size")
+        @Description("The number of characters written, -1 if not known")
+        long outputSize;
+
+    }
+
+    @Name("org.trimou.Helper")
+    @Label("Helper Execution")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class HelperEvent extends Event {
+
+        @Label("Helper Name")
+        String helperName;
+
+        @Label("Template Name")
+        String templateName;
+
+        @Label("Line")
+        int line;
+
+    }
+
+    @Name("org.trimou.AsyncWait")
+    @Label("Async Block Wait")
+    @Description("The rendering thread waited for the result of an async helper")
+    @Category(CATEGORY)
+    static final class AsyncWaitEvent extends Event {
+    }
+
+    @Name("org.trimou.CacheLoad")
+    @Label("Computing Cache Load")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class CacheLoadEvent extends Event {
+
+        @Label("Consumer Id")
+        String consumerId;
+
+        @Label("Key")
+        String key;
+
+    }
+
+    @Name("org.trimou.CacheEviction")
+    @Label("Computing Cache Eviction")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class CacheEvictionEvent extends Event {
+
+        @Label("Consumer Id")
+        String consumerId;
+
+        @Label("Key")
+        String key;
+
+        @Label("Cause")
+        String cause;
+
+        @Label("Entries")
+        long entries;
+
+    }
+
+    @Name("org.trimou.SlowRendering")
+    @Label("Slow Rendering")
+    @Description("A rendering exceeded the threshold of the slow rendering watchdog")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class SlowRenderingEvent extends Event {
+
+        @Label("Template Name")
+        String templateName;
+
+        @Label("Rendering Id")
+        long renderingId;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        @Label("Path")
+        String path;
+
+    }
+
+}
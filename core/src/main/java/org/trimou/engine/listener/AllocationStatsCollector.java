@@ -0,0 +1,373 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.engine.listener;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheTagInfo;
+import org.trimou.engine.cache.ComputingCache;
+import org.trimou.engine.listener.HistogramStatsCollector.Histogram;
+import org.trimou.engine.listener.HistogramStatsCollector.Snapshot;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * A {@link MustacheListener} collecting the footprint of template renderings.
+ * The following values are recorded for each successful rendering:
+ *
+ * <ul>
+ * <li>the number of bytes allocated by the rendering thread (if supported by
+ * the JVM, see {@link #isAllocatedBytesSupported()}),</li>
+ * <li>the number of characters written, see
+ * {@link MustacheRenderingEvent#getOutputSize()},</li>
+ * <li>the number of tag segments executed, see {@link SegmentListener}.</li>
+ * </ul>
+ *
+ * <p>
+ * The values are aggregated per template in {@link Histogram}s, i.e. the
+ * memory footprint only depends on the number of templates. The reported
+ * percentiles may be used e.g. to find templates which allocate
+ * disproportionately or to choose the initial capacity of an output buffer.
+ * </p>
+ *
+ * <p>
+ * Note that the allocations and segments of an async helper executed on a
+ * different thread are not included. On the other hand, the values of a
+ * rendering include the values of all the nested renderings (e.g. a template
+ * rendered by a helper).
+ * </p>
+ *
+ * Note that the template is identified with the name - so data will not be
+ * correct if there's more than one templates with the same name (which is
+ * possible if using {@link MustacheEngine#compileMustache(String, String)}).
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ */
+public class AllocationStatsCollector extends AbstractMustacheListener
+        implements SegmentListener {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(AllocationStatsCollector.class);
+
+    public static final String COMPUTING_CACHE_CONSUMER_ID = AllocationStatsCollector.class
+            .getName();
+
+    private final Predicate<String> templatePredicate;
+
+    private final ThreadMXBean threadMXBean;
+
+    private final ThreadLocal<long[]> executedSegments;
+
+    /**
+     * Map of name to data
+     */
+    protected ComputingCache<String, TemplateData> data;
+
+    /**
+     *
+     */
+    public AllocationStatsCollector() {
+        this(null);
+    }
+
+    /**
+     *
+     * @param templatePredicate
+     */
+    public AllocationStatsCollector(Predicate<String> templatePredicate) {
+        this.templatePredicate = templatePredicate != null ? templatePredicate
+                : AbstractStatsCollector.IS_NOT_ONEOFF_LAMBA_TEMPLATE;
+        this.threadMXBean = initThreadMXBean();
+        this.executedSegments = ThreadLocal.withInitial(() -> new long[1]);
+    }
+
+    @Override
+    protected void init() {
+        this.data = configuration.getComputingCacheFactory().create(
+                COMPUTING_CACHE_CONSUMER_ID, key -> new TemplateData(), null,
+                null, null);
+    }
+
+    @Override
+    public void renderingStarted(final MustacheRenderingEvent event) {
+        if (!templatePredicate.test(event.getMustacheName())) {
+            return;
+        }
+        final long[] segments = executedSegments.get();
+        final long segmentsStart = segments[0];
+        final long allocatedStart = getAllocatedBytes();
+        event.registerReleaseCallback(() -> {
+            long outputSize = event.getOutputSize();
+            if (outputSize < 0) {
+                // Rendering failed
+                return;
+            }
+            TemplateData templateData = data.get(event.getMustacheName());
+            if (allocatedStart >= 0) {
+                templateData.allocatedBytes
+                        .record(getAllocatedBytes() - allocatedStart);
+            }
+            templateData.outputSize.record(outputSize);
+            templateData.segments.record(segments[0] - segmentsStart);
+        });
+    }
+
+    @Override
+    public void segmentStarted(MustacheTagInfo tag) {
+        executedSegments.get()[0]++;
+    }
+
+    @Override
+    public void segmentFinished(MustacheTagInfo tag) {
+        // No-op
+    }
+
+    /**
+     *
+     * @return <code>true</code> if the JVM supports the measurement of the
+     *         bytes allocated by a thread, <code>false</code> otherwise
+     */
+    public boolean isAllocatedBytesSupported() {
+        return threadMXBean != null;
+    }
+
+    /**
+     *
+     * @param templateName
+     * @return the statistics for the given template or <code>null</code> if
+     *         no data available
+     */
+    public AllocationStats getStats(String templateName) {
+        TemplateData templateData = data.getIfPresent(templateName);
+        return templateData != null ? templateData.toStats(templateName)
+                : null;
+    }
+
+    /**
+     *
+     * @return the statistics for all templates, sorted by the mean number of
+     *         allocated bytes and the mean output size in descending order
+     */
+    public List<AllocationStats> getStats() {
+        if (data.size() == 0) {
+            return Collections.emptyList();
+        }
+        List<AllocationStats> stats = new ArrayList<>();
+        for (Entry<String, TemplateData> entry : data.getAllPresent()
+                .entrySet()) {
+            stats.add(entry.getValue().toStats(entry.getKey()));
+        }
+        stats.sort(Comparator
+                .comparingLong(
+                        (AllocationStats s) -> s.getAllocatedBytes().getMean())
+                .thenComparingLong(s -> s.getOutputSize().getMean())
+                .reversed());
+        return stats;
+    }
+
+    /**
+     * Drop all the collected data.
+     */
+    public void clearData() {
+        data.clear();
+    }
+
+    private long getAllocatedBytes() {
+        return threadMXBean != null ? threadMXBean
+                .getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    private static ThreadMXBean initThreadMXBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory
+                    .getThreadMXBean();
+            if (bean instanceof ThreadMXBean) {
+                ThreadMXBean threadMXBean = (ThreadMXBean) bean;
+                if (threadMXBean.isThreadAllocatedMemorySupported()
+                        && threadMXBean.isThreadAllocatedMemoryEnabled()) {
+                    return threadMXBean;
+                }
+            }
+        } catch (LinkageError | UnsupportedOperationException e) {
+            // Not supported
+        }
+        LOGGER.info(
+                "Thread allocated memory measurement not supported - allocated bytes will not be recorded");
+        return null;
+    }
+
+    static final class TemplateData {
+
+        private final Histogram allocatedBytes = new Histogram();
+
+        private final Histogram outputSize = new Histogram();
+
+        private final Histogram segments = new Histogram();
+
+        AllocationStats toStats(String name) {
+            return new AllocationStats(name,
+                    new ValueStats(allocatedBytes.snapshot(false)),
+                    new ValueStats(outputSize.snapshot(false)),
+                    new ValueStats(segments.snapshot(false)));
+        }
+
+    }
+
+    public static class AllocationStats {
+
+        private final String name;
+
+        private final ValueStats allocatedBytes;
+
+        private final ValueStats outputSize;
+
+        private final ValueStats segments;
+
+        AllocationStats(String name, ValueStats allocatedBytes,
+                ValueStats outputSize, ValueStats segments) {
+            this.name = name;
+            this.allocatedBytes = allocatedBytes;
+            this.outputSize = outputSize;
+            this.segments = segments;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         *
+         * @return the number of renderings
+         */
+        public long getCount() {
+            return outputSize.getCount();
+        }
+
+        /**
+         * No values are recorded if not supported by the JVM.
+         *
+         * @return the number of bytes allocated per rendering
+         * @see AllocationStatsCollector#isAllocatedBytesSupported()
+         */
+        public ValueStats getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         *
+         * @return the number of characters written per rendering
+         */
+        public ValueStats getOutputSize() {
+            return outputSize;
+        }
+
+        /**
+         *
+         * @return the number of tag segments executed per rendering
+         */
+        public ValueStats getSegments() {
+            return segments;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "AllocationStats [name: %s, count: %s, allocatedBytes: %s, outputSize: %s, segments: %s]",
+                    name, getCount(), allocatedBytes, outputSize, segments);
+        }
+
+    }
+
+    /**
+     * The percentiles are computed from the {@link Histogram} buckets, i.e.
+     * the reported value is the highest value of the bucket (but never greater
+     * than the max value).
+     */
+    public static class ValueStats {
+
+        private final Snapshot snapshot;
+
+        ValueStats(Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        /**
+         *
+         * @return the number of recorded values
+         */
+        public long getCount() {
+            return snapshot.getCount();
+        }
+
+        public long getTotal() {
+            return snapshot.getSum();
+        }
+
+        public long getMean() {
+            return snapshot.getMean();
+        }
+
+        public long getMin() {
+            return snapshot.getMin();
+        }
+
+        public long getMax() {
+            return snapshot.getMax();
+        }
+
+        public long getP50() {
+            return getValueAtPercentile(50.0);
+        }
+
+        public long getP90() {
+            return getValueAtPercentile(90.0);
+        }
+
+        public long getP99() {
+            return getValueAtPercentile(99.0);
+        }
+
+        /**
+         *
+         * @param percentile
+         *            The value between 0 and 100
+         * @return the value at the given percentile
+         */
+        public long getValueAtPercentile(double percentile) {
+            return snapshot.getValueAtPercentile(percentile);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "[count: %s, mean: %s, min: %s, max: %s, p50: %s, p90: %s, p99: %s]",
+                    getCount(), getMean(), getMin(), getMax(), getP50(),
+                    getP90(), getP99());
+        }
+
+    }
+
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.engine.listener;
+
+import java.util.Collections;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.cache.ComputingCache;
+import org.trimou.util.Checker;
+import org.trimou.util.ImmutableSet;
+import org.trimou.util.ImmutableSet.ImmutableSetBuilder;
+
+/**
+ * A {@link MustacheListener} collecting template rendering statistics in
+ * constant memory. The rendering times of a template are recorded in a
+ * lock-free {@link Histogram} with log-linear buckets. The memory footprint
+ * only depends on the number of templates, not on the number of renderings or
+ * distinct timings.
+ *
+ * <p>
+ * Besides the cumulative statistics it's possible to obtain windowed
+ * snapshots, see {@link #snapshot()}.
+ * </p>
+ *
+ * Note that the template is identified with the name - so data will not be
+ * correct if there's more than one templates with the same name (which is
+ * possible if using {@link MustacheEngine#compileMustache(String, String)}).
+ *
+ * This listener is not able to detect rendering errors.
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ */
+public class HistogramStatsCollector extends AbstractStatsCollector {
+
+    public static final String COMPUTING_CACHE_CONSUMER_ID = HistogramStatsCollector.class
+            .getName();
+
+    /**
+     * Map of name to histogram
+     */
+    protected ComputingCache<String, Histogram> data;
+
+    /**
+     *
+     */
+    public HistogramStatsCollector() {
+        this(null, null);
+    }
+
+    /**
+     *
+     * @param templatePredicate
+     * @param timeUnit
+     */
+    public HistogramStatsCollector(Predicate<String> templatePredicate,
+            TimeUnit timeUnit) {
+        super(templatePredicate, timeUnit);
+    }
+
+    @Override
+    protected void init() {
+        this.data = configuration.getComputingCacheFactory().create(
+                COMPUTING_CACHE_CONSUMER_ID, key -> new Histogram(), null,
+                null, null);
+    }
+
+    @Override
+    public void renderingStarted(final MustacheRenderingEvent event) {
+        if (isApplied(event.getMustacheName())) {
+            final long start = System.nanoTime();
+            event.registerReleaseCallback(() -> data
+                    .get(event.getMustacheName())
+                    .record(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Drop all the collected data.
+     */
+    public void clearData() {
+        data.clear();
+    }
+
+    /**
+     *
+     * @param templateName
+     * @return the cumulative statistics for the given template or
+     *         <code>null</code> if no data available
+     */
+    public HistogramStats getStats(String templateName) {
+        Histogram histogram = data.getIfPresent(templateName);
+        return histogram != null
+                ? new HistogramStats(templateName, histogram.snapshot(false))
+                : null;
+    }
+
+    /**
+     *
+     * @return the cumulative statistics for all templates
+     */
+    public Set<HistogramStats> getStats() {
+        return getStats(false);
+    }
+
+    /**
+     * The returned statistics only contain the renderings recorded since the
+     * previous snapshot (or since the data were cleared). A new window is
+     * started for all templates. Renderings finished concurrently are counted
+     * in either this or the next window, i.e. no data is lost.
+     *
+     * @return the windowed statistics for all templates
+     */
+    public Set<HistogramStats> snapshot() {
+        return getStats(true);
+    }
+
+    private Set<HistogramStats> getStats(boolean window) {
+        if (data.size() == 0) {
+            return Collections.emptySet();
+        }
+        ImmutableSetBuilder<HistogramStats> builder = ImmutableSet.builder();
+        for (Entry<String, Histogram> entry : data.getAllPresent()
+                .entrySet()) {
+            builder.add(new HistogramStats(entry.getKey(),
+                    entry.getValue().snapshot(window)));
+        }
+        return builder.build();
+    }
+
+    /**
+     * A lock-free histogram with log-linear buckets. Values lower than
+     * {@value #LINEAR_BUCKETS} fall into linear buckets of width 1. Each
+     * subsequent power of two is divided into {@value #SUB_BUCKETS} buckets, so
+     * the relative error of any reported value is lower than 3.2%. Values
+     * greater than {@value #MAX_VALUE} (approx. 73 minutes in nanoseconds) are
+     * clamped. The memory footprint is constant.
+     *
+     * <p>
+     * Recording is lock-free and does not allocate. The cumulative counts are
+     * never reset - a window is represented by a baseline copy of
+     * the counts, i.e. a snapshot is the difference between the current counts
+     * and the baseline.
+     * </p>
+     */
+    public static final class Histogram {
+
+        static final int SUB_BUCKET_BITS = 5;
+
+        static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        static final int LINEAR_BUCKETS = SUB_BUCKETS * 2;
+
+        static final long MAX_VALUE = (1L << 42) - 1;
+
+        // The index of the highest power of two covered by linear buckets
+        private static final int LINEAR_EXPONENT = SUB_BUCKET_BITS + 1;
+
+        static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+        private final AtomicLongArray counts;
+
+        private final LongAdder total;
+
+        private final LongAdder sum;
+
+        // Guarded by this
+        private long[] baseline;
+
+        // Guarded by this
+        private long baselineSum;
+
+        public Histogram() {
+            this.counts = new AtomicLongArray(BUCKETS);
+            this.total = new LongAdder();
+            this.sum = new LongAdder();
+            this.baseline = new long[BUCKETS];
+        }
+
+        /**
+         *
+         * @param value
+         *            Negative values are ignored
+         */
+        public void record(long value) {
+            if (value < 0) {
+                return;
+            }
+            if (value > MAX_VALUE) {
+                value = MAX_VALUE;
+            }
+            counts.incrementAndGet(indexOf(value));
+            sum.add(value);
+            total.increment();
+        }
+
+        /**
+         *
+         * @return the number of recorded values
+         */
+        public long getCount() {
+            return total.sum();
+        }
+
+        Snapshot snapshot(boolean window) {
+            long[] values = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                values[i] = counts.get(i);
+            }
+            long sumValue = sum.sum();
+            if (!window) {
+                return new Snapshot(values, sumValue);
+            }
+            synchronized (this) {
+                long[] windowValues = new long[BUCKETS];
+                for (int i = 0; i < BUCKETS; i++) {
+                    windowValues[i] = values[i] - baseline[i];
+                }
+                Snapshot snapshot = new Snapshot(windowValues,
+                        sumValue - baselineSum);
+                baseline = values;
+                baselineSum = sumValue;
+                return snapshot;
+            }
+        }
+
+        static int indexOf(long value) {
+            if (value < LINEAR_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int shift = exponent - SUB_BUCKET_BITS;
+            int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+            return LINEAR_BUCKETS
+                    + (exponent - LINEAR_EXPONENT) * SUB_BUCKETS + subBucket;
+        }
+
+        static long lowestValueAt(int index) {
+            if (index < LINEAR_BUCKETS) {
+                return index;
+            }
+            int offset = index - LINEAR_BUCKETS;
+            int shift = LINEAR_EXPONENT + offset / SUB_BUCKETS
+                    - SUB_BUCKET_BITS;
+            return (long) (SUB_BUCKETS + offset % SUB_BUCKETS) << shift;
+        }
+
+        static long highestValueAt(int index) {
+            return index + 1 < BUCKETS ? lowestValueAt(index + 1) - 1
+                    : MAX_VALUE;
+        }
+
+    }
+
+    /**
+     * An immutable snapshot of the histogram counts. All the values are in the
+     * recorded unit.
+     */
+    static final class Snapshot {
+
+        private final long[] counts;
+
+        private final long sum;
+
+        private final long count;
+
+        private final int minIndex;
+
+        private final int maxIndex;
+
+        Snapshot(long[] counts, long sum) {
+            this.counts = counts;
+            this.sum = sum;
+            long count = 0;
+            int minIndex = -1;
+            int maxIndex = -1;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    count += counts[i];
+                    if (minIndex < 0) {
+                        minIndex = i;
+                    }
+                    maxIndex = i;
+                }
+            }
+            this.count = count;
+            this.minIndex = minIndex;
+            this.maxIndex = maxIndex;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        long getSum() {
+            return sum;
+        }
+
+        long getMean() {
+            return count > 0 ? sum / count : 0;
+        }
+
+        long getMin() {
+            return count > 0 ? Histogram.lowestValueAt(minIndex) : 0;
+        }
+
+        long getMax() {
+            return count > 0 ? Histogram.highestValueAt(maxIndex) : 0;
+        }
+
+        long getValueAtPercentile(double percentile) {
+            Checker.checkArgument(percentile >= 0.0 && percentile <= 100.0,
+                    "Percentile must be between 0 and 100");
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1,
+                    (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = minIndex; i <= maxIndex; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Histogram.highestValueAt(i);
+                }
+            }
+            return getMax();
+        }
+
+    }
+
+    /**
+     * An immutable snapshot of a {@link Histogram}. All the values are
+     * converted to the time unit of the collector. The percentiles are
+     * computed from the buckets, i.e. the reported value is the highest value
+     * of the bucket (but never greater than the max value).
+     */
+    public class HistogramStats {
+
+        private final String name;
+
+        private final Snapshot snapshot;
+
+        HistogramStats(String name, Snapshot snapshot) {
+            this.name = name;
+            this.snapshot = snapshot;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         *
+         * @return the number of renderings
+         */
+        public long getCount() {
+            return snapshot.getCount();
+        }
+
+        public long getTotalTime() {
+            return convert(snapshot.getSum());
+        }
+
+        public long getMeanTime() {
+            return convert(snapshot.getMean());
+        }
+
+        public long getMinTime() {
+            return convert(snapshot.getMin());
+        }
+
+        public long getMaxTime() {
+            return convert(snapshot.getMax());
+        }
+
+        public long getP50() {
+            return getValueAtPercentile(50.0);
+        }
+
+        public long getP90() {
+            return getValueAtPercentile(90.0);
+        }
+
+        public long getP99() {
+            return getValueAtPercentile(99.0);
+        }
+
+        public long getP999() {
+            return getValueAtPercentile(99.9);
+        }
+
+        /**
+         *
+         * @param percentile
+         *            The value between 0 and 100
+         * @return the value at the given percentile
+         */
+        public long getValueAtPercentile(double percentile) {
+            return convert(snapshot.getValueAtPercentile(percentile));
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "HistogramStats [name: %s, count: %s, totalTime: %s, meanTime: %s, minTime: %s, maxTime: %s, p50: %s, p90: %s, p99: %s, p999: %s]",
+                    name, getCount(), getTotalTime(), getMeanTime(), getMinTime(),
+                    getMaxTime(), getP50(), getP90(), getP99(), getP999());
+        }
+
+    }
+
+}
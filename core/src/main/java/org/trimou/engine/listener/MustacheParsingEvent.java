@@ -16,6 +16,7 @@
 package org.trimou.engine.listener;
 
 import java.io.Reader;
+import java.util.function.UnaryOperator;
 
 /**
  *
@@ -43,4 +44,27 @@ public interface MustacheParsingEvent {
      */
     void setMustacheContents(Reader contents);
 
+    /**
+     * Register a processor for text runs of the template. A text run is a
+     * maximal sequence of adjacent text and line separator segments, i.e. tags
+     * are opaque boundaries. Processors are applied after the template is
+     * parsed and the standalone lines and unnecessary segments are removed
+     * (see also
+     * {@link org.trimou.engine.config.EngineConfigurationKey#REMOVE_STANDALONE_LINES}
+     * and
+     * {@link org.trimou.engine.config.EngineConfigurationKey#REMOVE_UNNECESSARY_SEGMENTS}).
+     * Processors are applied in the order of registration.
+     *
+     * <p>
+     * By default, the processor is ignored, i.e. an event implementation which
+     * does not support text processing leaves the template unchanged.
+     * </p>
+     *
+     * @param processor
+     * @since 2.5.2
+     */
+    default void addTextProcessor(UnaryOperator<String> processor) {
+        // No-op by default
+    }
+
 }
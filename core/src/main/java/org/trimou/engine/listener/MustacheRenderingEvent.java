@@ -40,4 +40,18 @@ public interface MustacheRenderingEvent extends ReleaseCallbackContainer, Identi
      */
     long getMustacheGeneratedId();
 
+    /**
+     * The output size is only known after the template was successfully
+     * rendered, i.e. it's available in
+     * {@link MustacheListener#renderingFinished(MustacheRenderingEvent)} and
+     * in release callbacks.
+     *
+     * @return the number of characters written or <code>-1</code> if not
+     *         known
+     * @since 2.5.2
+     */
+    default long getOutputSize() {
+        return -1;
+    }
+
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.engine.listener;
+
+import org.trimou.engine.MustacheTagInfo;
+import org.trimou.engine.context.ResolutionTrace;
+
+/**
+ * Any {@link MustacheListener} may implement this optional interface in order
+ * to receive notifications about the resolution of tag values, i.e. values,
+ * sections, inverted sections, helper parameters and hash values. If a
+ * listener implementing this interface is registered, the resolution of each
+ * value is traced - this has some performance impact and so it's not
+ * recommended to register such a listener in production unless necessary.
+ *
+ * <p>
+ * The method is invoked on the rendering thread after a value is resolved.
+ * Note that values obtained by a helper via
+ * {@link org.trimou.handlebars.Options#getValue(String)} are not traced.
+ * </p>
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ * @see ResolutionStatsCollector
+ */
+public interface ResolutionListener {
+
+    /**
+     *
+     * @param tag
+     *            The tag the value was resolved for
+     * @param trace
+     */
+    void valueResolved(MustacheTagInfo tag, ResolutionTrace trace);
+
+}
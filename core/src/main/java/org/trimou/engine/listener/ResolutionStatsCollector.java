@@ -0,0 +1,401 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.engine.listener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trimou.engine.MustacheTagInfo;
+import org.trimou.engine.context.ResolutionTrace;
+import org.trimou.engine.resolver.EnhancedResolver.Hint;
+import org.trimou.engine.resolver.Resolver;
+import org.trimou.util.Checker;
+import org.trimou.util.ImmutableMap;
+import org.trimou.util.ImmutableMap.ImmutableMapBuilder;
+
+/**
+ * A {@link ResolutionListener} aggregating the value resolution statistics per
+ * tag and key. The statistics show which {@link Resolver} resolves the key,
+ * how often the resolver chain is walked to completion and how often a
+ * {@link Hint} fails, see also {@link #getSlowKeys(int)}. A tag is identified
+ * with the template name, line and tag id, i.e. the data do not hold a
+ * reference to the template and the tags of a reloaded template are recorded
+ * under the same entries. The number of entries is limited - if the limit is
+ * reached, new tag keys are dropped, a warning is logged and the dropped
+ * resolutions are counted, see {@link #getDroppedEntries()}.
+ *
+ * <p>
+ * The resolution of every single value is traced and so this listener is
+ * primarily intended for development and troubleshooting.
+ * </p>
+ *
+ * <p>
+ * It's possible to specify a {@link Predicate} to filter out some templates.
+ * By default templates used for Lambda interpolation are skipped.
+ * </p>
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ */
+public class ResolutionStatsCollector extends AbstractMustacheListener
+        implements ResolutionListener {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(ResolutionStatsCollector.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private final int maxEntries;
+
+    private final Predicate<String> templatePredicate;
+
+    private final ConcurrentMap<KeyInfo, KeyData> data;
+
+    private final LongAdder droppedEntries;
+
+    private final AtomicBoolean limitReached;
+
+    /**
+     *
+     */
+    public ResolutionStatsCollector() {
+        this(DEFAULT_MAX_ENTRIES, null);
+    }
+
+    /**
+     *
+     * @param maxEntries
+     *            The max number of recorded tag keys
+     * @param templatePredicate
+     */
+    public ResolutionStatsCollector(int maxEntries,
+            Predicate<String> templatePredicate) {
+        Checker.checkArgument(maxEntries > 0,
+                "Max entries must be greater than zero");
+        this.maxEntries = maxEntries;
+        this.templatePredicate = templatePredicate != null ? templatePredicate
+                : AbstractStatsCollector.IS_NOT_ONEOFF_LAMBA_TEMPLATE;
+        this.data = new ConcurrentHashMap<>();
+        this.droppedEntries = new LongAdder();
+        this.limitReached = new AtomicBoolean();
+    }
+
+    @Override
+    public void valueResolved(MustacheTagInfo tag, ResolutionTrace trace) {
+        if (tag == null || !templatePredicate.test(tag.getTemplateName())) {
+            return;
+        }
+        KeyInfo keyInfo = new KeyInfo(new TagKey(tag), trace.getKey());
+        KeyData keyData = data.get(keyInfo);
+        if (keyData == null) {
+            if (data.size() >= maxEntries) {
+                droppedEntries.increment();
+                if (limitReached.compareAndSet(false, true)) {
+                    LOGGER.warn(
+                            "The max number of entries ({}) reached - the data for new tag keys are dropped",
+                            maxEntries);
+                }
+                return;
+            }
+            keyData = data.computeIfAbsent(keyInfo, k -> new KeyData());
+        }
+        keyData.record(trace);
+    }
+
+    /**
+     *
+     * @return the statistics for all recorded tag keys, sorted by the number
+     *         of resolver invocations in descending order
+     */
+    public List<ResolutionStats> getStats() {
+        if (data.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ResolutionStats> stats = new ArrayList<>(data.size());
+        for (Entry<KeyInfo, KeyData> entry : data.entrySet()) {
+            stats.add(entry.getValue().toStats(entry.getKey()));
+        }
+        stats.sort(Comparator
+                .comparingLong(ResolutionStats::getResolverInvocations)
+                .reversed());
+        return stats;
+    }
+
+    /**
+     * A slow key is a tag key which was not found at least once, the resolver
+     * chain was walked to completion or a hint failed. These keys usually
+     * indicate that the template or the data model might be restructured,
+     * e.g. a key is resolved from an object deep down in the context stack.
+     *
+     * @param limit
+     *            The max number of returned keys
+     * @return the slow keys, sorted by the sum of misses, full-chain walks and
+     *         hint misses in descending order
+     */
+    public List<ResolutionStats> getSlowKeys(int limit) {
+        return getStats().stream().filter(s -> s.getCost() > 0)
+                .sorted(Comparator.comparingLong(ResolutionStats::getCost)
+                        .reversed())
+                .limit(limit).collect(Collectors.toList());
+    }
+
+    /**
+     *
+     * @return the number of resolutions not recorded because the max number
+     *         of entries was reached
+     */
+    public long getDroppedEntries() {
+        return droppedEntries.sum();
+    }
+
+    /**
+     * Drop all the collected data.
+     */
+    public void clearData() {
+        data.clear();
+        droppedEntries.reset();
+        limitReached.set(false);
+    }
+
+    private static final class KeyInfo {
+
+        private final TagKey tag;
+
+        private final String key;
+
+        KeyInfo(TagKey tag, String key) {
+            this.tag = tag;
+            this.key = key;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * tag.hashCode() + key.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof KeyInfo)) {
+                return false;
+            }
+            KeyInfo other = (KeyInfo) obj;
+            return tag.equals(other.tag) && key.equals(other.key);
+        }
+
+    }
+
+    private static final class KeyData {
+
+        private final LongAdder resolutions = new LongAdder();
+
+        private final LongAdder misses = new LongAdder();
+
+        private final LongAdder resolverInvocations = new LongAdder();
+
+        private final LongAdder fullChainWalks = new LongAdder();
+
+        private final LongAdder hintHits = new LongAdder();
+
+        private final LongAdder hintMisses = new LongAdder();
+
+        private final LongAdder hintsCreated = new LongAdder();
+
+        private final ConcurrentMap<String, LongAdder> resolvers = new ConcurrentHashMap<>(
+                4);
+
+        void record(ResolutionTrace trace) {
+            resolutions.increment();
+            if (!trace.isFound()) {
+                misses.increment();
+            }
+            resolverInvocations.add(trace.getResolverInvocations());
+            fullChainWalks.add(trace.getFullChainWalks());
+            hintHits.add(trace.getHintHits());
+            hintMisses.add(trace.getHintMisses());
+            if (trace.isHintCreated()) {
+                hintsCreated.increment();
+            }
+            for (Resolver resolver : trace.getResolvers()) {
+                if (resolver != null) {
+                    resolvers.computeIfAbsent(resolver.getClass().getName(),
+                            k -> new LongAdder()).increment();
+                }
+            }
+        }
+
+        ResolutionStats toStats(KeyInfo keyInfo) {
+            ImmutableMapBuilder<String, Long> builder = ImmutableMap.builder();
+            for (Entry<String, LongAdder> entry : resolvers.entrySet()) {
+                builder.put(entry.getKey(), entry.getValue().sum());
+            }
+            return new ResolutionStats(keyInfo.tag, keyInfo.key,
+                    resolutions.sum(), misses.sum(),
+                    resolverInvocations.sum(), fullChainWalks.sum(),
+                    hintHits.sum(), hintMisses.sum(), hintsCreated.sum(),
+                    builder.build());
+        }
+
+    }
+
+    public static class ResolutionStats {
+
+        private final TagKey tag;
+
+        private final String key;
+
+        private final long resolutions;
+
+        private final long misses;
+
+        private final long resolverInvocations;
+
+        private final long fullChainWalks;
+
+        private final long hintHits;
+
+        private final long hintMisses;
+
+        private final long hintsCreated;
+
+        private final Map<String, Long> resolvers;
+
+        ResolutionStats(TagKey tag, String key, long resolutions,
+                long misses, long resolverInvocations, long fullChainWalks,
+                long hintHits, long hintMisses, long hintsCreated,
+                Map<String, Long> resolvers) {
+            this.tag = tag;
+            this.key = key;
+            this.resolutions = resolutions;
+            this.misses = misses;
+            this.resolverInvocations = resolverInvocations;
+            this.fullChainWalks = fullChainWalks;
+            this.hintHits = hintHits;
+            this.hintMisses = hintMisses;
+            this.hintsCreated = hintsCreated;
+            this.resolvers = resolvers;
+        }
+
+        /**
+         *
+         * @return the tag id
+         * @see MustacheTagInfo#getId()
+         */
+        public String getTagId() {
+            return tag.getId();
+        }
+
+        /**
+         *
+         * @return the tag text
+         * @see MustacheTagInfo#getText()
+         */
+        public String getTagText() {
+            return tag.getText();
+        }
+
+        public String getTemplateName() {
+            return tag.getTemplateName();
+        }
+
+        public int getLine() {
+            return tag.getLine();
+        }
+
+        /**
+         * Note that a helper tag may contain several keys.
+         *
+         * @return the key
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         *
+         * @return the number of resolutions
+         */
+        public long getResolutions() {
+            return resolutions;
+        }
+
+        /**
+         *
+         * @return the number of resolutions where the value was not found
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getResolverInvocations() {
+            return resolverInvocations;
+        }
+
+        public long getFullChainWalks() {
+            return fullChainWalks;
+        }
+
+        public long getHintHits() {
+            return hintHits;
+        }
+
+        public long getHintMisses() {
+            return hintMisses;
+        }
+
+        public long getHintsCreated() {
+            return hintsCreated;
+        }
+
+        /**
+         *
+         * @return the map of resolver class name to the number of key parts
+         *         resolved, hints not included
+         */
+        public Map<String, Long> getResolvers() {
+            return resolvers;
+        }
+
+        long getCost() {
+            return misses + fullChainWalks + hintMisses;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "ResolutionStats [template: %s, line: %s, key: %s, resolutions: %s, misses: %s, resolverInvocations: %s, fullChainWalks: %s, hintHits: %s, hintMisses: %s, hintsCreated: %s, resolvers: %s]",
+                    getTemplateName(), getLine(), key, resolutions, misses,
+                    resolverInvocations, fullChainWalks, hintHits, hintMisses,
+                    hintsCreated, resolvers);
+        }
+
+    }
+
+}
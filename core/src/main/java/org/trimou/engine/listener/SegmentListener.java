@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.engine.listener;
+
+import org.trimou.engine.MustacheTagInfo;
+
+/**
+ * Any {@link MustacheListener} may implement this optional interface in order
+ * to receive notifications about the execution of tag segments, i.e. values,
+ * sections, inverted sections, partials, extends and extend sections. Segments
+ * with a helper are included. Text, line separator and comment segments are
+ * never reported.
+ *
+ * <p>
+ * Notifications are only delivered for templates compiled by an engine with at
+ * least one segment listener registered. Both methods are invoked on the
+ * rendering thread for every single execution, e.g. for every iteration of a
+ * section, so the implementation must be very fast - ideally it should only
+ * do some real work for a sample of renderings. The methods are also invoked
+ * if the segment execution fails, {@link #segmentFinished(MustacheTagInfo)}
+ * is always invoked after {@link #segmentStarted(MustacheTagInfo)}. Note
+ * that the output of an async helper may be rendered on a different thread.
+ * </p>
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ * @see SegmentProfiler
+ */
+public interface SegmentListener {
+
+    /**
+     * The execution of a segment is about to start.
+     *
+     * @param tag
+     */
+    void segmentStarted(MustacheTagInfo tag);
+
+    /**
+     * The execution of a segment finished.
+     *
+     * @param tag
+     */
+    void segmentFinished(MustacheTagInfo tag);
+
+}
@@ -0,0 +1,551 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.engine.listener;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trimou.engine.MustacheTagInfo;
+import org.trimou.engine.MustacheTagType;
+import org.trimou.util.Checker;
+
+/**
+ * Records the cumulative time and the number of executions of every tag, i.e.
+ * values, sections, partials, helpers, etc. - see also {@link SegmentListener}.
+ * A tag is identified with the template name, line and tag id, i.e. the data
+ * do not hold a reference to the template and the tags of a reloaded template
+ * are recorded under the same entries.
+ *
+ * <p>
+ * Only a sample of renderings is profiled, by default one of
+ * {@value #DEFAULT_SAMPLING_INTERVAL}. The overhead for a rendering which is
+ * not sampled is a thread-local lookup per tag. The number of tags and stacks
+ * recorded is limited - if the limit is reached, the data for new tags and
+ * stacks are dropped, a warning is logged and the dropped executions are
+ * counted, see {@link #getDroppedEntries()}.
+ * </p>
+ *
+ * <p>
+ * The self time of each stack can be exported in the collapsed-stack format
+ * which is understood by most flame graph tools, see
+ * {@link #writeCollapsedStacks(Appendable)}. A frame is either the template
+ * name (the root of a stack) or <code>templateName:line {{tag}}</code>. The
+ * frame names and stacks are only built when a tag or stack is recorded for
+ * the first time.
+ * </p>
+ *
+ * <p>
+ * By default the time unit is {@link TimeUnit#MICROSECONDS}.
+ * </p>
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ */
+public class SegmentProfiler extends AbstractStatsCollector
+        implements SegmentListener {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(SegmentProfiler.class);
+
+    public static final int DEFAULT_SAMPLING_INTERVAL = 100;
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private static final char FRAME_SEPARATOR = ';';
+
+    // Used if the max number of stacks is reached
+    private static final StackNode DROPPED = new StackNode(null);
+
+    private final int samplingInterval;
+
+    private final int maxEntries;
+
+    private final ThreadLocal<Sample> currentSample;
+
+    private final ConcurrentMap<TagKey, TagData> tags;
+
+    // Root stack nodes, i.e. template names
+    private final ConcurrentMap<Object, StackNode> stacks;
+
+    private final AtomicInteger stackCount;
+
+    private final LongAdder sampledRenderings;
+
+    private final LongAdder droppedEntries;
+
+    private final AtomicBoolean limitReached;
+
+    /**
+     *
+     */
+    public SegmentProfiler() {
+        this(DEFAULT_SAMPLING_INTERVAL);
+    }
+
+    /**
+     *
+     * @param samplingInterval
+     *            Profile one of n renderings, 1 means all renderings are
+     *            profiled
+     */
+    public SegmentProfiler(int samplingInterval) {
+        this(samplingInterval, DEFAULT_MAX_ENTRIES, null, null);
+    }
+
+    /**
+     *
+     * @param samplingInterval
+     *            Profile one of n renderings, 1 means all renderings are
+     *            profiled
+     * @param maxEntries
+     *            The max number of tags and the max number of stacks recorded
+     * @param templatePredicate
+     * @param timeUnit
+     */
+    public SegmentProfiler(int samplingInterval, int maxEntries,
+            Predicate<String> templatePredicate, TimeUnit timeUnit) {
+        super(templatePredicate,
+                timeUnit != null ? timeUnit : TimeUnit.MICROSECONDS);
+        Checker.checkArgument(samplingInterval > 0,
+                "Sampling interval must be greater than zero");
+        Checker.checkArgument(maxEntries > 0,
+                "Max entries must be greater than zero");
+        this.samplingInterval = samplingInterval;
+        this.maxEntries = maxEntries;
+        this.currentSample = new ThreadLocal<>();
+        this.tags = new ConcurrentHashMap<>();
+        this.stacks = new ConcurrentHashMap<>();
+        this.stackCount = new AtomicInteger();
+        this.sampledRenderings = new LongAdder();
+        this.droppedEntries = new LongAdder();
+        this.limitReached = new AtomicBoolean();
+    }
+
+    @Override
+    public void renderingStarted(MustacheRenderingEvent event) {
+        if (!isApplied(event.getMustacheName())) {
+            return;
+        }
+        Sample sample = currentSample.get();
+        if (sample != null) {
+            // Nested rendering, e.g. from a helper
+            sample.push(event.getMustacheName());
+            event.registerReleaseCallback(() -> sample.pop());
+        } else if (samplingInterval == 1 || ThreadLocalRandom.current()
+                .nextInt(samplingInterval) == 0) {
+            Sample newSample = new Sample();
+            newSample.push(event.getMustacheName());
+            currentSample.set(newSample);
+            sampledRenderings.increment();
+            event.registerReleaseCallback(() -> {
+                newSample.pop();
+                currentSample.remove();
+            });
+        }
+    }
+
+    @Override
+    public void segmentStarted(MustacheTagInfo tag) {
+        Sample sample = currentSample.get();
+        if (sample != null) {
+            sample.push(tag);
+        }
+    }
+
+    @Override
+    public void segmentFinished(MustacheTagInfo tag) {
+        Sample sample = currentSample.get();
+        if (sample != null) {
+            sample.pop();
+        }
+    }
+
+    /**
+     *
+     * @return the number of profiled renderings
+     */
+    public long getSampledRenderings() {
+        return sampledRenderings.sum();
+    }
+
+    /**
+     *
+     * @return the number of tag executions and stacks not recorded because
+     *         the max number of entries was reached
+     */
+    public long getDroppedEntries() {
+        return droppedEntries.sum();
+    }
+
+    /**
+     *
+     * @return the statistics for all recorded tags, sorted by the total time
+     *         in descending order
+     */
+    public List<SegmentStats> getStats() {
+        if (tags.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<SegmentStats> stats = new ArrayList<>(tags.size());
+        for (Entry<TagKey, TagData> entry : tags.entrySet()) {
+            stats.add(new SegmentStats(entry.getKey(),
+                    entry.getValue().frameName, entry.getValue().count.sum(),
+                    entry.getValue().time.sum()));
+        }
+        stats.sort((s1, s2) -> Long.compare(s2.totalTime, s1.totalTime));
+        return stats;
+    }
+
+    /**
+     * Write the self time of each recorded stack in the collapsed-stack format,
+     * i.e. one line per stack: the frames separated by semicolon, followed by
+     * a space and the self time in the current time unit. Stacks with zero
+     * self time are omitted.
+     *
+     * @param appendable
+     * @throws IOException
+     */
+    public void writeCollapsedStacks(Appendable appendable)
+            throws IOException {
+        List<StackNode> nodes = new ArrayList<>();
+        Deque<StackNode> queue = new ArrayDeque<>(stacks.values());
+        while (!queue.isEmpty()) {
+            StackNode node = queue.poll();
+            nodes.add(node);
+            queue.addAll(node.children.values());
+        }
+        nodes.sort((n1, n2) -> n1.stack.compareTo(n2.stack));
+        for (StackNode node : nodes) {
+            long value = convert(node.selfTime.sum());
+            if (value > 0) {
+                appendable.append(node.stack).append(' ')
+                        .append(Long.toString(value)).append('\n');
+            }
+        }
+    }
+
+    /**
+     *
+     * @return the collapsed stacks
+     * @see #writeCollapsedStacks(Appendable)
+     */
+    public String getCollapsedStacks() {
+        StringBuilder builder = new StringBuilder();
+        try {
+            writeCollapsedStacks(builder);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Drop all the collected data.
+     */
+    public void clearData() {
+        tags.clear();
+        stacks.clear();
+        stackCount.set(0);
+        sampledRenderings.reset();
+        droppedEntries.reset();
+        limitReached.set(false);
+    }
+
+    private TagData getTagData(TagKey key) {
+        TagData data = tags.get(key);
+        if (data == null) {
+            if (tags.size() >= maxEntries) {
+                dropped();
+                return null;
+            }
+            data = tags.computeIfAbsent(key,
+                    k -> new TagData(getFrameName(k)));
+        }
+        return data;
+    }
+
+    private StackNode getStackNode(StackNode parent, Object key,
+            String frameName) {
+        if (parent == DROPPED) {
+            return DROPPED;
+        }
+        Map<Object, StackNode> nodes = parent != null ? parent.children
+                : stacks;
+        StackNode node = nodes.get(key);
+        if (node == null) {
+            if (stackCount.get() >= maxEntries) {
+                dropped();
+                return DROPPED;
+            }
+            node = nodes.computeIfAbsent(key, k -> {
+                stackCount.incrementAndGet();
+                return new StackNode(parent != null
+                        ? parent.stack + FRAME_SEPARATOR + frameName
+                        : frameName);
+            });
+        }
+        return node;
+    }
+
+    private void dropped() {
+        droppedEntries.increment();
+        if (limitReached.compareAndSet(false, true)) {
+            LOGGER.warn(
+                    "The max number of entries ({}) reached - the data for new tags and stacks are dropped",
+                    maxEntries);
+        }
+    }
+
+    private void record(Frame frame, long elapsed) {
+        if (frame.node != DROPPED) {
+            frame.node.selfTime.add(elapsed - frame.children);
+        }
+        if (frame.data != null) {
+            frame.data.count.increment();
+            frame.data.time.add(elapsed);
+        }
+    }
+
+    static String getFrameName(MustacheTagInfo tag) {
+        return getFrameName(tag.getTemplateName(), tag.getLine(),
+                tag.getType(), tag.getText());
+    }
+
+    static String getFrameName(TagKey tag) {
+        return getFrameName(tag.getTemplateName(), tag.getLine(),
+                tag.getType(), tag.getText());
+    }
+
+    private static String getFrameName(String templateName, int line,
+            MustacheTagType type, String text) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(templateName).append(':').append(line).append(" {{");
+        Character command = type.getCommand();
+        if (command != null
+                && !MustacheTagType.UNESCAPE_VARIABLE.equals(type)) {
+            builder.append(command);
+        }
+        builder.append(text).append("}}");
+        return sanitize(builder.toString());
+    }
+
+    private static String sanitize(String frame) {
+        StringBuilder builder = new StringBuilder(frame.length());
+        for (int i = 0; i < frame.length(); i++) {
+            char c = frame.charAt(i);
+            if (c == FRAME_SEPARATOR) {
+                builder.append(',');
+            } else if (c == '\n' || c == '\r') {
+                builder.append(' ');
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The stack of a profiled rendering. Only accessed by the rendering thread.
+     */
+    private class Sample {
+
+        private final Deque<Frame> frames = new ArrayDeque<>();
+
+        // Tag keys are only created once per rendering
+        private final Map<MustacheTagInfo, TagKey> keys = new IdentityHashMap<>();
+
+        void push(MustacheTagInfo tag) {
+            TagKey key = keys.computeIfAbsent(tag, TagKey::new);
+            TagData data = getTagData(key);
+            Frame parent = frames.peek();
+            StackNode parentNode = parent != null ? parent.node : null;
+            StackNode node = parentNode != null
+                    ? parentNode.children.get(key)
+                    : null;
+            if (node == null) {
+                node = getStackNode(parentNode, key,
+                        data != null ? data.frameName : getFrameName(key));
+            }
+            frames.push(new Frame(data, node));
+        }
+
+        void push(String templateName) {
+            Frame parent = frames.peek();
+            frames.push(new Frame(null,
+                    getStackNode(parent != null ? parent.node : null,
+                            templateName, sanitize(templateName))));
+        }
+
+        void pop() {
+            Frame frame = frames.poll();
+            if (frame == null) {
+                return;
+            }
+            long elapsed = System.nanoTime() - frame.start;
+            Frame parent = frames.peek();
+            if (parent != null) {
+                parent.children += elapsed;
+            }
+            record(frame, elapsed);
+        }
+
+    }
+
+    private static class Frame {
+
+        private final TagData data;
+
+        private final StackNode node;
+
+        private final long start;
+
+        private long children;
+
+        Frame(TagData data, StackNode node) {
+            this.data = data;
+            this.node = node;
+            this.start = System.nanoTime();
+        }
+
+    }
+
+    /**
+     * A node of the stack tree. The collapsed stack is built when the node is
+     * created.
+     */
+    private static class StackNode {
+
+        private final String stack;
+
+        private final LongAdder selfTime = new LongAdder();
+
+        private final ConcurrentMap<Object, StackNode> children = new ConcurrentHashMap<>(
+                4);
+
+        StackNode(String stack) {
+            this.stack = stack;
+        }
+
+    }
+
+    private static class TagData {
+
+        private final String frameName;
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder time = new LongAdder();
+
+        TagData(String frameName) {
+            this.frameName = frameName;
+        }
+
+    }
+
+    /**
+     * The statistics of a single tag. The times are converted to the time unit
+     * of the profiler.
+     */
+    public class SegmentStats {
+
+        private final TagKey tag;
+
+        private final String frameName;
+
+        private final long count;
+
+        private final long totalTime;
+
+        SegmentStats(TagKey tag, String frameName, long count,
+                long totalTime) {
+            this.tag = tag;
+            this.frameName = frameName;
+            this.count = count;
+            this.totalTime = totalTime;
+        }
+
+        public String getTemplateName() {
+            return tag.getTemplateName();
+        }
+
+        public int getLine() {
+            return tag.getLine();
+        }
+
+        /**
+         *
+         * @return the tag id
+         * @see MustacheTagInfo#getId()
+         */
+        public String getTagId() {
+            return tag.getId();
+        }
+
+        /**
+         *
+         * @return the frame name, i.e. <code>templateName:line {{tag}}</code>
+         */
+        public String getFrameName() {
+            return frameName;
+        }
+
+        /**
+         *
+         * @return the number of executions
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         *
+         * @return the cumulative time including the nested tags
+         */
+        public long getTotalTime() {
+            return convert(totalTime);
+        }
+
+        public long getMeanTime() {
+            return count > 0 ? convert(totalTime / count) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "SegmentStats [tag: %s, count: %s, totalTime: %s, meanTime: %s]",
+                    frameName, count, getTotalTime(), getMeanTime());
+        }
+
+    }
+
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.engine.listener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trimou.engine.MustacheTagInfo;
+import org.trimou.engine.MustacheTagType;
+import org.trimou.engine.jfr.JfrEvents;
+import org.trimou.util.Checker;
+
+/**
+ * A {@link MustacheListener} reporting renderings which exceed the specified
+ * threshold. The report contains the current position of the rendering
+ * thread, i.e. the path from the template through partials, sections and
+ * helpers to the currently executed tag. The current iteration index is
+ * appended to a section (it's always 1 for a section which is not
+ * iterated).
+ *
+ * <p>
+ * The position is maintained by the rendering thread (see
+ * {@link SegmentListener}) and periodically inspected by a daemon thread. The
+ * overhead is one small allocation per tag segment execution. Each slow
+ * rendering is reported at most once. By default a warning is logged. If JFR
+ * is available an <code>org.trimou.SlowRendering</code> event is also
+ * emitted.
+ * </p>
+ *
+ * <p>
+ * The iteration index is derived from the number of executions of the first
+ * tag of the section content, i.e. it's not available for sections without
+ * tags. The output of an async helper rendered on a different thread is not
+ * tracked.
+ * </p>
+ *
+ * <p>
+ * {@link #close()} should be called to stop the watchdog thread if the engine
+ * is no longer used.
+ * </p>
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ */
+public class SlowRenderingWatchdog extends AbstractMustacheListener
+        implements SegmentListener, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(SlowRenderingWatchdog.class);
+
+    private static final String PATH_SEPARATOR = " > ";
+
+    private final long thresholdNanos;
+
+    private final long checkIntervalNanos;
+
+    private final Consumer<SlowRendering> handler;
+
+    private final Predicate<String> templatePredicate;
+
+    private final ThreadLocal<Breadcrumb> currentBreadcrumb;
+
+    private final ConcurrentMap<Long, Breadcrumb> activeRenderings;
+
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * The check interval is a half of the threshold but at least 10
+     * milliseconds. A warning is logged for each slow rendering.
+     *
+     * @param threshold
+     * @param unit
+     */
+    public SlowRenderingWatchdog(long threshold, TimeUnit unit) {
+        this(threshold, unit, null, null);
+    }
+
+    /**
+     * The check interval is a half of the threshold but at least 10
+     * milliseconds.
+     *
+     * @param threshold
+     * @param unit
+     * @param handler
+     *            If <code>null</code> a warning is logged
+     * @param templatePredicate
+     */
+    public SlowRenderingWatchdog(long threshold, TimeUnit unit,
+            Consumer<SlowRendering> handler,
+            Predicate<String> templatePredicate) {
+        Checker.checkArgument(threshold > 0,
+                "Threshold must be greater than zero");
+        Checker.checkArgumentNotNull(unit);
+        this.thresholdNanos = unit.toNanos(threshold);
+        this.checkIntervalNanos = Math.max(thresholdNanos / 2,
+                TimeUnit.MILLISECONDS.toNanos(10));
+        this.handler = handler != null ? handler
+                : slow -> LOGGER.warn("Slow rendering detected: {}", slow);
+        this.templatePredicate = templatePredicate != null ? templatePredicate
+                : AbstractStatsCollector.IS_NOT_ONEOFF_LAMBA_TEMPLATE;
+        this.currentBreadcrumb = new ThreadLocal<>();
+        this.activeRenderings = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    protected synchronized void init() {
+        if (scheduler != null) {
+            // Already initialized
+            return;
+        }
+        ScheduledExecutorService executor = Executors
+                .newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r,
+                            SlowRenderingWatchdog.class.getSimpleName());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.scheduleWithFixedDelay(this::check, checkIntervalNanos,
+                checkIntervalNanos, TimeUnit.NANOSECONDS);
+        this.scheduler = executor;
+    }
+
+    @Override
+    public void renderingStarted(MustacheRenderingEvent event) {
+        Breadcrumb breadcrumb = currentBreadcrumb.get();
+        if (breadcrumb != null) {
+            // Nested rendering, e.g. from a helper
+            breadcrumb.push(null, event.getMustacheName());
+            event.registerReleaseCallback(() -> breadcrumb.pop());
+        } else if (templatePredicate.test(event.getMustacheName())) {
+            Breadcrumb newBreadcrumb = new Breadcrumb(event.getMustacheName(),
+                    event.getGeneratedId(), Thread.currentThread().getName());
+            newBreadcrumb.push(null, event.getMustacheName());
+            currentBreadcrumb.set(newBreadcrumb);
+            activeRenderings.put(event.getGeneratedId(), newBreadcrumb);
+            event.registerReleaseCallback(() -> {
+                activeRenderings.remove(event.getGeneratedId());
+                currentBreadcrumb.remove();
+            });
+        }
+    }
+
+    @Override
+    public void segmentStarted(MustacheTagInfo tag) {
+        Breadcrumb breadcrumb = currentBreadcrumb.get();
+        if (breadcrumb != null) {
+            breadcrumb.push(tag, null);
+        }
+    }
+
+    @Override
+    public void segmentFinished(MustacheTagInfo tag) {
+        Breadcrumb breadcrumb = currentBreadcrumb.get();
+        if (breadcrumb != null) {
+            breadcrumb.pop();
+        }
+    }
+
+    /**
+     * Stop the watchdog thread.
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService executor = scheduler;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     *
+     * @return the number of renderings currently in progress
+     */
+    public int getActiveRenderings() {
+        return activeRenderings.size();
+    }
+
+    void check() {
+        try {
+            long now = System.nanoTime();
+            for (Breadcrumb breadcrumb : activeRenderings.values()) {
+                long elapsed = now - breadcrumb.start;
+                if (elapsed > thresholdNanos && !breadcrumb.reported) {
+                    breadcrumb.reported = true;
+                    SlowRendering slow = new SlowRendering(
+                            breadcrumb.templateName, breadcrumb.renderingId,
+                            breadcrumb.threadName, elapsed,
+                            breadcrumb.getPath());
+                    JfrEvents.slowRendering(slow.getTemplateName(),
+                            slow.getRenderingId(), elapsed,
+                            slow.getPathInfo());
+                    handler.accept(slow);
+                }
+            }
+        } catch (Exception e) {
+            // Never cancel the periodic check
+            LOGGER.warn("Unable to check the active renderings", e);
+        }
+    }
+
+    /**
+     * The breadcrumb is modified by the rendering thread only. The top frame
+     * is volatile so that a consistent path is visible to the watchdog
+     * thread. The iteration counts might be slightly stale.
+     */
+    private static final class Breadcrumb {
+
+        private final String templateName;
+
+        private final long renderingId;
+
+        private final String threadName;
+
+        private final long start;
+
+        private volatile Frame top;
+
+        // Only accessed by the watchdog thread
+        private boolean reported;
+
+        Breadcrumb(String templateName, long renderingId, String threadName) {
+            this.templateName = templateName;
+            this.renderingId = renderingId;
+            this.threadName = threadName;
+            this.start = System.nanoTime();
+        }
+
+        void push(MustacheTagInfo tag, String templateName) {
+            Frame parent = top;
+            if (tag != null && parent != null) {
+                if (parent.firstChild == null) {
+                    parent.firstChild = tag;
+                }
+                if (parent.firstChild == tag) {
+                    parent.iterations++;
+                }
+            }
+            top = new Frame(tag, templateName, parent);
+        }
+
+        void pop() {
+            Frame frame = top;
+            if (frame != null) {
+                top = frame.parent;
+            }
+        }
+
+        List<String> getPath() {
+            List<String> path = new ArrayList<>();
+            for (Frame frame = top; frame != null; frame = frame.parent) {
+                path.add(frame.toString());
+            }
+            Collections.reverse(path);
+            return path;
+        }
+
+    }
+
+    private static final class Frame {
+
+        private final MustacheTagInfo tag;
+
+        private final String templateName;
+
+        private final Frame parent;
+
+        private MustacheTagInfo firstChild;
+
+        private int iterations;
+
+        Frame(MustacheTagInfo tag, String templateName, Frame parent) {
+            this.tag = tag;
+            this.templateName = templateName;
+            this.parent = parent;
+        }
+
+        @Override
+        public String toString() {
+            if (tag == null) {
+                return templateName;
+            }
+            String name = SegmentProfiler.getFrameName(tag);
+            int iteration = iterations;
+            if (MustacheTagType.SECTION.equals(tag.getType())
+                    && iteration > 0) {
+                return name + "[" + iteration + "]";
+            }
+            return name;
+        }
+
+    }
+
+    /**
+     * A slow rendering report.
+     */
+    public static final class SlowRendering {
+
+        private final String templateName;
+
+        private final long renderingId;
+
+        private final String threadName;
+
+        private final long elapsedNanos;
+
+        private final List<String> path;
+
+        SlowRendering(String templateName, long renderingId,
+                String threadName, long elapsedNanos, List<String> path) {
+            this.templateName = templateName;
+            this.renderingId = renderingId;
+            this.threadName = threadName;
+            this.elapsedNanos = elapsedNanos;
+            this.path = Collections.unmodifiableList(path);
+        }
+
+        public String getTemplateName() {
+            return templateName;
+        }
+
+        public long getRenderingId() {
+            return renderingId;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        /**
+         *
+         * @param unit
+         * @return the time elapsed when the rendering was detected
+         */
+        public long getElapsedTime(TimeUnit unit) {
+            return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * The first element is the rendered template, the last element is
+         * the currently executed tag. The iteration index is appended to an
+         * iterated section, e.g. <code>page:2 {{#each items}}[3]</code>.
+         *
+         * @return the current position of the rendering thread
+         */
+        public List<String> getPath() {
+            return path;
+        }
+
+        /**
+         *
+         * @return the path elements separated with <code>&gt;</code>
+         */
+        public String getPathInfo() {
+            return String.join(PATH_SEPARATOR, path);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "SlowRendering [template: %s, renderingId: %s, thread: %s, elapsed: %s ms, path: %s]",
+                    templateName, renderingId, threadName,
+                    getElapsedTime(TimeUnit.MILLISECONDS), getPathInfo());
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.engine.listener;
+
+import org.trimou.engine.MustacheTagInfo;
+import org.trimou.engine.MustacheTagType;
+
+/**
+ * Identifies a tag by the template name, line and tag id. Unlike
+ * {@link MustacheTagInfo} the key does not hold a reference to the template,
+ * and the tags of a reloaded template are represented by the same keys.
+ *
+ * @author Martin Kouba
+ */
+final class TagKey {
+
+    private final String templateName;
+
+    private final int line;
+
+    private final String id;
+
+    // Not part of the identity
+    private final MustacheTagType type;
+
+    private final String text;
+
+    private final int hashCode;
+
+    TagKey(MustacheTagInfo tag) {
+        this.templateName = tag.getTemplateName();
+        this.line = tag.getLine();
+        this.id = tag.getId();
+        this.type = tag.getType();
+        this.text = tag.getText();
+        int result = 31 + templateName.hashCode();
+        result = 31 * result + line;
+        this.hashCode = 31 * result + id.hashCode();
+    }
+
+    String getTemplateName() {
+        return templateName;
+    }
+
+    int getLine() {
+        return line;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    MustacheTagType getType() {
+        return type;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof TagKey)) {
+            return false;
+        }
+        TagKey other = (TagKey) obj;
+        return line == other.line && id.equals(other.id)
+                && templateName.equals(other.templateName);
+    }
+
+    @Override
+    public String toString() {
+        return templateName + ":" + line + " [" + id + "]";
+    }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.engine.locale;
+
+import java.text.Format;
+import java.text.MessageFormat;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trimou.engine.cache.ComputingCache;
+import org.trimou.engine.config.AbstractConfigurationAware;
+import org.trimou.engine.config.Configuration;
+import org.trimou.engine.config.ConfigurationKey;
+import org.trimou.engine.config.SimpleConfigurationKey;
+import org.trimou.engine.resolver.i18n.ResourceBundleResolver;
+import org.trimou.handlebars.i18n.ResourceBundleHelper;
+import org.trimou.lambda.i18n.ResourceBundleLambda;
+import org.trimou.util.ImmutableSet;
+
+/**
+ * Caches {@link ResourceBundle} instances per base name and locale, and
+ * compiled {@link MessageFormat} instances per base name, locale and key. This
+ * component is thread-safe.
+ *
+ * <p>
+ * There is one instance per engine (see
+ * {@link Configuration#getResourceBundleCache()}) shared by the resolver,
+ * helper and lambda. {@link #invalidate()} should be called if the underlying
+ * bundles are reloaded. The bundles specified by {@link #PRELOAD_KEY} are
+ * loaded and all their messages compiled during engine initialization.
+ * {@link #preload(String, Locale...)} may be used to do the same at any time
+ * later.
+ * </p>
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ * @see ResourceBundleResolver
+ * @see ResourceBundleHelper
+ * @see ResourceBundleLambda
+ */
+public class ResourceBundleCache extends AbstractConfigurationAware {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(ResourceBundleCache.class);
+
+    public static final String COMPUTING_CACHE_CONSUMER_ID_BUNDLES = ResourceBundleCache.class
+            .getName() + ".bundles";
+
+    public static final String COMPUTING_CACHE_CONSUMER_ID_MESSAGES = ResourceBundleCache.class
+            .getName() + ".messages";
+
+    /**
+     * Comma-separated list of base names of bundles which should be preloaded
+     * during engine initialization, e.g. <code>messages,labels</code>.
+     */
+    public static final ConfigurationKey PRELOAD_KEY = new SimpleConfigurationKey(
+            ResourceBundleCache.class.getName() + ".preload", "");
+
+    /**
+     * Comma-separated list of IETF BCP 47 language tags of the locales for
+     * which the bundles are preloaded, e.g. <code>en,cs-CZ</code>. If not set
+     * the default locale of the JVM is used.
+     *
+     * @see Locale#forLanguageTag(String)
+     */
+    public static final ConfigurationKey PRELOAD_LOCALES_KEY = new SimpleConfigurationKey(
+            ResourceBundleCache.class.getName() + ".preloadLocales", "");
+
+    private static final String SEPARATOR = ",";
+
+    private ComputingCache<MessageKey, ResourceBundle> bundles;
+
+    private ComputingCache<MessageKey, CompiledMessage> messages;
+
+    @Override
+    protected void init() {
+        this.bundles = configuration.getComputingCacheFactory().create(
+                COMPUTING_CACHE_CONSUMER_ID_BUNDLES,
+                key -> ResourceBundle.getBundle(key.baseName, key.locale),
+                null, null, null);
+        this.messages = configuration.getComputingCacheFactory().create(
+                COMPUTING_CACHE_CONSUMER_ID_MESSAGES,
+                key -> new CompiledMessage(new MessageFormat(
+                        getBundle(key.baseName, key.locale)
+                                .getString(key.key))),
+                null, null, null);
+        String baseNames = configuration.getStringPropertyValue(PRELOAD_KEY);
+        if (!baseNames.isEmpty()) {
+            Locale[] locales = parseLocales(
+                    configuration.getStringPropertyValue(PRELOAD_LOCALES_KEY));
+            for (String baseName : baseNames.split(SEPARATOR)) {
+                preload(baseName.trim(), locales);
+            }
+        }
+    }
+
+    @Override
+    public Set<ConfigurationKey> getConfigurationKeys() {
+        return ImmutableSet.of(PRELOAD_KEY, PRELOAD_LOCALES_KEY);
+    }
+
+    /**
+     *
+     * @param baseName
+     * @param locale
+     * @return the resource bundle
+     * @see ResourceBundle#getBundle(String, Locale)
+     */
+    public ResourceBundle getBundle(String baseName, Locale locale) {
+        return bundles.get(new MessageKey(baseName, locale, null));
+    }
+
+    /**
+     *
+     * @param baseName
+     * @param locale
+     * @param key
+     * @return the object for the given key or <code>null</code> if no such
+     *         key exists
+     */
+    public Object getObject(String baseName, Locale locale, String key) {
+        ResourceBundle bundle = getBundle(baseName, locale);
+        return bundle.containsKey(key) ? bundle.getObject(key) : null;
+    }
+
+    /**
+     * The message pattern is only compiled once. Note that the message is
+     * formatted with the default locale - the same way
+     * {@link MessageFormat#format(String, Object...)} does.
+     *
+     * @param baseName
+     * @param locale
+     * @param key
+     * @param arguments
+     * @return the formatted message or <code>null</code> if no such key exists
+     */
+    public String formatMessage(String baseName, Locale locale, String key,
+            Object[] arguments) {
+        if (!getBundle(baseName, locale).containsKey(key)) {
+            return null;
+        }
+        return messages.get(new MessageKey(baseName, locale, key))
+                .format(arguments);
+    }
+
+    /**
+     * Load the bundles for the given locales and compile all the messages.
+     * Values which are not valid {@link MessageFormat} patterns are skipped.
+     *
+     * @param baseName
+     * @param locales
+     */
+    public void preload(String baseName, Locale... locales) {
+        for (Locale locale : locales) {
+            ResourceBundle bundle = getBundle(baseName, locale);
+            int count = 0;
+            for (Enumeration<String> keys = bundle.getKeys(); keys
+                    .hasMoreElements();) {
+                String key = keys.nextElement();
+                if (!(bundle.getObject(key) instanceof String)) {
+                    continue;
+                }
+                try {
+                    messages.get(new MessageKey(baseName, locale, key));
+                    count++;
+                } catch (IllegalArgumentException e) {
+                    LOGGER.debug("Unable to compile message [key: {}]: {}",
+                            key, e.getMessage());
+                }
+            }
+            LOGGER.debug("{} messages preloaded [baseName: {}, locale: {}]",
+                    count, baseName, locale);
+        }
+    }
+
+    /**
+     * Invalidate all the cached bundles and messages. Also clears the
+     * {@link ResourceBundle} cache.
+     */
+    public void invalidate() {
+        messages.clear();
+        bundles.clear();
+        ResourceBundle.clearCache();
+    }
+
+    long getBundleCacheSize() {
+        return bundles.size();
+    }
+
+    long getMessageCacheSize() {
+        return messages.size();
+    }
+
+    private static Locale[] parseLocales(String value) {
+        if (value.isEmpty()) {
+            return new Locale[] { Locale.getDefault() };
+        }
+        String[] tags = value.split(SEPARATOR);
+        Locale[] locales = new Locale[tags.length];
+        for (int i = 0; i < tags.length; i++) {
+            locales[i] = Locale.forLanguageTag(tags[i].trim());
+        }
+        return locales;
+    }
+
+    private static final class CompiledMessage {
+
+        private final MessageFormat format;
+
+        private final boolean hasFormats;
+
+        CompiledMessage(MessageFormat format) {
+            this.format = format;
+            boolean hasFormats = false;
+            for (Format subformat : format.getFormats()) {
+                if (subformat != null) {
+                    hasFormats = true;
+                    break;
+                }
+            }
+            this.hasFormats = hasFormats;
+        }
+
+        String format(Object[] arguments) {
+            // MessageFormat is not thread-safe if it contains subformats
+            return hasFormats ? ((MessageFormat) format.clone())
+                    .format(arguments) : format.format(arguments);
+        }
+
+    }
+
+    private static final class MessageKey {
+
+        private final String baseName;
+
+        private final Locale locale;
+
+        private final String key;
+
+        private final int hashCode;
+
+        MessageKey(String baseName, Locale locale, String key) {
+            this.baseName = baseName;
+            this.locale = locale;
+            this.key = key;
+            this.hashCode = Objects.hash(baseName, locale, key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MessageKey)) {
+                return false;
+            }
+            MessageKey other = (MessageKey) obj;
+            return baseName.equals(other.baseName)
+                    && locale.equals(other.locale)
+                    && Objects.equals(key, other.key);
+        }
+
+    }
+
+}
@@ -26,6 +26,7 @@ import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.function.UnaryOperator;
 import java.util.regex.Matcher;
 
 import org.slf4j.Logger;
@@ -91,6 +92,16 @@ class DefaultParsingHandler implements ParsingHandler {
 
     private NestedTemplateBase currentNestedBase;
 
+    private final List<UnaryOperator<String>> textProcessors;
+
+    DefaultParsingHandler() {
+        this(null);
+    }
+
+    DefaultParsingHandler(List<UnaryOperator<String>> textProcessors) {
+        this.textProcessors = textProcessors;
+    }
+
     @Override
     public void startTemplate(String name, Delimiters delimiters,
             MustacheEngine engine) {
@@ -125,6 +136,9 @@ class DefaultParsingHandler implements ParsingHandler {
                 .getBooleanPropertyValue(REMOVE_UNNECESSARY_SEGMENTS)) {
             SegmentBases.removeUnnecessarySegments(rootSegmentBase);
         }
+        if (textProcessors != null && !textProcessors.isEmpty()) {
+            SegmentBases.processTextRuns(rootSegmentBase, textProcessors);
+        }
         if (engine.getConfiguration()
                 .getBooleanPropertyValue(REUSE_LINE_SEPARATOR_SEGMENTS)) {
             SegmentBases.reuseLineSeparatorSegments(rootSegmentBase);
@@ -573,7 +587,7 @@ class DefaultParsingHandler implements ParsingHandler {
 
         private final int line;
 
-        private final int index;
+        private int index;
 
         SegmentBase(ParsedTag tag, int line, int index) {
             this.content = tag.getContent();
@@ -605,6 +619,10 @@ class DefaultParsingHandler implements ParsingHandler {
             return index;
         }
 
+        void setIndex(int index) {
+            this.index = index;
+        }
+
         Segment asSegment(Template template) {
             switch (type) {
             case TEXT:
@@ -1,5 +1,8 @@
 package org.trimou.engine.parser;
 
+import java.util.List;
+import java.util.function.UnaryOperator;
+
 import org.trimou.annotations.Internal;
 
 /**
@@ -17,4 +20,15 @@ public class ParsingHandlerFactory {
         return new DefaultParsingHandler();
     }
 
+    /**
+     *
+     * @param textProcessors
+     * @return the parsing handler
+     * @since 2.5.2
+     */
+    public ParsingHandler createParsingHandler(
+            List<UnaryOperator<String>> textProcessors) {
+        return new DefaultParsingHandler(textProcessors);
+    }
+
 }
@@ -23,10 +23,12 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.trimou.engine.parser.DefaultParsingHandler.ContainerSegmentBase;
+import org.trimou.engine.parser.DefaultParsingHandler.LineSeparatorBase;
 import org.trimou.engine.parser.DefaultParsingHandler.PartialSegmentBase;
 import org.trimou.engine.parser.DefaultParsingHandler.RootSegmentBase;
 import org.trimou.engine.parser.DefaultParsingHandler.SegmentBase;
@@ -116,6 +118,120 @@ final class SegmentBases {
         }
     }
 
+    /**
+     * Apply the processors to all text runs, i.e. maximal sequences of adjacent
+     * text and line separator segments. The processed text is split into text
+     * and line separator segments again and all the segments are renumbered
+     * afterwards.
+     *
+     * @param rootSegment
+     * @param processors
+     */
+    static void processTextRuns(RootSegmentBase rootSegment,
+            List<UnaryOperator<String>> processors) {
+        processTextRunsInContainer(rootSegment, processors);
+        renumberSegments(rootSegment, 0);
+    }
+
+    private static void processTextRunsInContainer(
+            ContainerSegmentBase container,
+            List<UnaryOperator<String>> processors) {
+
+        List<SegmentBase> run = new ArrayList<>();
+        ListIterator<SegmentBase> iterator = container.listIterator();
+
+        while (iterator.hasNext()) {
+            SegmentBase segment = iterator.next();
+            if (SegmentType.TEXT.equals(segment.getType())
+                    || SegmentType.LINE_SEPARATOR.equals(segment.getType())) {
+                run.add(segment);
+                iterator.remove();
+                continue;
+            }
+            if (!run.isEmpty()) {
+                // Insert the processed run before the current segment
+                iterator.previous();
+                processTextRun(run, processors, iterator);
+                run.clear();
+                iterator.next();
+            }
+            if (segment instanceof ContainerSegmentBase) {
+                processTextRunsInContainer((ContainerSegmentBase) segment,
+                        processors);
+            }
+        }
+        if (!run.isEmpty()) {
+            processTextRun(run, processors, iterator);
+        }
+    }
+
+    private static void processTextRun(List<SegmentBase> run,
+            List<UnaryOperator<String>> processors,
+            ListIterator<SegmentBase> iterator) {
+
+        StringBuilder builder = new StringBuilder();
+        for (SegmentBase segment : run) {
+            builder.append(segment.getContent());
+        }
+        String text = builder.toString();
+        for (UnaryOperator<String> processor : processors) {
+            text = processor.apply(text);
+        }
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+
+        int line = run.get(0).getLine();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (character != '\n' && character != '\r') {
+                continue;
+            }
+            if (start < i) {
+                // The index is set when renumbering
+                iterator.add(new SegmentBase(SegmentType.TEXT,
+                        text.substring(start, i), line, 0));
+            }
+            String separator;
+            if (character == '\r' && i + 1 < text.length()
+                    && text.charAt(i + 1) == '\n') {
+                separator = Strings.LINE_SEPARATOR_CRLF;
+                i++;
+            } else {
+                separator = character == '\n' ? Strings.LINE_SEPARATOR_LF
+                        : Strings.LINE_SEPARATOR_CR;
+            }
+            iterator.add(new LineSeparatorBase(separator, line++, 0));
+            start = i + 1;
+        }
+        if (start < text.length()) {
+            iterator.add(new SegmentBase(SegmentType.TEXT,
+                    text.substring(start), line, 0));
+        }
+    }
+
+    /**
+     * Assign the indexes in the order of occurrence, i.e. the same way the
+     * parsing handler does.
+     *
+     * @param container
+     * @param index
+     *            The last index used
+     * @return the last index used
+     */
+    private static int renumberSegments(ContainerSegmentBase container,
+            int index) {
+        for (SegmentBase segment : container) {
+            segment.setIndex(++index);
+            if (segment instanceof ContainerSegmentBase) {
+                index = renumberSegments((ContainerSegmentBase) segment,
+                        index);
+            }
+        }
+        return index;
+    }
+
     /**
      *
      * @param standaloneLine
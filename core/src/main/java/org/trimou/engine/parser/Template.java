@@ -15,7 +15,11 @@
  */
 package org.trimou.engine.parser;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -23,10 +27,14 @@ import java.util.Map;
 import org.trimou.Mustache;
 import org.trimou.annotations.Internal;
 import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheTagInfo;
+import org.trimou.engine.config.EngineConfigurationKey;
 import org.trimou.engine.context.ExecutionContext;
 import org.trimou.engine.context.ExecutionContexts;
+import org.trimou.engine.jfr.JfrEvents;
 import org.trimou.engine.listener.MustacheListener;
 import org.trimou.engine.listener.MustacheRenderingEvent;
+import org.trimou.engine.listener.SegmentListener;
 import org.trimou.engine.resource.AbstractReleaseCallbackContainer;
 import org.trimou.engine.segment.RootSegment;
 import org.trimou.exception.MustacheException;
@@ -42,6 +50,14 @@ import org.trimou.util.ImmutableMap.ImmutableMapBuilder;
 @Internal
 public class Template implements Mustache {
 
+    /**
+     * Shared by all the templates. Only JDK types are stored so that the
+     * class loader is not leaked.
+     *
+     * @see EngineConfigurationKey#OUTPUT_BUFFER_POOL_SIZE
+     */
+    private static final ThreadLocal<Deque<StringBuilder>> BUFFER_POOL = new ThreadLocal<>();
+
     private final long generatedId;
 
     private final String name;
@@ -52,6 +68,19 @@ public class Template implements Mustache {
 
     private final Map<String, Template> nestedTemplates;
 
+    private final SegmentListener segmentListener;
+
+    private final int maxInitialCapacity;
+
+    private final int bufferPoolSize;
+
+    private final int bufferPoolMaxCapacity;
+
+    /**
+     * The decaying max of the output size, updated without synchronization
+     */
+    private volatile int outputSizeEstimate;
+
     private volatile Template parent;
 
     private volatile RootSegment rootSegment;
@@ -90,6 +119,16 @@ public class Template implements Mustache {
             }
             this.nestedTemplates = builder.build();
         }
+        this.segmentListener = initSegmentListener(
+                engine.getConfiguration().getMustacheListeners());
+        this.maxInitialCapacity = engine.getConfiguration()
+                .getIntegerPropertyValue(
+                        EngineConfigurationKey.OUTPUT_BUFFER_MAX_INITIAL_CAPACITY);
+        this.bufferPoolSize = engine.getConfiguration().getIntegerPropertyValue(
+                EngineConfigurationKey.OUTPUT_BUFFER_POOL_SIZE);
+        this.bufferPoolMaxCapacity = engine.getConfiguration()
+                .getIntegerPropertyValue(
+                        EngineConfigurationKey.OUTPUT_BUFFER_POOL_MAX_CAPACITY);
     }
 
     @Override
@@ -104,9 +143,14 @@ public class Template implements Mustache {
 
     @Override
     public String render(Object data) {
-        StringBuilder builder = new StringBuilder();
-        render(builder, data);
-        return builder.toString();
+        StringBuilder builder = acquireBuffer();
+        try {
+            render(builder, data);
+            updateOutputSizeEstimate(builder.length());
+            return builder.toString();
+        } finally {
+            releaseBuffer(builder);
+        }
     }
 
     @Override
@@ -114,6 +158,20 @@ public class Template implements Mustache {
         DefaultMustacheRenderingEvent event = new DefaultMustacheRenderingEvent(
                 engine.getConfiguration().getIdentifierGenerator()
                         .generate(MustacheRenderingEvent.class));
+        Object jfrEvent = JfrEvents.beginRender();
+        CountingAppendable counting = null;
+        int initialLength = -1;
+        // The output size is only needed by listeners and JFR
+        if (jfrEvent != null || !engine.getConfiguration()
+                .getMustacheListeners().isEmpty()) {
+            if (appendable instanceof CharSequence) {
+                initialLength = ((CharSequence) appendable).length();
+            } else {
+                counting = new CountingAppendable(appendable);
+                appendable = counting;
+            }
+        }
+        Appendable out = appendable;
         try {
             renderingStarted(event);
             appendable = rootSegment.execute(appendable,
@@ -121,12 +179,31 @@ public class Template implements Mustache {
                             : globalExecutionContext);
             // We need for flush the async appendable if needed
             RootSegment.flushAsyncAppendable(appendable);
+            if (counting != null) {
+                event.outputSize = counting.count;
+            } else if (initialLength != -1) {
+                event.outputSize = ((CharSequence) out).length()
+                        - initialLength;
+            }
             renderingFinished(event);
         } finally {
             event.release();
+            if (jfrEvent != null) {
+                JfrEvents.endRender(jfrEvent, name, generatedId,
+                        event.getGeneratedId(), event.outputSize);
+            }
         }
     }
 
+    /**
+     *
+     * @return the estimated output size, <code>0</code> if not known
+     * @since 2.5.2
+     */
+    public int getOutputSizeEstimate() {
+        return outputSizeEstimate;
+    }
+
     public RootSegment getRootSegment() {
         return rootSegment;
     }
@@ -151,10 +228,117 @@ public class Template implements Mustache {
         return engine;
     }
 
+    /**
+     *
+     * @return the segment listener or <code>null</code> if no listener
+     *         implements {@link SegmentListener}
+     * @since 2.5.2
+     */
+    public SegmentListener getSegmentListener() {
+        return segmentListener;
+    }
+
     public Template getNestedTemplate(String name) {
         return parent != null ? parent.getNestedTemplate(name) : nestedTemplates.get(name);
     }
 
+    private static SegmentListener initSegmentListener(
+            List<MustacheListener> listeners) {
+        List<SegmentListener> segmentListeners = new ArrayList<>();
+        for (MustacheListener listener : listeners) {
+            if (listener instanceof SegmentListener) {
+                segmentListeners.add((SegmentListener) listener);
+            }
+        }
+        if (segmentListeners.isEmpty()) {
+            return null;
+        }
+        if (segmentListeners.size() == 1) {
+            return segmentListeners.get(0);
+        }
+        return new SegmentListener() {
+
+            @Override
+            public void segmentStarted(MustacheTagInfo tag) {
+                for (SegmentListener listener : segmentListeners) {
+                    listener.segmentStarted(tag);
+                }
+            }
+
+            @Override
+            public void segmentFinished(MustacheTagInfo tag) {
+                for (ListIterator<SegmentListener> iterator = segmentListeners
+                        .listIterator(segmentListeners.size()); iterator
+                                .hasPrevious();) {
+                    iterator.previous().segmentFinished(tag);
+                }
+            }
+        };
+    }
+
+    private StringBuilder acquireBuffer() {
+        int capacity = getInitialCapacity();
+        if (bufferPoolSize > 0) {
+            Deque<StringBuilder> pool = BUFFER_POOL.get();
+            StringBuilder builder = pool != null ? pool.poll() : null;
+            if (builder != null) {
+                builder.ensureCapacity(capacity);
+                return builder;
+            }
+        }
+        return capacity > 0 ? new StringBuilder(capacity)
+                : new StringBuilder();
+    }
+
+    private void releaseBuffer(StringBuilder builder) {
+        if (bufferPoolSize <= 0
+                || builder.capacity() > bufferPoolMaxCapacity) {
+            return;
+        }
+        Deque<StringBuilder> pool = BUFFER_POOL.get();
+        if (pool == null) {
+            pool = new ArrayDeque<>(bufferPoolSize);
+            BUFFER_POOL.set(pool);
+        }
+        if (pool.size() < bufferPoolSize) {
+            builder.setLength(0);
+            pool.push(builder);
+        }
+    }
+
+    /**
+     *
+     * @return the number of output buffers pooled for the current thread
+     */
+    static int getPooledBufferCount() {
+        Deque<StringBuilder> pool = BUFFER_POOL.get();
+        return pool != null ? pool.size() : 0;
+    }
+
+    private int getInitialCapacity() {
+        if (maxInitialCapacity <= 0) {
+            return 0;
+        }
+        int estimate = outputSizeEstimate;
+        // Add some headroom so that a slightly larger output does not regrow
+        // the buffer
+        return (int) Math.min(estimate + (estimate >> 3), maxInitialCapacity);
+    }
+
+    private void updateOutputSizeEstimate(int outputSize) {
+        if (maxInitialCapacity <= 0) {
+            return;
+        }
+        // Lost updates are not a problem - it's only an estimate
+        int estimate = outputSizeEstimate;
+        if (outputSize >= estimate) {
+            outputSizeEstimate = outputSize;
+        } else {
+            // Decay slowly towards smaller outputs
+            outputSizeEstimate = estimate - ((estimate - outputSize) >> 3);
+        }
+    }
+
     private void renderingStarted(MustacheRenderingEvent event) {
         List<MustacheListener> listeners = engine.getConfiguration()
                 .getMustacheListeners();
@@ -178,6 +362,46 @@ public class Template implements Mustache {
         }
     }
 
+    /**
+     * Counts the number of characters written.
+     */
+    private static class CountingAppendable implements Appendable {
+
+        private final Appendable delegate;
+
+        private long count;
+
+        CountingAppendable(Appendable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            if (csq == null) {
+                return append("null");
+            }
+            delegate.append(csq);
+            count += csq.length();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end)
+                throws IOException {
+            delegate.append(csq, start, end);
+            count += end - start;
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            delegate.append(c);
+            count++;
+            return this;
+        }
+
+    }
+
     /**
      *
      * @author Martin Kouba
@@ -187,6 +411,8 @@ public class Template implements Mustache {
 
         private final long id;
 
+        private long outputSize = -1;
+
         /**
          *
          * @param id
@@ -210,6 +436,11 @@ public class Template implements Mustache {
             return id;
         }
 
+        @Override
+        public long getOutputSize() {
+            return outputSize;
+        }
+
     }
 
     @Override
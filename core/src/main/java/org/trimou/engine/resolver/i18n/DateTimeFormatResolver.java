@@ -17,20 +17,29 @@ package org.trimou.engine.resolver.i18n;
 
 import static org.trimou.engine.priority.Priorities.rightAfter;
 
-import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TimeZone;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.trimou.engine.cache.ComputingCache;
 import org.trimou.engine.config.ConfigurationKey;
 import org.trimou.engine.config.SimpleConfigurationKey;
 import org.trimou.engine.resolver.CombinedIndexResolver;
 import org.trimou.engine.resolver.ResolutionContext;
 import org.trimou.engine.resolver.TransformResolver;
+import org.trimou.util.ObjectPool;
 
 /**
  * Basic date and time formatting resolver.
@@ -43,6 +52,14 @@ import org.trimou.engine.resolver.TransformResolver;
  * <li>formatCustom - format date and time with custom pattern</li>
  * </ul>
  *
+ * <p>
+ * Formatters are cached per name, locale and time zone, see
+ * {@link #FORMATTER_CACHE_MAX_SIZE_KEY}. The predefined patterns are formatted
+ * with immutable {@link DateTimeFormatter} instances. The custom pattern is
+ * interpreted by {@link SimpleDateFormat} - the instances are not thread-safe
+ * and so they are reused through an {@link ObjectPool}.
+ * </p>
+ *
  * @author Martin Kouba
  */
 public class DateTimeFormatResolver extends TransformResolver {
@@ -56,6 +73,16 @@ public class DateTimeFormatResolver extends TransformResolver {
             DateTimeFormatResolver.class.getName() + ".customPattern",
             "M/d/yy h:mm a");
 
+    /**
+     * Limit the number of cached formatters.
+     */
+    public static final ConfigurationKey FORMATTER_CACHE_MAX_SIZE_KEY = new SimpleConfigurationKey(
+            DateTimeFormatResolver.class.getName() + ".formatterCacheMaxSize",
+            100L);
+
+    public static final String COMPUTING_CACHE_CONSUMER_ID = DateTimeFormatResolver.class
+            .getName();
+
     static final String NAME_FORMAT = "format";
 
     static final String NAME_FORMAT_SHORT = "formatShort";
@@ -66,6 +93,8 @@ public class DateTimeFormatResolver extends TransformResolver {
 
     private String customPattern;
 
+    private ComputingCache<FormatterKey, Function<Instant, String>> formatterCache;
+
     /**
      *
      */
@@ -86,23 +115,13 @@ public class DateTimeFormatResolver extends TransformResolver {
     public Object transform(Object contextObject, String name,
             ResolutionContext context) {
 
-        Object formattableObject = getFormattableObject(contextObject);
+        Instant instant = getFormattableObject(contextObject);
 
-        if (formattableObject == null) {
+        if (instant == null) {
             return null;
         }
-
-        if (NAME_FORMAT.equals(name)) {
-            return format(DateFormat.MEDIUM, formattableObject);
-        } else if (NAME_FORMAT_SHORT.equals(name)) {
-            return format(DateFormat.SHORT, formattableObject);
-        } else if (NAME_FORMAT_CUSTOM.equals(name)) {
-            return formatCustom(formattableObject);
-        }
-        if (NAME_FORMAT_DATE.equals(name)) {
-            return formatDate(DateFormat.MEDIUM, formattableObject);
-        }
-        return null;
+        return formatterCache.get(new FormatterKey(name, getCurrentLocale(),
+                ZoneId.systemDefault())).apply(instant);
     }
 
     @Override
@@ -110,36 +129,100 @@ public class DateTimeFormatResolver extends TransformResolver {
         super.init();
         customPattern = configuration
                 .getStringPropertyValue(CUSTOM_PATTERN_KEY);
-        LOGGER.info("Initialized [customPattern: {}]", customPattern);
+        long formatterCacheMaxSize = configuration
+                .getLongPropertyValue(FORMATTER_CACHE_MAX_SIZE_KEY);
+        formatterCache = configuration.getComputingCacheFactory().create(
+                COMPUTING_CACHE_CONSUMER_ID, this::createFormatter, null,
+                formatterCacheMaxSize, null);
+        LOGGER.info(
+                "Initialized [customPattern: {}, formatterCacheMaxSize: {}]",
+                customPattern, formatterCacheMaxSize);
     }
 
     @Override
     public Set<ConfigurationKey> getConfigurationKeys() {
-        return Collections.singleton(CUSTOM_PATTERN_KEY);
+        Set<ConfigurationKey> keys = new HashSet<>();
+        keys.add(CUSTOM_PATTERN_KEY);
+        keys.add(FORMATTER_CACHE_MAX_SIZE_KEY);
+        return keys;
+    }
+
+    long getFormatterCacheSize() {
+        return formatterCache.size();
     }
 
-    private Object getFormattableObject(Object contextObject) {
-        if (contextObject instanceof Date || contextObject instanceof Number) {
-            return contextObject;
+    private Instant getFormattableObject(Object contextObject) {
+        if (contextObject instanceof Date) {
+            // java.sql.Date does not support Date.toInstant()
+            return Instant.ofEpochMilli(((Date) contextObject).getTime());
+        } else if (contextObject instanceof Number) {
+            return Instant.ofEpochMilli(((Number) contextObject).longValue());
         } else if (contextObject instanceof Calendar) {
-            return ((Calendar) contextObject).getTime();
+            return ((Calendar) contextObject).toInstant();
         }
         return null;
     }
 
-    private String format(int style, Object object) {
-        return DateFormat.getDateTimeInstance(style, style, getCurrentLocale())
-                .format(object);
+    private Function<Instant, String> createFormatter(FormatterKey key) {
+        DateTimeFormatter formatter;
+        if (NAME_FORMAT.equals(key.name)) {
+            formatter = DateTimeFormatter
+                    .ofLocalizedDateTime(FormatStyle.MEDIUM);
+        } else if (NAME_FORMAT_SHORT.equals(key.name)) {
+            formatter = DateTimeFormatter
+                    .ofLocalizedDateTime(FormatStyle.SHORT);
+        } else if (NAME_FORMAT_DATE.equals(key.name)) {
+            formatter = DateTimeFormatter.ofLocalizedDate(FormatStyle.MEDIUM);
+        } else {
+            // Keep the SimpleDateFormat semantics of the custom pattern
+            TimeZone timeZone = TimeZone.getTimeZone(key.zoneId);
+            ObjectPool<SimpleDateFormat> pool = ObjectPool.of(() -> {
+                SimpleDateFormat format = new SimpleDateFormat(customPattern,
+                        key.locale);
+                format.setTimeZone(timeZone);
+                return format;
+            });
+            return instant -> pool
+                    .apply(format -> format.format(Date.from(instant)));
+        }
+        return formatter.withLocale(key.locale).withZone(key.zoneId)::format;
     }
 
-    private String formatDate(int style, Object object) {
-        return DateFormat.getDateInstance(style, getCurrentLocale()).format(
-                object);
-    }
+    private static final class FormatterKey {
+
+        private final String name;
+
+        private final Locale locale;
+
+        private final ZoneId zoneId;
+
+        private final int hashCode;
+
+        FormatterKey(String name, Locale locale, ZoneId zoneId) {
+            this.name = name;
+            this.locale = locale;
+            this.zoneId = zoneId;
+            this.hashCode = Objects.hash(name, locale, zoneId);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof FormatterKey)) {
+                return false;
+            }
+            FormatterKey other = (FormatterKey) obj;
+            return name.equals(other.name) && zoneId.equals(other.zoneId)
+                    && Objects.equals(locale, other.locale);
+        }
 
-    private String formatCustom(Object object) {
-        return new SimpleDateFormat(customPattern, getCurrentLocale())
-                .format(object);
     }
 
 }
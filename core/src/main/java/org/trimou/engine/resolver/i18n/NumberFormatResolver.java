@@ -17,11 +17,23 @@ package org.trimou.engine.resolver.i18n;
 
 import static org.trimou.engine.priority.Priorities.rightAfter;
 
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
 
+import org.trimou.engine.cache.ComputingCache;
+import org.trimou.engine.config.ConfigurationKey;
+import org.trimou.engine.config.SimpleConfigurationKey;
 import org.trimou.engine.resolver.CombinedIndexResolver;
 import org.trimou.engine.resolver.ResolutionContext;
 import org.trimou.engine.resolver.TransformResolver;
+import org.trimou.util.ImmutableList;
+import org.trimou.util.ObjectPool;
 
 /**
  * Basic number formatting resolver.
@@ -35,18 +47,50 @@ import org.trimou.engine.resolver.TransformResolver;
  * locale</li>
  * </ul>
  *
+ * <p>
+ * {@link NumberFormat} instances are not thread-safe and so they are reused
+ * through an {@link ObjectPool} per locale and format type, i.e. no instance
+ * is created or cloned for a formatted value unless all the pooled instances
+ * are in use. The size of the cache of pools is limited, see
+ * {@link #FORMAT_CACHE_MAX_SIZE_KEY}. Moreover, {@link Integer}, {@link Long},
+ * {@link Short} and {@link Byte} values are formatted without
+ * {@link NumberFormat} if the default number format of the current locale
+ * makes it possible, i.e. if it's a simple {@link DecimalFormat} with no
+ * prefix/suffix.
+ * </p>
+ *
  * @author Martin Kouba
  */
 public class NumberFormatResolver extends TransformResolver {
 
     public static final int NUMBER_FORMAT_RESOLVER_PRIORITY = rightAfter(CombinedIndexResolver.INDEX_RESOLVER_PRIORITY);
 
+    public static final String COMPUTING_CACHE_CONSUMER_ID = NumberFormatResolver.class
+            .getName();
+
+    /**
+     * Limit the number of locales for which the formats are cached. Use zero
+     * value to disable the cache.
+     */
+    public static final ConfigurationKey FORMAT_CACHE_MAX_SIZE_KEY = new SimpleConfigurationKey(
+            NumberFormatResolver.class.getName() + ".formatCacheMaxSize", 100L);
+
     static final String NAME_FORMAT = "format";
 
     static final String NAME_FORMAT_PERCENT = "formatPercent";
 
     static final String NAME_FORMAT_CURR = "formatCurrency";
 
+    private static final int IDX_NUMBER = 0;
+
+    private static final int IDX_PERCENT = 1;
+
+    private static final int IDX_CURR = 2;
+
+    private ComputingCache<Locale, List<ObjectPool<NumberFormat>>> formats;
+
+    private ComputingCache<Locale, Optional<IntegerFormat>> integerFormats;
+
     /**
      *
      */
@@ -72,17 +116,174 @@ public class NumberFormatResolver extends TransformResolver {
     public Object transform(Object contextObject, String name,
             ResolutionContext context) {
 
+        Locale locale = getCurrentLocale();
+
         if (NAME_FORMAT.equals(name)) {
-            return NumberFormat.getNumberInstance(getCurrentLocale()).format(
-                    contextObject);
+            if (integerFormats != null && isIntegerValue(contextObject)) {
+                Optional<IntegerFormat> integerFormat = integerFormats
+                        .get(locale);
+                if (integerFormat.isPresent()) {
+                    return integerFormat.get()
+                            .format(((Number) contextObject).longValue());
+                }
+            }
+            return format(contextObject, locale, IDX_NUMBER);
         } else if (NAME_FORMAT_PERCENT.equals(name)) {
-            return NumberFormat.getPercentInstance(getCurrentLocale()).format(
-                    contextObject);
+            return format(contextObject, locale, IDX_PERCENT);
         } else if (NAME_FORMAT_CURR.equals(name)) {
-            return NumberFormat.getCurrencyInstance(getCurrentLocale()).format(
-                    contextObject);
+            return format(contextObject, locale, IDX_CURR);
         }
         return null;
     }
 
+    @Override
+    public void init() {
+        super.init();
+        long formatCacheMaxSize = configuration
+                .getLongPropertyValue(FORMAT_CACHE_MAX_SIZE_KEY);
+        if (formatCacheMaxSize > 0) {
+            formats = configuration.getComputingCacheFactory().create(
+                    COMPUTING_CACHE_CONSUMER_ID,
+                    NumberFormatResolver::createPools, null,
+                    formatCacheMaxSize, null);
+            integerFormats = configuration.getComputingCacheFactory().create(
+                    COMPUTING_CACHE_CONSUMER_ID, IntegerFormat::from, null,
+                    formatCacheMaxSize, null);
+        }
+    }
+
+    @Override
+    public Set<ConfigurationKey> getConfigurationKeys() {
+        return Collections.singleton(FORMAT_CACHE_MAX_SIZE_KEY);
+    }
+
+    /**
+     * Discard all the cached formats, e.g. if a custom
+     * {@link java.util.spi.LocaleServiceProvider} is reloaded.
+     */
+    public void invalidateFormatCache() {
+        if (formats != null) {
+            formats.clear();
+            integerFormats.clear();
+        }
+    }
+
+    long getFormatCacheSize() {
+        return formats != null ? formats.size() : 0;
+    }
+
+    int getIdleFormatCount(Locale locale) {
+        List<ObjectPool<NumberFormat>> pools = formats != null
+                ? formats.getIfPresent(locale)
+                : null;
+        return pools != null
+                ? pools.stream().mapToInt(ObjectPool::getIdleCount).sum()
+                : 0;
+    }
+
+    private String format(Object value, Locale locale, int index) {
+        if (formats == null) {
+            return createFormat(locale, index).format(value);
+        }
+        return formats.get(locale).get(index)
+                .apply(format -> format.format(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ObjectPool<NumberFormat>> createPools(Locale locale) {
+        return ImmutableList.of(
+                ObjectPool.of(() -> createFormat(locale, IDX_NUMBER)),
+                ObjectPool.of(() -> createFormat(locale, IDX_PERCENT)),
+                ObjectPool.of(() -> createFormat(locale, IDX_CURR)));
+    }
+
+    private static NumberFormat createFormat(Locale locale, int index) {
+        switch (index) {
+        case IDX_PERCENT:
+            return NumberFormat.getPercentInstance(locale);
+        case IDX_CURR:
+            return NumberFormat.getCurrencyInstance(locale);
+        default:
+            return NumberFormat.getNumberInstance(locale);
+        }
+    }
+
+    private static boolean isIntegerValue(Object value) {
+        return value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * Immutable integer format which produces the same output as the default
+     * number format of the given locale.
+     */
+    static final class IntegerFormat {
+
+        // 19 digits, up to 18 grouping separators and the minus sign
+        private static final int MAX_LENGTH = 38;
+
+        private final char zeroDigit;
+
+        private final char minusSign;
+
+        private final char groupingSeparator;
+
+        private final int groupingSize;
+
+        private IntegerFormat(char zeroDigit, char minusSign,
+                char groupingSeparator, int groupingSize) {
+            this.zeroDigit = zeroDigit;
+            this.minusSign = minusSign;
+            this.groupingSeparator = groupingSeparator;
+            this.groupingSize = groupingSize;
+        }
+
+        String format(long value) {
+            char[] buffer = new char[MAX_LENGTH];
+            int pos = MAX_LENGTH;
+            int digits = 0;
+            // Work with negative values so that Long.MIN_VALUE is supported
+            long remaining = value > 0 ? -value : value;
+            do {
+                if (groupingSize > 0 && digits > 0
+                        && digits % groupingSize == 0) {
+                    buffer[--pos] = groupingSeparator;
+                }
+                buffer[--pos] = (char) (zeroDigit - (remaining % 10));
+                remaining /= 10;
+                digits++;
+            } while (remaining != 0);
+            if (value < 0) {
+                buffer[--pos] = minusSign;
+            }
+            return new String(buffer, pos, MAX_LENGTH - pos);
+        }
+
+        static Optional<IntegerFormat> from(Locale locale) {
+            NumberFormat format = NumberFormat.getNumberInstance(locale);
+            if (!(format instanceof DecimalFormat)) {
+                return Optional.empty();
+            }
+            DecimalFormat decimalFormat = (DecimalFormat) format;
+            DecimalFormatSymbols symbols = decimalFormat
+                    .getDecimalFormatSymbols();
+            String negativePrefix = decimalFormat.getNegativePrefix();
+            if (!decimalFormat.getPositivePrefix().isEmpty()
+                    || !decimalFormat.getPositiveSuffix().isEmpty()
+                    || !decimalFormat.getNegativeSuffix().isEmpty()
+                    || negativePrefix.length() != 1
+                    || decimalFormat.getMinimumIntegerDigits() != 1
+                    || decimalFormat.getMultiplier() != 1) {
+                return Optional.empty();
+            }
+            int groupingSize = decimalFormat.isGroupingUsed()
+                    ? decimalFormat.getGroupingSize()
+                    : 0;
+            return Optional.of(new IntegerFormat(symbols.getZeroDigit(),
+                    negativePrefix.charAt(0),
+                    symbols.getGroupingSeparator(), groupingSize));
+        }
+
+    }
+
 }
@@ -19,6 +19,7 @@ import static org.trimou.engine.priority.Priorities.rightAfter;
 
 import java.util.ResourceBundle;
 
+import org.trimou.engine.locale.ResourceBundleCache;
 import org.trimou.engine.resolver.CombinedIndexResolver;
 import org.trimou.engine.resolver.DummyTransformResolver;
 import org.trimou.engine.resolver.ResolutionContext;
@@ -37,6 +38,8 @@ import org.trimou.lambda.i18n.ResourceBundleLambda;
  */
 public class ResourceBundleResolver extends DummyTransformResolver {
 
+    private ResourceBundleCache bundleCache;
+
     /**
      *
      * @param baseName
@@ -59,12 +62,24 @@ public class ResourceBundleResolver extends DummyTransformResolver {
     @Override
     public Object transform(Object contextObject, String name,
             ResolutionContext context) {
-        ResourceBundle bundle = ResourceBundle.getBundle(matchingName(0),
-                getCurrentLocale());
-        if (bundle.containsKey(name)) {
-            return bundle.getObject(name);
-        }
-        return null;
+        return bundleCache.getObject(matchingName(0), getCurrentLocale(),
+                name);
+    }
+
+    @Override
+    public void init() {
+        super.init();
+        bundleCache = configuration.getResourceBundleCache();
+    }
+
+    /**
+     *
+     * @return the bundle cache, or <code>null</code> if the resolver is not
+     *         initialized yet
+     * @since 2.5.2
+     */
+    public ResourceBundleCache getBundleCache() {
+        return bundleCache;
     }
 
 }
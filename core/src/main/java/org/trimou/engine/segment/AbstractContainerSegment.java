@@ -21,6 +21,7 @@ import java.util.List;
 
 import org.trimou.engine.MustacheTagInfo;
 import org.trimou.engine.context.ExecutionContext;
+import org.trimou.engine.listener.SegmentListener;
 import org.trimou.util.ImmutableList;
 import org.trimou.util.ImmutableList.ImmutableListBuilder;
 
@@ -52,6 +53,10 @@ abstract class AbstractContainerSegment extends AbstractSegment
     }
 
     public Appendable execute(Appendable appendable, ExecutionContext context) {
+        SegmentListener listener = getTemplate().getSegmentListener();
+        if (listener != null) {
+            return executeWithListener(appendable, context, listener);
+        }
         if (singleton != null) {
             appendable = singleton.execute(appendable, context);
         } else {
@@ -62,6 +67,15 @@ abstract class AbstractContainerSegment extends AbstractSegment
         return appendable;
     }
 
+    private Appendable executeWithListener(Appendable appendable,
+            ExecutionContext context, SegmentListener listener) {
+        for (Segment segment : segments) {
+            appendable = Segments.execute(segment, appendable, context,
+                    listener);
+        }
+        return appendable;
+    }
+
     @Override
     public Iterator<Segment> iterator() {
         return segments.iterator();
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
+import org.trimou.engine.jfr.JfrEvents;
 import org.trimou.exception.MustacheException;
 import org.trimou.exception.MustacheProblem;
 import org.trimou.handlebars.Options;
@@ -70,7 +71,7 @@ class AsyncAppendable implements Appendable {
      */
     private void flush() {
         try {
-            parent.append(future.get(60, TimeUnit.SECONDS).collect(this));
+            parent.append(awaitResult().collect(this));
             parent.append(buffer);
             if (parent instanceof AsyncAppendable) {
                 ((AsyncAppendable) parent).flush();
@@ -105,7 +106,7 @@ class AsyncAppendable implements Appendable {
                 if (ret == null) {
                     ret = new StringBuilder();
                 }
-                AsyncAppendable result = future.get(60, TimeUnit.SECONDS);
+                AsyncAppendable result = awaitResult();
                 if (result.future != null) {
                     ret.append(result.collect(this));
                 } else {
@@ -122,6 +123,15 @@ class AsyncAppendable implements Appendable {
         }
     }
 
+    private AsyncAppendable awaitResult() throws Exception {
+        Object jfrEvent = JfrEvents.beginAsyncWait();
+        try {
+            return future.get(60, TimeUnit.SECONDS);
+        } finally {
+            JfrEvents.endAsyncWait(jfrEvent);
+        }
+    }
+
     void setFuture(Future<AsyncAppendable> future) {
         this.future = future;
     }
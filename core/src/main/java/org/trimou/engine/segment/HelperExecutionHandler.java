@@ -16,14 +16,17 @@
 package org.trimou.engine.segment;
 
 import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
@@ -34,6 +37,7 @@ import org.trimou.engine.MustacheTagInfo;
 import org.trimou.engine.context.ExecutionContext;
 import org.trimou.engine.context.ValueWrapper;
 import org.trimou.engine.interpolation.LiteralSupport;
+import org.trimou.engine.jfr.JfrEvents;
 import org.trimou.engine.parser.Template;
 import org.trimou.exception.MustacheException;
 import org.trimou.exception.MustacheProblem;
@@ -57,17 +61,21 @@ import org.trimou.util.Strings;
  */
 class HelperExecutionHandler {
 
+    private final String name;
+
     private final Helper helper;
 
     private final OptionsBuilder optionsBuilder;
 
     /**
      *
+     * @param name
      * @param helper
      * @param optionsBuilder
      */
-    private HelperExecutionHandler(Helper helper,
+    private HelperExecutionHandler(String name, Helper helper,
             OptionsBuilder optionsBuilder) {
+        this.name = name;
         this.helper = helper;
         this.optionsBuilder = optionsBuilder;
     }
@@ -86,8 +94,9 @@ class HelperExecutionHandler {
         // Split the name and detect unterminated literals
         Iterator<String> parts = splitHelperName(name, segment);
 
+        String helperName = parts.next();
         Helper helper = engine.getConfiguration().getHelpers()
-                .get(parts.next());
+                .get(helperName);
 
         if (helper == null) {
             // No helper with the given name found
@@ -139,7 +148,8 @@ class HelperExecutionHandler {
         // Let the helper validate the tag definition
         helper.validate(optionsBuilder);
 
-        return new HelperExecutionHandler(helper, optionsBuilder);
+        return new HelperExecutionHandler(helperName, helper,
+                optionsBuilder);
     }
 
     /**
@@ -151,11 +161,17 @@ class HelperExecutionHandler {
             ExecutionContext executionContext) {
         final DefaultOptions options = optionsBuilder.build(appendable,
                 executionContext);
+        Object jfrEvent = JfrEvents.beginHelper();
         try {
             helper.execute(options);
             return options.getAppendable();
         } finally {
             options.release();
+            if (jfrEvent != null) {
+                MustacheTagInfo tagInfo = optionsBuilder.getTagInfo();
+                JfrEvents.endHelper(jfrEvent, name,
+                        tagInfo.getTemplateName(), tagInfo.getLine());
+            }
         }
     }
 
@@ -257,7 +273,8 @@ class HelperExecutionHandler {
             LiteralSupport literalSupport) {
         Object literal = literalSupport.getLiteral(value, segment.getTagInfo());
         return literal != null ? literal
-                : new DefaultValuePlaceholder(value, engine);
+                : new DefaultValuePlaceholder(value, engine,
+                        segment.getTagInfo());
     }
 
     private static class OptionsBuilder implements HelperDefinition {
@@ -276,6 +293,18 @@ class HelperExecutionHandler {
         // true if no placeholder found, also if hash map is empty
         private final boolean isHashValuePlaceholderFound;
 
+        // The hash keys and values are also stored in arrays so that we can
+        // build a lightweight hash view during execution
+        private final String[] hashKeys;
+
+        private final Object[] hashValues;
+
+        // The max number of value wrappers created when building the options
+        private final int valueWrappersCount;
+
+        // Set during validation
+        private Object precompiled;
+
         private OptionsBuilder(List<Object> parameters,
                 Map<String, Object> hash, HelperAwareSegment segment,
                 MustacheEngine engine) {
@@ -287,6 +316,15 @@ class HelperExecutionHandler {
                     parameters);
             this.isHashValuePlaceholderFound = initHashValuePlaceholderFound(
                     hash);
+            this.hashKeys = new String[hash.size()];
+            this.hashValues = new Object[hash.size()];
+            int idx = 0;
+            for (Entry<String, Object> entry : hash.entrySet()) {
+                hashKeys[idx] = entry.getKey();
+                hashValues[idx] = entry.getValue();
+                idx++;
+            }
+            this.valueWrappersCount = initValueWrappersCount();
         }
 
         @Override
@@ -313,10 +351,21 @@ class HelperExecutionHandler {
             }
         }
 
+        @Override
+        public void setPrecompiled(Object precompiled) {
+            this.precompiled = precompiled;
+        }
+
+        @Override
+        public Object getPrecompiled() {
+            return precompiled;
+        }
+
         public DefaultOptions build(Appendable appendable,
                 ExecutionContext executionContext) {
-            List<ValueWrapper> valueWrappers = isParamValuePlaceholderFound
-                    || isHashValuePlaceholderFound ? new LinkedList<>() : null;
+            // Literal-only params and hash are immutable and reused
+            ValueWrappers valueWrappers = valueWrappersCount > 0
+                    ? new ValueWrappers(valueWrappersCount) : null;
             return new DefaultOptions(appendable, executionContext, segment,
                     getFinalParameters(executionContext, valueWrappers),
                     getFinalHash(executionContext, valueWrappers),
@@ -325,24 +374,22 @@ class HelperExecutionHandler {
 
         private List<Object> getFinalParameters(
                 ExecutionContext executionContext,
-                List<ValueWrapper> valueWrappers) {
+                ValueWrappers valueWrappers) {
             if (isParamValuePlaceholderFound) {
                 // At this point parameters list is never empty
                 int size = parameters.size();
-                switch (size) {
-                case 1:
+                if (size == 1) {
                     // Very often there will be only single param
-                    return Collections
-                            .singletonList(resolveValue(parameters.get(0),
-                                    valueWrappers, executionContext));
-                default:
-                    List<Object> finalParams = new ArrayList<>(size);
-                    for (Object param : parameters) {
-                        finalParams.add(resolveValue(param, valueWrappers,
-                                executionContext));
-                    }
-                    return Collections.unmodifiableList(finalParams);
+                    return Collections.singletonList(resolveValue(
+                            parameters.get(0), valueWrappers,
+                            executionContext));
+                }
+                Object[] finalParams = new Object[size];
+                for (int i = 0; i < size; i++) {
+                    finalParams[i] = resolveValue(parameters.get(i),
+                            valueWrappers, executionContext);
                 }
+                return ImmutableList.of(finalParams);
             } else {
                 return parameters;
             }
@@ -350,45 +397,37 @@ class HelperExecutionHandler {
 
         private Map<String, Object> getFinalHash(
                 ExecutionContext executionContext,
-                List<ValueWrapper> valueWrappers) {
+                ValueWrappers valueWrappers) {
             if (isHashValuePlaceholderFound) {
                 // At this point hash map is never empty
-                int size = hash.size();
-                switch (size) {
-                case 1:
-                    Entry<String, Object> singleEntry = hash.entrySet()
-                            .iterator().next();
-                    return Collections.singletonMap(singleEntry.getKey(),
-                            resolveValue(singleEntry.getValue(), valueWrappers,
-                                    executionContext));
-                default:
-                    Map<String, Object> finalHash = new HashMap<>();
-                    for (Entry<String, Object> entry : hash.entrySet()) {
-                        finalHash.put(entry.getKey(),
-                                resolveValue(entry.getValue(), valueWrappers,
-                                        executionContext));
-                    }
-                    return Collections.unmodifiableMap(finalHash);
+                if (hashKeys.length == 1) {
+                    return Collections.singletonMap(hashKeys[0], resolveValue(
+                            hashValues[0], valueWrappers, executionContext));
+                }
+                Object[] finalValues = new Object[hashValues.length];
+                for (int i = 0; i < hashValues.length; i++) {
+                    finalValues[i] = resolveValue(hashValues[i], valueWrappers,
+                            executionContext);
                 }
+                return new HashView(hashKeys, finalValues);
             } else {
                 return hash;
             }
         }
 
-        private Object resolveValue(Object value,
-                List<ValueWrapper> valueWrappers,
+        private Object resolveValue(Object value, ValueWrappers valueWrappers,
                 ExecutionContext executionContext) {
             if (value instanceof ValuePlaceholder) {
                 if (value instanceof ListValuePlaceholder) {
                     ListValuePlaceholder listValues = (ListValuePlaceholder) value;
                     if (listValues.hasValuePlaceholderElement) {
-                        ImmutableListBuilder<Object> builder = ImmutableList
-                                .builder();
-                        for (Object element : listValues) {
-                            builder.add(resolveValue(element, valueWrappers,
-                                    executionContext));
+                        List<Object> values = listValues.getValues();
+                        Object[] elements = new Object[values.size()];
+                        for (int i = 0; i < elements.length; i++) {
+                            elements[i] = resolveValue(values.get(i),
+                                    valueWrappers, executionContext);
                         }
-                        return builder.build();
+                        return ImmutableList.of(elements);
                     } else {
                         // Values are immutable
                         return listValues.getValues();
@@ -436,6 +475,28 @@ class HelperExecutionHandler {
             return false;
         }
 
+        private int initValueWrappersCount() {
+            int count = 0;
+            for (Object param : parameters) {
+                count += getValueWrappersCount(param);
+            }
+            for (Object value : hashValues) {
+                count += getValueWrappersCount(value);
+            }
+            return count;
+        }
+
+        private int getValueWrappersCount(Object value) {
+            if (value instanceof ListValuePlaceholder) {
+                int count = 0;
+                for (Object element : (ListValuePlaceholder) value) {
+                    count += getValueWrappersCount(element);
+                }
+                return count;
+            }
+            return value instanceof ValuePlaceholder ? 1 : 0;
+        }
+
     }
 
     private static class DefaultOptions implements Options {
@@ -443,7 +504,7 @@ class HelperExecutionHandler {
         private static final Logger LOGGER = LoggerFactory
                 .getLogger(DefaultOptions.class);
 
-        protected List<ValueWrapper> valueWrappers;
+        protected ValueWrappers valueWrappers;
 
         protected Appendable appendable;
 
@@ -474,7 +535,7 @@ class HelperExecutionHandler {
          */
         DefaultOptions(Appendable appendable, ExecutionContext executionContext,
                 HelperAwareSegment segment, List<Object> parameters,
-                Map<String, Object> hash, List<ValueWrapper> valueWrappers,
+                Map<String, Object> hash, ValueWrappers valueWrappers,
                 MustacheEngine engine, HelperDefinition originalDefinition) {
             this.appendable = appendable;
             this.valueWrappers = valueWrappers;
@@ -542,7 +603,7 @@ class HelperExecutionHandler {
         @Override
         public Object getValue(String key) {
             if (valueWrappers == null) {
-                valueWrappers = new ArrayList<>(5);
+                valueWrappers = new ValueWrappers(4);
             }
             ValueWrapper wrapper = executionContext.getValue(key);
             valueWrappers.add(wrapper);
@@ -560,6 +621,9 @@ class HelperExecutionHandler {
             final AsyncAppendable asyncAppendable = new AsyncAppendable(
                     appendable);
 
+            // The context must not change before the task is executed
+            final ExecutionContext asyncContext = executionContext;
+
             // Now submit the executable and get the future
             ExecutorService executor = engine.getConfiguration()
                     .geExecutorService();
@@ -572,11 +636,18 @@ class HelperExecutionHandler {
                     .submit(() -> {
                         // We need a separate appendable for the async
                         // execution
+                        // The value wrappers of the async options are created
+                        // lazily (see getValue()) and released once the task
+                        // is finished
                         DefaultOptions asyncOptions = new DefaultOptions(
                                 new AsyncAppendable(asyncAppendable),
-                                executionContext, segment, parameters, hash,
-                                new ArrayList<>(), engine, originalDefinition);
-                        executable.execute(asyncOptions);
+                                asyncContext, segment, parameters, hash,
+                                null, engine, originalDefinition);
+                        try {
+                            executable.execute(asyncOptions);
+                        } finally {
+                            asyncOptions.release();
+                        }
                         return (AsyncAppendable) asyncOptions
                                 .getAppendable();
                     });
@@ -628,6 +699,11 @@ class HelperExecutionHandler {
             return originalDefinition;
         }
 
+        @Override
+        public Object getPrecompiled() {
+            return originalDefinition.getPrecompiled();
+        }
+
         protected void partial(String templateId, Appendable appendable,
                 ExecutionContext executionContext) {
             Checker.checkArgumentsNotNull(templateId, appendable);
@@ -648,14 +724,7 @@ class HelperExecutionHandler {
 
         void release() {
             if (valueWrappers != null) {
-                int wrappersSize = valueWrappers.size();
-                if (wrappersSize == 1) {
-                    valueWrappers.get(0).release();
-                } else if (wrappersSize > 1) {
-                    for (ValueWrapper wrapper : valueWrappers) {
-                        wrapper.release();
-                    }
-                }
+                valueWrappers.release();
             }
             if (pushed > 0) {
                 LOGGER.info(
@@ -667,15 +736,136 @@ class HelperExecutionHandler {
 
     }
 
+    /**
+     * Keeps track of the value wrappers created during a helper execution so
+     * that these can be released afterwards. Not thread-safe.
+     */
+    private static class ValueWrappers {
+
+        private ValueWrapper[] wrappers;
+
+        private int size;
+
+        ValueWrappers(int initialCapacity) {
+            this.wrappers = new ValueWrapper[initialCapacity];
+            this.size = 0;
+        }
+
+        void add(ValueWrapper wrapper) {
+            if (size == wrappers.length) {
+                wrappers = Arrays.copyOf(wrappers, size * 2);
+            }
+            wrappers[size++] = wrapper;
+        }
+
+        void release() {
+            for (int i = 0; i < size; i++) {
+                wrappers[i].release();
+            }
+        }
+
+    }
+
+    /**
+     * An immutable hash map view backed by arrays. The keys are shared by all
+     * executions of a helper. Hash maps are usually very small so a simple
+     * linear search is used.
+     */
+    private static class HashView extends AbstractMap<String, Object> {
+
+        private final String[] keys;
+
+        private final Object[] values;
+
+        private Set<Entry<String, Object>> entrySet;
+
+        HashView(String[] keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        @Override
+        public Object get(Object key) {
+            int idx = indexOf(key);
+            return idx != -1 ? values[idx] : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) != -1;
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return keys.length == 0;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            // A read-only view, entries are only created during iteration
+            if (entrySet == null) {
+                entrySet = new AbstractSet<Entry<String, Object>>() {
+
+                    @Override
+                    public Iterator<Entry<String, Object>> iterator() {
+                        return new Iterator<Entry<String, Object>>() {
+
+                            private int position = 0;
+
+                            @Override
+                            public boolean hasNext() {
+                                return position < keys.length;
+                            }
+
+                            @Override
+                            public Entry<String, Object> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                Entry<String, Object> entry = new SimpleImmutableEntry<>(
+                                        keys[position], values[position]);
+                                position++;
+                                return entry;
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return keys.length;
+                    }
+                };
+            }
+            return entrySet;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+    }
+
     private static class DefaultValuePlaceholder implements ValuePlaceholder {
 
         private final String name;
 
         private final ValueProvider provider;
 
-        DefaultValuePlaceholder(String name, MustacheEngine engine) {
+        DefaultValuePlaceholder(String name, MustacheEngine engine,
+                MustacheTagInfo tag) {
             this.name = name;
-            this.provider = new ValueProvider(name, engine.getConfiguration());
+            this.provider = new ValueProvider(name, engine.getConfiguration(),
+                    tag);
         }
 
         public String getName() {
@@ -20,6 +20,12 @@ import org.trimou.engine.resolver.Mapper;
 /**
  * An immutable iteration metadata.
  *
+ * <p>
+ * Note that the total number of elements does not need to be known in advance.
+ * If a one-element lookahead is used the information whether the iteration has
+ * more elements is sufficient.
+ * </p>
+ *
  * @author Martin Kouba
  */
 public final class ImmutableIterationMeta implements Mapper {
@@ -34,7 +40,7 @@ public final class ImmutableIterationMeta implements Mapper {
 
     private final String alias;
 
-    private final int size;
+    private final boolean hasNext;
 
     private final int index;
 
@@ -62,13 +68,50 @@ public final class ImmutableIterationMeta implements Mapper {
      */
     public ImmutableIterationMeta(String alias, int size, int index,
             String valueAlias, Object value) {
+        this(alias, index, index < size, valueAlias, value);
+    }
+
+    private ImmutableIterationMeta(String alias, int index, boolean hasNext,
+            String valueAlias, Object value) {
         this.alias = alias;
-        this.size = size;
         this.index = index;
+        this.hasNext = hasNext;
         this.valueAlias = valueAlias;
         this.value = value;
     }
 
+    /**
+     * Use this factory method if a one-element lookahead is used, i.e. the
+     * total number of elements is not known in advance.
+     *
+     * @param alias
+     * @param index
+     * @param hasNext
+     * @return a new iteration metadata
+     * @since 2.5.2
+     */
+    public static ImmutableIterationMeta lookahead(String alias, int index,
+            boolean hasNext) {
+        return new ImmutableIterationMeta(alias, index, hasNext, null, null);
+    }
+
+    /**
+     *
+     * @param alias
+     * @param index
+     * @param hasNext
+     * @param valueAlias
+     * @param value
+     * @return a new iteration metadata
+     * @since 2.5.2
+     * @see #lookahead(String, int, boolean)
+     */
+    public static ImmutableIterationMeta lookahead(String alias, int index,
+            boolean hasNext, String valueAlias, Object value) {
+        return new ImmutableIterationMeta(alias, index, hasNext, valueAlias,
+                value);
+    }
+
     /**
      * The first element is at index <code>1</code>.
      *
@@ -96,7 +139,7 @@ public final class ImmutableIterationMeta implements Mapper {
      *         <code>false</code> otherwise
      */
     public boolean hasNext() {
-        return index < size;
+        return hasNext;
     }
 
     /**
@@ -114,7 +157,7 @@ public final class ImmutableIterationMeta implements Mapper {
      *         otherwise
      */
     public boolean isLast() {
-        return index == size;
+        return !hasNext;
     }
 
     /**
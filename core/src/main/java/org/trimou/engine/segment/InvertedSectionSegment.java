@@ -43,7 +43,8 @@ public class InvertedSectionSegment extends AbstractSectionSegment {
     public InvertedSectionSegment(String text, Origin origin,
             List<Segment> segments) {
         super(text, origin, segments);
-        this.provider = new ValueProvider(text, getEngineConfiguration());
+        this.provider = new ValueProvider(text, getEngineConfiguration(),
+                getTagInfo());
     }
 
     public SegmentType getType() {
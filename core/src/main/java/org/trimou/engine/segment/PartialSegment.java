@@ -21,6 +21,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.trimou.annotations.Internal;
 import org.trimou.engine.MustacheTagType;
 import org.trimou.engine.context.ExecutionContext;
+import org.trimou.engine.listener.SegmentListener;
 import org.trimou.engine.parser.Template;
 import org.trimou.exception.MustacheException;
 import org.trimou.exception.MustacheProblem;
@@ -114,9 +115,14 @@ public class PartialSegment extends AbstractSegment {
             partialLines = getPartialLines(partialTemplate);
         }
 
+        SegmentListener listener = partialTemplate.getSegmentListener();
         for (List<Segment> line : partialLines) {
             for (Segment segment : line) {
-                segment.execute(appendable, context);
+                if (listener != null) {
+                    Segments.execute(segment, appendable, context, listener);
+                } else {
+                    segment.execute(appendable, context);
+                }
             }
         }
     }
@@ -26,7 +26,6 @@ import org.trimou.engine.context.ExecutionContext;
 import org.trimou.engine.context.ValueWrapper;
 import org.trimou.engine.parser.Template;
 import org.trimou.lambda.Lambda;
-import org.trimou.util.Iterables;
 
 /**
  * Section segment.
@@ -84,7 +83,8 @@ public class SectionSegment extends AbstractSectionSegment
             this.iterationMetaAlias = getEngineConfiguration()
                     .getStringPropertyValue(
                             EngineConfigurationKey.ITERATION_METADATA_ALIAS);
-            this.provider = new ValueProvider(text, getEngineConfiguration());
+            this.provider = new ValueProvider(text, getEngineConfiguration(),
+                    getTagInfo());
         } else {
             this.iterationMetaAlias = null;
             this.provider = null;
@@ -161,16 +161,16 @@ public class SectionSegment extends AbstractSectionSegment
     private void processIterable(Appendable appendable,
             ExecutionContext context, Object value) {
         Iterable<?> iterable = (Iterable<?>) value;
-        int size = Iterables.size(iterable);
-        if (size < 1) {
-            return;
-        }
+        // Single pass - the iterator is also used as a one-element lookahead
+        // so that we don't need to know the size in advance
         Iterator iterator = iterable.iterator();
         int i = 1;
         while (iterator.hasNext()) {
-            processIteration(appendable, context.setContextObject(
-                    new ImmutableIterationMeta(iterationMetaAlias, size, i++)),
-                    iterator.next());
+            Object next = iterator.next();
+            processIteration(appendable,
+                    context.setContextObject(ImmutableIterationMeta.lookahead(
+                            iterationMetaAlias, i++, iterator.hasNext())),
+                    next);
         }
     }
 
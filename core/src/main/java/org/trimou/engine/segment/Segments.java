@@ -24,7 +24,11 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheTagInfo;
+import org.trimou.engine.MustacheTagType;
 import org.trimou.engine.config.Configuration;
+import org.trimou.engine.context.ExecutionContext;
+import org.trimou.engine.listener.SegmentListener;
 import org.trimou.engine.parser.Template;
 
 /**
@@ -136,4 +140,29 @@ final class Segments {
         return lines;
     }
 
+    /**
+     * Execute the segment and notify the listener if it's a tag segment.
+     *
+     * @param segment
+     * @param appendable
+     * @param context
+     * @param listener
+     * @return the appendable
+     * @see SegmentListener
+     */
+    static Appendable execute(Segment segment, Appendable appendable,
+            ExecutionContext context, SegmentListener listener) {
+        MustacheTagInfo tag = segment.getTagInfo();
+        if (tag == null || MustacheTagType.COMMENT.equals(tag.getType())
+                || MustacheTagType.DELIMITER.equals(tag.getType())) {
+            return segment.execute(appendable, context);
+        }
+        listener.segmentStarted(tag);
+        try {
+            return segment.execute(appendable, context);
+        } finally {
+            listener.segmentFinished(tag);
+        }
+    }
+
 }
@@ -17,12 +17,17 @@ package org.trimou.engine.segment;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.trimou.engine.MustacheTagInfo;
 import org.trimou.engine.config.Configuration;
 import org.trimou.engine.config.EngineConfigurationKey;
 import org.trimou.engine.context.ExecutionContext;
+import org.trimou.engine.context.ResolutionTrace;
 import org.trimou.engine.context.ValueWrapper;
+import org.trimou.engine.listener.MustacheListener;
+import org.trimou.engine.listener.ResolutionListener;
 import org.trimou.engine.resolver.EnhancedResolver.Hint;
 
 /**
@@ -43,13 +48,25 @@ class ValueProvider {
      */
     private final AtomicReference<Hint> hint;
 
+    private final MustacheTagInfo tag;
+
+    /**
+     * The resolution is only traced if there is a listener
+     */
+    private final ResolutionListener listener;
+
     /**
      *
      * @param text
      * @param configuration
+     * @param tag
      */
-    ValueProvider(String text, Configuration configuration) {
+    ValueProvider(String text, Configuration configuration,
+            MustacheTagInfo tag) {
         this.key = text;
+        this.tag = tag;
+        this.listener = initResolutionListener(
+                configuration.getMustacheListeners());
         ArrayList<String> parts = new ArrayList<>();
         for (Iterator<String> iterator = configuration.getKeySplitter()
                 .split(text); iterator.hasNext();) {
@@ -65,11 +82,37 @@ class ValueProvider {
     }
 
     ValueWrapper get(ExecutionContext context) {
-        ValueWrapper value = context.getValue(key, keyParts, hint);
+        ResolutionTrace trace = listener != null ? new ResolutionTrace(key)
+                : null;
+        ValueWrapper value = context.getValue(key, keyParts, hint, trace);
         if (hint != null && value.getHint() != null) {
             hint.compareAndSet(null, value.getHint());
         }
+        if (trace != null) {
+            listener.valueResolved(tag, trace);
+        }
         return value;
     }
 
+    private static ResolutionListener initResolutionListener(
+            List<MustacheListener> listeners) {
+        List<ResolutionListener> resolutionListeners = new ArrayList<>();
+        for (MustacheListener listener : listeners) {
+            if (listener instanceof ResolutionListener) {
+                resolutionListeners.add((ResolutionListener) listener);
+            }
+        }
+        if (resolutionListeners.isEmpty()) {
+            return null;
+        }
+        if (resolutionListeners.size() == 1) {
+            return resolutionListeners.get(0);
+        }
+        return (tag, trace) -> {
+            for (ResolutionListener listener : resolutionListeners) {
+                listener.valueResolved(tag, trace);
+            }
+        };
+    }
+
 }
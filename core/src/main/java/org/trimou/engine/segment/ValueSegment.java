@@ -62,7 +62,8 @@ public class ValueSegment extends AbstractSegment
                 ? HelperExecutionHandler.from(text, getEngine(), this) : null;
         if (helperHandler == null) {
             this.textSupport = getEngineConfiguration().getTextSupport();
-            this.provider = new ValueProvider(text, getEngineConfiguration());
+            this.provider = new ValueProvider(text, getEngineConfiguration(),
+                    getTagInfo());
             if (getEngineConfiguration().getValueConverters().isEmpty()) {
                 this.converters = null;
             } else {
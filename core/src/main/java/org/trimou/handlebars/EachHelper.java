@@ -17,14 +17,20 @@ package org.trimou.handlebars;
 
 import static org.trimou.handlebars.OptionsHashKeys.APPLY;
 import static org.trimou.handlebars.OptionsHashKeys.AS;
+import static org.trimou.handlebars.OptionsHashKeys.CHUNK;
 import static org.trimou.handlebars.OptionsHashKeys.OMIT_META;
+import static org.trimou.handlebars.OptionsHashKeys.PARALLEL;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.Spliterator;
+import java.util.function.IntFunction;
 import java.util.stream.Stream;
 
 import org.trimou.engine.config.EngineConfigurationKey;
@@ -35,7 +41,6 @@ import org.trimou.exception.MustacheException;
 import org.trimou.exception.MustacheProblem;
 import org.trimou.util.Checker;
 import org.trimou.util.ImmutableSet;
-import org.trimou.util.Iterables;
 
 /**
  * Iterates over the params or the object at the top of the context stack.
@@ -125,6 +130,22 @@ import org.trimou.util.Iterables;
  * {{#each items omitMeta=true}}{{this}}{{/each}}
  * </pre>
  *
+ * <p>
+ * Large {@link Iterable}s and arrays may be also rendered in parallel. The
+ * elements are split into chunks of the specified size (the default chunk size
+ * is {@value #DEFAULT_CHUNK_SIZE}) and each chunk is rendered asynchronously
+ * (see {@link Options#executeAsync(Options.HelperExecutable)}). The output of
+ * all chunks is appended in the original order and the iteration metadata are
+ * the same as for sequential processing. Note that an
+ * {@link java.util.concurrent.ExecutorService} must be set and the block must
+ * not depend on the order in which the elements are processed (e.g. must not
+ * modify shared state).
+ * </p>
+ *
+ * <pre>
+ * {{#each items parallel=true chunk=500}}{{this}}{{/each}}
+ * </pre>
+ *
  * @see Function
  * @author Martin Kouba
  */
@@ -132,6 +153,8 @@ public class EachHelper extends BasicSectionHelper {
 
     public static final String SKIP_RESULT = "org.trimou.handlebars.skipResult";
 
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
     private static final String SKIP_IF_NULL = "skipIfNull";
 
     private static final String SKIP_UNLESS = "skipUnless:";
@@ -140,6 +163,8 @@ public class EachHelper extends BasicSectionHelper {
 
     private static final String MAP = "map:";
 
+    private static final int UNKNOWN_SIZE = -1;
+
     private static final Function SKIP_NULL_FUNC = (e) -> e != null ? e : SKIP_RESULT;
 
     private String iterationMetadataAlias;
@@ -183,12 +208,14 @@ public class EachHelper extends BasicSectionHelper {
             }
             if (!omitMeta) {
                 // Collect total size
-                for (Iterator<Object> iterator = params.iterator(); iterator.hasNext();) {
+                for (ListIterator<Object> iterator = params.listIterator(); iterator.hasNext();) {
                     Object param = iterator.next();
-                    int paramSize = 0;
-                    if (param != null) {
-                        paramSize = getSize(param);
+                    if (param instanceof Iterable && !(param instanceof Collection)) {
+                        // The size is not known in advance - make sure the elements are only iterated once
+                        param = toList((Iterable<?>) param);
+                        iterator.set(param);
                     }
+                    int paramSize = getSize(param);
                     if (paramSize > 0) {
                         size += paramSize;
                     } else {
@@ -212,11 +239,13 @@ public class EachHelper extends BasicSectionHelper {
 
     @Override
     protected Set<String> getSupportedHashKeys() {
-        return ImmutableSet.of(APPLY, AS, OMIT_META);
+        return ImmutableSet.of(APPLY, AS, OMIT_META, PARALLEL, CHUNK);
     }
 
     protected int processParameter(Object param, Options options, int index, int size, boolean isOmitMeta) {
-        if (param instanceof Iterable) {
+        if (isParallel(options) && (param instanceof Iterable || param.getClass().isArray())) {
+            return processParallel(param, options, index, size, isOmitMeta);
+        } else if (param instanceof Iterable) {
             return processIterator(((Iterable<?>) param).iterator(), options, index, size, isOmitMeta);
         } else if (param.getClass().isArray()) {
             return processArray(param, options, index, size, isOmitMeta);
@@ -236,7 +265,11 @@ public class EachHelper extends BasicSectionHelper {
         Function function = initFunction(options);
         String alias = initValueAlias(options);
         while (iterator.hasNext()) {
-            nextElement(options, iterator.next(), size, index++, function, alias, isOmitMeta);
+            Object next = iterator.next();
+            // If the size is not known the iterator is used as a one-element lookahead
+            nextElement(options, next, index, size == UNKNOWN_SIZE ? iterator.hasNext() : index < size, function,
+                    alias, isOmitMeta);
+            index++;
         }
         return index;
     }
@@ -246,7 +279,8 @@ public class EachHelper extends BasicSectionHelper {
         Function function = initFunction(options);
         String alias = initValueAlias(options);
         for (int i = 0; i < length; i++) {
-            nextElement(options, Array.get(array, i), size, index++, function, alias, isOmitMeta);
+            nextElement(options, Array.get(array, i), index, index < size, function, alias, isOmitMeta);
+            index++;
         }
         return index;
     }
@@ -255,21 +289,75 @@ public class EachHelper extends BasicSectionHelper {
             boolean isOmitMeta) {
         Function function = initFunction(options);
         String alias = initValueAlias(options);
-        spliterator.forEachRemaining((e) -> nextElement(options, e, size, Integer.MIN_VALUE, function, alias, isOmitMeta));
+        spliterator.forEachRemaining((e) -> nextElement(options, e, Integer.MIN_VALUE, false, function, alias, isOmitMeta));
         return Integer.MIN_VALUE;
     }
 
-    private int getSize(Object param) {
+    private int processParallel(Object param, Options options, int index, int size, boolean isOmitMeta) {
+        int chunkSize = Helpers.initIntHashEntry(options, CHUNK, DEFAULT_CHUNK_SIZE);
+        if (chunkSize < 1) {
+            throw new MustacheException(MustacheProblem.RENDER_HELPER_INVALID_OPTIONS,
+                    "Chunk size must be greater than zero: %s [%s]", chunkSize, options.getTagInfo());
+        }
+        final int length;
+        final IntFunction<Object> elements;
         if (param instanceof Iterable) {
-            return Iterables.size((Iterable<?>) param);
+            // Chunks need a random access to the elements
+            List<?> list = param instanceof List && param instanceof RandomAccess ? (List<?>) param
+                    : toList((Iterable<?>) param);
+            length = list.size();
+            elements = list::get;
+        } else {
+            length = Array.getLength(param);
+            elements = (i) -> Array.get(param, i);
+        }
+        int finalSize = size == UNKNOWN_SIZE ? index - 1 + length : size;
+        Function function = initFunction(options);
+        String alias = initValueAlias(options);
+        if (length <= chunkSize) {
+            // Single chunk - no need to render asynchronously
+            for (int i = 0; i < length; i++) {
+                nextElement(options, elements.apply(i), index, index < finalSize, function, alias, isOmitMeta);
+                index++;
+            }
+            return index;
+        }
+        for (int start = 0; start < length; start += chunkSize) {
+            int chunkStart = start;
+            int chunkEnd = Math.min(start + chunkSize, length);
+            int chunkIndex = index + start;
+            // Each chunk is rendered into a separate buffer, the buffers are appended in order
+            options.executeAsync((asyncOptions) -> {
+                for (int i = chunkStart; i < chunkEnd; i++) {
+                    int elementIndex = chunkIndex + i - chunkStart;
+                    nextElement(asyncOptions, elements.apply(i), elementIndex, elementIndex < finalSize, function,
+                            alias, isOmitMeta);
+                }
+            });
+        }
+        return index + length;
+    }
+
+    private int getSize(Object param) {
+        if (param instanceof Collection) {
+            return ((Collection<?>) param).size();
+        } else if (param instanceof Iterable) {
+            // Avoid iterating the elements twice
+            return UNKNOWN_SIZE;
         } else if (param.getClass().isArray()) {
             return Array.getLength(param);
         }
         return 0;
     }
 
-    private void nextElement(Options options, Object value, int size, int index, Function function, String valueAlias,
-            boolean isOmitMeta) {
+    private List<Object> toList(Iterable<?> iterable) {
+        List<Object> list = new ArrayList<>();
+        iterable.forEach(list::add);
+        return list;
+    }
+
+    private void nextElement(Options options, Object value, int index, boolean hasNext, Function function,
+            String valueAlias, boolean isOmitMeta) {
         if (function != null) {
             value = function.apply(value);
             if (SKIP_RESULT.equals(value)) {
@@ -278,8 +366,8 @@ public class EachHelper extends BasicSectionHelper {
         }
         ImmutableIterationMeta meta = isOmitMeta ? null
                 : (valueAlias != null
-                        ? new ImmutableIterationMeta(iterationMetadataAlias, size, index, valueAlias, value)
-                        : new ImmutableIterationMeta(iterationMetadataAlias, size, index));
+                        ? ImmutableIterationMeta.lookahead(iterationMetadataAlias, index, hasNext, valueAlias, value)
+                        : ImmutableIterationMeta.lookahead(iterationMetadataAlias, index, hasNext));
         if (meta != null) {
             options.push(meta);
         }
@@ -363,7 +451,15 @@ public class EachHelper extends BasicSectionHelper {
     }
 
     private boolean isOmitMeta(Options options) {
-        Object value = options.getHash().get(OMIT_META);
+        return isHashEntryTrue(options, OMIT_META);
+    }
+
+    private boolean isParallel(Options options) {
+        return isHashEntryTrue(options, PARALLEL);
+    }
+
+    private boolean isHashEntryTrue(Options options, String key) {
+        Object value = options.getHash().get(key);
         if (value == null) {
             return false;
         }
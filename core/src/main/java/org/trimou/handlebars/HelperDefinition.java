@@ -77,6 +77,37 @@ public interface HelperDefinition {
      */
     String getContentLiteralBlock();
 
+    /**
+     * A helper may precompile the tag definition during validation (e.g.
+     * convert literal params) and store the result so that the work is not
+     * repeated during each execution. Note that a helper instance is shared by
+     * all the tags of the same name, whereas each tag has its own definition.
+     * The value should only be set during validation.
+     *
+     * <p>
+     * By default, the value is ignored, i.e. a definition which does not
+     * support precompilation always returns <code>null</code> from
+     * {@link #getPrecompiled()} and the helper must be able to handle this.
+     * </p>
+     *
+     * @param precompiled
+     * @see Helper#validate(HelperDefinition)
+     * @since 2.5.2
+     */
+    default void setPrecompiled(Object precompiled) {
+        // No-op by default
+    }
+
+    /**
+     *
+     * @return the object set during validation or <code>null</code>
+     * @see #setPrecompiled(Object)
+     * @since 2.5.2
+     */
+    default Object getPrecompiled() {
+        return null;
+    }
+
     /**
      * A value placeholder represents an expression which will be evaluated
      * right before the helper execution. The placeholder is then replaced with
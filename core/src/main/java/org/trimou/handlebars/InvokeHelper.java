@@ -20,6 +20,9 @@ import static org.trimou.handlebars.OptionsHashKeys.M;
 import static org.trimou.handlebars.OptionsHashKeys.METHOD;
 import static org.trimou.handlebars.OptionsHashKeys.ON;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
@@ -94,6 +97,14 @@ import org.trimou.util.Primitives;
  * {{#with item.name}}{{invoke 1 m='substring'}}{{/with}}
  * </pre>
  *
+ * <p>
+ * The selected methods are cached per class, method name and parameter types
+ * (see {@link #METHOD_CACHE_MAX_SIZE_KEY}) and invoked through
+ * {@link MethodHandle}s. Moreover, each tag remembers the last method used so
+ * that the cache lookup is not needed if the types do not change. If the
+ * {@link OptionsHashKeys#CLASS} value is a string literal the class is loaded
+ * during validation.
+ * </p>
  *
  * @author Martin Kouba
  */
@@ -109,7 +120,7 @@ public class InvokeHelper extends BasicHelper {
     public static final ConfigurationKey METHOD_CACHE_MAX_SIZE_KEY = new SimpleConfigurationKey(
             InvokeHelper.class.getName() + ".methodCacheMaxSize", 500L);
 
-    private volatile ComputingCache<MethodKey, Optional<Method>> methodCache;
+    private volatile ComputingCache<MethodKey, Optional<MethodHandle>> methodCache;
 
     private final ClassLoader classLoader;
 
@@ -150,6 +161,10 @@ public class InvokeHelper extends BasicHelper {
     @Override
     public void execute(Options options) {
 
+        Object precompiled = options.getPrecompiled();
+        InvokeSite site = precompiled instanceof InvokeSite
+                ? (InvokeSite) precompiled : null;
+
         Class<?> clazz = null;
         Object methodName = defaultMethodName;
         if (methodName == null) {
@@ -160,7 +175,8 @@ public class InvokeHelper extends BasicHelper {
         }
         Object instance = options.getHash().get(ON);
         if (instance == null) {
-            clazz = loadClassIfNeeded(options);
+            clazz = site != null && site.staticClass != null
+                    ? site.staticClass : loadClassIfNeeded(options);
             if (clazz == null) {
                 instance = options.peek();
             }
@@ -169,38 +185,53 @@ public class InvokeHelper extends BasicHelper {
             clazz = instance.getClass();
         }
 
-        Method method = methodCache.get(new MethodKey(clazz,
-                methodName.toString(), getParamTypes(options))).orElse(null);
-        if (method == null) {
-            throw new MustacheException(
-                    MustacheProblem.RENDER_HELPER_INVALID_OPTIONS,
-                    "Unable to find unambiguous method with name \"%s\" and parameter types %s on class %s [%s]",
-                    methodName, getParamTypes(options), clazz.getName(),
-                    options.getTagInfo());
+        String name = methodName.toString();
+        MethodHandle handle;
+        CachedHandle cached = site != null ? site.cached : null;
+
+        if (cached != null && cached.matches(clazz, name, options.getParameters())) {
+            handle = cached.handle;
+        } else {
+            List<Class<?>> paramTypes = getParamTypes(options);
+            handle = methodCache.get(new MethodKey(clazz, name, paramTypes))
+                    .orElse(null);
+            if (handle == null) {
+                throw new MustacheException(
+                        MustacheProblem.RENDER_HELPER_INVALID_OPTIONS,
+                        "Unable to find unambiguous method with name \"%s\" and parameter types %s on class %s [%s]",
+                        methodName, paramTypes, clazz.getName(),
+                        options.getTagInfo());
+            }
+            if (site != null) {
+                site.cached = new CachedHandle(clazz, name, paramTypes, handle);
+            }
         }
 
+        Object value;
         try {
-            Object value = method.invoke(instance,
+            value = (Object) handle.invokeExact(instance,
                     options.getParameters().toArray());
-            if (isSection(options)) {
-                if (value != null) {
-                    options.push(value);
-                    options.fn();
-                    options.pop();
-                }
-            } else {
-                if (value == null) {
-                    value = configuration.getMissingValueHandler()
-                            .handle(options.getTagInfo());
-                }
-                if (value != null) {
-                    convertAndAppend(options, value);
-                }
-            }
-        } catch (Exception e) {
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new MustacheException(MustacheProblem.RENDER_GENERIC_ERROR,
                     e);
         }
+        if (isSection(options)) {
+            if (value != null) {
+                options.push(value);
+                options.fn();
+                options.pop();
+            }
+        } else {
+            if (value == null) {
+                value = configuration.getMissingValueHandler()
+                        .handle(options.getTagInfo());
+            }
+            if (value != null) {
+                convertAndAppend(options, value);
+            }
+        }
     }
 
     @Override
@@ -233,6 +264,14 @@ public class InvokeHelper extends BasicHelper {
                     "A method name must be always defined", this.getClass(),
                     definition);
         }
+        Class<?> staticClass = null;
+        Object clazzValue = definition.getHash().get(CLASS);
+        if (!definition.getHash().containsKey(ON) && clazzValue != null
+                && !Helpers.isValuePlaceholder(clazzValue)) {
+            // Static method invocation - load the class during validation
+            staticClass = loadClass(clazzValue);
+        }
+        definition.setPrecompiled(new InvokeSite(staticClass));
     }
 
     @Override
@@ -267,21 +306,74 @@ public class InvokeHelper extends BasicHelper {
     }
 
     private Class<?> loadClassIfNeeded(Options options) {
+        Object clazzValue = options.getHash().get(CLASS);
+        return clazzValue != null ? loadClass(clazzValue) : null;
+    }
+
+    private Class<?> loadClass(Object clazzValue) {
         Class<?> clazz = null;
         try {
-            Object clazzValue = options.getHash().get(CLASS);
-            if (clazzValue != null) {
-                if (clazzValue instanceof Class<?>) {
-                    clazz = (Class<?>) clazzValue;
-                } else {
-                    clazz = classLoader.loadClass(clazzValue.toString());
-                }
+            if (clazzValue instanceof Class<?>) {
+                clazz = (Class<?>) clazzValue;
+            } else {
+                clazz = classLoader.loadClass(clazzValue.toString());
             }
         } catch (ClassNotFoundException ignored) {
         }
         return clazz;
     }
 
+    /**
+     * Created for each tag during validation.
+     */
+    private static final class InvokeSite {
+
+        // Loaded during validation, may be null
+        private final Class<?> staticClass;
+
+        // The handle used last time
+        private volatile CachedHandle cached;
+
+        InvokeSite(Class<?> staticClass) {
+            this.staticClass = staticClass;
+        }
+
+    }
+
+    private static final class CachedHandle {
+
+        private final Class<?> clazz;
+
+        private final String name;
+
+        private final Class<?>[] paramTypes;
+
+        private final MethodHandle handle;
+
+        CachedHandle(Class<?> clazz, String name, List<Class<?>> paramTypes,
+                MethodHandle handle) {
+            this.clazz = clazz;
+            this.name = name;
+            this.paramTypes = paramTypes.toArray(new Class<?>[paramTypes.size()]);
+            this.handle = handle;
+        }
+
+        boolean matches(Class<?> clazz, String name, List<Object> params) {
+            if (this.clazz != clazz || paramTypes.length != params.size()
+                    || !this.name.equals(name)) {
+                return false;
+            }
+            for (int i = 0; i < paramTypes.length; i++) {
+                Object param = params.get(i);
+                if (param == null || param.getClass() != paramTypes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
     private static final class MethodKey {
 
         private final Class<?> clazz;
@@ -358,11 +450,11 @@ public class InvokeHelper extends BasicHelper {
 
     }
 
-    private static class MethodComputingFunction
-            implements ComputingCache.Function<MethodKey, Optional<Method>> {
+    private static class MethodComputingFunction implements
+            ComputingCache.Function<MethodKey, Optional<MethodHandle>> {
 
         @Override
-        public Optional<Method> compute(MethodKey key) {
+        public Optional<MethodHandle> compute(MethodKey key) {
             List<Method> found = findMethods(key.getClazz(), key.getName());
             if (found.isEmpty()) {
                 return Optional.empty();
@@ -375,13 +467,38 @@ public class InvokeHelper extends BasicHelper {
                         && !method.isAccessible()) {
                     SecurityActions.setAccessible(method);
                 }
-                return Optional.of(method);
+                try {
+                    return Optional.of(toHandle(method));
+                } catch (IllegalAccessException e) {
+                    throw new MustacheException(
+                            MustacheProblem.RENDER_GENERIC_ERROR, e);
+                }
             }
             return Optional.empty();
         }
 
     }
 
+    /**
+     *
+     * @param method
+     * @return a handle of type {@code (Object,Object[])Object}, the first
+     *         argument is the instance (ignored for static methods) and the
+     *         second one is the array of method parameters
+     * @throws IllegalAccessException
+     */
+    private static MethodHandle toHandle(Method method)
+            throws IllegalAccessException {
+        MethodHandle handle = MethodHandles.lookup().unreflect(method)
+                .asFixedArity();
+        int paramCount = method.getParameterCount();
+        if (Modifier.isStatic(method.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        return handle.asType(MethodType.genericMethodType(paramCount + 1))
+                .asSpreader(Object[].class, paramCount);
+    }
+
     /**
      *
      * @param clazz
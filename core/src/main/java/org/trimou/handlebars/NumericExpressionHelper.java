@@ -29,8 +29,9 @@ import org.trimou.handlebars.HelperDefinition.ValuePlaceholder;
 
 /**
  * A simple numeric expression helper. During evaluation all the params are
- * converted to {@link BigDecimal}s. For the list of supported operators see the
- * {@link Operator} enum values, e.g.:
+ * converted to {@link BigDecimal}s unless both values are {@link Integer}s or
+ * {@link Long}s, or both values are finite {@link Double}s. For the list of
+ * supported operators see the {@link Operator} enum values, e.g.:
  *
  * <pre>
  * {{numExpr val op="neg" out='It is a negative number!'}}
@@ -63,6 +64,29 @@ import org.trimou.handlebars.HelperDefinition.ValuePlaceholder;
  * see {@link #forEachOperator()}.
  * </p>
  *
+ * <p>
+ * A compound expression consists of several operators joined with
+ * <code>and</code> or <code>or</code>. Each operator consumes the number of
+ * params it requires (see {@link Operator#getMinParams()}) in the given order.
+ * <code>and</code> takes precedence over <code>or</code> and the evaluation is
+ * short-circuited. {@link Operator#IN} and {@link Operator#NIN} may not be
+ * used in a compound expression.
+ * </p>
+ *
+ * <pre>
+ * {{#numExpr val 18 val 65 op="ge and lt"}}
+ *  val >= 18 and val < 65
+ * {{/numExpr}}
+ * {{#numExpr val val 100 op="neg or gt"}}
+ *  val < 0 or val > 100
+ * {{/numExpr}}
+ * </pre>
+ *
+ * <p>
+ * The operator and literal params (e.g. <code>"90"</code>) are processed
+ * during validation so that the work is not repeated during each execution.
+ * </p>
+ *
  * @author Martin Kouba
  */
 public class NumericExpressionHelper extends BasicHelper {
@@ -122,9 +146,14 @@ public class NumericExpressionHelper extends BasicHelper {
     @Override
     public void execute(Options options) {
 
-        Operator operator = initOperator(options);
+        Object precompiled = options.getPrecompiled();
+        CompiledExpression compiled = precompiled instanceof CompiledExpression
+                ? (CompiledExpression) precompiled : null;
 
-        if (operator.getMinParams() > options.getParameters().size()) {
+        Expression expression = compiled != null && compiled.expression != null
+                ? compiled.expression : initExpression(options);
+
+        if (expression.getMinParams() > options.getParameters().size()) {
             // We need this check because the operator may be set dynamically
             throw new MustacheException(
                     MustacheProblem.RENDER_HELPER_INVALID_OPTIONS,
@@ -134,7 +163,8 @@ public class NumericExpressionHelper extends BasicHelper {
                     options.getTagInfo().getLine());
         }
 
-        boolean result = operator.evaluate(options);
+        boolean result = expression.evaluate(options,
+                compiled != null ? compiled.operands : null);
 
         if (result) {
             if (isSection(options)) {
@@ -152,17 +182,26 @@ public class NumericExpressionHelper extends BasicHelper {
     @Override
     public void validate(HelperDefinition definition) {
         super.validate(definition);
-        Operator operator;
+        Expression expression;
         Object value = definition.getHash().get(OPERATOR);
         if (value == null) {
-            operator = Operator.EQ;
+            expression = Expression.of(defaultOperator);
         } else if (value instanceof ValuePlaceholder) {
             // Operator set dynamically
-            operator = null;
+            expression = null;
         } else {
-            operator = Operator.from(value.toString());
+            try {
+                expression = Expression.from(value.toString());
+            } catch (IllegalArgumentException e) {
+                throw new MustacheException(
+                        MustacheProblem.COMPILE_HELPER_VALIDATION_FAILURE,
+                        "%s [helper: %s, template: %s, line: %s]",
+                        e.getMessage(), this.getClass().getName(),
+                        definition.getTagInfo().getTemplateName(),
+                        definition.getTagInfo().getLine());
+            }
         }
-        if (operator != null && operator.getMinParams() > definition
+        if (expression != null && expression.getMinParams() > definition
                 .getParameters().size()) {
             throw new MustacheException(
                     MustacheProblem.COMPILE_HELPER_VALIDATION_FAILURE,
@@ -171,19 +210,115 @@ public class NumericExpressionHelper extends BasicHelper {
                     definition.getTagInfo().getTemplateName(),
                     definition.getTagInfo().getLine());
         }
+        definition.setPrecompiled(new CompiledExpression(expression,
+                convertLiterals(definition)));
     }
 
-    private Operator initOperator(Options options) {
-        Operator operator = null;
+    private Expression initExpression(Options options) {
+        Expression expression = null;
         Object value = options.getHash().get(OPERATOR);
         if (value != null) {
-            operator = Operator.from(value.toString());
+            try {
+                expression = Expression.from(value.toString());
+            } catch (IllegalArgumentException e) {
+                throw new MustacheException(
+                        MustacheProblem.RENDER_HELPER_INVALID_OPTIONS,
+                        "%s [helper: %s, template: %s, line: %s]",
+                        e.getMessage(),
+                        NumericExpressionHelper.class.getName(),
+                        options.getTagInfo().getTemplateName(),
+                        options.getTagInfo().getLine());
+            }
+        }
+        return expression != null ? expression : Expression.of(defaultOperator);
+    }
+
+    private Object[] convertLiterals(HelperDefinition definition) {
+        Object[] operands = null;
+        for (int i = 0; i < definition.getParameters().size(); i++) {
+            Object converted = convertLiteral(definition.getParameters().get(i));
+            if (converted != null) {
+                if (operands == null) {
+                    operands = new Object[definition.getParameters().size()];
+                }
+                operands[i] = converted;
+            }
+        }
+        return operands;
+    }
+
+    /**
+     *
+     * @param value
+     * @return the converted value or <code>null</code> if the value cannot be
+     *         converted during validation
+     */
+    private static Object convertLiteral(Object value) {
+        if (value instanceof Integer || value instanceof Long
+                || value instanceof Double || value instanceof BigDecimal) {
+            return value;
+        } else if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        } else if (value instanceof String) {
+            String str = value.toString();
+            try {
+                return Long.valueOf(str);
+            } catch (NumberFormatException e) {
+                try {
+                    return new BigDecimal(str);
+                } catch (NumberFormatException ignored) {
+                    // The error will be reported during execution
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Object getOperand(int index, Options options,
+            Object[] operands) {
+        if (operands != null && index < operands.length
+                && operands[index] != null) {
+            return operands[index];
+        }
+        return options.getParameters().get(index);
+    }
+
+    private static int compare(int offset, Options options,
+            Object[] operands) {
+        return compare(getOperand(offset, options, operands),
+                getOperand(offset + 1, options, operands), options);
+    }
+
+    private static int compare(Object value1, Object value2, Options options) {
+        if (isIntegral(value1) && isIntegral(value2)) {
+            return Long.compare(((Number) value1).longValue(),
+                    ((Number) value2).longValue());
         }
-        return operator != null ? operator : defaultOperator;
+        if (value1 instanceof Double && value2 instanceof Double) {
+            double double1 = (Double) value1;
+            double double2 = (Double) value2;
+            if (Double.isFinite(double1) && Double.isFinite(double2)) {
+                // Note that 0.0 and -0.0 are considered equal in value
+                return double1 < double2 ? -1 : (double1 > double2 ? 1 : 0);
+            }
+        }
+        return getDecimal(value1, options).compareTo(getDecimal(value2, options));
     }
 
-    private static BigDecimal getDecimal(int index, Options options) {
-        return getDecimal(options.getParameters().get(index), options);
+    private static int signum(int index, Options options, Object[] operands) {
+        Object value = getOperand(index, options, operands);
+        if (isIntegral(value)) {
+            return Long.signum(((Number) value).longValue());
+        }
+        if (value instanceof Double && Double.isFinite((Double) value)) {
+            return (int) Math.signum((Double) value);
+        }
+        return getDecimal(value, options).signum();
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long;
     }
 
     static BigDecimal getDecimal(Object value, Options options) {
@@ -237,83 +372,85 @@ public class NumericExpressionHelper extends BasicHelper {
          *
          * @see BigDecimal#compareTo(BigDecimal)
          */
-        GT(options -> {
-            BigDecimal val1 = getDecimal(0, options);
-            BigDecimal val2 = getDecimal(1, options);
-            return val1.compareTo(val2) > 0;
-        }),
+        GT((options, operands, offset) -> compare(offset, options,
+                operands) > 0),
         /**
          * Evaluates to true if the first value is greater than or equal to the
          * second value.
          *
          * @see BigDecimal#compareTo(BigDecimal)
          */
-        GE(options -> {
-            BigDecimal val1 = getDecimal(0, options);
-            BigDecimal val2 = getDecimal(1, options);
-            return val1.compareTo(val2) >= 0;
-        }),
+        GE((options, operands, offset) -> compare(offset, options,
+                operands) >= 0),
         /**
          * Evaluates to true if the first value is less than the second value.
          *
          * @see BigDecimal#compareTo(BigDecimal)
          */
-        LT(options -> {
-            BigDecimal val1 = getDecimal(0, options);
-            BigDecimal val2 = getDecimal(1, options);
-            return val1.compareTo(val2) < 0;
-        }),
+        LT((options, operands, offset) -> compare(offset, options,
+                operands) < 0),
         /**
          * Evaluates to true if the first value is less than or equal to the
          * second value.
          *
          * @see BigDecimal#compareTo(BigDecimal)
          */
-        LE(options -> {
-            BigDecimal val1 = getDecimal(0, options);
-            BigDecimal val2 = getDecimal(1, options);
-            return val1.compareTo(val2) <= 0;
-        }),
+        LE((options, operands, offset) -> compare(offset, options,
+                operands) <= 0),
         /**
          * Evaluates to true if the first value is negative.
          */
-        NEG(1, options -> getDecimal(0, options).compareTo(BigDecimal.ZERO) < 0),
+        NEG(1, (options, operands, offset) -> signum(offset, options,
+                operands) < 0),
         /**
          * Evaluates to true if the first value is positive.
          */
-        POS(1, options -> getDecimal(0, options).compareTo(BigDecimal.ZERO) > 0),
+        POS(1, (options, operands, offset) -> signum(offset, options,
+                operands) > 0),
         /**
          * Evaluates to true if the first value is found in the set of other
          * values. Elements of {@link Iterable}s and arrays are treated as
          * separate objects.
          */
-        IN(new InEvaluator()),
+        IN(new InEvaluator(), false),
         /**
          * Evaluates to true if the first value is not found in the set of other
          * values. Elements of {@link Iterable}s and arrays are treated as
          * separate objects.
          */
-        NIN(new InverseEvaluator(new InEvaluator())),;
+        NIN(new InverseEvaluator(new InEvaluator()), false),;
 
         Operator(Evaluator evaluator) {
-            this(2, evaluator);
+            this(2, evaluator, true);
+        }
+
+        Operator(Evaluator evaluator, boolean composable) {
+            this(2, evaluator, composable);
         }
 
         Operator(int minParams, Evaluator evaluator) {
+            this(minParams, evaluator, true);
+        }
+
+        Operator(int minParams, Evaluator evaluator, boolean composable) {
             this.minParams = minParams;
             this.evaluator = evaluator;
+            this.composable = composable;
         }
 
         private final int minParams;
 
         private final Evaluator evaluator;
 
+        // Operators consuming a fixed number of params only
+        private final boolean composable;
+
         public int getMinParams() {
             return minParams;
         }
 
         public boolean evaluate(Options options) {
-            return evaluator.evaluate(options);
+            return evaluator.evaluate(options, null, 0);
         }
 
         static Operator from(String value) {
@@ -331,35 +468,177 @@ public class NumericExpressionHelper extends BasicHelper {
 
     interface Evaluator {
 
-        boolean evaluate(Options options);
+        /**
+         *
+         * @param options
+         * @param operands
+         *            The params converted during validation, may be
+         *            <code>null</code>
+         * @param offset
+         *            The index of the first param of the operator
+         * @return the result
+         */
+        boolean evaluate(Options options, Object[] operands, int offset);
+    }
+
+    /**
+     * The result of the validation. The expression is <code>null</code> if
+     * the operator is set dynamically. An operand is <code>null</code> if the
+     * param is not a literal and must be evaluated during execution.
+     */
+    private static final class CompiledExpression {
+
+        private final Expression expression;
+
+        private final Object[] operands;
+
+        CompiledExpression(Expression expression, Object[] operands) {
+            this.expression = expression;
+            this.operands = operands;
+        }
+
+    }
+
+    /**
+     * A single operator or several operators joined with <code>and</code>
+     * and <code>or</code>.
+     */
+    private static final class Expression {
+
+        private static final String AND = "and";
+
+        private static final String OR = "or";
+
+        private static final Expression[] SINGLE;
+
+        static {
+            Operator[] operators = Operator.values();
+            SINGLE = new Expression[operators.length];
+            for (int i = 0; i < operators.length; i++) {
+                SINGLE[i] = new Expression(new Operator[] { operators[i] },
+                        new boolean[0]);
+            }
+        }
+
+        private final Operator[] operators;
+
+        // conjunctions[i] is true if operators[i] and operators[i + 1] are
+        // joined with "and"
+        private final boolean[] conjunctions;
+
+        private final int minParams;
+
+        private Expression(Operator[] operators, boolean[] conjunctions) {
+            this.operators = operators;
+            this.conjunctions = conjunctions;
+            int params = 0;
+            for (Operator operator : operators) {
+                params += operator.getMinParams();
+            }
+            this.minParams = params;
+        }
+
+        static Expression of(Operator operator) {
+            return SINGLE[operator.ordinal()];
+        }
+
+        /**
+         *
+         * @param value
+         * @return the expression or <code>null</code> if the value does not
+         *         represent a known operator
+         * @throws IllegalArgumentException
+         *             If the value represents an invalid compound expression
+         */
+        static Expression from(String value) {
+            String[] tokens = value.trim().split("\\s+");
+            if (tokens.length == 1) {
+                Operator operator = Operator.from(tokens[0]);
+                return operator != null ? of(operator) : null;
+            }
+            if (tokens.length % 2 == 0) {
+                throw new IllegalArgumentException(
+                        "Invalid compound expression: " + value);
+            }
+            Operator[] operators = new Operator[tokens.length / 2 + 1];
+            boolean[] conjunctions = new boolean[operators.length - 1];
+            for (int i = 0; i < tokens.length; i++) {
+                if (i % 2 == 0) {
+                    Operator operator = Operator.from(tokens[i]);
+                    if (operator == null || !operator.composable) {
+                        throw new IllegalArgumentException(
+                                "Invalid operator in compound expression: "
+                                        + tokens[i]);
+                    }
+                    operators[i / 2] = operator;
+                } else if (AND.equalsIgnoreCase(tokens[i])) {
+                    conjunctions[i / 2] = true;
+                } else if (!OR.equalsIgnoreCase(tokens[i])) {
+                    throw new IllegalArgumentException(
+                            "Invalid connective in compound expression: "
+                                    + tokens[i]);
+                }
+            }
+            return new Expression(operators, conjunctions);
+        }
+
+        int getMinParams() {
+            return minParams;
+        }
+
+        boolean evaluate(Options options, Object[] operands) {
+            if (operators.length == 1) {
+                return operators[0].evaluator.evaluate(options, operands, 0);
+            }
+            int offset = 0;
+            // The result of the current "and" group
+            boolean group = true;
+            for (int i = 0; i < operators.length; i++) {
+                Operator operator = operators[i];
+                if (group) {
+                    group = operator.evaluator.evaluate(options, operands,
+                            offset);
+                }
+                offset += operator.getMinParams();
+                if (i == conjunctions.length || !conjunctions[i]) {
+                    // End of the "and" group
+                    if (group) {
+                        return true;
+                    }
+                    group = true;
+                }
+            }
+            return false;
+        }
+
     }
 
     private static final class InEvaluator implements Evaluator {
 
         @Override
-        public boolean evaluate(Options options) {
-            BigDecimal val = getDecimal(0, options);
+        public boolean evaluate(Options options, Object[] operands,
+                int offset) {
+            Object val = getOperand(0, options, operands);
             for (int i = 1; i < options.getParameters().size(); i++) {
-                Object toTest = options.getParameters().get(i);
+                Object toTest = getOperand(i, options, operands);
                 if (toTest == null) {
                     continue;
                 }
                 if (toTest instanceof Iterable) {
                     for (final Object o : ((Iterable<?>) toTest)) {
-                        if (test(val, getDecimal(o, options))) {
+                        if (compare(val, o, options) == 0) {
                             return true;
                         }
                     }
                 } else if (toTest.getClass().isArray()) {
                     int length = Array.getLength(toTest);
                     for (int j = 0; j < length; j++) {
-                        if (test(val,
-                                getDecimal(Array.get(toTest, j), options))) {
+                        if (compare(val, Array.get(toTest, j), options) == 0) {
                             return true;
                         }
                     }
                 } else {
-                    if (test(val, getDecimal(toTest, options))) {
+                    if (compare(val, toTest, options) == 0) {
                         return true;
                     }
                 }
@@ -367,19 +646,14 @@ public class NumericExpressionHelper extends BasicHelper {
             return false;
         }
 
-        private boolean test(BigDecimal val1, BigDecimal val2) {
-            return val1.compareTo(val2) == 0;
-        }
-
     }
 
     private static class EqualsEvaluator implements Evaluator {
 
         @Override
-        public boolean evaluate(Options options) {
-            BigDecimal val1 = getDecimal(0, options);
-            BigDecimal val2 = getDecimal(1, options);
-            return val1.compareTo(val2) == 0;
+        public boolean evaluate(Options options, Object[] operands,
+                int offset) {
+            return compare(offset, options, operands) == 0;
         }
 
     }
@@ -393,8 +667,9 @@ public class NumericExpressionHelper extends BasicHelper {
         }
 
         @Override
-        public boolean evaluate(Options options) {
-            return !evaluator.evaluate(options);
+        public boolean evaluate(Options options, Object[] operands,
+                int offset) {
+            return !evaluator.evaluate(options, operands, offset);
         }
 
     }
@@ -82,4 +82,8 @@ public final class OptionsHashKeys {
 
     public static final String OMIT_META = "omitMeta";
 
+    public static final String PARALLEL = "parallel";
+
+    public static final String CHUNK = "chunk";
+
 }
@@ -17,13 +17,20 @@ package org.trimou.handlebars.i18n;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.TimeZone;
+import java.util.function.Function;
 
 import org.trimou.engine.MustacheTagInfo;
+import org.trimou.engine.cache.ComputingCache;
 import org.trimou.engine.resolver.i18n.DateTimeFormatResolver;
+import org.trimou.util.ObjectPool;
 
 /**
  * This is an alternative to {@link DateTimeFormatResolver}. The main advantage
@@ -35,11 +42,55 @@ import org.trimou.engine.resolver.i18n.DateTimeFormatResolver;
  * ...
  * </code>
  *
+ * <p>
+ * The styles are the {@link DateFormat} constants. Formatters are cached per
+ * style/pattern, locale and time zone and the size of the cache is limited. The
+ * styles are formatted with immutable {@link DateTimeFormatter} instances. The
+ * pattern is interpreted by {@link SimpleDateFormat} - the instances are not
+ * thread-safe and so they are reused through an {@link ObjectPool}.
+ * {@link Date}, {@link Calendar} and {@link Number} (milliseconds since the
+ * epoch) values are converted to {@link Instant}.
+ * </p>
+ *
  * @author Martin Kouba
  */
 public class DateTimeFormatHelper extends
         AbstractTimeFormatHelper<Object, Integer> {
 
+    public static final String COMPUTING_CACHE_CONSUMER_ID = DateTimeFormatHelper.class
+            .getName();
+
+    public static final long DEFAULT_FORMATTER_CACHE_MAX_SIZE = 1000L;
+
+    private final long formatterCacheMaxSize;
+
+    private ComputingCache<FormatterKey, Function<Instant, String>> formatterCache;
+
+    /**
+     *
+     */
+    public DateTimeFormatHelper() {
+        this(DEFAULT_FORMATTER_CACHE_MAX_SIZE);
+    }
+
+    /**
+     *
+     * @param formatterCacheMaxSize
+     *            The maximum number of cached formatters
+     */
+    public DateTimeFormatHelper(long formatterCacheMaxSize) {
+        this.formatterCacheMaxSize = formatterCacheMaxSize;
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        formatterCache = configuration.getComputingCacheFactory().create(
+                COMPUTING_CACHE_CONSUMER_ID,
+                DateTimeFormatHelper::createFormatter, null,
+                formatterCacheMaxSize, null);
+    }
+
     @Override
     protected String defaultFormat(Object value, Locale locale,
             TimeZone timeZone) {
@@ -49,27 +100,24 @@ public class DateTimeFormatHelper extends
     @Override
     protected String format(Object value, Integer style, Locale locale,
             TimeZone timeZone) {
-        DateFormat dateFormat = DateFormat.getDateTimeInstance(style, style,
-                locale);
-        dateFormat.setTimeZone(timeZone);
-        return dateFormat.format(value);
+        return formatterCache
+                .get(new FormatterKey(locale, timeZone, null, style))
+                .apply(toInstant(value));
     }
 
     @Override
     protected String format(Object value, String pattern, Locale locale,
             TimeZone timeZone) {
-        SimpleDateFormat simpleDateFormat = new SimpleDateFormat(pattern,
-                locale);
-        simpleDateFormat.setTimeZone(timeZone);
-        return simpleDateFormat.format(value);
+        return formatterCache
+                .get(new FormatterKey(locale, timeZone, pattern, null))
+                .apply(toInstant(value));
     }
 
     protected Object getFormattableObject(Object value, Locale locale,
             TimeZone timeZone, MustacheTagInfo tagInfo) {
-        if (value instanceof Date || value instanceof Number) {
-            return value;
-        } else if (value instanceof Calendar) {
-            return ((Calendar) value).getTime();
+        if (value instanceof Date || value instanceof Number
+                || value instanceof Calendar) {
+            return toInstant(value);
         } else {
             throw valueNotAFormattableObject(value, tagInfo);
         }
@@ -89,4 +137,95 @@ public class DateTimeFormatHelper extends
         }
     }
 
+    private Instant toInstant(Object value) {
+        if (value instanceof Instant) {
+            return (Instant) value;
+        } else if (value instanceof Date) {
+            // java.sql.Date does not support Date.toInstant()
+            return Instant.ofEpochMilli(((Date) value).getTime());
+        } else if (value instanceof Calendar) {
+            return ((Calendar) value).toInstant();
+        }
+        return Instant.ofEpochMilli(((Number) value).longValue());
+    }
+
+    long getFormatterCacheSize() {
+        return formatterCache.size();
+    }
+
+    private static Function<Instant, String> createFormatter(
+            FormatterKey key) {
+        if (key.pattern != null) {
+            // Keep the SimpleDateFormat semantics of the pattern
+            ObjectPool<SimpleDateFormat> pool = ObjectPool.of(() -> {
+                SimpleDateFormat format = new SimpleDateFormat(key.pattern,
+                        key.locale);
+                format.setTimeZone(key.timeZone);
+                return format;
+            });
+            return instant -> pool
+                    .apply(format -> format.format(Date.from(instant)));
+        }
+        FormatStyle formatStyle = toFormatStyle(key.style);
+        return DateTimeFormatter.ofLocalizedDateTime(formatStyle, formatStyle)
+                .withLocale(key.locale)
+                .withZone(key.timeZone.toZoneId())::format;
+    }
+
+    private static FormatStyle toFormatStyle(Integer style) {
+        switch (style) {
+        case DateFormat.FULL:
+            return FormatStyle.FULL;
+        case DateFormat.LONG:
+            return FormatStyle.LONG;
+        case DateFormat.SHORT:
+            return FormatStyle.SHORT;
+        default:
+            return FormatStyle.MEDIUM;
+        }
+    }
+
+    private static final class FormatterKey {
+
+        private final Locale locale;
+
+        private final TimeZone timeZone;
+
+        private final String pattern;
+
+        private final Integer style;
+
+        private final int hashCode;
+
+        FormatterKey(Locale locale, TimeZone timeZone, String pattern,
+                Integer style) {
+            this.locale = locale;
+            this.timeZone = timeZone;
+            this.pattern = pattern;
+            this.style = style;
+            this.hashCode = Objects.hash(locale, timeZone, pattern, style);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof FormatterKey)) {
+                return false;
+            }
+            FormatterKey other = (FormatterKey) obj;
+            return Objects.equals(locale, other.locale)
+                    && Objects.equals(timeZone, other.timeZone)
+                    && Objects.equals(pattern, other.pattern)
+                    && Objects.equals(style, other.style);
+        }
+
+    }
+
 }
@@ -30,6 +30,7 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.trimou.engine.locale.LocaleSupport;
+import org.trimou.engine.locale.ResourceBundleCache;
 import org.trimou.exception.MustacheException;
 import org.trimou.exception.MustacheProblem;
 import org.trimou.handlebars.Options;
@@ -92,6 +93,11 @@ import org.trimou.util.ImmutableSet;
  * {{msg "key" locale="fr"}}
  * </code>
  *
+ * <p>
+ * Since 2.5.2 the bundles and compiled {@link MessageFormat} instances are cached
+ * - see also {@link #getBundleCache()}.
+ * </p>
+ *
  * @author Martin Kouba
  * @see LocaleSupport
  */
@@ -104,6 +110,8 @@ public class ResourceBundleHelper extends LocaleAwareValueHelper {
 
     private final Format defaultFormat;
 
+    private ResourceBundleCache bundleCache;
+
     /**
      *
      * @param defaultBaseName
@@ -126,10 +134,11 @@ public class ResourceBundleHelper extends LocaleAwareValueHelper {
     public void execute(Options options) {
 
         String key = options.getParameters().get(0).toString();
-        Object baseName = options.getHash().get(BASE_NAME);
-        ResourceBundle bundle = ResourceBundle.getBundle(
-                baseName != null ? baseName.toString() : defaultBaseName,
-                getLocale(options));
+        Object baseNameValue = options.getHash().get(BASE_NAME);
+        String baseName = baseNameValue != null ? baseNameValue.toString()
+                : defaultBaseName;
+        Locale locale = getLocale(options);
+        ResourceBundle bundle = bundleCache.getBundle(baseName, locale);
 
         if (bundle.containsKey(key)) {
 
@@ -143,11 +152,11 @@ public class ResourceBundleHelper extends LocaleAwareValueHelper {
                         options.getParameters());
                 try {
                     if (Format.PRINTF.equals(format)) {
-                        append(options, String.format(bundle.getString(key),
-                                formatParams));
+                        append(options,
+                                String.format(stringValue, formatParams));
                     } else if (Format.MESSAGE.equals(format)) {
-                        append(options, MessageFormat
-                                .format(bundle.getString(key), formatParams));
+                        append(options, bundleCache.formatMessage(baseName,
+                                locale, key, formatParams));
                     }
                 } catch (Exception e) {
                     throw new MustacheException(MustacheProblem.RENDER_IO_ERROR,
@@ -157,6 +166,22 @@ public class ResourceBundleHelper extends LocaleAwareValueHelper {
         }
     }
 
+    /**
+     *
+     * @return the bundle cache, or <code>null</code> if the helper is not
+     *         initialized yet
+     * @since 2.5.2
+     */
+    public ResourceBundleCache getBundleCache() {
+        return bundleCache;
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        bundleCache = configuration.getResourceBundleCache();
+    }
+
     @Override
     protected Set<String> getSupportedHashKeys() {
         return ImmutableSet.of(FORMAT, BASE_NAME, LOCALE);
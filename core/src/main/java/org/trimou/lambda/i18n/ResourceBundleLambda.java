@@ -1,11 +1,13 @@
 package org.trimou.lambda.i18n;
 
+import java.util.Locale;
 import java.util.ResourceBundle;
 
 import org.trimou.engine.MustacheEngine;
 import org.trimou.engine.MustacheEngineBuilder;
 import org.trimou.engine.MustacheEngineBuilder.EngineBuiltCallback;
 import org.trimou.engine.locale.LocaleSupport;
+import org.trimou.engine.locale.ResourceBundleCache;
 import org.trimou.engine.resolver.i18n.ResourceBundleResolver;
 import org.trimou.handlebars.i18n.ResourceBundleHelper;
 import org.trimou.lambda.InputProcessingLambda;
@@ -31,6 +33,8 @@ public class ResourceBundleLambda extends InputProcessingLambda
 
     private LocaleSupport localeSupport;
 
+    private volatile ResourceBundleCache bundleCache;
+
     /**
      *
      * @param baseName
@@ -57,13 +61,11 @@ public class ResourceBundleLambda extends InputProcessingLambda
                     "ResourceBundleLambda requires a LocaleSupport instance to work properly");
         }
 
-        ResourceBundle bundle = ResourceBundle.getBundle(baseName,
-                localeSupport.getCurrentLocale());
-
-        if (bundle.containsKey(text)) {
-            return bundle.getObject(text).toString();
-        }
-        return Strings.EMPTY;
+        Locale locale = localeSupport.getCurrentLocale();
+        Object value = bundleCache != null
+                ? bundleCache.getObject(baseName, locale, text)
+                : getObject(ResourceBundle.getBundle(baseName, locale), text);
+        return value != null ? value.toString() : Strings.EMPTY;
     }
 
     @Override
@@ -74,6 +76,21 @@ public class ResourceBundleLambda extends InputProcessingLambda
     @Override
     public void engineBuilt(MustacheEngine engine) {
         this.localeSupport = engine.getConfiguration().getLocaleSupport();
+        this.bundleCache = engine.getConfiguration().getResourceBundleCache();
+    }
+
+    /**
+     *
+     * @return the bundle cache, or <code>null</code> if no engine was built
+     *         with this lambda yet
+     * @since 2.5.2
+     */
+    public ResourceBundleCache getBundleCache() {
+        return bundleCache;
+    }
+
+    private static Object getObject(ResourceBundle bundle, String key) {
+        return bundle.containsKey(key) ? bundle.getObject(key) : null;
     }
 
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.util;
+
+import static org.trimou.util.Checker.checkArgument;
+import static org.trimou.util.Checker.checkArgumentNotNull;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of instances which are not thread-safe but expensive to
+ * create, e.g. {@link java.text.Format}. An instance is used by one thread at a
+ * time and returned afterwards. If no idle instance is available a new one is
+ * created. At most the specified number of idle instances is retained, the
+ * others are discarded.
+ *
+ * <p>
+ * The pool is lock-free and does not hold any thread-bound state, i.e. it's
+ * safe to use in environments with pooled threads.
+ * </p>
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ * @param <T>
+ */
+public final class ObjectPool<T> {
+
+    private final Supplier<T> factory;
+
+    private final AtomicReferenceArray<T> idle;
+
+    /**
+     *
+     * @param factory
+     * @return a new pool with the max number of idle instances equal to the
+     *         number of available processors
+     */
+    public static <T> ObjectPool<T> of(Supplier<T> factory) {
+        return new ObjectPool<>(factory,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     *
+     * @param factory
+     * @param maxIdle
+     *            The maximum number of idle instances
+     */
+    public ObjectPool(Supplier<T> factory, int maxIdle) {
+        checkArgumentNotNull(factory);
+        checkArgument(maxIdle > 0, "Max idle must be greater than 0");
+        this.factory = factory;
+        this.idle = new AtomicReferenceArray<>(maxIdle);
+    }
+
+    /**
+     *
+     * @return an idle instance or a new instance if no idle instance is
+     *         available
+     */
+    public T acquire() {
+        int length = idle.length();
+        int start = startIndex(length);
+        for (int i = 0; i < length; i++) {
+            int idx = (start + i) % length;
+            T instance = idle.get(idx);
+            if (instance != null && idle.compareAndSet(idx, instance, null)) {
+                return instance;
+            }
+        }
+        return factory.get();
+    }
+
+    /**
+     * The instance must not be used after it's released.
+     *
+     * @param instance
+     */
+    public void release(T instance) {
+        int length = idle.length();
+        int start = startIndex(length);
+        for (int i = 0; i < length; i++) {
+            int idx = (start + i) % length;
+            if (idle.get(idx) == null
+                    && idle.compareAndSet(idx, null, instance)) {
+                return;
+            }
+        }
+        // The pool is full - discard the instance
+    }
+
+    /**
+     * Acquire an instance, apply the function and release the instance.
+     *
+     * @param function
+     * @return the result of the function
+     */
+    public <R> R apply(Function<T, R> function) {
+        T instance = acquire();
+        try {
+            return function.apply(instance);
+        } finally {
+            release(instance);
+        }
+    }
+
+    /**
+     *
+     * @return the current number of idle instances
+     */
+    public int getIdleCount() {
+        int count = 0;
+        for (int i = 0; i < idle.length(); i++) {
+            if (idle.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int startIndex(int length) {
+        // Threads start at different slots to reduce contention
+        return (int) (Thread.currentThread().getId() % length);
+    }
+
+}
@@ -0,0 +1,119 @@
+package org.trimou.engine.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.trimou.Mustache;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.locator.MapTemplateLocator;
+import org.trimou.handlebars.AbstractHelper;
+import org.trimou.handlebars.Options;
+import org.trimou.util.ImmutableMap;
+import org.trimou.util.ImmutableSet;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class JfrEventsTest {
+
+    @Test
+    public void testEvents() throws Exception {
+        Assume.assumeTrue(JfrEvents.isJfrAvailable());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Path dump = Files.createTempFile("trimou", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] { "Locate", "Parse", "Compile",
+                    "Render", "Helper", "AsyncWait", "CacheLoad" }) {
+                recording.enable("org.trimou." + name).withoutThreshold();
+            }
+            recording.start();
+
+            MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                    .addTemplateLocator(new MapTemplateLocator(
+                            ImmutableMap.of("foo", "Hello {{upper this}}!")))
+                    .registerHelper("upper", new AbstractHelper() {
+                        @Override
+                        public void execute(Options options) {
+                            append(options, options.getParameters().get(0)
+                                    .toString().toUpperCase());
+                        }
+                    }).registerHelper("async", new AbstractHelper() {
+                        @Override
+                        public void execute(Options options) {
+                            options.executeAsync(o -> o.append("async"));
+                        }
+                    }).setExecutorService(executor).build();
+            Mustache foo = engine.getMustache("foo");
+            assertEquals("Hello ME!", foo.render("me"));
+            StringWriter writer = new StringWriter();
+            foo.render(writer, "you");
+            assertEquals("Hello YOU!", writer.toString());
+            assertEquals("async!", engine
+                    .compileMustache("jfr_async", "{{async}}!").render(null));
+
+            recording.stop();
+            recording.dump(dump);
+        } finally {
+            executor.shutdown();
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        Files.delete(dump);
+
+        List<RecordedEvent> locate = find(events, "Locate");
+        assertEquals(1, locate.size());
+        assertEquals("foo", locate.get(0).getString("templateId"));
+        assertTrue(locate.get(0).getBoolean("found"));
+        assertEquals(MapTemplateLocator.class.getName(),
+                locate.get(0).getString("locator"));
+
+        assertEquals(2, find(events, "Parse").size());
+        List<RecordedEvent> compile = find(events, "Compile");
+        assertEquals(2, compile.size());
+        assertTrue(compile.stream()
+                .allMatch(e -> e.getLong("templateGeneratedId") >= 0));
+
+        List<RecordedEvent> render = find(events, "Render");
+        assertEquals(3, render.size());
+        // StringBuilder, Writer and the async template
+        assertEquals(ImmutableSet.of(9L, 10L, 6L),
+                render.stream().map(e -> e.getLong("outputSize"))
+                        .collect(Collectors.toSet()));
+
+        List<RecordedEvent> helper = find(events, "Helper");
+        assertEquals(3, helper.size());
+        assertTrue(helper.stream()
+                .anyMatch(e -> e.getString("helperName").equals("upper")
+                        && e.getString("templateName").equals("foo")
+                        && e.getInt("line") == 1));
+
+        assertFalse(find(events, "AsyncWait").isEmpty());
+        assertTrue(find(events, "CacheLoad").stream()
+                .anyMatch(e -> e.getString("key").equals("foo")));
+    }
+
+    private List<RecordedEvent> find(List<RecordedEvent> events,
+            String name) {
+        return events.stream().filter(
+                e -> e.getEventType().getName().equals("org.trimou." + name))
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.trimou.engine.listener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.listener.AllocationStatsCollector.AllocationStats;
+import org.trimou.engine.locator.MapTemplateLocator;
+import org.trimou.exception.MustacheException;
+import org.trimou.util.ImmutableList;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class AllocationStatsCollectorTest {
+
+    @Test
+    public void testStats() {
+        AllocationStatsCollector collector = new AllocationStatsCollector();
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(collector)
+                .addTemplateLocator(MapTemplateLocator.builder()
+                        .put("list", "{{#this}}<li>{{.}}</li>{{/this}}")
+                        .put("hello", "Hello {{this}}!").build())
+                .build();
+        assertEquals("<li>1</li><li>2</li><li>3</li>",
+                engine.getMustache("list").render(ImmutableList.of(1, 2, 3)));
+        StringWriter writer = new StringWriter();
+        engine.getMustache("hello").render(writer, "me");
+        assertEquals("Hello me!", writer.toString());
+        try {
+            engine.compileMustache("alloc_error", "{{#each this}}{{/each}}")
+                    .render(Boolean.TRUE);
+            fail();
+        } catch (MustacheException expected) {
+            // Failed renderings are not recorded
+        }
+
+        AllocationStats list = collector.getStats("list");
+        assertEquals(1, list.getCount());
+        assertEquals(30, list.getOutputSize().getMax());
+        // Section + 3 values
+        assertEquals(4, list.getSegments().getMax());
+
+        AllocationStats hello = collector.getStats("hello");
+        assertEquals(1, hello.getCount());
+        assertEquals(9, hello.getOutputSize().getP50());
+        assertEquals(1, hello.getSegments().getP99());
+        if (collector.isAllocatedBytesSupported()) {
+            assertEquals(1, hello.getAllocatedBytes().getCount());
+            assertTrue(hello.getAllocatedBytes().getMax() > 0);
+        } else {
+            assertEquals(0, hello.getAllocatedBytes().getCount());
+        }
+        assertNull(collector.getStats("alloc_error"));
+
+        List<AllocationStats> stats = collector.getStats();
+        assertEquals(2, stats.size());
+        collector.clearData();
+        assertTrue(collector.getStats().isEmpty());
+    }
+
+    @Test
+    public void testOutputSize() {
+        List<Long> sizes = new ArrayList<>();
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(new AbstractMustacheListener() {
+                    @Override
+                    public void renderingFinished(
+                            MustacheRenderingEvent event) {
+                        sizes.add(event.getOutputSize());
+                    }
+                }).build();
+        StringBuilder builder = new StringBuilder("foo");
+        engine.compileMustache("output_size", "{{this}}!").render(builder,
+                "hello");
+        assertEquals("foohello!", builder.toString());
+        assertEquals(ImmutableList.of(6L), sizes);
+    }
+
+}
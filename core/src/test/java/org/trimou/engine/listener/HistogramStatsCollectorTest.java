@@ -0,0 +1,120 @@
+package org.trimou.engine.listener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.trimou.Mustache;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.listener.HistogramStatsCollector.Histogram;
+import org.trimou.engine.listener.HistogramStatsCollector.HistogramStats;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class HistogramStatsCollectorTest {
+
+    @Test
+    public void testBuckets() {
+        assertEquals(1216, Histogram.BUCKETS);
+        int previous = -1;
+        for (long value : new long[] { 0, 1, 63, 64, 66, 127, 128, 1000,
+                999_999, 1_100_000, 123_456_789, Histogram.MAX_VALUE }) {
+            int index = Histogram.indexOf(value);
+            assertTrue(index > previous);
+            previous = index;
+            assertTrue(Histogram.lowestValueAt(index) <= value);
+            assertTrue(Histogram.highestValueAt(index) >= value);
+            // Relative error
+            assertTrue((Histogram.highestValueAt(index)
+                    - Histogram.lowestValueAt(index)) <= value / 32.0);
+        }
+        for (int i = 1; i < Histogram.BUCKETS; i++) {
+            assertEquals(Histogram.highestValueAt(i - 1) + 1,
+                    Histogram.lowestValueAt(i));
+        }
+        assertEquals(Histogram.MAX_VALUE,
+                Histogram.highestValueAt(Histogram.BUCKETS - 1));
+    }
+
+    @Test
+    public void testPercentiles() {
+        HistogramStatsCollector collector = newCollector(TimeUnit.NANOSECONDS);
+        Histogram histogram = collector.data.get("foo");
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+        histogram.record(-1);
+        HistogramStats stats = collector.getStats("foo");
+        assertEquals(1000, stats.getCount());
+        assertEquals(500_500_000, stats.getTotalTime());
+        assertEquals(500_500, stats.getMeanTime());
+        assertWithinError(1000, stats.getMinTime());
+        assertWithinError(1_000_000, stats.getMaxTime());
+        assertWithinError(500_000, stats.getP50());
+        assertWithinError(900_000, stats.getP90());
+        assertWithinError(990_000, stats.getP99());
+        assertWithinError(999_000, stats.getP999());
+        assertEquals(stats.getMaxTime(), stats.getValueAtPercentile(100));
+        assertWithinError(1000, stats.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void testSnapshot() {
+        HistogramStatsCollector collector = newCollector(TimeUnit.NANOSECONDS);
+        Histogram histogram = collector.data.get("foo");
+        histogram.record(10);
+        histogram.record(20);
+        Set<HistogramStats> snapshot = collector.snapshot();
+        assertEquals(1, snapshot.size());
+        assertEquals(2, snapshot.iterator().next().getCount());
+        histogram.record(1000);
+        HistogramStats window = collector.snapshot().iterator().next();
+        assertEquals(1, window.getCount());
+        assertEquals(1000, window.getTotalTime());
+        assertWithinError(1000, window.getMinTime());
+        assertEquals(0, collector.snapshot().iterator().next().getCount());
+        // Cumulative stats are not affected
+        assertEquals(3, collector.getStats("foo").getCount());
+        assertEquals(10, collector.getStats("foo").getMinTime());
+    }
+
+    @Test
+    public void testDataCollecting() {
+        HistogramStatsCollector collector = new HistogramStatsCollector();
+        Mustache mustache = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(collector).build()
+                .compileMustache("bar", "{{this}}");
+        for (int i = 0; i < 20; i++) {
+            mustache.render("BAR");
+        }
+        assertNull(collector.getStats("unknown"));
+        HistogramStats stats = collector.getStats("bar");
+        assertNotNull(stats);
+        assertEquals(20, stats.getCount());
+        assertEquals(1, collector.getStats().size());
+        collector.clearData();
+        assertNull(collector.getStats("bar"));
+        assertTrue(collector.getStats().isEmpty());
+    }
+
+    private HistogramStatsCollector newCollector(TimeUnit timeUnit) {
+        HistogramStatsCollector collector = new HistogramStatsCollector(null,
+                timeUnit);
+        MustacheEngineBuilder.newBuilder().addMustacheListener(collector)
+                .build();
+        return collector;
+    }
+
+    private void assertWithinError(long expected, long actual) {
+        assertTrue("Expected " + expected + " but was " + actual,
+                Math.abs(expected - actual) <= expected / 32.0);
+    }
+
+}
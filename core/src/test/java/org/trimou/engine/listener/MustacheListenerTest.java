@@ -11,8 +11,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.Before;
 import org.junit.Test;
 import org.trimou.AbstractEngineTest;
+import org.trimou.Mustache;
 import org.trimou.engine.MustacheEngineBuilder;
 import org.trimou.lambda.SpecCompliantLambda;
+import org.trimou.util.ImmutableMap;
 
 /**
  *
@@ -102,6 +104,36 @@ public class MustacheListenerTest extends AbstractEngineTest {
         // The second is one-off lambda name
     }
 
+    @Test
+    public void testTextProcessors() {
+        final List<String> runs = new ArrayList<>();
+        MustacheListener listener = new AbstractMustacheListener() {
+
+            @Override
+            public void parsingStarted(MustacheParsingEvent event) {
+                if (event.getMustacheName().equals("text_processors")) {
+                    event.addTextProcessor((text) -> {
+                        runs.add(text);
+                        return text;
+                    });
+                    event.addTextProcessor(
+                            (text) -> text.replaceAll("[ \\t]+", " "));
+                }
+            }
+        };
+        Mustache mustache = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(listener).build()
+                .compileMustache("text_processors",
+                        "Hello   {{name}}!{{! Comment}}  \n\n{{#this}}  a\t\tb\r\n  {{/this}}");
+        // The last line is standalone
+        assertEquals(3, runs.size());
+        assertEquals("Hello   ", runs.get(0));
+        assertEquals("!  \n\n", runs.get(1));
+        assertEquals("  a\t\tb\r\n", runs.get(2));
+        assertEquals("Hello Foo! \n\n a b\r\n",
+                mustache.render(ImmutableMap.of("name", "Foo")));
+    }
+
     @Test
     public void testListenerThrowsUncheckedException() {
 
@@ -0,0 +1,111 @@
+package org.trimou.engine.listener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.listener.ResolutionStatsCollector.ResolutionStats;
+import org.trimou.engine.resolver.MapResolver;
+import org.trimou.handlebars.HelpersBuilder;
+import org.trimou.util.ImmutableList;
+import org.trimou.util.ImmutableMap;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class ResolutionStatsCollectorTest {
+
+    @Test
+    public void testStats() {
+        ResolutionStatsCollector collector = new ResolutionStatsCollector();
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(collector)
+                .registerHelpers(HelpersBuilder.empty().addIsEqual().build())
+                .build();
+        assertEquals("foo|bar|baz|", engine
+                .compileMustache("resolution",
+                        "{{#items}}{{name}}|{{missing}}{{/items}}{{#isEq title 'Hello'}}{{/isEq}}")
+                .render(ImmutableMap.<String, Object> of("title", "Hi",
+                        "items",
+                        ImmutableList.of(ImmutableMap.of("name", "foo"),
+                                ImmutableMap.of("name", "bar"),
+                                ImmutableMap.of("name", "baz")))));
+
+        Map<String, ResolutionStats> stats = collector.getStats().stream()
+                .collect(Collectors.toMap(ResolutionStats::getKey, s -> s));
+        assertEquals(4, stats.size());
+
+        ResolutionStats items = stats.get("items");
+        assertEquals(1, items.getResolutions());
+        assertEquals(0, items.getMisses());
+        assertEquals(1, items.getHintsCreated());
+
+        ResolutionStats name = stats.get("name");
+        assertEquals(1, name.getLine());
+        assertEquals(3, name.getResolutions());
+        assertEquals(0, name.getMisses());
+        assertEquals(0, name.getFullChainWalks());
+        assertEquals(1, name.getHintsCreated());
+        assertEquals(2, name.getHintHits());
+        assertEquals(0, name.getHintMisses());
+        assertEquals(Long.valueOf(1),
+                name.getResolvers().get(MapResolver.class.getName()));
+
+        ResolutionStats missing = stats.get("missing");
+        assertEquals(3, missing.getResolutions());
+        assertEquals(3, missing.getMisses());
+        assertTrue(missing.getFullChainWalks() >= 9);
+        assertEquals(0, missing.getHintsCreated());
+        assertTrue(missing.getResolvers().isEmpty());
+
+        // Helper parameter
+        ResolutionStats title = stats.get("title");
+        assertEquals("{{#isEq title 'Hello'}}",
+                "{{#" + title.getTagText() + "}}");
+        assertEquals(1, title.getResolutions());
+
+        List<ResolutionStats> slowKeys = collector.getSlowKeys(10);
+        assertEquals(1, slowKeys.size());
+        assertEquals("missing", slowKeys.get(0).getKey());
+        assertFalse(collector.getSlowKeys(0).iterator().hasNext());
+
+        collector.clearData();
+        assertTrue(collector.getStats().isEmpty());
+    }
+
+    @Test
+    public void testMaxEntries() {
+        ResolutionStatsCollector collector = new ResolutionStatsCollector(1,
+                null);
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(collector).build();
+        assertEquals("1:2", engine.compileMustache("max_entries", "{{a}}:{{b}}")
+                .render(ImmutableMap.of("a", 1, "b", 2)));
+        assertEquals(1, collector.getStats().size());
+        assertEquals("a", collector.getStats().get(0).getKey());
+        assertEquals(1, collector.getDroppedEntries());
+    }
+
+    @Test
+    public void testReloadedTemplateRecordedUnderSameEntries() {
+        ResolutionStatsCollector collector = new ResolutionStatsCollector();
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(collector).build();
+        for (int i = 0; i < 3; i++) {
+            // A new template instance is compiled each time
+            engine.compileMustache("reloaded", "{{a}}")
+                    .render(ImmutableMap.of("a", 1));
+        }
+        assertEquals(1, collector.getStats().size());
+        assertEquals(3, collector.getStats().get(0).getResolutions());
+    }
+
+}
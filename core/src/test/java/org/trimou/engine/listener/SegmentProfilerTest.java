@@ -0,0 +1,131 @@
+package org.trimou.engine.listener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.listener.SegmentProfiler.SegmentStats;
+import org.trimou.engine.locator.MapTemplateLocator;
+import org.trimou.handlebars.HelpersBuilder;
+import org.trimou.util.ImmutableList;
+import org.trimou.util.ImmutableMap;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class SegmentProfilerTest {
+
+    @Test
+    public void testStats() {
+        SegmentProfiler profiler = new SegmentProfiler(1, 100, null,
+                TimeUnit.NANOSECONDS);
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(profiler)
+                .registerHelpers(HelpersBuilder.empty().addEach().build())
+                .addTemplateLocator(MapTemplateLocator.builder()
+                        .put("page",
+                                "<h1>{{title}}</h1>{{! Comment}}\n{{#each items}}\n  {{>item}}\n{{/each}}")
+                        .put("item", "<li>{{this}}</li>\n").build())
+                .build();
+        assertEquals("<h1>Hello</h1>\n  <li>1</li>\n  <li>2</li>\n  <li>3</li>\n",
+                engine.getMustache("page")
+                        .render(ImmutableMap.<String, Object> of("title",
+                                "Hello", "items", ImmutableList.of(1, 2, 3))));
+        assertEquals(1, profiler.getSampledRenderings());
+
+        Map<String, Long> counts = profiler.getStats().stream()
+                .collect(Collectors.toMap(
+                        SegmentStats::getFrameName,
+                        SegmentStats::getCount));
+        assertEquals(4, counts.size());
+        assertEquals(Long.valueOf(1), counts.get("page:1 {{title}}"));
+        assertEquals(Long.valueOf(1), counts.get("page:2 {{#each items}}"));
+        assertEquals(Long.valueOf(3), counts.get("page:3 {{>item}}"));
+        assertEquals(Long.valueOf(3), counts.get("item:1 {{this}}"));
+        // Sorted by total time
+        List<SegmentStats> stats = profiler.getStats();
+        assertEquals("page:2 {{#each items}}",
+                stats.get(0).getFrameName());
+
+        String stacks = profiler.getCollapsedStacks();
+        assertTrue(stacks, stacks.contains(
+                "page;page:2 {{#each items}};page:3 {{>item}};item:1 {{this}} "));
+        assertTrue(stacks, stacks.contains("page;page:1 {{title}} "));
+        for (String line : stacks.split("\n")) {
+            assertTrue(line, line.matches("[^;]+(;[^;]+)* \\d+"));
+        }
+
+        profiler.clearData();
+        assertTrue(profiler.getStats().isEmpty());
+        assertEquals("", profiler.getCollapsedStacks());
+        assertEquals(0, profiler.getSampledRenderings());
+    }
+
+    @Test
+    public void testSampling() {
+        SegmentProfiler profiler = new SegmentProfiler(Integer.MAX_VALUE);
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(profiler).build();
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Hello!", engine.compileMustache("sampling", "{{this}}!")
+                    .render("Hello"));
+        }
+        // The probability of a sample is negligible
+        assertEquals(0, profiler.getSampledRenderings());
+        assertTrue(profiler.getStats().isEmpty());
+    }
+
+    @Test
+    public void testMaxEntries() {
+        SegmentProfiler profiler = new SegmentProfiler(1, 2, null, null);
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(profiler).build();
+        assertEquals("abc", engine.compileMustache("max_entries", "{{a}}{{b}}{{c}}")
+                .render(ImmutableMap.of("a", "a", "b", "b", "c", "c")));
+        assertEquals(2, profiler.getStats().size());
+        // {{c}} and the stack of {{b}} and {{c}}
+        assertEquals(3, profiler.getDroppedEntries());
+        profiler.clearData();
+        assertEquals(0, profiler.getDroppedEntries());
+    }
+
+    @Test
+    public void testReloadedTemplateRecordedUnderSameEntries() {
+        SegmentProfiler profiler = new SegmentProfiler(1);
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(profiler).build();
+        for (int i = 0; i < 3; i++) {
+            // A new template instance is compiled each time
+            engine.compileMustache("reloaded", "{{a}}{{b}}")
+                    .render(ImmutableMap.of("a", "a", "b", "b"));
+        }
+        List<SegmentStats> stats = profiler.getStats();
+        assertEquals(2, stats.size());
+        for (SegmentStats segmentStats : stats) {
+            assertEquals(3, segmentStats.getCount());
+        }
+        assertEquals(0, profiler.getDroppedEntries());
+    }
+
+    @Test
+    public void testMultipleListeners() {
+        SegmentProfiler profiler1 = new SegmentProfiler(1);
+        SegmentProfiler profiler2 = new SegmentProfiler(1);
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(profiler1).addMustacheListener(profiler2)
+                .build();
+        engine.compileMustache("multiple", "{{#this}}{{.}}{{/this}}")
+                .render(ImmutableList.of(1, 2));
+        assertEquals(2, profiler1.getStats().size());
+        assertEquals(2, profiler2.getStats().size());
+    }
+
+}
@@ -0,0 +1,78 @@
+package org.trimou.engine.listener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.listener.SlowRenderingWatchdog.SlowRendering;
+import org.trimou.engine.locator.MapTemplateLocator;
+import org.trimou.handlebars.BasicValueHelper;
+import org.trimou.handlebars.HelpersBuilder;
+import org.trimou.handlebars.Options;
+import org.trimou.util.ImmutableList;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class SlowRenderingWatchdogTest {
+
+    @Test
+    public void testSlowRendering() throws Exception {
+        CompletableFuture<SlowRendering> reported = new CompletableFuture<>();
+        List<SlowRendering> reports = new CopyOnWriteArrayList<>();
+        try (SlowRenderingWatchdog watchdog = new SlowRenderingWatchdog(20,
+                TimeUnit.MILLISECONDS, slow -> {
+                    reports.add(slow);
+                    reported.complete(slow);
+                }, null)) {
+            MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                    .addMustacheListener(watchdog)
+                    .registerHelpers(HelpersBuilder.empty().addEach().build())
+                    .registerHelper("wait", new BasicValueHelper() {
+                        @Override
+                        public void execute(Options options) {
+                            Object value = options.getParameters().get(0);
+                            if (value.equals(2)) {
+                                // Block until the rendering is reported
+                                reported.join();
+                            }
+                            append(options, value.toString());
+                        }
+                    })
+                    .addTemplateLocator(MapTemplateLocator.builder()
+                            .put("page", "{{#each this}}\n{{>item}}{{/each}}")
+                            .put("item", "<{{wait this}}>").build())
+                    .build();
+            assertEquals("<1><2><3>", engine.getMustache("page")
+                    .render(ImmutableList.of(1, 2, 3)));
+            assertEquals(0, watchdog.getActiveRenderings());
+
+            SlowRendering slow = reported.get(5, TimeUnit.SECONDS);
+            assertEquals("page", slow.getTemplateName());
+            assertTrue(slow.getElapsedTime(TimeUnit.MILLISECONDS) >= 20);
+            assertEquals(Thread.currentThread().getName(),
+                    slow.getThreadName());
+            assertEquals(ImmutableList.of("page", "page:1 {{#each this}}[2]",
+                    "page:2 {{>item}}", "item:1 {{wait this}}"),
+                    slow.getPath());
+            assertEquals(
+                    "page > page:1 {{#each this}}[2] > page:2 {{>item}} > item:1 {{wait this}}",
+                    slow.getPathInfo());
+
+            // Fast renderings are not reported
+            assertEquals("<1>", engine.getMustache("page")
+                    .render(ImmutableList.of(1)));
+            Thread.sleep(50);
+            assertEquals(1, reports.size());
+        }
+    }
+
+}
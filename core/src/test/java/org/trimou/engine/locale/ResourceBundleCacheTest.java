@@ -0,0 +1,83 @@
+package org.trimou.engine.locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import org.junit.Test;
+import org.trimou.AbstractTest;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.resolver.i18n.ResourceBundleResolver;
+import org.trimou.handlebars.i18n.ResourceBundleHelper;
+import org.trimou.lambda.i18n.ResourceBundleLambda;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class ResourceBundleCacheTest extends AbstractTest {
+
+    @Test
+    public void testCache() {
+        ResourceBundleCache cache = MustacheEngineBuilder.newBuilder()
+                .build().getConfiguration().getResourceBundleCache();
+        Locale cs = new Locale("cs");
+        ResourceBundle bundle = cache.getBundle("messages", cs);
+        assertSame(bundle, cache.getBundle("messages", cs));
+        assertEquals("Ahoj", cache.getObject("messages", cs, "echo_one"));
+        assertEquals("Hallo", cache.getObject("messages", Locale.GERMAN,
+                "echo_one"));
+        assertNull(cache.getObject("messages", cs, "unknown"));
+        assertEquals("Ahoj Martine!", cache.formatMessage("messages", cs,
+                "echo.messageformat", new Object[] { "Martine" }));
+        assertEquals("Hello Martin!", cache.formatMessage("messages",
+                Locale.ENGLISH, "echo.messageformat",
+                new Object[] { "Martin" }));
+        assertNull(cache.formatMessage("messages", cs, "unknown",
+                new Object[] {}));
+        cache.preload("messages", cs, Locale.ENGLISH);
+        cache.invalidate();
+        assertNotSame(bundle, cache.getBundle("messages", cs));
+    }
+
+    @Test
+    public void testSharedInstance() {
+        ResourceBundleResolver resolver = new ResourceBundleResolver(
+                "messages");
+        ResourceBundleHelper helper = new ResourceBundleHelper("messages");
+        ResourceBundleLambda lambda = new ResourceBundleLambda("messages");
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .omitServiceLoaderConfigurationExtensions()
+                .addResolver(resolver).registerHelper("msg", helper)
+                .addGlobalData("bundle", lambda).registerCallback(lambda)
+                .build();
+        ResourceBundleCache cache = engine.getConfiguration()
+                .getResourceBundleCache();
+        assertSame(cache, resolver.getBundleCache());
+        assertSame(cache, helper.getBundleCache());
+        assertSame(cache, lambda.getBundleCache());
+    }
+
+    @Test
+    public void testPreload() {
+        Locale cs = new Locale("cs");
+        ResourceBundleCache cache = MustacheEngineBuilder.newBuilder()
+                .omitServiceLoaderConfigurationExtensions()
+                .setProperty(ResourceBundleCache.PRELOAD_KEY, "messages")
+                .setProperty(ResourceBundleCache.PRELOAD_LOCALES_KEY, "cs, en")
+                .build().getConfiguration().getResourceBundleCache();
+        assertEquals(2, cache.getBundleCacheSize());
+        assertTrue(cache.getMessageCacheSize() > 0);
+        // No more bundles are loaded
+        assertEquals("Ahoj Martine!", cache.formatMessage("messages", cs,
+                "echo.messageformat", new Object[] { "Martine" }));
+        assertEquals(2, cache.getBundleCacheSize());
+    }
+
+}
@@ -0,0 +1,84 @@
+package org.trimou.engine.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.config.EngineConfigurationKey;
+import org.trimou.engine.locator.MapTemplateLocator;
+import org.trimou.handlebars.AbstractHelper;
+import org.trimou.handlebars.Options;
+import org.trimou.util.Strings;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class OutputBufferTest {
+
+    @Test
+    public void testOutputSizeEstimate() {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder().build();
+        Template template = (Template) engine
+                .compileMustache("output_estimate", "{{this}}");
+        assertEquals(0, template.getOutputSizeEstimate());
+        assertEquals(Strings.repeat("a", 1000, ""),
+                template.render(Strings.repeat("a", 1000, "")));
+        assertEquals(1000, template.getOutputSizeEstimate());
+        // Decaying max
+        template.render(Strings.repeat("a", 200, ""));
+        assertEquals(900, template.getOutputSizeEstimate());
+        template.render(Strings.repeat("a", 2000, ""));
+        assertEquals(2000, template.getOutputSizeEstimate());
+    }
+
+    @Test
+    public void testPresizingDisabled() {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .setProperty(
+                        EngineConfigurationKey.OUTPUT_BUFFER_MAX_INITIAL_CAPACITY,
+                        0)
+                .build();
+        Template template = (Template) engine
+                .compileMustache("output_estimate_disabled", "{{this}}");
+        assertEquals("foo", template.render("foo"));
+        assertEquals(0, template.getOutputSizeEstimate());
+    }
+
+    @Test
+    public void testBufferPool() {
+        MustacheEngine[] holder = new MustacheEngine[1];
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .setProperty(EngineConfigurationKey.OUTPUT_BUFFER_POOL_SIZE, 1)
+                .setProperty(
+                        EngineConfigurationKey.OUTPUT_BUFFER_POOL_MAX_CAPACITY,
+                        100)
+                // Presizing disabled - pooling must not be affected
+                .setProperty(
+                        EngineConfigurationKey.OUTPUT_BUFFER_MAX_INITIAL_CAPACITY,
+                        0)
+                .addTemplateLocator(MapTemplateLocator.builder()
+                        .put("outer", "<{{nested this}}>")
+                        .put("inner", "[{{this}}]").build())
+                .registerHelper("nested", new AbstractHelper() {
+                    @Override
+                    public void execute(Options options) {
+                        // Nested rendering on the same thread
+                        append(options, holder[0].getMustache("inner")
+                                .render(options.getParameters().get(0)));
+                    }
+                }).build();
+        holder[0] = engine;
+        for (int i = 0; i < 3; i++) {
+            assertEquals("<[" + i + "]>",
+                    engine.getMustache("outer").render(i));
+        }
+        assertEquals(1, Template.getPooledBufferCount());
+        // Buffers exceeding the max capacity are not pooled
+        assertEquals("<[" + Strings.repeat("b", 200, "") + "]>", engine
+                .getMustache("outer").render(Strings.repeat("b", 200, "")));
+        assertEquals("<[c]>", engine.getMustache("outer").render("c"));
+    }
+
+}
@@ -1,11 +1,22 @@
 package org.trimou.engine.parser;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.config.EngineConfigurationKey;
+import org.trimou.engine.listener.AbstractMustacheListener;
+import org.trimou.engine.listener.MustacheParsingEvent;
 import org.trimou.engine.parser.DefaultParsingHandler.ContainerSegmentBase;
 import org.trimou.engine.parser.DefaultParsingHandler.SegmentBase;
+import org.trimou.engine.segment.ContainerSegment;
+import org.trimou.engine.segment.Segment;
 import org.trimou.engine.segment.SegmentType;
 import org.trimou.util.ImmutableList;
 import org.trimou.util.Strings;
@@ -31,4 +42,40 @@ public class SegmentBasesTest {
                 new ContainerSegmentBase(SegmentType.SECTION, "test", 0, 0))));
     }
 
+    @Test
+    public void testProcessTextRunsRenumbersSegments() {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                // Reused line separators would share the index
+                .setProperty(
+                        EngineConfigurationKey.REUSE_LINE_SEPARATOR_SEGMENTS,
+                        false)
+                .addMustacheListener(new AbstractMustacheListener() {
+                    @Override
+                    public void parsingStarted(MustacheParsingEvent event) {
+                        // Each run is split into more segments
+                        event.addTextProcessor(text -> text.replace(' ', '\n'));
+                    }
+                }).build();
+        Template template = (Template) engine.compileMustache(
+                "segment_bases_renumber",
+                "a b {{foo}} c d {{#this}} e {{bar}} f {{/this}} g h");
+        List<Integer> indexes = new ArrayList<>();
+        collectIndexes(template.getRootSegment(), indexes);
+        // 4 + 5 + 3 + 3 + 4 text and line separator segments, 3 tags
+        assertEquals(22, indexes.size());
+        for (int i = 0; i < indexes.size(); i++) {
+            assertEquals(Integer.valueOf(i + 1), indexes.get(i));
+        }
+    }
+
+    private void collectIndexes(ContainerSegment container,
+            List<Integer> indexes) {
+        for (Segment segment : container.getSegments()) {
+            indexes.add(segment.getOrigin().getIndex());
+            if (segment instanceof ContainerSegment) {
+                collectIndexes((ContainerSegment) segment, indexes);
+            }
+        }
+    }
+
 }
@@ -3,6 +3,7 @@ package org.trimou.engine.resolver.i18n;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Calendar;
 import java.util.Collections;
@@ -17,6 +18,7 @@ import org.trimou.AbstractEngineTest;
 import org.trimou.engine.MustacheEngineBuilder;
 import org.trimou.engine.config.Configuration;
 import org.trimou.engine.config.ConfigurationKey;
+import org.trimou.engine.locale.FixedLocaleSupport;
 import org.trimou.engine.locale.LocaleSupport;
 import org.trimou.util.ImmutableMap;
 import org.trimou.util.Strings;
@@ -105,6 +107,30 @@ public class DateTimeFormatResolverTest extends AbstractEngineTest {
                         .render(data));
     }
 
+    @Test
+    public void testCustomPatternSimpleDateFormatSemantics() {
+        Calendar day = Calendar.getInstance();
+        day.set(2013, Calendar.SEPTEMBER, 10, 13, 0);
+        // Day in year has three digits
+        assertEquals("253-09-2013 13:00", resolver.resolve(day,
+                DateTimeFormatResolver.NAME_FORMAT_CUSTOM, null));
+    }
+
+    @Test
+    public void testFormatterCacheLimit() {
+        DateTimeFormatResolver resolver = new DateTimeFormatResolver();
+        MustacheEngineBuilder.newBuilder()
+                .setProperty(
+                        DateTimeFormatResolver.FORMATTER_CACHE_MAX_SIZE_KEY, 2L)
+                .setLocaleSupport(FixedLocaleSupport.from(Locale.ENGLISH))
+                .addResolver(resolver).build();
+        resolver.resolve(1L, DateTimeFormatResolver.NAME_FORMAT, null);
+        resolver.resolve(1L, DateTimeFormatResolver.NAME_FORMAT_SHORT, null);
+        resolver.resolve(1L, DateTimeFormatResolver.NAME_FORMAT_DATE, null);
+        resolver.resolve(1L, DateTimeFormatResolver.NAME_FORMAT_CUSTOM, null);
+        assertTrue(resolver.getFormatterCacheSize() <= 2);
+    }
+
     @Test(expected = IllegalStateException.class)
     public void testMultipleInit() {
 
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
 import java.math.BigDecimal;
+import java.text.NumberFormat;
 import java.util.Date;
 import java.util.Locale;
 
@@ -52,6 +53,63 @@ public class NumberFormatResolverTest extends AbstractEngineTest {
                 .<String, Object> of("number", new BigDecimal("1.5"))));
     }
 
+    @Test
+    public void testIntegerFormat() {
+        long[] values = { 0, 1, -1, 999, 1000, -1000, 123456789,
+                Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+        for (Locale locale : Locale.getAvailableLocales()) {
+            NumberFormatResolver.IntegerFormat.from(locale)
+                    .ifPresent(format -> {
+                        NumberFormat expected = NumberFormat
+                                .getNumberInstance(locale);
+                        for (long value : values) {
+                            assertEquals(locale.toString(),
+                                    expected.format(value),
+                                    format.format(value));
+                        }
+                    });
+        }
+        assertEquals("1 234 567|-1 234 567|1,5",
+                engine.compileMustache("number_integer",
+                        "{{int.format}}|{{long.format}}|{{decimal.format}}")
+                        .render(ImmutableMap.<String, Object> of("int",
+                                1234567, "long", -1234567L, "decimal", 1.5))
+                        .replace('\u00a0', ' '));
+    }
+
+    @Test
+    public void testFormatCache() {
+        Mustache mustache = engine.compileMustache("number_cache",
+                "{{number.format}}|{{number.formatPercent}}");
+        assertEquals("1,5|150%", mustache.render(ImmutableMap
+                .<String, Object> of("number", new BigDecimal("1.5"))));
+        assertEquals(1, resolver.getFormatCacheSize());
+        // The formats are reused, i.e. one instance per format type
+        for (int i = 0; i < 10; i++) {
+            mustache.render(ImmutableMap.<String, Object> of("number",
+                    new BigDecimal(i + ".5")));
+        }
+        assertEquals(2, resolver.getIdleFormatCount(new Locale("cs", "CZ")));
+        resolver.invalidateFormatCache();
+        assertEquals(0, resolver.getFormatCacheSize());
+        assertEquals("2,5|250%", mustache.render(ImmutableMap
+                .<String, Object> of("number", new BigDecimal("2.5"))));
+
+        // Cache disabled
+        NumberFormatResolver noCacheResolver = new NumberFormatResolver();
+        assertEquals("1,5|150%", MustacheEngineBuilder.newBuilder()
+                .setLocaleSupport(
+                        FixedLocaleSupport.from(new Locale("cs", "CZ")))
+                .setProperty(NumberFormatResolver.FORMAT_CACHE_MAX_SIZE_KEY,
+                        0L)
+                .addResolver(noCacheResolver).build()
+                .compileMustache("number_nocache",
+                        "{{number.format}}|{{number.formatPercent}}")
+                .render(ImmutableMap.<String, Object> of("number",
+                        new BigDecimal("1.5"))));
+        assertEquals(0, noCacheResolver.getFormatCacheSize());
+    }
+
     @Test(expected=IllegalStateException.class)
     public void testMultipleInit() {
 
@@ -3,6 +3,8 @@ package org.trimou.engine.segment;
 import static org.junit.Assert.assertEquals;
 
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Test;
 import org.trimou.AbstractEngineTest;
@@ -59,6 +61,25 @@ public class SectionSegmentTest extends AbstractEngineTest {
                 "items", ImmutableSet.of(new Hammer(), new Hammer()))));
     }
 
+    @Test
+    public void testOneShotIterable() {
+        // The iterable may be only iterated once
+        AtomicBoolean used = new AtomicBoolean();
+        Iterable<Integer> numbers = () -> {
+            if (used.getAndSet(true)) {
+                throw new IllegalStateException();
+            }
+            return ImmutableList.of(1, 2, 3).iterator();
+        };
+        assertEquals("1:true|2:true|3:false:last|",
+                engine.compileMustache("iterable_one_shot",
+                        "{{#this}}{{this}}:{{iter.hasNext}}{{#iter.isLast}}:last{{/iter.isLast}}|{{/this}}")
+                        .render(numbers));
+        Iterator<Integer> empty = Collections.emptyIterator();
+        assertEquals("", engine.compileMustache("iterable_one_shot_empty", "{{#this}}{{this}}|{{/this}}")
+                .render((Iterable<Integer>) () -> empty));
+    }
+
     @Test
     public void testArray() {
 
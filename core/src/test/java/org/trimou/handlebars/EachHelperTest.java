@@ -2,9 +2,21 @@ package org.trimou.handlebars;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 import org.trimou.AbstractEngineTest;
 import org.trimou.Hammer;
+import org.trimou.MustacheExceptionAssert;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.exception.MustacheProblem;
 import org.trimou.util.ImmutableList;
 import org.trimou.util.ImmutableMap;
 
@@ -95,4 +107,69 @@ public class EachHelperTest extends AbstractEngineTest {
                 .render(ImmutableList.of("1", "2", "3").spliterator()));
     }
 
+    @Test
+    public void testParallel() {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            MustacheEngine engine = MustacheEngineBuilder.newBuilder().setExecutorService(executor).build();
+            List<Integer> list = new ArrayList<>();
+            Set<Integer> set = new LinkedHashSet<>();
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < 1000; i++) {
+                list.add(i);
+                set.add(i);
+                expected.append(i + 1).append(":").append(i);
+                if (i < 999) {
+                    expected.append(",");
+                }
+            }
+            assertEquals(expected.toString(), engine
+                    .compileMustache("each_parallel_1",
+                            "{{#each this parallel=true chunk=7}}{{iter.index}}:{{this}}{{#if iter.hasNext}},{{/if}}{{/each}}")
+                    .render(list));
+            assertEquals(expected.toString(), engine
+                    .compileMustache("each_parallel_2",
+                            "{{#each this parallel=true chunk=100}}{{iter.index}}:{{this}}{{#if iter.hasNext}},{{/if}}{{/each}}")
+                    .render(set));
+            assertEquals(expected.toString(), engine
+                    .compileMustache("each_parallel_3",
+                            "{{#each this parallel=true}}{{iter.index}}:{{this}}{{#if iter.hasNext}},{{/if}}{{/each}}")
+                    .render(list.toArray()));
+            assertEquals("1:a,2:b,3:c,4:d,5:e",
+                    engine.compileMustache("each_parallel_4",
+                            "{{#each list array parallel=true chunk=2}}{{iter.index}}:{{this}}{{#unless iter.isLast}},{{/unless}}{{/each}}")
+                            .render(ImmutableMap.of("list", ImmutableList.of("a", "b", "c"), "array",
+                                    new String[] { "d", "e" })));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelNeedsExecutorService() {
+        MustacheExceptionAssert.expect(MustacheProblem.RENDER_ASYNC_PROCESSING_ERROR)
+                .check(() -> engine.compileMustache("each_parallel_5", "{{#each this parallel=true chunk=1}}{{this}}{{/each}}")
+                        .render(ImmutableList.of("1", "2", "3")));
+    }
+
+    @Test
+    public void testOneShotIterable() {
+        AtomicInteger iterations = new AtomicInteger();
+        Iterable<String> iterable = () -> {
+            if (iterations.incrementAndGet() > 1) {
+                throw new IllegalStateException();
+            }
+            return ImmutableList.of("1", "2", "3").iterator();
+        };
+        assertEquals("1:true,2:true,3:false",
+                engine.compileMustache("each_one_shot_1",
+                        "{{#each this}}{{this}}:{{iter.hasNext}}{{#unless iter.isLast}},{{/unless}}{{/each}}")
+                        .render(iterable));
+        iterations.set(0);
+        assertEquals("1:true,2:true,3:true,foo:false",
+                engine.compileMustache("each_one_shot_2",
+                        "{{#each iterable array}}{{this}}:{{iter.hasNext}}{{#unless iter.isLast}},{{/unless}}{{/each}}")
+                        .render(ImmutableMap.of("iterable", iterable, "array", new String[] { "foo" })));
+    }
+
 }
@@ -10,6 +10,7 @@ import org.junit.Test;
 import org.trimou.AbstractTest;
 import org.trimou.ArchiveType;
 import org.trimou.Hammer;
+import org.trimou.Mustache;
 import org.trimou.MustacheExceptionAssert;
 import org.trimou.engine.MustacheEngine;
 import org.trimou.engine.MustacheEngineBuilder;
@@ -88,6 +89,23 @@ public class InvokeHelperTest extends AbstractTest {
                         .render(ArchiveType.class));
     }
 
+    @Test
+    public void testOverloadedMethodDifferentTypes() {
+        final MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .registerHelpers(HelpersBuilder.empty().addInvoke().build())
+                .build();
+        Mustache mustache = engine.compileMustache("invoke_overloaded_01",
+                "{{invoke this class='java.lang.Math' m='abs'}}");
+        assertEquals("1", mustache.render(-1));
+        assertEquals("2", mustache.render(-2L));
+        assertEquals("1.5", mustache.render(-1.5));
+        assertEquals("3", mustache.render(-3));
+        mustache = engine.compileMustache("invoke_overloaded_02",
+                "{{#each this}}{{invoke m='hashCode'}}:{{invoke 'foo' m='equals'}}|{{/each}}");
+        assertEquals("1:false|101574:true|1:false|", mustache
+                .render(ImmutableList.of(1, "foo", 1)));
+    }
+
     @Test
     public void testDefaultMethodName() {
         MustacheEngine engine = MustacheEngineBuilder.newBuilder()
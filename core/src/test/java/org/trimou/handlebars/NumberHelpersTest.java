@@ -10,6 +10,7 @@ import java.util.Map;
 
 import org.junit.Test;
 import org.trimou.AbstractTest;
+import org.trimou.Mustache;
 import org.trimou.MustacheExceptionAssert;
 import org.trimou.engine.MustacheEngine;
 import org.trimou.engine.MustacheEngineBuilder;
@@ -235,6 +236,77 @@ public class NumberHelpersTest extends AbstractTest {
                         .render(10L));
     }
 
+    @Test
+    public void testNumericExpressionHelperMixedTypes() {
+        final MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .registerHelpers(
+                        NumericExpressionHelper.forEachOperator().build())
+                .build();
+        Map<String, Object> data = ImmutableMap.of("int", 10, "long", 10L,
+                "double", 10.0, "negZero", -0.0, "decimal",
+                new BigDecimal("10.00"));
+        assertEquals("12345", engine.compileMustache("number_mixed_eq",
+                "{{#eq int long}}1{{/eq}}{{#eq long double}}2{{/eq}}{{#eq double decimal}}3{{/eq}}{{#eq int '10.0'}}4{{/eq}}{{#eq negZero 0}}5{{/eq}}")
+                .render(data));
+        assertEquals("123", engine.compileMustache("number_mixed_gt",
+                "{{#gt '9223372036854775807' long}}1{{/gt}}{{#gt double '9.99'}}2{{/gt}}{{#lt int '10.5'}}3{{/lt}}{{#gt int '11'}}4{{/gt}}")
+                .render(data));
+        // Single param operators registered as helpers with default operator
+        assertEquals("posneg", engine.compileMustache("number_mixed_posneg",
+                "{{#pos double}}pos{{/pos}}{{#neg '-0.1'}}neg{{/neg}}{{#neg negZero}}negZero{{/neg}}")
+                .render(data));
+    }
+
+    @Test
+    public void testNumericExpressionHelperCompound() {
+        final MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .registerHelper("numExpr", new NumericExpressionHelper())
+                .build();
+        Mustache range = engine.compileMustache("number_compound_and",
+                "{{#numExpr this 18 this '65' op='ge and lt'}}yes{{/numExpr}}");
+        assertEquals("", range.render(17));
+        assertEquals("yes", range.render(18));
+        assertEquals("yes", range.render(64L));
+        assertEquals("", range.render(65.0));
+        Mustache outside = engine.compileMustache("number_compound_or",
+                "{{numExpr this this 100 op='neg OR gt' out='out'}}");
+        assertEquals("out", outside.render(-1));
+        assertEquals("", outside.render(50));
+        assertEquals("out", outside.render(new BigDecimal("100.5")));
+        // "and" takes precedence over "or"
+        Mustache precedence = engine.compileMustache(
+                "number_compound_precedence",
+                "{{#numExpr this this 10 this 0 op='neg or gt and neq'}}yes{{/numExpr}}");
+        assertEquals("yes", precedence.render(-5));
+        assertEquals("", precedence.render(5));
+        assertEquals("yes", precedence.render(11));
+        assertEquals("yes",
+                engine.compileMustache("number_compound_dynamic",
+                        "{{#numExpr val 1 val 3 op=operator}}yes{{/numExpr}}")
+                        .render(ImmutableMap.<String, Object> of("val", 2,
+                                "operator", "gt and lt")));
+        MustacheExceptionAssert
+                .expect(MustacheProblem.COMPILE_HELPER_VALIDATION_FAILURE)
+                .check(() -> engine.compileMustache(
+                        "number_compound_params",
+                        "{{#numExpr this 1 this op='gt and lt'}}yes{{/numExpr}}"));
+        MustacheExceptionAssert
+                .expect(MustacheProblem.COMPILE_HELPER_VALIDATION_FAILURE)
+                .check(() -> engine.compileMustache("number_compound_in",
+                        "{{#numExpr this 1 this 2 op='in or eq'}}yes{{/numExpr}}"));
+        MustacheExceptionAssert
+                .expect(MustacheProblem.COMPILE_HELPER_VALIDATION_FAILURE)
+                .check(() -> engine.compileMustache(
+                        "number_compound_connective",
+                        "{{#numExpr this 1 this 2 op='gt xor lt'}}yes{{/numExpr}}"));
+        MustacheExceptionAssert
+                .expect(MustacheProblem.RENDER_HELPER_INVALID_OPTIONS)
+                .check(() -> engine
+                        .compileMustache("number_compound_dynamic_invalid",
+                                "{{#numExpr this 1 op=this}}yes{{/numExpr}}")
+                        .render("gt and"));
+    }
+
     @Test
     public void testNumericExpressionHelperInstanceForEachOperator() {
         final MustacheEngine engine = MustacheEngineBuilder.newBuilder()
@@ -5,10 +5,13 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
@@ -65,9 +68,18 @@ public class OptionsTest extends AbstractTest {
                         assertEquals("1", hash.get("first"));
                         assertEquals(10, hash.get("second"));
                         assertNull(hash.get("third"));
+                        assertTrue(hash.containsKey("third"));
+                        assertEquals(3, hash.entrySet().size());
+                        Map<String, Object> expected = new HashMap<>();
+                        expected.put("first", "1");
+                        expected.put("second", 10);
+                        expected.put("third", null);
+                        assertEquals(expected, hash);
                         ExceptionAssert
                                 .expect(UnsupportedOperationException.class)
-                                .check(() -> hash.remove("first"));
+                                .check(() -> hash.remove("first"))
+                                .check(() -> hash.put("fourth", 1))
+                                .check(() -> hash.entrySet().clear());
                     }
                 }).build();
         engine.compileMustache("helper_params",
@@ -243,6 +255,46 @@ public class OptionsTest extends AbstractTest {
         assertTrue(released.get());
     }
 
+    @Test
+    public void testAsyncValueWrappersReleased() {
+        final AtomicInteger released = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                    .setExecutorService(executor)
+                    .omitServiceLoaderConfigurationExtensions()
+                    .addResolver(new AbstractResolver(1) {
+                        @Override
+                        public Object resolve(Object contextObject, String name,
+                                ResolutionContext context) {
+                            if (contextObject == null) {
+                                return null;
+                            }
+                            context.registerReleaseCallback(
+                                    () -> released.incrementAndGet());
+                            return name.toUpperCase();
+                        }
+                    }).registerHelper("async", new AbstractHelper() {
+                        @Override
+                        public void execute(Options options) {
+                            // The param is resolved before the async task is
+                            // submitted
+                            Object param = options.getParameters().get(0);
+                            options.executeAsync(o -> o.append(param + ":"
+                                    + o.getValue("key") + ":"
+                                    + o.getValue("other")));
+                        }
+                    }).build();
+            assertEquals("<PARAM:KEY:OTHER>",
+                    engine.compileMustache("helper_async_wrappers",
+                            "<{{async param}}>").render("bar"));
+            // Param wrapper + two wrappers created in the async task
+            assertEquals(3, released.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void testAsyncExecution() {
         MustacheEngine engine = MustacheEngineBuilder.newBuilder()
@@ -68,4 +68,27 @@ public class DateTimeFormatHelperTest extends AbstractEngineTest {
                         .render(data));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testPatternSimpleDateFormatSemantics() {
+        Calendar day = Calendar.getInstance();
+        day.set(2013, Calendar.SEPTEMBER, 10, 13, 0);
+        // D - day in year, u - day number of week
+        assertEquals("253|2", engine
+                .compileMustache("date_time_helper_sdf_semantics",
+                        "{{formatTime this pattern=\"DD\"}}|{{formatTime this pattern=\"u\"}}")
+                .render(day));
+    }
+
+    @Test
+    public void testTimeZoneAndSqlDate() {
+        // 2013-01-01T12:00:00Z
+        long milis = 1357041600000L;
+        Map<String, Object> data = ImmutableMap.of("date",
+                new java.sql.Date(milis), "milis", milis);
+        assertEquals("01-01-2013 13:00|01-01-2013 07:00|01-01-2013 13:00",
+                engine.compileMustache("date_time_helper_time_zone",
+                        "{{formatTime date pattern=\"dd-MM-yyyy HH:mm\" timeZone=\"Europe/Prague\"}}|{{formatTime milis pattern=\"dd-MM-yyyy HH:mm\" timeZone=\"America/New_York\"}}|{{formatTime milis pattern=\"dd-MM-yyyy HH:mm\" timeZone=\"Europe/Prague\"}}")
+                        .render(data));
+    }
+
+}
@@ -0,0 +1,42 @@
+package org.trimou.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class ObjectPoolTest {
+
+    @Test
+    public void testInstancesReused() {
+        AtomicInteger created = new AtomicInteger();
+        ObjectPool<StringBuilder> pool = new ObjectPool<>(() -> {
+            created.incrementAndGet();
+            return new StringBuilder();
+        }, 2);
+        StringBuilder first = pool.acquire();
+        StringBuilder second = pool.acquire();
+        StringBuilder third = pool.acquire();
+        assertNotSame(first, second);
+        assertEquals(3, created.get());
+        pool.release(first);
+        pool.release(second);
+        // The pool is full - discarded
+        pool.release(third);
+        assertEquals(2, pool.getIdleCount());
+        StringBuilder reused = pool.acquire();
+        assertEquals(1, pool.getIdleCount());
+        pool.release(reused);
+        assertEquals("foo",
+                pool.apply(builder -> builder.append("foo").toString()));
+        assertEquals(3, created.get());
+        assertEquals(2, pool.getIdleCount());
+    }
+
+}
@@ -20,6 +20,7 @@ import java.util.Set;
 
 import org.trimou.engine.config.ConfigurationKey;
 import org.trimou.handlebars.EachHelper;
+import org.trimou.handlebars.HelperDefinition;
 import org.trimou.handlebars.Options;
 
 /**
@@ -37,11 +38,13 @@ import org.trimou.handlebars.Options;
  */
 public class ELEachHelper extends EachHelper {
 
+    private Expressions expressions;
+
     @Override
     protected int processParameter(Object param, Options options, int index, int size, boolean isOmitMeta) {
         if (param instanceof String) {
             // String is expected to be an EL expression
-            return super.processParameter(Expressions.eval(param.toString(), options, configuration), options, index,
+            return super.processParameter(expressions.eval(param.toString(), options), options, index,
                     size, isOmitMeta);
         }
         return super.processParameter(param, options, index, size, isOmitMeta);
@@ -52,4 +55,16 @@ public class ELEachHelper extends EachHelper {
         return Collections.singleton(ELProcessorFactory.EL_PROCESSOR_FACTORY_KEY);
     }
 
+    @Override
+    public void validate(HelperDefinition definition) {
+        super.validate(definition);
+        expressions.precompile(definition, definition.getParameters());
+    }
+
+    @Override
+    public void init() {
+        super.init();
+        expressions = new Expressions(configuration);
+    }
+
 }
@@ -15,14 +15,13 @@
  */
 package org.trimou.el;
 
-import static org.trimou.el.Expressions.eval;
-
 import java.util.Collections;
 import java.util.Set;
 
 import org.trimou.engine.config.ConfigurationKey;
 import org.trimou.engine.interpolation.MissingValueHandler;
 import org.trimou.handlebars.BasicHelper;
+import org.trimou.handlebars.HelperDefinition;
 import org.trimou.handlebars.Options;
 
 /**
@@ -50,9 +49,11 @@ public class ELHelper extends BasicHelper {
 
     public static final String DEFAULT_NAME = "el";
 
+    private Expressions expressions;
+
     @Override
     public void execute(Options options) {
-        Object value = eval(options.getParameters().get(0).toString(), options, configuration);
+        Object value = expressions.eval(options.getParameters().get(0).toString(), options);
         if (isSection(options)) {
             if (value != null) {
                 options.push(value);
@@ -70,9 +71,21 @@ public class ELHelper extends BasicHelper {
         }
     }
 
+    @Override
+    public void validate(HelperDefinition definition) {
+        super.validate(definition);
+        expressions.precompile(definition, Collections.singletonList(definition.getParameters().get(0)));
+    }
+
     @Override
     public Set<ConfigurationKey> getConfigurationKeys() {
         return Collections.singleton(ELProcessorFactory.EL_PROCESSOR_FACTORY_KEY);
     }
 
+    @Override
+    protected void init() {
+        super.init();
+        expressions = new Expressions(configuration);
+    }
+
 }
@@ -15,12 +15,11 @@
  */
 package org.trimou.el;
 
-import static org.trimou.el.Expressions.eval;
-
 import java.util.Collections;
 import java.util.Set;
 
 import org.trimou.engine.config.ConfigurationKey;
+import org.trimou.handlebars.HelperDefinition;
 import org.trimou.handlebars.IfHelper;
 import org.trimou.handlebars.Options;
 
@@ -39,6 +38,8 @@ import org.trimou.handlebars.Options;
  */
 public class ELIfHelper extends IfHelper {
 
+    private Expressions expressions;
+
     public ELIfHelper() {
         super();
     }
@@ -57,11 +58,23 @@ public class ELIfHelper extends IfHelper {
         return Collections.singleton(ELProcessorFactory.EL_PROCESSOR_FACTORY_KEY);
     }
 
+    @Override
+    public void validate(HelperDefinition definition) {
+        super.validate(definition);
+        expressions.precompile(definition, definition.getParameters());
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        expressions = new Expressions(configuration);
+    }
+
     @Override
     protected boolean isMatching(Object value, Options options) {
         if (value instanceof String) {
             // String is expected to be an EL expression
-            return super.isMatching(eval(value.toString(), options, configuration));
+            return super.isMatching(expressions.eval(value.toString(), options));
         } else {
             return super.isMatching(value);
         }
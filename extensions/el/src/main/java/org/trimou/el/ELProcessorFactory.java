@@ -22,8 +22,9 @@ import org.trimou.engine.config.ConfigurationKey;
 import org.trimou.engine.config.SimpleConfigurationKey;
 
 /**
- * This factory is used to instantiate a new {@link ELProcessor} when evaluating
- * EL expressions.
+ * This factory is used to instantiate a new {@link ELProcessor} for evaluating
+ * EL expressions. Since 2.5.2 the processors are pooled and reused for
+ * multiple evaluations. A processor is only used by one thread at a time.
  *
  * @author Martin Kouba
  * @since 2.4
@@ -39,7 +40,9 @@ public interface ELProcessorFactory {
             defaultFactory(), ELProcessorFactory::convert);
 
     /**
-     * The returned processor is used to evaluate a single EL expression.
+     * The returned processor is used by one thread at a time, possibly by
+     * different threads over time, and might be used to evaluate multiple EL
+     * expressions.
      *
      * @param configuration
      * @return a new EL processor instance
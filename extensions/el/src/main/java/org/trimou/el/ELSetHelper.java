@@ -21,6 +21,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import org.trimou.engine.config.ConfigurationKey;
+import org.trimou.handlebars.HelperDefinition;
 import org.trimou.handlebars.Options;
 import org.trimou.handlebars.SetHelper;
 import org.trimou.util.ImmutableMap;
@@ -41,13 +42,15 @@ import org.trimou.util.ImmutableMap.ImmutableMapBuilder;
  */
 public class ELSetHelper extends SetHelper {
 
+    private Expressions expressions;
+
     @Override
     protected Map<String, Object> getMap(Options options) {
         ImmutableMapBuilder<String, Object> builder = ImmutableMap.builder();
         for (Entry<String, Object> entry : options.getHash().entrySet()) {
             if (entry.getValue() instanceof String) {
                 // String is expected to be an EL expression
-                builder.put(entry.getKey(), Expressions.eval(entry.getValue().toString(), options, configuration));
+                builder.put(entry.getKey(), expressions.eval(entry.getValue().toString(), options));
             } else {
                 builder.put(entry.getKey(), entry.getValue());
             }
@@ -60,4 +63,16 @@ public class ELSetHelper extends SetHelper {
         return Collections.singleton(ELProcessorFactory.EL_PROCESSOR_FACTORY_KEY);
     }
 
+    @Override
+    public void validate(HelperDefinition definition) {
+        super.validate(definition);
+        expressions.precompile(definition, definition.getHash().values());
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        expressions = new Expressions(configuration);
+    }
+
 }
@@ -16,55 +16,161 @@
 package org.trimou.el;
 
 import java.beans.FeatureDescriptor;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 import javax.el.ELContext;
+import javax.el.ELException;
+import javax.el.ELManager;
 import javax.el.ELProcessor;
 import javax.el.ELResolver;
+import javax.el.ValueExpression;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.trimou.engine.config.Configuration;
+import org.trimou.handlebars.HelperDefinition;
 import org.trimou.handlebars.Options;
+import org.trimou.util.ObjectPool;
 
 /**
+ * Parses and evaluates EL expressions. The {@link ELProcessor} instances
+ * created by the configured {@link ELProcessorFactory} are reused through a
+ * bounded {@link ObjectPool}, i.e. an evaluation borrows a processor (and its
+ * {@link ELContext}) and returns it afterwards. No thread-bound state is kept
+ * so that pooled threads do not retain the processors.
+ *
+ * <p>
+ * String literals are parsed during helper validation - see
+ * {@link #precompile(HelperDefinition, Iterable)}.
+ * </p>
  *
  * @author Martin Kouba
  */
 class Expressions {
 
-    private Expressions() {
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(Expressions.class);
+
+    private final ObjectPool<Evaluator> evaluators;
+
+    /**
+     *
+     * @param configuration
+     */
+    Expressions(Configuration configuration) {
+        ELProcessorFactory elpFactory = (ELProcessorFactory) configuration
+                .getPropertyValue(ELProcessorFactory.EL_PROCESSOR_FACTORY_KEY);
+        this.evaluators = ObjectPool.of(() -> new Evaluator(
+                elpFactory.createELProcessor(configuration)));
     }
 
     /**
-     * Note that we have to use a separate {@link ELProcessor} for each evaluation
-     * as the {@link OptionsELResolver} may not be reused.
+     * Parse all the string literals and store the expressions in the
+     * definition.
+     *
+     * @param definition
+     * @param values
+     * @see HelperDefinition#setPrecompiled(Object)
+     */
+    void precompile(HelperDefinition definition, Iterable<Object> values) {
+        Map<String, ValueExpression> expressions = null;
+        for (Object value : values) {
+            if (value instanceof String) {
+                String expression = value.toString();
+                try {
+                    ValueExpression valueExpression = parse(expression);
+                    if (expressions == null) {
+                        expressions = new HashMap<>();
+                    }
+                    expressions.put(expression, valueExpression);
+                } catch (ELException e) {
+                    // The expression will be parsed again and the error
+                    // reported during evaluation
+                    LOGGER.debug("Unable to parse expression {} [template: {}, line: {}]: {}", expression,
+                            definition.getTagInfo().getTemplateName(), definition.getTagInfo().getLine(),
+                            e.getMessage());
+                }
+            }
+        }
+        if (expressions != null) {
+            definition.setPrecompiled(new CompiledExpressions(expressions));
+        }
+    }
+
+    /**
+     * The expression parsed during validation is used if possible.
      *
      * @param expression
      * @param options
-     * @param configuration
      * @return the result of the expression evaluation
      */
-    static Object eval(String expression, Options options, Configuration configuration) {
-        ELProcessorFactory elpFactory = (ELProcessorFactory) configuration
-                .getPropertyValue(ELProcessorFactory.EL_PROCESSOR_FACTORY_KEY);
-        ELProcessor elp = elpFactory.createELProcessor(configuration);
-        elp.getELManager().addELResolver(new OptionsELResolver(options));
-        return elp.eval(expression);
+    Object eval(String expression, Options options) {
+        ValueExpression valueExpression = null;
+        Object precompiled = options.getPrecompiled();
+        if (precompiled instanceof CompiledExpressions) {
+            valueExpression = ((CompiledExpressions) precompiled).expressions
+                    .get(expression);
+        }
+        if (valueExpression == null) {
+            valueExpression = parse(expression);
+        }
+        ValueExpression parsed = valueExpression;
+        return evaluators.apply(evaluator -> evaluator.eval(parsed, options));
     }
 
-    static class OptionsELResolver extends ELResolver {
+    private ValueExpression parse(String expression) {
+        return evaluators.apply(evaluator -> ELManager.getExpressionFactory()
+                .createValueExpression(evaluator.elContext,
+                        "${" + expression + "}", Object.class));
+    }
+
+    private static final class CompiledExpressions {
+
+        private final Map<String, ValueExpression> expressions;
+
+        CompiledExpressions(Map<String, ValueExpression> expressions) {
+            this.expressions = expressions;
+        }
+
+    }
 
-        private final Options options;
+    private static final class Evaluator {
 
-        OptionsELResolver(Options options) {
-            this.options = options;
+        private final ELContext elContext;
+
+        private final OptionsELResolver optionsResolver;
+
+        Evaluator(ELProcessor elp) {
+            this.optionsResolver = new OptionsELResolver();
+            elp.getELManager().addELResolver(optionsResolver);
+            this.elContext = elp.getELManager().getELContext();
+        }
+
+        Object eval(ValueExpression expression, Options options) {
+            // The evaluation might be reentrant
+            Options previous = optionsResolver.options;
+            optionsResolver.options = options;
+            try {
+                return expression.getValue(elContext);
+            } finally {
+                optionsResolver.options = previous;
+            }
         }
 
+    }
+
+    static class OptionsELResolver extends ELResolver {
+
+        private Options options;
+
         @Override
         public Object getValue(ELContext context, Object base, Object property) {
             if (context == null) {
                 throw new NullPointerException();
             }
-            if (base == null) {
+            if (base == null && options != null) {
                 Object value = options.getValue(property.toString());
                 if (value != null) {
                     context.setPropertyResolved(true);
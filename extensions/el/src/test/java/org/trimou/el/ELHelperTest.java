@@ -3,7 +3,14 @@ package org.trimou.el;
 import static org.junit.Assert.assertEquals;
 
 import java.beans.FeatureDescriptor;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.el.ELContext;
 import javax.el.ELProcessor;
@@ -16,6 +23,7 @@ import org.trimou.Mustache;
 import org.trimou.engine.MustacheEngine;
 import org.trimou.engine.MustacheEngineBuilder;
 import org.trimou.engine.config.Configuration;
+import org.trimou.util.ImmutableList;
 import org.trimou.util.ImmutableMap;
 
 /**
@@ -46,6 +54,34 @@ public class ELHelperTest extends AbstractTest {
                 .render(ImmutableMap.of("foo", "a", "bar", 1)));
     }
 
+    @Test
+    public void testDynamicAndNestedExpressions() {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder().build();
+        assertEquals("3:5|", engine
+                .compileMustache("elhelper_dynamic_01",
+                        "{{#each this}}{{el expr}}:{{#el 'val + 1'}}{{el 'this + 1'}}{{/el}}|{{/each}}")
+                .render(ImmutableList.of(ImmutableMap.of("expr", "1 + 2", "val", 3))));
+    }
+
+    @Test
+    public void testConcurrentEvaluation() throws InterruptedException, ExecutionException {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder().build();
+        Mustache mustache = engine.compileMustache("elhelper_concurrent_01", "{{el 'this * 2'}}");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                final int value = i;
+                results.add(executor.submit(() -> mustache.render(value)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals("" + (i * 2), results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void testCustomELProcessorFactory() {
         CustomELProcessorFactory.value = Boolean.TRUE;
@@ -65,6 +101,29 @@ public class ELHelperTest extends AbstractTest {
         assertEquals("10", mustache.render(null));
     }
 
+    @Test
+    public void testProcessorsNotBoundToThreads() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .setProperty(ELProcessorFactory.EL_PROCESSOR_FACTORY_KEY,
+                        (ELProcessorFactory) configuration -> {
+                            created.incrementAndGet();
+                            return new ELProcessor();
+                        })
+                .build();
+        Mustache mustache = engine.compileMustache("elpf_threads",
+                "{{el 'this + 1'}}");
+        for (int i = 0; i < 10; i++) {
+            // Each rendering is performed by a new thread
+            Thread thread = new Thread(() -> assertEquals("2",
+                    mustache.render(1)));
+            thread.start();
+            thread.join();
+        }
+        // One processor is reused by all the threads
+        assertEquals(1, created.get());
+    }
+
     static class CustomELProcessorFactory implements ELProcessorFactory {
 
         static Object value;
@@ -65,7 +65,9 @@ public class JsonElementResolver extends IndexResolver {
 
     private boolean unwrapJsonPrimitive;
 
-    private final Hint hint;
+    private final Hint memberHint;
+
+    private final Hint unwrapThisHint;
 
     /**
      *
@@ -79,39 +81,44 @@ public class JsonElementResolver extends IndexResolver {
      */
     public JsonElementResolver(int priority) {
         super(priority);
-        this.hint = JsonElementResolver.this::resolve;
+        this.memberHint = (contextObject, name, context) -> {
+            if (contextObject instanceof JsonObject) {
+                return resolveMember((JsonObject) contextObject, name);
+            }
+            return null;
+        };
+        this.unwrapThisHint = (contextObject, name, context) -> {
+            if (contextObject instanceof JsonPrimitive
+                    || contextObject instanceof JsonNull
+                    || contextObject instanceof JsonArray) {
+                return unwrapJsonElementIfNecessary(
+                        (JsonElement) contextObject, true);
+            }
+            return null;
+        };
     }
 
     @Override
     public Object resolve(Object contextObject, String name,
             ResolutionContext context) {
 
-        if (contextObject == null || !(contextObject instanceof JsonElement)) {
-            return null;
-        }
-
-        JsonElement element = (JsonElement) contextObject;
-
-        if (element.isJsonArray() && isAnIndex(name)) {
+        if (contextObject instanceof JsonObject) {
+            // JsonObject properties
+            return resolveMember((JsonObject) contextObject, name);
+        } else if (contextObject instanceof JsonArray && isAnIndex(name)) {
             // Index-based access of JsonArray elements
-            JsonArray jsonArray = (JsonArray) element;
-            // #26 Unwrap the element if necessary
+            JsonArray jsonArray = (JsonArray) contextObject;
             final Integer index = getIndexValue(name, context.getKey(),
                     jsonArray.size());
             if (index != null) {
+                // #26 Unwrap the element if necessary
                 return unwrapJsonElementIfNecessary(jsonArray.get(index),
                         unwrapJsonPrimitive);
             }
-        } else if (element.isJsonObject()) {
-            // JsonObject properties
-            JsonObject jsonObject = (JsonObject) element;
-            JsonElement member = jsonObject.get(name);
-            if (member != null) {
-                return unwrapJsonElementIfNecessary(member,
-                        unwrapJsonPrimitive);
-            }
-        } else if (name.equals(NAME_UNWRAP_THIS)) {
-            return unwrapJsonElementIfNecessary(element, true);
+        } else if (contextObject instanceof JsonElement
+                && name.equals(NAME_UNWRAP_THIS)) {
+            return unwrapJsonElementIfNecessary((JsonElement) contextObject,
+                    true);
         }
         return null;
     }
@@ -130,7 +137,22 @@ public class JsonElementResolver extends IndexResolver {
     @Override
     public Hint createHint(Object contextObject, String name,
             ResolutionContext context) {
-        return hint;
+        if (contextObject instanceof JsonObject) {
+            return memberHint;
+        } else if (contextObject instanceof JsonArray) {
+            // The hint is only used for the same key part, i.e. the index may
+            // be parsed once
+            return isAnIndex(name) ? new ArrayIndexHint(Integer.parseInt(name))
+                    : unwrapThisHint;
+        }
+        return unwrapThisHint;
+    }
+
+    private Object resolveMember(JsonObject jsonObject, String name) {
+        JsonElement member = jsonObject.get(name);
+        return member != null
+                ? unwrapJsonElementIfNecessary(member, unwrapJsonPrimitive)
+                : null;
     }
 
     private Object unwrapJsonElementIfNecessary(JsonElement jsonElement,
@@ -146,14 +168,43 @@ public class JsonElementResolver extends IndexResolver {
     }
 
     private Object unwrapJsonPrimitive(JsonPrimitive jsonPrimitive) {
-        if (jsonPrimitive.isBoolean()) {
-            return jsonPrimitive.getAsBoolean();
-        } else if (jsonPrimitive.isString()) {
+        // Note that none of the methods creates a new object - the wrapped
+        // value is returned (Boolean.valueOf() is used for booleans)
+        if (jsonPrimitive.isString()) {
             return jsonPrimitive.getAsString();
         } else if (jsonPrimitive.isNumber()) {
             return jsonPrimitive.getAsNumber();
+        } else if (jsonPrimitive.isBoolean()) {
+            return jsonPrimitive.getAsBoolean();
         }
         return jsonPrimitive;
     }
 
+    /**
+     * The index is parsed when the hint is created.
+     */
+    private class ArrayIndexHint implements Hint {
+
+        private final int index;
+
+        ArrayIndexHint(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Object resolve(Object contextObject, String name,
+                ResolutionContext context) {
+            if (contextObject instanceof JsonArray) {
+                JsonArray jsonArray = (JsonArray) contextObject;
+                if (index < jsonArray.size()) {
+                    return unwrapJsonElementIfNecessary(jsonArray.get(index),
+                            unwrapJsonPrimitive);
+                }
+            }
+            // Let the resolver chain handle this, e.g. log a warning
+            return null;
+        }
+
+    }
+
 }
@@ -15,6 +15,7 @@ import org.trimou.engine.MustacheEngine;
 import org.trimou.engine.MustacheEngineBuilder;
 import org.trimou.engine.interpolation.ThrowingExceptionMissingValueHandler;
 import org.trimou.engine.resolver.DummyResolutionContext;
+import org.trimou.engine.resolver.EnhancedResolver.Hint;
 import org.trimou.engine.resolver.MapResolver;
 import org.trimou.engine.resolver.Placeholder;
 import org.trimou.engine.resolver.ReflectionResolver;
@@ -68,6 +69,39 @@ public class JsonElementResolverTest extends AbstractTest {
         assertEquals(1, resolver.resolve(jsonArray, "1", ctx));
     }
 
+    @Test
+    public void testHints() {
+        JsonElementResolver resolver = new JsonElementResolver();
+        ResolutionContext ctx = new DummyResolutionContext();
+        MustacheEngineBuilder.newBuilder()
+                .omitServiceLoaderConfigurationExtensions()
+                .setProperty(JsonElementResolver.UNWRAP_JSON_PRIMITIVE_KEY,
+                        true)
+                .setProperty(GsonValueConverter.ENABLED_KEY, false)
+                .addResolver(resolver).build();
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.addProperty("foo", "bar");
+        Hint memberHint = resolver.createHint(jsonObject, "foo", ctx);
+        assertEquals("bar", memberHint.resolve(jsonObject, "foo", ctx));
+        assertNull(memberHint.resolve(new JsonArray(), "foo", ctx));
+        assertNull(memberHint.resolve("foo", "foo", ctx));
+        JsonArray jsonArray = new JsonArray();
+        jsonArray.add(new JsonPrimitive(1));
+        jsonArray.add(new JsonPrimitive("two"));
+        Hint indexHint = resolver.createHint(jsonArray, "1", ctx);
+        assertEquals("two", indexHint.resolve(jsonArray, "1", ctx));
+        assertNull(indexHint.resolve(new JsonArray(), "1", ctx));
+        assertNull(indexHint.resolve(jsonObject, "1", ctx));
+        Hint unwrapHint = resolver.createHint(new JsonPrimitive(true),
+                JsonElementResolver.NAME_UNWRAP_THIS, ctx);
+        assertEquals(Boolean.FALSE, unwrapHint.resolve(new JsonPrimitive(false),
+                JsonElementResolver.NAME_UNWRAP_THIS, ctx));
+        assertEquals(Placeholder.NULL, unwrapHint.resolve(JsonNull.INSTANCE,
+                JsonElementResolver.NAME_UNWRAP_THIS, ctx));
+        assertNull(unwrapHint.resolve(jsonObject,
+                JsonElementResolver.NAME_UNWRAP_THIS, ctx));
+    }
+
     @Test
     public void testInterpolation()
             throws JsonIOException, JsonSyntaxException, FileNotFoundException {
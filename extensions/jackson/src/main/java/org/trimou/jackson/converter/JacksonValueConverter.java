@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.jackson.converter;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.trimou.engine.config.Configuration;
+import org.trimou.engine.config.ConfigurationKey;
+import org.trimou.engine.config.SimpleConfigurationKey;
+import org.trimou.engine.convert.AbstractValueConverter;
+import org.trimou.util.Strings;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ValueNode;
+
+/**
+ * Converts {@link ValueNode} and {@link com.fasterxml.jackson.databind.node.MissingNode}.
+ * Textual nodes are converted to the wrapped string, i.e. no quotes are added
+ * and no intermediate JSON representation is built. Null and missing nodes are
+ * converted to an empty string. Container nodes are not converted.
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ */
+public class JacksonValueConverter extends AbstractValueConverter {
+
+    public static final ConfigurationKey ENABLED_KEY = new SimpleConfigurationKey(
+            JacksonValueConverter.class.getName() + ".enabled", true);
+
+    public JacksonValueConverter() {
+        super();
+    }
+
+    public JacksonValueConverter(int priority) {
+        super(priority);
+    }
+
+    @Override
+    public String convert(Object value) {
+        if (value instanceof JsonNode) {
+            JsonNode node = (JsonNode) value;
+            if (node.isTextual()) {
+                return node.textValue();
+            } else if (node.isNull() || node.isMissingNode()) {
+                return Strings.EMPTY;
+            } else if (node.isValueNode()) {
+                return node.asText();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void init(Configuration configuration) {
+        isEnabled = configuration.getBooleanPropertyValue(ENABLED_KEY);
+    }
+
+    @Override
+    public Set<ConfigurationKey> getConfigurationKeys() {
+        return Collections.singleton(ENABLED_KEY);
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.jackson.converter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+import org.trimou.engine.config.AbstractConfigurationAware;
+import org.trimou.engine.config.ConfigurationKey;
+import org.trimou.engine.config.SimpleConfigurationKey;
+import org.trimou.engine.convert.ContextConverter;
+import org.trimou.exception.MustacheException;
+import org.trimou.exception.MustacheProblem;
+import org.trimou.jackson.resolver.JsonNodeResolver;
+import org.trimou.util.Checker;
+
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.POJONode;
+
+/**
+ * Converts context objects implementing {@link TreeNode} so that they can be
+ * processed by resolvers:
+ *
+ * <ul>
+ * <li>a {@link TreeNode} which is not a {@link JsonNode} (e.g. a node created
+ * by a different tree codec) is converted to a {@link JsonNode} so that
+ * {@link JsonNodeResolver} may be used,</li>
+ * <li>a {@link POJONode} is converted to the wrapped object, e.g. so that
+ * {@link org.trimou.engine.resolver.ReflectionResolver} may be used.</li>
+ * </ul>
+ *
+ * <p>
+ * Note that the conversion of a foreign {@link TreeNode} traverses the whole
+ * subtree every time the node is pushed on the context stack.
+ * </p>
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ */
+public class TreeNodeContextConverter extends AbstractConfigurationAware
+        implements ContextConverter {
+
+    public static final ConfigurationKey ENABLED_KEY = new SimpleConfigurationKey(
+            TreeNodeContextConverter.class.getName() + ".enabled", true);
+
+    private final ObjectMapper mapper;
+
+    private final int priority;
+
+    private volatile boolean isEnabled;
+
+    /**
+     *
+     */
+    public TreeNodeContextConverter() {
+        this(new ObjectMapper());
+    }
+
+    /**
+     *
+     * @param mapper
+     */
+    public TreeNodeContextConverter(ObjectMapper mapper) {
+        this(mapper, DEFAULT_PRIORITY);
+    }
+
+    /**
+     *
+     * @param mapper
+     * @param priority
+     */
+    public TreeNodeContextConverter(ObjectMapper mapper, int priority) {
+        Checker.checkArgumentNotNull(mapper);
+        this.mapper = mapper;
+        this.priority = priority;
+        this.isEnabled = true;
+    }
+
+    @Override
+    public Object convert(Object from) {
+        if (from instanceof JsonNode) {
+            if (from instanceof POJONode) {
+                return ((POJONode) from).getPojo();
+            }
+            return null;
+        } else if (from instanceof TreeNode) {
+            try {
+                return mapper.readTree(((TreeNode) from).traverse(mapper));
+            } catch (IOException e) {
+                throw new MustacheException(
+                        MustacheProblem.RENDER_GENERIC_ERROR, e);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void init() {
+        isEnabled = configuration.getBooleanPropertyValue(ENABLED_KEY);
+    }
+
+    @Override
+    public Set<ConfigurationKey> getConfigurationKeys() {
+        return Collections.singleton(ENABLED_KEY);
+    }
+
+    @Override
+    public int getPriority() {
+        return priority;
+    }
+
+    @Override
+    public boolean isValid() {
+        return isEnabled;
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.jackson.resolver;
+
+import static org.trimou.engine.priority.Priorities.rightBefore;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.trimou.engine.config.ConfigurationKey;
+import org.trimou.engine.config.SimpleConfigurationKey;
+import org.trimou.engine.resolver.IndexResolver;
+import org.trimou.engine.resolver.MapResolver;
+import org.trimou.engine.resolver.Placeholder;
+import org.trimou.engine.resolver.ResolutionContext;
+import org.trimou.jackson.converter.JacksonValueConverter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+import com.fasterxml.jackson.databind.node.ValueNode;
+
+/**
+ * Jackson's tree model resolver.
+ *
+ * <ul>
+ * <li>{@link ObjectNode} fields can be accessed via dot notation, i.e.
+ * <code>foo.bar</code> is translated to <code>foo.get("bar")</code></li>
+ * <li>{@link ArrayNode} elements can be accessed via index, i.e.
+ * <code>foo.1</code> is translated to <code>foo.get(1)</code></li>
+ * <li>{@link #NAME_UNWRAP_THIS} may be used to unwrap the current
+ * {@link ValueNode}</li>
+ * </ul>
+ *
+ * <p>
+ * Every {@link JsonNode} implements {@link Iterable}. Therefore, an
+ * {@link ObjectNode} is always resolved as an {@link ObjectNodeWrapper} so that
+ * it can be used as a nested context in a section. See also
+ * {@link #UNWRAP_VALUE_NODE_KEY}.
+ * </p>
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ * @see <a href="https://github.com/FasterXML/jackson-databind">https://github.
+ *      com/FasterXML/jackson-databind</a>
+ */
+public class JsonNodeResolver extends IndexResolver {
+
+    public static final int JSON_NODE_RESOLVER_PRIORITY = rightBefore(
+            MapResolver.MAP_RESOLVER_PRIORITY);
+
+    /**
+     * Use this name if you want to unwrap the current context object (note that
+     * "this" would be normally matched by ThisResolver)
+     */
+    public static final String NAME_UNWRAP_THIS = "unwrapThis";
+
+    /**
+     * If set to <code>true</code> instances of {@link ValueNode} are unwrapped
+     * automatically.
+     * <p>
+     * Unlike in the Gson extension automatic unwrapping is enabled by default -
+     * a value node is an empty {@link Iterable} and so it would be always
+     * considered falsy in a section. Value nodes which are not resolved via
+     * this resolver, e.g. {@link ArrayNode} elements during iteration, are
+     * converted by {@link JacksonValueConverter}.
+     */
+    public static final ConfigurationKey UNWRAP_VALUE_NODE_KEY = new SimpleConfigurationKey(
+            JsonNodeResolver.class.getName() + ".unwrapValueNode", true);
+
+    private boolean unwrapValueNode;
+
+    private final Hint memberHint;
+
+    private final Hint unwrapThisHint;
+
+    /**
+     *
+     */
+    public JsonNodeResolver() {
+        this(JSON_NODE_RESOLVER_PRIORITY);
+    }
+
+    /**
+     * @param priority
+     */
+    public JsonNodeResolver(int priority) {
+        super(priority);
+        this.memberHint = (contextObject, name, context) -> {
+            ObjectNode objectNode = asObjectNode(contextObject);
+            return objectNode != null ? resolveMember(objectNode, name) : null;
+        };
+        this.unwrapThisHint = (contextObject, name, context) -> {
+            if (contextObject instanceof ValueNode
+                    || contextObject instanceof ArrayNode) {
+                return unwrapJsonNodeIfNecessary((JsonNode) contextObject,
+                        true);
+            }
+            return null;
+        };
+    }
+
+    @Override
+    public Object resolve(Object contextObject, String name,
+            ResolutionContext context) {
+        ObjectNode objectNode = asObjectNode(contextObject);
+        if (objectNode != null) {
+            return resolveMember(objectNode, name);
+        } else if (contextObject instanceof ArrayNode && isAnIndex(name)) {
+            ArrayNode arrayNode = (ArrayNode) contextObject;
+            final Integer index = getIndexValue(name, context.getKey(),
+                    arrayNode.size());
+            if (index != null) {
+                return unwrapJsonNodeIfNecessary(arrayNode.get(index),
+                        unwrapValueNode);
+            }
+        } else if (contextObject instanceof JsonNode
+                && name.equals(NAME_UNWRAP_THIS)) {
+            return unwrapJsonNodeIfNecessary((JsonNode) contextObject, true);
+        }
+        return null;
+    }
+
+    @Override
+    public void init() {
+        unwrapValueNode = configuration
+                .getBooleanPropertyValue(UNWRAP_VALUE_NODE_KEY);
+    }
+
+    @Override
+    public Set<ConfigurationKey> getConfigurationKeys() {
+        return Collections.singleton(UNWRAP_VALUE_NODE_KEY);
+    }
+
+    @Override
+    public Hint createHint(Object contextObject, String name,
+            ResolutionContext context) {
+        if (asObjectNode(contextObject) != null) {
+            return memberHint;
+        } else if (contextObject instanceof ArrayNode) {
+            // The hint is only used for the same key part, i.e. the index may
+            // be parsed once
+            return isAnIndex(name) ? new ArrayIndexHint(Integer.parseInt(name))
+                    : unwrapThisHint;
+        }
+        return unwrapThisHint;
+    }
+
+    private Object resolveMember(ObjectNode objectNode, String name) {
+        JsonNode member = objectNode.get(name);
+        return member != null
+                ? unwrapJsonNodeIfNecessary(member, unwrapValueNode)
+                : null;
+    }
+
+    private Object unwrapJsonNodeIfNecessary(JsonNode jsonNode,
+            boolean unwrapValueNode) {
+        if (jsonNode instanceof ObjectNode) {
+            return new ObjectNodeWrapper((ObjectNode) jsonNode);
+        }
+        return unwrapValueNode && jsonNode.isValueNode()
+                ? unwrapValueNode(jsonNode)
+                : jsonNode;
+    }
+
+    private ObjectNode asObjectNode(Object contextObject) {
+        if (contextObject instanceof ObjectNode) {
+            return (ObjectNode) contextObject;
+        } else if (contextObject instanceof ObjectNodeWrapper) {
+            return ((ObjectNodeWrapper) contextObject).getNode();
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @param valueNode
+     * @return the unwrapped value
+     */
+    private Object unwrapValueNode(JsonNode valueNode) {
+        // Note that the wrapped string is returned as is and
+        // Boolean.valueOf() is used for booleans
+        switch (valueNode.getNodeType()) {
+        case STRING:
+            return valueNode.textValue();
+        case NUMBER:
+            return valueNode.numberValue();
+        case BOOLEAN:
+            return valueNode.booleanValue();
+        case NULL:
+            return Placeholder.NULL;
+        case POJO:
+            Object pojo = ((POJONode) valueNode).getPojo();
+            return pojo != null ? pojo : Placeholder.NULL;
+        default:
+            return valueNode;
+        }
+    }
+
+    /**
+     * The index is parsed when the hint is created.
+     */
+    private class ArrayIndexHint implements Hint {
+
+        private final int index;
+
+        ArrayIndexHint(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Object resolve(Object contextObject, String name,
+                ResolutionContext context) {
+            if (contextObject instanceof ArrayNode) {
+                ArrayNode arrayNode = (ArrayNode) contextObject;
+                if (index < arrayNode.size()) {
+                    return unwrapJsonNodeIfNecessary(arrayNode.get(index),
+                            unwrapValueNode);
+                }
+            }
+            // Let the resolver chain handle this, e.g. log a warning
+            return null;
+        }
+
+    }
+
+}
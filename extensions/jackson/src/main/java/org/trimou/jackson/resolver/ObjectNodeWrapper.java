@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.jackson.resolver;
+
+import org.trimou.engine.resolver.Mapper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Every {@link JsonNode} implements {@link Iterable}. As a result, an
+ * {@link ObjectNode} would be iterated over its field values if used in a
+ * section. This wrapper makes it possible to use an {@link ObjectNode} as a
+ * nested context, i.e. <code>{{#address}}{{street}}{{/address}}</code>. The
+ * string representation is the JSON representation of the wrapped node.
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ * @see JsonNodeResolver
+ */
+public final class ObjectNodeWrapper implements Mapper {
+
+    private final ObjectNode node;
+
+    /**
+     *
+     * @param node
+     */
+    public ObjectNodeWrapper(ObjectNode node) {
+        this.node = node;
+    }
+
+    /**
+     *
+     * @return the wrapped node
+     */
+    public ObjectNode getNode() {
+        return node;
+    }
+
+    @Override
+    public Object get(String key) {
+        return node.get(key);
+    }
+
+    @Override
+    public String toString() {
+        return node.toString();
+    }
+
+}
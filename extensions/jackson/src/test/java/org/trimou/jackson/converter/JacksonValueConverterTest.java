@@ -0,0 +1,49 @@
+package org.trimou.jackson.converter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.trimou.AbstractTest;
+import org.trimou.Mustache;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.config.EngineConfigurationKey;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class JacksonValueConverterTest extends AbstractTest {
+
+    @Test
+    public void testConverter() throws IOException {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .setProperty(EngineConfigurationKey.SKIP_VALUE_ESCAPING, true)
+                .build();
+        Mustache mustache = engine.compileMustache("jackson_converter_test",
+                "{{#this}}{{.}}|{{/this}}");
+        assertEquals("1|true|2.5||",
+                mustache.render(new ObjectMapper()
+                        .readTree("[\"1\",true,2.5,null]")));
+        mustache = engine.compileMustache("jackson_converter_object_test",
+                "{{this}}");
+        assertEquals("{\"foo\":\"bar\"}", mustache
+                .render(new ObjectMapper().readTree("{\"foo\":\"bar\"}")));
+    }
+
+    @Test
+    public void testConverterDisabled() throws IOException {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .setProperty(EngineConfigurationKey.SKIP_VALUE_ESCAPING, true)
+                .setProperty(JacksonValueConverter.ENABLED_KEY, false).build();
+        Mustache mustache = engine.compileMustache(
+                "jackson_converter_disabled_test", "{{#this}}{{.}}{{/this}}");
+        assertEquals("\"1\"truenull", mustache
+                .render(new ObjectMapper().readTree("[\"1\",true,null]")));
+    }
+
+}
@@ -0,0 +1,162 @@
+package org.trimou.jackson.converter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.junit.Test;
+import org.trimou.AbstractTest;
+import org.trimou.Hammer;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonParser.NumberType;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class TreeNodeContextConverterTest extends AbstractTest {
+
+    @Test
+    public void testForeignTreeNode() throws IOException {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder().build();
+        ForeignTreeNode node = new ForeignTreeNode(new ObjectMapper()
+                .readTree("{\"name\":\"Jan\",\"tags\":[\"a\",\"b\"]}"));
+        assertEquals("Jan:ab",
+                engine.compileMustache("tree_node_foreign",
+                        "{{name}}:{{#tags}}{{.}}{{/tags}}").render(node));
+    }
+
+    @Test
+    public void testPojoNode() {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder().build();
+        ArrayNode arrayNode = JsonNodeFactory.instance.arrayNode();
+        arrayNode.addPOJO(new Hammer(10));
+        arrayNode.addPOJO(new Hammer(20));
+        // Array elements are pushed on the context stack as is
+        assertEquals("10,20,",
+                engine.compileMustache("tree_node_pojo",
+                        "{{#this}}{{age}},{{/this}}").render(arrayNode));
+    }
+
+    @Test
+    public void testConverterDisabled() throws IOException {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .setProperty(TreeNodeContextConverter.ENABLED_KEY, false)
+                .build();
+        ForeignTreeNode node = new ForeignTreeNode(
+                new ObjectMapper().readTree("{\"name\":\"Jan\"}"));
+        assertEquals("", engine
+                .compileMustache("tree_node_disabled", "{{name}}").render(node));
+    }
+
+    /**
+     * A {@link TreeNode} which is not a {@link JsonNode}.
+     */
+    private static class ForeignTreeNode implements TreeNode {
+
+        private final JsonNode delegate;
+
+        ForeignTreeNode(JsonNode delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public JsonToken asToken() {
+            return delegate.asToken();
+        }
+
+        @Override
+        public NumberType numberType() {
+            return delegate.numberType();
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public boolean isValueNode() {
+            return delegate.isValueNode();
+        }
+
+        @Override
+        public boolean isContainerNode() {
+            return delegate.isContainerNode();
+        }
+
+        @Override
+        public boolean isMissingNode() {
+            return delegate.isMissingNode();
+        }
+
+        @Override
+        public boolean isArray() {
+            return delegate.isArray();
+        }
+
+        @Override
+        public boolean isObject() {
+            return delegate.isObject();
+        }
+
+        @Override
+        public TreeNode get(String fieldName) {
+            return delegate.get(fieldName);
+        }
+
+        @Override
+        public TreeNode get(int index) {
+            return delegate.get(index);
+        }
+
+        @Override
+        public TreeNode path(String fieldName) {
+            return delegate.path(fieldName);
+        }
+
+        @Override
+        public TreeNode path(int index) {
+            return delegate.path(index);
+        }
+
+        @Override
+        public Iterator<String> fieldNames() {
+            return delegate.fieldNames();
+        }
+
+        @Override
+        public TreeNode at(JsonPointer ptr) {
+            return delegate.at(ptr);
+        }
+
+        @Override
+        public TreeNode at(String jsonPointerExpression) {
+            return delegate.at(jsonPointerExpression);
+        }
+
+        @Override
+        public JsonParser traverse() {
+            return delegate.traverse();
+        }
+
+        @Override
+        public JsonParser traverse(ObjectCodec codec) {
+            return delegate.traverse(codec);
+        }
+
+    }
+
+}
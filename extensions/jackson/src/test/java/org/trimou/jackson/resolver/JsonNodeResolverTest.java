@@ -0,0 +1,202 @@
+package org.trimou.jackson.resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import org.junit.Test;
+import org.trimou.AbstractTest;
+import org.trimou.Mustache;
+import org.trimou.MustacheExceptionAssert;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.interpolation.ThrowingExceptionMissingValueHandler;
+import org.trimou.engine.resolver.DummyResolutionContext;
+import org.trimou.engine.resolver.EnhancedResolver.Hint;
+import org.trimou.engine.resolver.MapResolver;
+import org.trimou.engine.resolver.Placeholder;
+import org.trimou.engine.resolver.ReflectionResolver;
+import org.trimou.engine.resolver.ResolutionContext;
+import org.trimou.engine.resolver.ThisResolver;
+import org.trimou.exception.MustacheProblem;
+import org.trimou.jackson.converter.JacksonValueConverter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class JsonNodeResolverTest extends AbstractTest {
+
+    @Test
+    public void testResolution() {
+        JsonNodeResolver resolver = new JsonNodeResolver();
+        ResolutionContext ctx = new DummyResolutionContext();
+        // Init the resolver
+        MustacheEngineBuilder.newBuilder()
+                .omitServiceLoaderConfigurationExtensions()
+                .setProperty(JsonNodeResolver.UNWRAP_VALUE_NODE_KEY, true)
+                .addResolver(resolver).build();
+        assertNull(resolver.resolve(null, "foo", ctx));
+        assertNull(resolver.resolve("bar", "foo", ctx));
+        assertEquals(Boolean.TRUE,
+                resolver.resolve(BooleanNode.TRUE, "unwrapThis", ctx));
+        assertNull(resolver.resolve(BooleanNode.TRUE, "whatever", ctx));
+        assertEquals(Placeholder.NULL,
+                resolver.resolve(NullNode.getInstance(), "unwrapThis", ctx));
+        ObjectNode objectNode = JsonNodeFactory.instance.objectNode();
+        objectNode.put("foo", "bar");
+        objectNode.put("baz", true);
+        objectNode.put("qux", new BigDecimal("1.5"));
+        objectNode.putPOJO("pojo", "hello");
+        assertEquals("bar", resolver.resolve(objectNode, "foo", ctx));
+        assertEquals(Boolean.TRUE, resolver.resolve(objectNode, "baz", ctx));
+        assertEquals(new BigDecimal("1.5"),
+                resolver.resolve(objectNode, "qux", ctx));
+        assertEquals("hello", resolver.resolve(objectNode, "pojo", ctx));
+        assertNull(resolver.resolve(objectNode, "unknown", ctx));
+        ArrayNode arrayNode = JsonNodeFactory.instance.arrayNode();
+        arrayNode.add(true);
+        arrayNode.add(1);
+        assertEquals(true, resolver.resolve(arrayNode, "0", ctx));
+        assertEquals(1, resolver.resolve(arrayNode, "1", ctx));
+    }
+
+    @Test
+    public void testHints() {
+        JsonNodeResolver resolver = new JsonNodeResolver();
+        ResolutionContext ctx = new DummyResolutionContext();
+        MustacheEngineBuilder.newBuilder()
+                .omitServiceLoaderConfigurationExtensions()
+                .setProperty(JsonNodeResolver.UNWRAP_VALUE_NODE_KEY, true)
+                .addResolver(resolver).build();
+        ObjectNode objectNode = JsonNodeFactory.instance.objectNode();
+        objectNode.put("foo", "bar");
+        Hint memberHint = resolver.createHint(objectNode, "foo", ctx);
+        assertEquals("bar", memberHint.resolve(objectNode, "foo", ctx));
+        assertNull(memberHint.resolve(JsonNodeFactory.instance.arrayNode(),
+                "foo", ctx));
+        assertNull(memberHint.resolve("foo", "foo", ctx));
+        ArrayNode arrayNode = JsonNodeFactory.instance.arrayNode();
+        arrayNode.add(1);
+        arrayNode.add("two");
+        Hint indexHint = resolver.createHint(arrayNode, "1", ctx);
+        assertEquals("two", indexHint.resolve(arrayNode, "1", ctx));
+        assertNull(indexHint.resolve(JsonNodeFactory.instance.arrayNode(), "1",
+                ctx));
+        assertNull(indexHint.resolve(objectNode, "1", ctx));
+        Hint unwrapHint = resolver.createHint(BooleanNode.TRUE,
+                JsonNodeResolver.NAME_UNWRAP_THIS, ctx);
+        assertEquals(Boolean.FALSE, unwrapHint.resolve(BooleanNode.FALSE,
+                JsonNodeResolver.NAME_UNWRAP_THIS, ctx));
+        assertEquals(Placeholder.NULL, unwrapHint.resolve(
+                NullNode.getInstance(), JsonNodeResolver.NAME_UNWRAP_THIS,
+                ctx));
+        assertNull(unwrapHint.resolve(objectNode,
+                JsonNodeResolver.NAME_UNWRAP_THIS, ctx));
+    }
+
+    @Test
+    public void testInterpolation() throws IOException {
+        Mustache mustache = getEngine().compileMustache("json_node_test",
+                "{{lastName}}|{{address.street}}|{{#phoneNumbers}}{{type}}{{#iterHasNext}},{{/iterHasNext}}{{/phoneNumbers}}|{{phoneNumbers.0.type}}");
+        assertEquals("Novy|Nova|home,mobile|home",
+                mustache.render(loadJsonData()));
+    }
+
+    @Test
+    public void testSections() throws IOException {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder().build();
+        JsonNode data = new ObjectMapper().readTree(
+                "{\"address\": {\"street\": \"Nova\"}, \"active\": true, \"deleted\": false, \"note\": null}");
+        assertEquals("Nova|active|",
+                engine.compileMustache("json_node_sections",
+                        "{{#address}}{{street}}{{/address}}|{{#active}}active{{/active}}{{#deleted}}deleted{{/deleted}}|{{#note}}note{{/note}}")
+                        .render(data));
+        assertEquals("{\"street\":\"Nova\"}",
+                engine.compileMustache("json_node_object_interpolation",
+                        "{{{address}}}").render(data));
+    }
+
+    @Test
+    public void testUnwrapValueNodeSetToFalse() throws IOException {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .omitServiceLoaderConfigurationExtensions()
+                .addResolver(new JsonNodeResolver())
+                .addResolver(new ReflectionResolver())
+                .setProperty(JsonNodeResolver.UNWRAP_VALUE_NODE_KEY, false)
+                .build();
+        Mustache mustache = engine.compileMustache(
+                "json_node_unwrap_value_disabled_test",
+                "{{firstName.textValue.length}}|{{phoneNumbers.1.type.textValue.toUpperCase}}");
+        assertEquals("3|MOBILE", mustache.render(loadJsonData()));
+
+        // Test together with converter
+        engine = MustacheEngineBuilder.newBuilder()
+                .omitServiceLoaderConfigurationExtensions()
+                .addResolver(new ReflectionResolver())
+                .addResolver(new JsonNodeResolver())
+                .addValueConverter(new JacksonValueConverter())
+                .setProperty(JsonNodeResolver.UNWRAP_VALUE_NODE_KEY, false)
+                .build();
+        mustache = engine.compileMustache(
+                "json_node_unwrap_value_disabled_test2",
+                "{{firstName}}|{{age}}|{{phoneNumbers.1.type}}|{{phoneNumbers.1.type.textValue.toUpperCase}}");
+        assertEquals("Jan|30|mobile|MOBILE", mustache.render(loadJsonData()));
+    }
+
+    @Test
+    public void testOutOfBoundIndexException() throws IOException {
+        final JsonNode jsonNode = new ObjectMapper()
+                .readTree("{\"numbers\": [1,2]}");
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .setMissingValueHandler(
+                        new ThrowingExceptionMissingValueHandler())
+                .omitServiceLoaderConfigurationExtensions()
+                .setProperty(JsonNodeResolver.UNWRAP_VALUE_NODE_KEY, true)
+                .addResolver(new ThisResolver()).addResolver(new MapResolver())
+                .addResolver(new JsonNodeResolver()).build();
+        final Mustache mustache = engine.compileMustache("json_node_index",
+                "One of numbers is {{numbers.2}}.");
+        MustacheExceptionAssert.expect(MustacheProblem.RENDER_NO_VALUE)
+                .check(() -> mustache.render(jsonNode));
+    }
+
+    @Test
+    public void testUnwrapArrayNode() throws IOException {
+        MustacheEngine engine = getEngine();
+        assertEquals("Jim,true,5",
+                engine.compileMustache("json_node_unwrap_array_element_test",
+                        "{{#aliases}}{{unwrapThis}}{{#iterHasNext}},{{/iterHasNext}}{{/aliases}}")
+                        .render(loadJsonData()));
+        assertEquals("One of users is izeye.",
+                engine.compileMustache("json_node_unwrap_array_index",
+                        "One of users is {{users.0}}.")
+                        .render(new ObjectMapper().readTree(
+                                "{\"users\": [\"izeye\", \"always19\"]}")));
+    }
+
+    private MustacheEngine getEngine() {
+        return MustacheEngineBuilder.newBuilder()
+                .omitServiceLoaderConfigurationExtensions()
+                .setProperty(JsonNodeResolver.UNWRAP_VALUE_NODE_KEY, true)
+                .addResolver(new ThisResolver()).addResolver(new MapResolver())
+                .addResolver(new JsonNodeResolver()).build();
+    }
+
+    private JsonNode loadJsonData() throws IOException {
+        return new ObjectMapper()
+                .readTree(new File("src/test/resources/data.json"));
+    }
+
+}
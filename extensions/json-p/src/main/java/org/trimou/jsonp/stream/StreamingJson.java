@@ -0,0 +1,336 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.jsonp.stream;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
+
+import org.trimou.engine.resolver.MapResolver;
+import org.trimou.engine.resolver.Mapper;
+import org.trimou.engine.resolver.Placeholder;
+import org.trimou.exception.MustacheException;
+import org.trimou.exception.ProblemCode;
+
+/**
+ * Adapts a streaming {@link JsonParser} so that the data can be rendered
+ * without building the whole JSON tree first.
+ *
+ * <pre>
+ * try (JsonParser parser = Json.createParser(reader)) {
+ *     mustache.render(writer, StreamingJson.from(parser));
+ * }
+ * </pre>
+ *
+ * <p>
+ * A JSON object is represented as a {@link Mapper} (i.e. handled by
+ * {@link MapResolver}) which only reads the input until the requested member
+ * is found. A JSON array is represented as an {@link Iterable} which reads the
+ * elements one by one as the section iterates. Only the root value and the
+ * values of requested object members are streamed this way. Everything else is
+ * buffered - members skipped while looking up a key (so that out-of-order
+ * access works), array elements (one at a time; the lookahead needed by
+ * iteration metadata requires the current element to be complete) and the
+ * unread rest of a streamed value if a member of an enclosing object is
+ * requested later. Buffered objects are {@link Map}s and buffered arrays are
+ * {@link List}s. Strings are unwrapped to {@link String}, numbers to
+ * {@link java.math.BigDecimal}, booleans to {@link Boolean} and
+ * <code>null</code> to {@link Placeholder#NULL}.
+ * </p>
+ *
+ * <p>
+ * A streamed array can only be iterated once - {@link MustacheException} with
+ * code {@link Problem#STREAMED_ARRAY_ALREADY_ITERATED} is thrown otherwise.
+ * Looking up a key which is not present in a streamed object results in
+ * buffering the rest of the object. However, the input is never read ahead
+ * while a streamed array is being iterated, i.e. a key which was not read yet
+ * is not found in the enclosing objects (including the context stack lookups
+ * of missing keys, e.g. an optional member of an array element). The data is
+ * not thread-safe and must not be used with asynchronous rendering.
+ * </p>
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ */
+public final class StreamingJson {
+
+    private StreamingJson() {
+    }
+
+    /**
+     * The parser must be positioned before the first event. The caller is
+     * responsible for closing the parser once the rendering is finished.
+     *
+     * @param parser
+     * @return the data object for the root value
+     */
+    public static Object from(JsonParser parser) {
+        if (!parser.hasNext()) {
+            throw new IllegalArgumentException("No JSON value available");
+        }
+        return readLazily(parser, parser.next());
+    }
+
+    private static Object readLazily(JsonParser parser, Event event) {
+        switch (event) {
+        case START_OBJECT:
+            return new StreamingObject(parser);
+        case START_ARRAY:
+            return new StreamingArray(parser);
+        default:
+            return readValue(parser, event);
+        }
+    }
+
+    /**
+     * Read the whole value starting with the given event.
+     */
+    private static Object readValue(JsonParser parser, Event event) {
+        switch (event) {
+        case START_OBJECT:
+            Map<String, Object> object = new LinkedHashMap<>();
+            readMembers(parser, object);
+            return object;
+        case START_ARRAY:
+            List<Object> array = new ArrayList<>();
+            readElements(parser, array);
+            return array;
+        case VALUE_STRING:
+            return parser.getString();
+        case VALUE_NUMBER:
+            return parser.getBigDecimal();
+        case VALUE_TRUE:
+            return Boolean.TRUE;
+        case VALUE_FALSE:
+            return Boolean.FALSE;
+        case VALUE_NULL:
+            return Placeholder.NULL;
+        default:
+            throw new IllegalStateException("Unexpected event: " + event);
+        }
+    }
+
+    private static void readMembers(JsonParser parser,
+            Map<String, Object> members) {
+        while (parser.next() != Event.END_OBJECT) {
+            String name = parser.getString();
+            members.put(name, readValue(parser, parser.next()));
+        }
+    }
+
+    private static void readElements(JsonParser parser,
+            Collection<Object> elements) {
+        Event event;
+        while ((event = parser.next()) != Event.END_ARRAY) {
+            elements.add(readValue(parser, event));
+        }
+    }
+
+    /**
+     * A value read from the underlying parser lazily. Only the innermost
+     * incomplete node may read from the parser.
+     */
+    private abstract static class StreamingNode {
+
+        protected final JsonParser parser;
+
+        protected boolean isComplete;
+
+        StreamingNode(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        /**
+         * Buffer the unread rest of the value.
+         */
+        abstract void complete();
+
+        /**
+         *
+         * @return <code>true</code> if a streamed array is being iterated
+         */
+        abstract boolean isInProgress();
+
+    }
+
+    private static final class StreamingObject extends StreamingNode
+            implements Mapper {
+
+        private final Map<String, Object> members;
+
+        // The value of the last requested member if not complete yet
+        private StreamingNode openMember;
+
+        StreamingObject(JsonParser parser) {
+            super(parser);
+            this.members = new LinkedHashMap<>();
+        }
+
+        @Override
+        public Object get(String key) {
+            Object value = members.get(key);
+            if (value != null || isComplete) {
+                return value;
+            }
+            if (openMember != null && openMember.isInProgress()) {
+                // Never read ahead while iterating - the whole array would
+                // have to be buffered
+                return null;
+            }
+            completeOpenMember();
+            while (parser.next() != Event.END_OBJECT) {
+                String name = parser.getString();
+                if (key.equals(name)) {
+                    value = readLazily(parser, parser.next());
+                    members.put(name, value);
+                    if (value instanceof StreamingNode) {
+                        openMember = (StreamingNode) value;
+                    }
+                    return value;
+                }
+                // Out-of-order access - buffer the member
+                members.put(name, readValue(parser, parser.next()));
+            }
+            isComplete = true;
+            return null;
+        }
+
+        @Override
+        void complete() {
+            if (isComplete) {
+                return;
+            }
+            completeOpenMember();
+            readMembers(parser, members);
+            isComplete = true;
+        }
+
+        @Override
+        boolean isInProgress() {
+            return openMember != null && openMember.isInProgress();
+        }
+
+        private void completeOpenMember() {
+            if (openMember != null) {
+                openMember.complete();
+                openMember = null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "StreamingObject [members: " + members.keySet()
+                    + ", complete: " + isComplete + "]";
+        }
+
+    }
+
+    private static final class StreamingArray extends StreamingNode
+            implements Iterable<Object> {
+
+        // Elements read but not returned yet
+        private final Deque<Object> pending;
+
+        private boolean isStarted;
+
+        StreamingArray(JsonParser parser) {
+            super(parser);
+            this.pending = new ArrayDeque<>();
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            if (isStarted) {
+                throw new MustacheException(
+                        Problem.STREAMED_ARRAY_ALREADY_ITERATED,
+                        "A streamed JSON array may only be iterated once: %s",
+                        this);
+            }
+            return new Iterator<Object>() {
+
+                @Override
+                public boolean hasNext() {
+                    return hasNextElement();
+                }
+
+                @Override
+                public Object next() {
+                    if (!hasNextElement()) {
+                        throw new NoSuchElementException();
+                    }
+                    isStarted = true;
+                    return pending.poll();
+                }
+            };
+        }
+
+        @Override
+        void complete() {
+            if (isComplete) {
+                return;
+            }
+            readElements(parser, pending);
+            isComplete = true;
+        }
+
+        @Override
+        boolean isInProgress() {
+            return isStarted && !isComplete;
+        }
+
+        private boolean hasNextElement() {
+            if (!pending.isEmpty()) {
+                return true;
+            }
+            if (isComplete) {
+                return false;
+            }
+            Event event = parser.next();
+            if (event == Event.END_ARRAY) {
+                isComplete = true;
+                return false;
+            }
+            pending.add(readValue(parser, event));
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "StreamingArray [pending: " + pending.size()
+                    + ", complete: " + isComplete + "]";
+        }
+
+    }
+
+    /**
+     * Problem codes specific to streamed JSON data.
+     */
+    public enum Problem implements ProblemCode {
+
+        STREAMED_ARRAY_ALREADY_ITERATED,
+
+    }
+
+}
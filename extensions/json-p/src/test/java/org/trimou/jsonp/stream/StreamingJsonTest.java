@@ -0,0 +1,157 @@
+package org.trimou.jsonp.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.json.Json;
+import javax.json.stream.JsonParser;
+
+import org.junit.Test;
+import org.trimou.AbstractTest;
+import org.trimou.MustacheExceptionAssert;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.handlebars.AbstractHelper;
+import org.trimou.handlebars.Options;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class StreamingJsonTest extends AbstractTest {
+
+    private static final String JSON = "{\"title\": \"Export\", \"meta\": {\"count\": 3, \"tags\": [\"a\", \"b\"]}, "
+            + "\"items\": [{\"id\": 1, \"name\": \"foo\"}, {\"id\": 2, \"name\": null}, {\"id\": 3, \"name\": \"baz\", \"active\": true}], "
+            + "\"footer\": \"End\"}";
+
+    @Test
+    public void testInOrderAccess() {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder().build();
+        assertEquals("Export:3:ab|1foo,2,3baz!|End", render(engine, "streaming_json_in_order",
+                "{{title}}:{{meta.count}}:{{#meta.tags}}{{this}}{{/meta.tags}}|{{#items}}{{id}}{{name}}{{#active}}!{{/active}}{{#iter.hasNext}},{{/iter.hasNext}}{{/items}}|{{footer}}"));
+    }
+
+    @Test
+    public void testOutOfOrderAccess() {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder().build();
+        assertEquals("End|Export|123|3", render(engine, "streaming_json_out_of_order_01",
+                "{{footer}}|{{title}}|{{#items}}{{id}}{{/items}}|{{meta.count}}"));
+        // The streamed array is buffered before the footer is read
+        assertEquals("End|123", render(engine, "streaming_json_out_of_order_02",
+                "{{#with items}}{{footer}}|{{#each this}}{{id}}{{/each}}{{/with}}"));
+    }
+
+    @Test
+    public void testRootArray() {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder().build();
+        try (JsonParser parser = Json.createParser(new StringReader("[1, [2, 3], {\"foo\": \"bar\"}, null]"))) {
+            assertEquals("1|[2, 3]|bar||", engine
+                    .compileMustache("streaming_json_root_array", "{{#this}}{{#foo}}{{.}}{{/foo}}{{^foo}}{{.}}{{/foo}}|{{/this}}")
+                    .render(StreamingJson.from(parser)));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testArrayIteratedOnlyOnce() {
+        try (JsonParser parser = Json.createParser(new StringReader("[1]"))) {
+            Iterable<Object> iterable = (Iterable<Object>) StreamingJson.from(parser);
+            Iterator<Object> iterator = iterable.iterator();
+            assertEquals(BigDecimal.ONE, iterator.next());
+            assertFalse(iterator.hasNext());
+            MustacheExceptionAssert
+                    .expect(StreamingJson.Problem.STREAMED_ARRAY_ALREADY_ITERATED)
+                    .check(() -> iterable.iterator());
+        }
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder().build();
+        MustacheExceptionAssert
+                .expect(StreamingJson.Problem.STREAMED_ARRAY_ALREADY_ITERATED)
+                .check(() -> render(engine, "streaming_json_iterated_twice",
+                        "{{#items}}{{id}}{{/items}}{{#items}}{{id}}{{/items}}"));
+    }
+
+    @Test
+    public void testInputConsumedIncrementally() {
+        int count = 5000;
+        StringBuilder json = new StringBuilder("{\"items\": [");
+        for (int i = 1; i <= count; i++) {
+            if (i > 1) {
+                json.append(", ");
+            }
+            json.append("{\"id\": ").append(i);
+            if (i % 1000 == 0) {
+                json.append(", \"active\": true");
+            }
+            json.append("}");
+        }
+        json.append("], \"footer\": \"End\"}");
+        CountingReader reader = new CountingReader(
+                new StringReader(json.toString()));
+        List<Long> positions = new ArrayList<>();
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .registerHelper("position", new AbstractHelper() {
+                    @Override
+                    public void execute(Options options) {
+                        positions.add(reader.count);
+                    }
+                }).build();
+        try (JsonParser parser = Json.createParser(reader)) {
+            // The missing "active" key is also looked up in the root object
+            String result = engine.compileMustache(
+                    "streaming_json_incrementally",
+                    "{{#items}}{{#active}}{{id}},{{/active}}{{position}}{{/items}}{{footer}}")
+                    .render(StreamingJson.from(parser));
+            assertEquals("1000,2000,3000,4000,5000,End", result);
+        }
+        assertEquals(count, positions.size());
+        // Only a small part of the input is read when the first item is
+        // rendered
+        assertTrue(positions.get(0) < json.length() / 4);
+        assertTrue(positions.get(0) < positions.get(count - 1));
+    }
+
+    private static final class CountingReader extends FilterReader {
+
+        private long count;
+
+        CountingReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c != -1) {
+                count++;
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] buffer, int off, int len) throws IOException {
+            int read = super.read(buffer, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+    }
+
+    private String render(MustacheEngine engine, String name, String template) {
+        try (JsonParser parser = Json.createParser(new StringReader(JSON))) {
+            return engine.compileMustache(name, template).render(StreamingJson.from(parser));
+        }
+    }
+
+}
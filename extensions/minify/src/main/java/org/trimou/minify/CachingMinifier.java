@@ -0,0 +1,407 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.minify;
+
+import static org.trimou.util.Checker.checkArgumentNotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trimou.engine.cache.ComputingCache;
+import org.trimou.engine.config.Configuration;
+import org.trimou.engine.config.ConfigurationKey;
+import org.trimou.engine.config.SimpleConfigurationKey;
+import org.trimou.exception.MustacheException;
+import org.trimou.util.IOUtils;
+import org.trimou.util.Strings;
+
+/**
+ * Caches the results of the delegate minifier. The cache key is the SHA-256
+ * hash of the contents, i.e. identical contents are only minified once - even
+ * if a template is reloaded or a dynamic template is compiled again. The cache
+ * is bounded, see {@link #MAX_SIZE_KEY}. The results may be also persisted in
+ * a local directory so that they survive the application restart, see
+ * {@link #DIRECTORY_KEY}. The name of a persisted file also contains the
+ * fingerprint of the delegate, i.e. the result of
+ * {@link Minifier#getFingerprint()} and the values of the delegate's
+ * configuration keys, so that different minifiers and settings may share the
+ * same directory. The total size of the persisted files is bounded as well -
+ * the least recently used files are removed first, see
+ * {@link #DIRECTORY_MAX_SIZE_KEY}.
+ *
+ * <p>
+ * The delegate must always produce the same result for the same contents, i.e.
+ * the result may only depend on the template name through
+ * {@link Minifier#isApplicable(String)}.
+ * </p>
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ * @see Minify#caching(Minifier)
+ */
+public class CachingMinifier implements Minifier {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(CachingMinifier.class);
+
+    public static final String COMPUTING_CACHE_CONSUMER_ID = CachingMinifier.class
+            .getName();
+
+    /**
+     * The maximum number of cached results.
+     */
+    public static final ConfigurationKey MAX_SIZE_KEY = new SimpleConfigurationKey(
+            CachingMinifier.class.getName() + ".maxSize", 1000L);
+
+    /**
+     * If set, the results are also persisted in the specified directory. The
+     * directory is created if it does not exist.
+     */
+    public static final ConfigurationKey DIRECTORY_KEY = new SimpleConfigurationKey(
+            CachingMinifier.class.getName() + ".directory", Strings.EMPTY);
+
+    /**
+     * The maximum total size of the persisted results in bytes. Only takes
+     * effect if {@link #DIRECTORY_KEY} is set.
+     */
+    public static final ConfigurationKey DIRECTORY_MAX_SIZE_KEY = new SimpleConfigurationKey(
+            CachingMinifier.class.getName() + ".directoryMaxSize",
+            50L * 1024 * 1024);
+
+    private static final String SUFFIX = ".min";
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final int FINGERPRINT_LENGTH = 16;
+
+    // Template contents and text may be minified differently
+    private static final char PREFIX_CONTENTS = 'c';
+
+    private static final char PREFIX_TEXT = 't';
+
+    private final Minifier delegate;
+
+    private volatile ComputingCache<Key, String> cache;
+
+    private volatile Path directory;
+
+    private volatile long directoryMaxSize;
+
+    private final AtomicLong directorySize;
+
+    private volatile String fingerprint;
+
+    /**
+     *
+     * @param delegate
+     */
+    public CachingMinifier(Minifier delegate) {
+        checkArgumentNotNull(delegate);
+        this.delegate = delegate;
+        this.directorySize = new AtomicLong();
+    }
+
+    @Override
+    public void init(Configuration configuration) {
+        delegate.init(configuration);
+        long maxSize = configuration.getLongPropertyValue(MAX_SIZE_KEY);
+        String dir = configuration.getStringPropertyValue(DIRECTORY_KEY);
+        if (!dir.isEmpty()) {
+            try {
+                directory = Files.createDirectories(Paths.get(dir));
+            } catch (IOException e) {
+                throw new MustacheException(
+                        "Unable to create the minify cache directory: " + dir,
+                        e);
+            }
+            directoryMaxSize = configuration
+                    .getLongPropertyValue(DIRECTORY_MAX_SIZE_KEY);
+            fingerprint = fingerprint(configuration);
+            evict();
+        }
+        cache = configuration.getComputingCacheFactory().create(
+                COMPUTING_CACHE_CONSUMER_ID, this::load, null, maxSize, null);
+        LOGGER.debug(
+                "Initialized [maxSize: {}, directory: {}, directoryMaxSize: {}, fingerprint: {}]",
+                maxSize, directory, directoryMaxSize, fingerprint);
+    }
+
+    @Override
+    public Set<ConfigurationKey> getConfigurationKeys() {
+        Set<ConfigurationKey> keys = new HashSet<>(
+                delegate.getConfigurationKeys());
+        keys.add(MAX_SIZE_KEY);
+        keys.add(DIRECTORY_KEY);
+        keys.add(DIRECTORY_MAX_SIZE_KEY);
+        return keys;
+    }
+
+    @Override
+    public Reader minify(String mustacheName, Reader mustacheContents) {
+        if (!delegate.isApplicable(mustacheName)) {
+            return mustacheContents;
+        }
+        try {
+            String contents = IOUtils.toString(mustacheContents);
+            return new StringReader(cache
+                    .get(new Key(PREFIX_CONTENTS, contents, mustacheName)));
+        } catch (IOException e) {
+            throw new MustacheException(
+                    "Unable to read the template contents", e);
+        }
+    }
+
+    @Override
+    public String minify(String text) {
+        return cache.get(new Key(PREFIX_TEXT, text, null));
+    }
+
+    @Override
+    public boolean isApplicable(String mustacheName) {
+        return delegate.isApplicable(mustacheName);
+    }
+
+    /**
+     * Remove all the results from the in-memory cache. The persisted results
+     * are not removed.
+     */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [delegate: " + delegate + "]";
+    }
+
+    private String load(Key key) {
+        Path file = directory != null
+                ? directory.resolve(
+                        fingerprint + "-" + key.prefix + key.hash + SUFFIX)
+                : null;
+        String result = null;
+        if (file != null && Files.isRegularFile(file)) {
+            try {
+                result = new String(Files.readAllBytes(file),
+                        StandardCharsets.UTF_8);
+                // The least recently used files are evicted first
+                Files.setLastModifiedTime(file,
+                        FileTime.fromMillis(System.currentTimeMillis()));
+                LOGGER.debug("Minification result loaded from {}", file);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to read the minification result from "
+                        + file, e);
+            }
+        }
+        if (result == null) {
+            result = minify(key);
+            if (file != null) {
+                store(file, result);
+            }
+        }
+        // The key is stored in the cache - do not hold the contents
+        key.contents = null;
+        key.mustacheName = null;
+        return result;
+    }
+
+    private String minify(Key key) {
+        if (key.prefix == PREFIX_TEXT) {
+            return delegate.minify(key.contents);
+        }
+        try {
+            return IOUtils.toString(delegate.minify(key.mustacheName,
+                    new StringReader(key.contents)));
+        } catch (IOException e) {
+            throw new MustacheException(
+                    "Unable to read the minified template contents", e);
+        }
+    }
+
+    private void store(Path file, String result) {
+        byte[] bytes = result.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > directoryMaxSize) {
+            return;
+        }
+        try {
+            Path tmp = Files.createTempFile(directory, null, TMP_SUFFIX);
+            Files.write(tmp, bytes);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to persist the minification result to " + file,
+                    e);
+            return;
+        }
+        if (directorySize.addAndGet(bytes.length) > directoryMaxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Remove the least recently used files until the total size does not
+     * exceed the limit. Files of other fingerprints are also taken into
+     * account so that stale results are removed eventually.
+     */
+    private synchronized void evict() {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream
+                    .filter(f -> f.getFileName().toString().endsWith(SUFFIX))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            LOGGER.warn(
+                    "Unable to list the minify cache directory " + directory,
+                    e);
+            return;
+        }
+        List<PersistedFile> persisted = new ArrayList<>(files.size());
+        long size = 0;
+        for (Path file : files) {
+            try {
+                PersistedFile persistedFile = new PersistedFile(file,
+                        Files.size(file),
+                        Files.getLastModifiedTime(file).toMillis());
+                persisted.add(persistedFile);
+                size += persistedFile.size;
+            } catch (IOException e) {
+                // Removed concurrently
+                LOGGER.trace("Unable to read the attributes of " + file, e);
+            }
+        }
+        if (size > directoryMaxSize) {
+            persisted.sort(Comparator.comparingLong(f -> f.lastModified));
+            for (PersistedFile file : persisted) {
+                if (size <= directoryMaxSize) {
+                    break;
+                }
+                try {
+                    Files.deleteIfExists(file.path);
+                    size -= file.size;
+                    LOGGER.debug("Persisted minification result removed: {}",
+                            file.path);
+                } catch (IOException e) {
+                    LOGGER.warn("Unable to remove " + file.path, e);
+                }
+            }
+        }
+        directorySize.set(size);
+    }
+
+    private String fingerprint(Configuration configuration) {
+        // Sort the keys so that the fingerprint is stable
+        TreeMap<String, Object> values = new TreeMap<>();
+        for (ConfigurationKey key : delegate.getConfigurationKeys()) {
+            values.put(key.get(), configuration.getPropertyValue(key));
+        }
+        return hash(delegate.getFingerprint() + values).substring(0,
+                FINGERPRINT_LENGTH);
+    }
+
+    private static String hash(String contents) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] bytes = digest
+                .digest(contents.getBytes(StandardCharsets.UTF_8));
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    private static final class PersistedFile {
+
+        private final Path path;
+
+        private final long size;
+
+        private final long lastModified;
+
+        PersistedFile(Path path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+    }
+
+    /**
+     * Only the prefix and the hash are used to identify the key.
+     */
+    private static final class Key {
+
+        private final char prefix;
+
+        private final String hash;
+
+        // Only needed until the result is computed
+        private volatile String contents;
+
+        private volatile String mustacheName;
+
+        Key(char prefix, String contents, String mustacheName) {
+            this.prefix = prefix;
+            this.hash = hash(contents);
+            this.contents = contents;
+            this.mustacheName = mustacheName;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * prefix + hash.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return prefix == other.prefix && hash.equals(other.hash);
+        }
+
+    }
+
+}
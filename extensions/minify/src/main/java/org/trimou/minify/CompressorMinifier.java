@@ -97,6 +97,11 @@ public abstract class CompressorMinifier<T extends Compressor> extends
         return compressed;
     }
 
+    @Override
+    public boolean isApplicable(String mustacheName) {
+        return match(mustacheName);
+    }
+
     /**
      * Useful to filter out specific templates, e.g. to only minify files with
      * *.html suffix.
@@ -16,6 +16,7 @@
 package org.trimou.minify;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Predicate;
@@ -60,4 +61,37 @@ public class HtmlCompressorMinifier extends CompressorMinifier<HtmlCompressor> {
         }
     }
 
+    @Override
+    public String getFingerprint() {
+        // Pattern.toString() returns the source regular expression
+        return getClass().getName() + Arrays.asList(compressor.isEnabled(),
+                compressor.isRemoveComments(),
+                compressor.isRemoveMultiSpaces(),
+                compressor.isRemoveIntertagSpaces(),
+                compressor.isRemoveQuotes(), compressor.isSimpleDoctype(),
+                compressor.isRemoveScriptAttributes(),
+                compressor.isRemoveStyleAttributes(),
+                compressor.isRemoveLinkAttributes(),
+                compressor.isRemoveFormAttributes(),
+                compressor.isRemoveInputAttributes(),
+                compressor.isSimpleBooleanAttributes(),
+                compressor.isRemoveJavaScriptProtocol(),
+                compressor.isRemoveHttpProtocol(),
+                compressor.isRemoveHttpsProtocol(),
+                compressor.isPreserveLineBreaks(),
+                compressor.getRemoveSurroundingSpaces(),
+                compressor.getPreservePatterns(),
+                compressor.isCompressJavaScript(), compressor.isCompressCss(),
+                compressor.isYuiJsNoMunge(),
+                compressor.isYuiJsPreserveAllSemiColons(),
+                compressor.isYuiJsDisableOptimizations(),
+                compressor.getYuiJsLineBreak(), compressor.getYuiCssLineBreak(),
+                className(compressor.getJavaScriptCompressor()),
+                className(compressor.getCssCompressor()));
+    }
+
+    private static String className(Object value) {
+        return value != null ? value.getClass().getName() : null;
+    }
+
 }
@@ -47,4 +47,31 @@ public interface Minifier extends ConfigurationAware {
      */
     String minify(String text);
 
+    /**
+     * Used by {@link TextSegmentMinifyListener} to decide whether the text
+     * segments of the given template should be minified.
+     *
+     * @param mustacheName
+     * @return <code>true</code> if the minifier should be applied to the given
+     *         mustache name, <code>false</code> otherwise
+     * @since 2.5.2
+     */
+    default boolean isApplicable(String mustacheName) {
+        return true;
+    }
+
+    /**
+     * Used by {@link CachingMinifier} to separate the persisted results of
+     * different minifiers. The values of the minifier's configuration keys are
+     * taken into account automatically, however the fingerprint must reflect
+     * all other settings which affect the result. Only called after the
+     * minifier is initialized.
+     *
+     * @return the fingerprint of the minifier and its settings
+     * @since 2.5.2
+     */
+    default String getFingerprint() {
+        return getClass().getName();
+    }
+
 }
@@ -45,6 +45,17 @@ public final class Minify {
         return new MinifyLambda(new HtmlCompressorMinifier());
     }
 
+    /**
+     * The minifier is only applied to the text segments of a parsed template.
+     *
+     * @return the text segment listener for the default HTML minifier
+     * @see TextSegmentMinifyListener
+     * @since 2.5.2
+     */
+    public static TextSegmentMinifyListener htmlTextSegmentListener() {
+        return new TextSegmentMinifyListener(new HtmlCompressorMinifier());
+    }
+
     /**
      *
      * @return the listener for the default XML minifier
@@ -53,6 +64,17 @@ public final class Minify {
         return new MinifyListener(new XmlCompressorMinifier());
     }
 
+    /**
+     * The minifier is only applied to the text segments of a parsed template.
+     *
+     * @return the text segment listener for the default XML minifier
+     * @see TextSegmentMinifyListener
+     * @since 2.5.2
+     */
+    public static TextSegmentMinifyListener xmlTextSegmentListener() {
+        return new TextSegmentMinifyListener(new XmlCompressorMinifier());
+    }
+
     /**
      *
      * @return the lambda for the default XML minifier
@@ -70,6 +92,18 @@ public final class Minify {
         return new MinifyListener(minifier);
     }
 
+    /**
+     *
+     * @param minifier
+     * @return the text segment listener for a custom minifier
+     * @see TextSegmentMinifyListener
+     * @since 2.5.2
+     */
+    public static TextSegmentMinifyListener customTextSegmentListener(
+            Minifier minifier) {
+        return new TextSegmentMinifyListener(minifier);
+    }
+
     /**
      *
      * @return the lambda for a custom minifier
@@ -78,4 +112,15 @@ public final class Minify {
         return new MinifyLambda(minifier);
     }
 
+    /**
+     *
+     * @param minifier
+     * @return the minifier caching the results of the specified minifier
+     * @see CachingMinifier
+     * @since 2.5.2
+     */
+    public static CachingMinifier caching(Minifier minifier) {
+        return new CachingMinifier(minifier);
+    }
+
 }
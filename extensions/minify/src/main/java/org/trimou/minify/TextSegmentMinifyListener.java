@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.minify;
+
+import static org.trimou.util.Checker.checkArgumentNotNull;
+
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trimou.engine.config.Configuration;
+import org.trimou.engine.config.ConfigurationKey;
+import org.trimou.engine.listener.AbstractMustacheListener;
+import org.trimou.engine.listener.MustacheParsingEvent;
+
+/**
+ * Unlike {@link MinifyListener} this listener does not minify the whole
+ * template source before parsing. Instead, the minifier is only applied to the
+ * text runs of the parsed template, i.e. to the maximal sequences of adjacent
+ * text and line separator segments. Mustache tags are opaque boundaries - the
+ * minifier never sees a tag and so it cannot break it.
+ *
+ * <p>
+ * If a text run starts or ends with a whitespace removed by the minifier, a
+ * single space is preserved so that the surrounding tags are not glued to the
+ * text. Note that a minifier is not able to recognize an element spanning
+ * multiple text runs, e.g. a <code>pre</code> element containing a section.
+ * </p>
+ *
+ * <p>
+ * A text run may also start or end inside a markup tag, e.g.
+ * <code>&lt;div class="{{cls}}"&gt;</code> results in the runs
+ * <code>&lt;div class="</code> and <code>"&gt;</code>. Such a fragment (the
+ * text before the first <code>&gt;</code> and the text after the last
+ * <code>&lt;</code> not followed by <code>&gt;</code>) is never passed to the
+ * minifier and is left untouched.
+ * </p>
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ * @see MustacheParsingEvent#addTextProcessor(java.util.function.UnaryOperator)
+ */
+public class TextSegmentMinifyListener extends AbstractMustacheListener {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(TextSegmentMinifyListener.class);
+
+    private static final String SPACE = " ";
+
+    private final Minifier minifier;
+
+    TextSegmentMinifyListener(Minifier minifier) {
+        checkArgumentNotNull(minifier);
+        this.minifier = minifier;
+    }
+
+    @Override
+    public void init(Configuration configuration) {
+        minifier.init(configuration);
+        LOGGER.info("Text segment minify listener initialized [minifier: {}]",
+                minifier.toString());
+    }
+
+    @Override
+    public Set<ConfigurationKey> getConfigurationKeys() {
+        return minifier.getConfigurationKeys();
+    }
+
+    @Override
+    public void parsingStarted(MustacheParsingEvent event) {
+        if (minifier.isApplicable(event.getMustacheName())) {
+            event.addTextProcessor(this::minify);
+        }
+    }
+
+    private String minify(String text) {
+        // Skip the fragments of a markup tag
+        int start = 0;
+        int end = text.length();
+        int firstOpen = text.indexOf('<');
+        int firstClose = text.indexOf('>');
+        if (firstClose != -1 && (firstOpen == -1 || firstClose < firstOpen)) {
+            start = firstClose + 1;
+        }
+        int lastOpen = text.lastIndexOf('<');
+        if (lastOpen != -1 && lastOpen >= start
+                && lastOpen > text.lastIndexOf('>')) {
+            end = lastOpen;
+        }
+        if (start >= end) {
+            return text;
+        }
+        if (start == 0 && end == text.length()) {
+            return minifyRun(text);
+        }
+        return text.substring(0, start)
+                + minifyRun(text.substring(start, end))
+                + text.substring(end);
+    }
+
+    private String minifyRun(String text) {
+        String minified = minifier.minify(text);
+        if (minified.length() == text.length()) {
+            return minified;
+        }
+        boolean leading = Character.isWhitespace(text.charAt(0));
+        boolean trailing = Character
+                .isWhitespace(text.charAt(text.length() - 1));
+        if (minified.isEmpty()) {
+            return leading || trailing ? SPACE : minified;
+        }
+        if (leading && !Character.isWhitespace(minified.charAt(0))) {
+            minified = SPACE + minified;
+        }
+        if (trailing && !Character
+                .isWhitespace(minified.charAt(minified.length() - 1))) {
+            minified = minified + SPACE;
+        }
+        return minified;
+    }
+
+}
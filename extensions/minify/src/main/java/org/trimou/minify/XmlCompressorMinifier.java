@@ -15,6 +15,7 @@
  */
 package org.trimou.minify;
 
+import java.util.Arrays;
 import java.util.function.Predicate;
 
 import com.googlecode.htmlcompressor.compressor.XmlCompressor;
@@ -33,4 +34,11 @@ public class XmlCompressorMinifier extends CompressorMinifier<XmlCompressor> {
         super(new XmlCompressor(), matchingPredicate);
     }
 
+    @Override
+    public String getFingerprint() {
+        return getClass().getName() + Arrays.asList(compressor.isEnabled(),
+                compressor.isRemoveComments(),
+                compressor.isRemoveIntertagSpaces());
+    }
+
 }
@@ -0,0 +1,199 @@
+package org.trimou.minify;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.config.Configuration;
+import org.trimou.util.IOUtils;
+import org.trimou.util.ImmutableMap;
+
+import com.googlecode.htmlcompressor.compressor.HtmlCompressor;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class CachingMinifierTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testIdenticalContentsMinifiedOnce() {
+        CountingMinifier counting = new CountingMinifier();
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(
+                        Minify.customListener(Minify.caching(counting)))
+                .build();
+        String contents = "<p>  {{foo}}  </p>";
+        assertEquals("<p> FOO </p>", engine.compileMustache("caching_1", contents)
+                .render(ImmutableMap.<String, Object> of("foo", "FOO")));
+        assertEquals("<p> BAR </p>", engine.compileMustache("caching_2", contents)
+                .render(ImmutableMap.<String, Object> of("foo", "BAR")));
+        assertEquals(1, counting.count.get());
+        engine.compileMustache("caching_3", "<p>  {{bar}}  </p>");
+        assertEquals(2, counting.count.get());
+    }
+
+    @Test
+    public void testResultsPersisted() throws Exception {
+        File dir = new File(folder.getRoot(), "minify");
+        String contents = "<p>  {{foo}}  </p>";
+        CountingMinifier counting = new CountingMinifier();
+        MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(
+                        Minify.customListener(Minify.caching(counting)))
+                .setProperty(CachingMinifier.DIRECTORY_KEY,
+                        dir.getAbsolutePath())
+                .build().compileMustache("caching_persisted", contents);
+        assertEquals(1, counting.count.get());
+        try (Stream<Path> files = Files
+                .list(dir.toPath())) {
+            assertEquals(1, files.count());
+        }
+        // A new engine with a new minifier loads the persisted result
+        CountingMinifier counting2 = new CountingMinifier();
+        assertEquals("<p> FOO </p>", MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(
+                        Minify.customListener(Minify.caching(counting2)))
+                .setProperty(CachingMinifier.DIRECTORY_KEY,
+                        dir.getAbsolutePath())
+                .build().compileMustache("caching_persisted", contents)
+                .render(ImmutableMap.<String, Object> of("foo", "FOO")));
+        assertEquals(0, counting2.count.get());
+    }
+
+    @Test
+    public void testPersistedResultsSeparatedByFingerprint() throws Exception {
+        File dir = new File(folder.getRoot(), "minify_fingerprint");
+        String contents = "<p>  {{foo}}  </p>";
+        CountingMinifier counting = new CountingMinifier();
+        compile(counting, dir, contents);
+        assertEquals(1, counting.count.get());
+        // A different minifier does not load the result of the first one
+        CountingMinifier other = new CountingMinifier() {
+            @Override
+            public String getFingerprint() {
+                return "other";
+            }
+        };
+        compile(other, dir, contents);
+        assertEquals(1, other.count.get());
+        CountingMinifier same = new CountingMinifier();
+        compile(same, dir, contents);
+        assertEquals(0, same.count.get());
+        // Different compressor settings result in a different fingerprint
+        HtmlCompressorMinifier html = new HtmlCompressorMinifier();
+        HtmlCompressorMinifier htmlRemoveQuotes = new HtmlCompressorMinifier() {
+            @Override
+            protected void initCompressor(HtmlCompressor compressor,
+                    Configuration configuration) {
+                compressor.setRemoveQuotes(true);
+            }
+        };
+        MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(Minify.customListener(html))
+                .addMustacheListener(
+                        Minify.customListener(htmlRemoveQuotes))
+                .build();
+        assertNotEquals(html.getFingerprint(),
+                htmlRemoveQuotes.getFingerprint());
+    }
+
+    @Test
+    public void testDirectoryMaxSize() throws Exception {
+        File dir = new File(folder.getRoot(), "minify_max_size");
+        CountingMinifier counting = new CountingMinifier();
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(
+                        Minify.customListener(Minify.caching(counting)))
+                .setProperty(CachingMinifier.DIRECTORY_KEY,
+                        dir.getAbsolutePath())
+                .setProperty(CachingMinifier.DIRECTORY_MAX_SIZE_KEY, 50L)
+                .build();
+        for (int i = 0; i < 10; i++) {
+            // Each result has 20 bytes
+            engine.compileMustache("caching_max_size_" + i,
+                    "<p>  {{foo}}  " + i + "       </p>");
+        }
+        assertEquals(10, counting.count.get());
+        long size = 0;
+        try (Stream<Path> files = Files.list(dir.toPath())) {
+            for (Path file : files.collect(Collectors.toList())) {
+                size += Files.size(file);
+            }
+        }
+        assertTrue("Size: " + size, size > 0 && size <= 50);
+    }
+
+    @Test
+    public void testNotApplicable() {
+        CountingMinifier counting = new CountingMinifier() {
+            @Override
+            public boolean isApplicable(String mustacheName) {
+                return mustacheName.endsWith(".html");
+            }
+        };
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(
+                        Minify.customListener(Minify.caching(counting)))
+                .build();
+        assertEquals("<p>  FOO  </p>",
+                engine.compileMustache("caching_not_applicable",
+                        "<p>  {{foo}}  </p>")
+                        .render(ImmutableMap.<String, Object> of("foo",
+                                "FOO")));
+        assertEquals(0, counting.count.get());
+        assertTrue(engine.compileMustache("caching_applicable.html",
+                "<p>  {{foo}}  </p>").render(null).startsWith("<p> "));
+        assertEquals(1, counting.count.get());
+    }
+
+    private void compile(Minifier minifier, File dir, String contents) {
+        MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(
+                        Minify.customListener(Minify.caching(minifier)))
+                .setProperty(CachingMinifier.DIRECTORY_KEY,
+                        dir.getAbsolutePath())
+                .build().compileMustache("caching_fingerprint", contents);
+    }
+
+    static class CountingMinifier extends AbstractMinifier {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Reader minify(String mustacheName, Reader mustacheContents) {
+            try {
+                return new StringReader(
+                        minify(IOUtils.toString(mustacheContents)));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public String minify(String text) {
+            count.incrementAndGet();
+            return text.replaceAll("\\s+", " ");
+        }
+
+    }
+
+}
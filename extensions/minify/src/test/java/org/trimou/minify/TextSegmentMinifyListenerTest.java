@@ -0,0 +1,102 @@
+package org.trimou.minify;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.config.Configuration;
+import org.trimou.engine.config.EngineConfigurationKey;
+import org.trimou.util.ImmutableList;
+import org.trimou.util.ImmutableMap;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class TextSegmentMinifyListenerTest {
+
+    @Test
+    public void testDefaultHtmlListener() {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(Minify.htmlTextSegmentListener()).build();
+        assertEquals("<html><body> <p>FOO</p> </body> </html>",
+                engine.compileMustache("minify_segments_html",
+                        "<html><body>   <!-- My comment -->  <p>{{foo}}</p>  </body>\n  </html>")
+                        .render(ImmutableMap.<String, Object> of("foo",
+                                "FOO")));
+        assertEquals("<p>Hello FOO !</p>",
+                engine.compileMustache("minify_segments_html_boundaries",
+                        "<p>Hello   {{foo}}\n\n  !</p>")
+                        .render(ImmutableMap.<String, Object> of("foo",
+                                "FOO")));
+        // Whitespace at the boundaries of text runs is preserved
+        assertEquals("<ul>  <li>1</li>  <li>2</li> </ul>",
+                engine.compileMustache("minify_segments_html_section",
+                        "<ul>\n  {{#this}}\n  <li>{{.}}</li>\n  {{/this}}\n</ul>")
+                        .render(ImmutableList.of(1, 2)));
+    }
+
+    @Test
+    public void testDefaultXmlListener() {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(Minify.xmlTextSegmentListener()).build();
+        assertEquals("<foo><bar>Hey FOO!</bar></foo>",
+                engine.compileMustache("minify_segments_xml",
+                        "<foo> <!-- My comment -->  <bar>Hey {{foo}}!</bar> \n\n </foo>")
+                        .render(ImmutableMap.<String, Object> of("foo",
+                                "FOO")));
+    }
+
+    @Test
+    public void testRunsInsideMarkupTags() {
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(Minify.htmlTextSegmentListener()).build();
+        // The tag fragments are not minified
+        assertEquals(
+                "<div> <p  class=\"a  b\"   title=\"x\">FOO</p> </div>",
+                engine.compileMustache("minify_segments_html_attribute",
+                        "<div>  <!-- c -->  <p  class=\"{{cls}}\"   title=\"x\">{{foo}}</p>  </div>")
+                        .render(ImmutableMap.<String, Object> of("foo", "FOO",
+                                "cls", "a  b")));
+    }
+
+    @Test
+    public void testTagsAreOpaque() {
+        // No preserve pattern is needed
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(Minify
+                        .customTextSegmentListener(new HtmlCompressorMinifier() {
+
+                            @Override
+                            public void init(Configuration configuration) {
+                                // No custom preserve pattern
+                            }
+                        }))
+                .setProperty(EngineConfigurationKey.HANDLEBARS_SUPPORT_ENABLED,
+                        false)
+                .build();
+        assertEquals("<html><body>FOO</body> </html>",
+                engine.compileMustache("minify_segments_opaque_tags",
+                        "<html><body>{{ <!--foo--> }}</body>     </html>")
+                        .render(ImmutableMap.<String, Object> of("<!--foo-->",
+                                "FOO")));
+    }
+
+    @Test
+    public void testMustacheNameNotMatching() {
+        String contents = "<html><body><!-- My comment --></body></html>";
+        MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+                .addMustacheListener(Minify.customTextSegmentListener(
+                        new HtmlCompressorMinifier(
+                                mustacheName -> mustacheName.endsWith("html"))))
+                .build();
+        assertEquals(contents, engine
+                .compileMustache("minify_segments_not_matching", contents)
+                .render(null));
+        assertEquals("<html><body></body></html>",
+                engine.compileMustache("minify_segments_matching.html",
+                        contents).render(null));
+    }
+
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2018 Martin Kouba
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trimou.servlet;
+
+import static org.trimou.util.Checker.checkArgument;
+import static org.trimou.util.Checker.checkArgumentsNotNull;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trimou.Mustache;
+
+/**
+ * Renders a template to the response asynchronously. The rendered output is
+ * split into chunks which are encoded with the response character encoding and
+ * written by a {@link WriteListener}, i.e. no thread is blocked when the client
+ * is not able to receive more data. The rendering itself is performed by the
+ * specified {@link Executor} (or {@link AsyncContext#start(Runnable)} if no
+ * executor is set). The producer is paused if the number of pending chunks
+ * reaches the limit. The rendering is aborted if a chunk cannot be enqueued
+ * within the write timeout, or if the async context times out, fails or is
+ * completed by someone else.
+ *
+ * <p>
+ * A dedicated executor is recommended. Most containers run the tasks passed to
+ * {@link AsyncContext#start(Runnable)} in the request processing thread pool,
+ * i.e. a producer paused by a slow client occupies a container thread for up
+ * to the write timeout.
+ * </p>
+ *
+ * <p>
+ * The current request is bound to the rendering thread so that
+ * {@link RequestHolder} works as expected. If the request does not support
+ * asynchronous processing, the template is rendered to the response writer.
+ * </p>
+ *
+ * <p>
+ * Note that the status code and headers cannot be modified once the first
+ * chunk is written. If rendering fails before that, the status code is set to
+ * 500. If rendering fails afterwards, the pending chunks are discarded and the
+ * async context is completed, i.e. the client receives a truncated response
+ * with the original status code. Templates which may fail in the middle of the
+ * output should be rendered to a buffer instead.
+ * </p>
+ *
+ * @author Martin Kouba
+ * @since 2.5.2
+ */
+public class AsyncMustacheRenderer {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(AsyncMustacheRenderer.class);
+
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    public static final int DEFAULT_MAX_PENDING_CHUNKS = 16;
+
+    public static final long DEFAULT_WRITE_TIMEOUT = 30000L;
+
+    private static final byte[] END = new byte[0];
+
+    private final Executor executor;
+
+    private final int chunkSize;
+
+    private final int maxPendingChunks;
+
+    private final long writeTimeout;
+
+    /**
+     *
+     */
+    public AsyncMustacheRenderer() {
+        this(null, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_PENDING_CHUNKS);
+    }
+
+    /**
+     *
+     * @param executor
+     *            The executor used to render the templates, may be null
+     * @param chunkSize
+     *            The number of characters in a chunk
+     * @param maxPendingChunks
+     *            The maximum number of chunks waiting to be written
+     */
+    public AsyncMustacheRenderer(Executor executor, int chunkSize,
+            int maxPendingChunks) {
+        this(executor, chunkSize, maxPendingChunks, DEFAULT_WRITE_TIMEOUT);
+    }
+
+    /**
+     *
+     * @param executor
+     *            The executor used to render the templates, may be null
+     * @param chunkSize
+     *            The number of characters in a chunk
+     * @param maxPendingChunks
+     *            The maximum number of chunks waiting to be written
+     * @param writeTimeout
+     *            The maximum time in milliseconds the producer waits until a
+     *            chunk can be enqueued
+     */
+    public AsyncMustacheRenderer(Executor executor, int chunkSize,
+            int maxPendingChunks, long writeTimeout) {
+        checkArgument(chunkSize > 1, "Chunk size must be greater than 1");
+        checkArgument(maxPendingChunks > 0,
+                "Max pending chunks must be greater than 0");
+        checkArgument(writeTimeout > 0,
+                "Write timeout must be greater than 0");
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.maxPendingChunks = maxPendingChunks;
+        this.writeTimeout = writeTimeout;
+    }
+
+    /**
+     * The method returns immediately if the request supports asynchronous
+     * processing. The async context is completed when all the chunks are
+     * written, or when an error occurs. A listener is added to the async
+     * context so that the rendering is aborted if the context times out, fails
+     * or is completed.
+     *
+     * @param mustache
+     * @param data
+     * @param request
+     * @param response
+     * @throws IOException
+     */
+    public void render(Mustache mustache, Object data,
+            HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        checkArgumentsNotNull(mustache, request, response);
+        if (!request.isAsyncSupported()) {
+            LOGGER.debug(
+                    "Async processing not supported - rendering {} to the response writer",
+                    mustache.getName());
+            mustache.render(response.getWriter(), data);
+            return;
+        }
+        AsyncContext asyncContext = request.isAsyncStarted()
+                ? request.getAsyncContext()
+                : request.startAsync(request, response);
+        Rendering rendering = new Rendering(mustache, data, request, response,
+                asyncContext);
+        asyncContext.addListener(rendering);
+        response.getOutputStream().setWriteListener(rendering);
+        if (executor != null) {
+            executor.execute(rendering);
+        } else {
+            asyncContext.start(rendering);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s [chunkSize: %s, maxPendingChunks: %s, writeTimeout: %s, executor: %s]",
+                getClass().getSimpleName(), chunkSize, maxPendingChunks,
+                writeTimeout, executor);
+    }
+
+    /**
+     * The rendering thread is the producer and the {@link WriteListener} is the
+     * consumer. Chunks may be written either by the container (
+     * {@link #onWritePossible()}) or by the producer (once a chunk is
+     * enqueued). The writes are guarded by the instance lock. The
+     * {@link AsyncListener} callbacks abort the rendering so that the producer
+     * never waits for a consumer which is gone.
+     */
+    private class Rendering
+            implements Runnable, WriteListener, AsyncListener, Appendable {
+
+        private final Mustache mustache;
+
+        private final Object data;
+
+        private final HttpServletRequest request;
+
+        private final HttpServletResponse response;
+
+        private final AsyncContext asyncContext;
+
+        private final Charset charset;
+
+        private final BlockingQueue<byte[]> chunks;
+
+        private final StringBuilder buffer;
+
+        private volatile boolean aborted;
+
+        private volatile Throwable failure;
+
+        private boolean completed;
+
+        Rendering(Mustache mustache, Object data, HttpServletRequest request,
+                HttpServletResponse response, AsyncContext asyncContext) {
+            this.mustache = mustache;
+            this.data = data;
+            this.request = request;
+            this.response = response;
+            this.asyncContext = asyncContext;
+            this.charset = Charset.forName(response.getCharacterEncoding());
+            this.chunks = new ArrayBlockingQueue<>(maxPendingChunks);
+            this.buffer = new StringBuilder(chunkSize);
+        }
+
+        @Override
+        public void run() {
+            RequestHolder.requestInitialized(request);
+            try {
+                mustache.render(this, data);
+                if (buffer.length() > 0) {
+                    enqueue(encode(buffer.length()));
+                }
+            } catch (Throwable e) {
+                if (!aborted) {
+                    if (response.isCommitted()) {
+                        LOGGER.error("Unable to render " + mustache.getName()
+                                + " - the response is truncated", e);
+                    } else {
+                        LOGGER.error("Unable to render " + mustache.getName(),
+                                e);
+                    }
+                    failure = e;
+                }
+            } finally {
+                RequestHolder.requestDestroyed();
+                try {
+                    enqueue(END);
+                } catch (IOException ignored) {
+                    // Aborted
+                }
+            }
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end)
+                throws IOException {
+            int idx = start;
+            while (idx < end) {
+                int count = Math.min(end - idx, chunkSize - buffer.length());
+                buffer.append(csq, idx, idx + count);
+                idx += count;
+                flushFullBuffer();
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            buffer.append(c);
+            flushFullBuffer();
+            return this;
+        }
+
+        @Override
+        public synchronized void onWritePossible() throws IOException {
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            LOGGER.debug("Unable to write {}: {}", mustache.getName(),
+                    t.toString());
+            abort();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            aborted = true;
+            chunks.clear();
+            synchronized (this) {
+                // Completed by the container or by another component
+                completed = true;
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            LOGGER.debug("Async context timed out while rendering {}",
+                    mustache.getName());
+            abort();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            LOGGER.debug("Async context failed while rendering {}: {}",
+                    mustache.getName(), event.getThrowable());
+            abort();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // No-op
+        }
+
+        private void flushFullBuffer() throws IOException {
+            if (buffer.length() < chunkSize) {
+                return;
+            }
+            // Never split a surrogate pair
+            int length = Character.isHighSurrogate(buffer.charAt(chunkSize - 1))
+                    ? chunkSize - 1
+                    : chunkSize;
+            enqueue(encode(length));
+        }
+
+        private byte[] encode(int length) {
+            byte[] chunk = buffer.substring(0, length).getBytes(charset);
+            buffer.delete(0, length);
+            return chunk;
+        }
+
+        private void enqueue(byte[] chunk) throws IOException {
+            long start = System.nanoTime();
+            try {
+                while (!chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                    if (aborted) {
+                        throw new IOException("Async rendering aborted");
+                    }
+                    if (TimeUnit.NANOSECONDS.toMillis(
+                            System.nanoTime() - start) >= writeTimeout) {
+                        abort();
+                        throw new IOException(
+                                "Async rendering aborted - unable to enqueue a chunk within "
+                                        + writeTimeout + " ms");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            if (aborted) {
+                throw new IOException("Async rendering aborted");
+            }
+            synchronized (this) {
+                try {
+                    drain();
+                } catch (IOException e) {
+                    abort();
+                    throw e;
+                }
+            }
+        }
+
+        private void abort() {
+            aborted = true;
+            chunks.clear();
+            synchronized (this) {
+                complete();
+            }
+        }
+
+        private void drain() throws IOException {
+            if (completed) {
+                return;
+            }
+            ServletOutputStream out = response.getOutputStream();
+            byte[] chunk;
+            while (out.isReady() && (chunk = chunks.poll()) != null) {
+                if (chunk == END) {
+                    if (failure != null && !response.isCommitted()) {
+                        response.setStatus(
+                                HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    }
+                    complete();
+                    return;
+                }
+                out.write(chunk);
+            }
+        }
+
+        private void complete() {
+            if (!completed) {
+                completed = true;
+                try {
+                    asyncContext.complete();
+                } catch (IllegalStateException e) {
+                    LOGGER.debug("Unable to complete the async context: {}",
+                            e.toString());
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,253 @@
+package org.trimou.servlet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.trimou.Mustache;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.util.ImmutableMap;
+
+/**
+ *
+ * @author Martin Kouba
+ */
+public class AsyncMustacheRendererTest {
+
+    private final MustacheEngine engine = MustacheEngineBuilder.newBuilder()
+            .build();
+
+    @Test
+    public void testChunksWritten() throws Exception {
+        Mustache mustache = engine.compileMustache("async_chunks",
+                "Hello {{name}}! {{#each items}}{{this}},{{/each}}");
+        Exchange exchange = new Exchange(true);
+        // Render in the current thread
+        new AsyncMustacheRenderer(Runnable::run, 4, 2).render(mustache,
+                ImmutableMap.of("name", "Čeněk 😀", "items",
+                        new String[] { "alpha", "beta", "gamma" }),
+                exchange.request, exchange.response);
+        assertTrue(exchange.completed.await(2, TimeUnit.SECONDS));
+        assertEquals("Hello Čeněk 😀! alpha,beta,gamma,",
+                exchange.out.toString());
+        assertTrue(exchange.out.writes > 1);
+    }
+
+    @Test
+    public void testProducerPausedIfNotReady() throws Exception {
+        Mustache mustache = engine.compileMustache("async_paused",
+                "{{#each this}}{{this}}{{/each}}");
+        Exchange exchange = new Exchange(false);
+        new AsyncMustacheRenderer(null, 2, 1).render(mustache,
+                new String[] { "aa", "bb", "cc", "dd", "ee" }, exchange.request,
+                exchange.response);
+        // The producer is blocked and nothing is written
+        assertTrue(exchange.started.await(2, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(0, exchange.out.writes);
+        assertEquals(1, exchange.completed.getCount());
+        // The socket is writable again
+        exchange.out.ready = true;
+        while (!exchange.completed.await(10, TimeUnit.MILLISECONDS)) {
+            exchange.out.listener.onWritePossible();
+        }
+        assertEquals("aabbccddee", exchange.out.toString());
+    }
+
+    @Test
+    public void testErrorBeforeFirstChunk() throws Exception {
+        Mustache mustache = engine.compileMustache("async_error",
+                "{{#each this}}{{this}}{{/each}}");
+        Exchange exchange = new Exchange(true);
+        new AsyncMustacheRenderer(Runnable::run, 16, 2).render(mustache,
+                Boolean.TRUE, exchange.request, exchange.response);
+        assertTrue(exchange.completed.await(2, TimeUnit.SECONDS));
+        assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                exchange.status);
+    }
+
+    @Test
+    public void testAbortedOnAsyncTimeout() throws Exception {
+        Mustache mustache = engine.compileMustache("async_timeout",
+                "{{#each this}}{{this}}{{/each}}");
+        Exchange exchange = new Exchange(false);
+        CountDownLatch finished = new CountDownLatch(1);
+        new AsyncMustacheRenderer(task -> new Thread(() -> {
+            task.run();
+            finished.countDown();
+        }).start(), 2, 1, 60000).render(mustache,
+                new String[] { "aa", "bb", "cc", "dd", "ee" }, exchange.request,
+                exchange.response);
+        // The producer is blocked
+        Thread.sleep(100);
+        assertEquals(1, finished.getCount());
+        exchange.asyncListener.onTimeout(null);
+        assertTrue(exchange.completed.await(2, TimeUnit.SECONDS));
+        assertTrue(finished.await(2, TimeUnit.SECONDS));
+        assertEquals(0, exchange.out.writes);
+    }
+
+    @Test
+    public void testAbortedOnWriteTimeout() throws Exception {
+        Mustache mustache = engine.compileMustache("async_write_timeout",
+                "{{#each this}}{{this}}{{/each}}");
+        Exchange exchange = new Exchange(false);
+        new AsyncMustacheRenderer(null, 2, 1, 200).render(mustache,
+                new String[] { "aa", "bb", "cc", "dd", "ee" }, exchange.request,
+                exchange.response);
+        assertTrue(exchange.completed.await(2, TimeUnit.SECONDS));
+        assertEquals(0, exchange.out.writes);
+    }
+
+    @Test
+    public void testAsyncNotSupported() throws Exception {
+        Mustache mustache = engine.compileMustache("async_not_supported",
+                "Hello {{this}}!");
+        Exchange exchange = new Exchange(true);
+        exchange.asyncSupported = false;
+        new AsyncMustacheRenderer().render(mustache, "me", exchange.request,
+                exchange.response);
+        assertEquals("Hello me!", exchange.writer.toString());
+        assertEquals(0, exchange.out.writes);
+    }
+
+    static class Exchange {
+
+        final CountDownLatch started = new CountDownLatch(1);
+
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        final StubOutputStream out;
+
+        final StringWriter writer = new StringWriter();
+
+        final HttpServletRequest request;
+
+        final HttpServletResponse response;
+
+        volatile boolean asyncSupported = true;
+
+        volatile int status = HttpServletResponse.SC_OK;
+
+        volatile AsyncListener asyncListener;
+
+        Exchange(boolean ready) {
+            out = new StubOutputStream(ready);
+            Map<String, Function<Object[], Object>> asyncMethods = new HashMap<>();
+            asyncMethods.put("complete", args -> {
+                completed.countDown();
+                return null;
+            });
+            asyncMethods.put("addListener", args -> {
+                asyncListener = (AsyncListener) args[0];
+                return null;
+            });
+            asyncMethods.put("start", args -> {
+                new Thread(() -> {
+                    started.countDown();
+                    ((Runnable) args[0]).run();
+                }).start();
+                return null;
+            });
+            AsyncContext asyncContext = stub(AsyncContext.class, asyncMethods);
+            Map<String, Function<Object[], Object>> requestMethods = new HashMap<>();
+            requestMethods.put("isAsyncSupported", args -> asyncSupported);
+            requestMethods.put("isAsyncStarted", args -> false);
+            requestMethods.put("startAsync", args -> asyncContext);
+            request = stub(HttpServletRequest.class, requestMethods);
+            Map<String, Function<Object[], Object>> responseMethods = new HashMap<>();
+            responseMethods.put("getCharacterEncoding", args -> "UTF-8");
+            responseMethods.put("getOutputStream", args -> out);
+            responseMethods.put("getWriter", args -> new PrintWriter(writer));
+            responseMethods.put("isCommitted", args -> out.writes > 0);
+            responseMethods.put("setStatus", args -> {
+                status = (Integer) args[0];
+                return null;
+            });
+            response = stub(HttpServletResponse.class, responseMethods);
+        }
+
+    }
+
+    static class StubOutputStream extends ServletOutputStream {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        volatile boolean ready;
+
+        volatile int writes;
+
+        volatile WriteListener listener;
+
+        StubOutputStream(boolean ready) {
+            this.ready = ready;
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            this.listener = writeListener;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            bytes.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b) {
+            writes++;
+            bytes.write(b, 0, b.length);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T stub(Class<T> type,
+            Map<String, Function<Object[], Object>> methods) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(),
+                new Class<?>[] { type }, (proxy, method, args) -> {
+                    Function<Object[], Object> fun = methods
+                            .get(method.getName());
+                    if (fun != null) {
+                        return fun.apply(args);
+                    }
+                    if (method.getReturnType().equals(boolean.class)) {
+                        return false;
+                    }
+                    if (method.getReturnType().equals(int.class)) {
+                        return 0;
+                    }
+                    return null;
+                });
+    }
+
+}
@@ -16,11 +16,14 @@
 
 package org.trimou.extension.spring.starter;
 
+import java.util.Map;
+
 import javax.annotation.PostConstruct;
 import javax.servlet.Servlet;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -42,6 +45,8 @@ import org.trimou.engine.priority.WithPriority;
 import org.trimou.spring4.web.SpringResourceTemplateLocator;
 import org.trimou.spring4.web.TrimouViewResolver;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
  * {@link EnableAutoConfiguration} Spring Boot Auto-Configuration for Trimou.
  */
@@ -80,8 +85,18 @@ public class TrimouAutoConfiguration {
         final MustacheEngineBuilder mustacheEngineBuilder = MustacheEngineBuilder.newBuilder()
                 .addTemplateLocator(springResourceTemplateLocator);
         properties.applyToTrimouMustacheEngineBuilder(mustacheEngineBuilder);
-        for (TrimouConfigurer configurer : applicationContext.getBeansOfType(TrimouConfigurer.class).values()) {
-            configurer.configure(mustacheEngineBuilder);
+        TrimouConfigurer metricsConfigurer = null;
+        for (Map.Entry<String, TrimouConfigurer> entry : applicationContext.getBeansOfType(TrimouConfigurer.class)
+                .entrySet()) {
+            if (TrimouMetricsConfigurer.BEAN_NAME.equals(entry.getKey())) {
+                // Metrics decorate the components set by other configurers
+                metricsConfigurer = entry.getValue();
+            } else {
+                entry.getValue().configure(mustacheEngineBuilder);
+            }
+        }
+        if (metricsConfigurer != null) {
+            metricsConfigurer.configure(mustacheEngineBuilder);
         }
         return mustacheEngineBuilder.build();
     }
@@ -96,6 +111,23 @@ public class TrimouAutoConfiguration {
         return locator;
     }
 
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(name = "trimou.metrics.enabled", matchIfMissing = true)
+    protected static class TrimouMetricsConfiguration {
+
+        private final TrimouProperties properties;
+
+        protected TrimouMetricsConfiguration(final TrimouProperties properties) {
+            this.properties = properties;
+        }
+
+        @Bean(name = TrimouMetricsConfigurer.BEAN_NAME)
+        public TrimouMetricsConfigurer trimouMetricsConfigurer(final ObjectProvider<MeterRegistry> registry) {
+            return new TrimouMetricsConfigurer(registry.getIfAvailable(), properties.getMetrics());
+        }
+    }
+
     @Configuration
     @ConditionalOnWebApplication
     @ConditionalOnClass(Servlet.class)
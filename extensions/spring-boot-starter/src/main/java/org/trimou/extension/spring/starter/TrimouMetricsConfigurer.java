@@ -0,0 +1,415 @@
+/*
+ * Copyright 2018 Trimou Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trimou.extension.spring.starter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.cache.ComputingCache;
+import org.trimou.engine.cache.ComputingCacheFactory;
+import org.trimou.engine.cache.DefaultComputingCacheFactory;
+import org.trimou.engine.config.Configuration;
+import org.trimou.engine.config.ConfigurationKey;
+import org.trimou.engine.listener.MustacheListener;
+import org.trimou.engine.listener.MustacheRenderingEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Publishes Trimou metrics through Micrometer. This configurer is always applied after all other
+ * {@link TrimouConfigurer}s so that it's able to decorate the components set by the application:
+ * <ul>
+ * <li>{@value #RENDER} - a timer per template and outcome</li>
+ * <li>{@value #CACHE_SIZE}, {@value #CACHE_REQUESTS}, {@value #CACHE_LOADS} and {@value #CACHE_EVICTIONS} - for
+ * each consumer of the {@link ComputingCacheFactory}, e.g. the template cache or the member cache of the reflection
+ * resolver</li>
+ * <li>{@value #TEMPLATE_LOAD_FAILURES} - templates not found or failed to load through the template cache</li>
+ * <li>{@value #ASYNC_WAIT} - the time spent waiting for the result of an async helper</li>
+ * </ul>
+ */
+public class TrimouMetricsConfigurer implements TrimouConfigurer {
+
+    static final String BEAN_NAME = "trimouMetricsConfigurer";
+
+    public static final String RENDER = "trimou.render";
+
+    public static final String CACHE_SIZE = "trimou.cache.size";
+
+    public static final String CACHE_REQUESTS = "trimou.cache.requests";
+
+    public static final String CACHE_LOADS = "trimou.cache.loads";
+
+    public static final String CACHE_EVICTIONS = "trimou.cache.evictions";
+
+    public static final String TEMPLATE_LOAD_FAILURES = "trimou.template.load.failures";
+
+    public static final String ASYNC_WAIT = "trimou.async.wait";
+
+    static final String OTHER_TEMPLATES = "other";
+
+    static final String ALL_TEMPLATES = "all";
+
+    private final MeterRegistry registry;
+
+    private final TrimouProperties.Metrics properties;
+
+    private final Map<String, RenderTimers> renderTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, CacheMeters> cacheMeters = new ConcurrentHashMap<>();
+
+    /**
+     * @param registry the registry, no metrics are published if {@code null}
+     * @param properties the metrics properties
+     */
+    public TrimouMetricsConfigurer(final MeterRegistry registry, final TrimouProperties.Metrics properties) {
+        this.registry = registry;
+        this.properties = properties;
+    }
+
+    @Override
+    public void configure(final MustacheEngineBuilder engineBuilder) {
+        if (registry == null) {
+            return;
+        }
+        engineBuilder.addMustacheListener(new RenderListener());
+        final ComputingCacheFactory cacheFactory = engineBuilder.getComputingCacheFactory();
+        engineBuilder.setComputingCacheFactory(
+                new MeteredComputingCacheFactory(cacheFactory != null ? cacheFactory
+                        : new DefaultComputingCacheFactory()));
+        if (engineBuilder.getExecutorService() != null) {
+            engineBuilder.setExecutorService(new TimedExecutorService(engineBuilder.getExecutorService(),
+                    Timer.builder(ASYNC_WAIT).description("Time spent waiting for the result of an async helper")
+                            .register(registry)));
+        }
+    }
+
+    private RenderTimers getRenderTimers(final String templateName) {
+        String tag = properties.isTemplateTag() ? templateName : ALL_TEMPLATES;
+        RenderTimers timers = renderTimers.get(tag);
+        if (timers == null) {
+            if (renderTimers.size() >= properties.getMaxTemplateTags()) {
+                // Limit the tag cardinality
+                tag = OTHER_TEMPLATES;
+            }
+            timers = renderTimers.computeIfAbsent(tag, RenderTimers::new);
+        }
+        return timers;
+    }
+
+    private CacheMeters getCacheMeters(final String consumerId) {
+        return cacheMeters.computeIfAbsent(consumerId, CacheMeters::new);
+    }
+
+    private static double size(final List<ComputingCache<?, ?>> caches) {
+        long size = 0;
+        for (final ComputingCache<?, ?> cache : caches) {
+            size += cache.size();
+        }
+        return size;
+    }
+
+    private final class RenderTimers {
+
+        private final Timer success;
+
+        private final Timer error;
+
+        RenderTimers(final String template) {
+            this.success = register(template, "success");
+            this.error = register(template, "error");
+        }
+
+        private Timer register(final String template, final String outcome) {
+            return Timer.builder(RENDER).description("Template rendering time")
+                    .tags("template", template, "outcome", outcome).register(registry);
+        }
+    }
+
+    private final class RenderListener implements MustacheListener {
+
+        private final Map<Long, RenderSample> samples = new ConcurrentHashMap<>();
+
+        @Override
+        public void renderingStarted(final MustacheRenderingEvent event) {
+            final Long id = event.getGeneratedId();
+            samples.put(id, new RenderSample(getRenderTimers(event.getMustacheName())));
+            event.registerReleaseCallback(() -> {
+                // Not removed if renderingFinished() was not called
+                final RenderSample sample = samples.remove(id);
+                if (sample != null) {
+                    sample.timers.error.record(System.nanoTime() - sample.start, TimeUnit.NANOSECONDS);
+                }
+            });
+        }
+
+        @Override
+        public void renderingFinished(final MustacheRenderingEvent event) {
+            final RenderSample sample = samples.remove(event.getGeneratedId());
+            if (sample != null) {
+                sample.timers.success.record(System.nanoTime() - sample.start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private static final class RenderSample {
+
+        private final long start = System.nanoTime();
+
+        private final RenderTimers timers;
+
+        RenderSample(final RenderTimers timers) {
+            this.timers = timers;
+        }
+    }
+
+    /**
+     * All the caches created for the same consumer share the meters.
+     */
+    private final class CacheMeters {
+
+        private final List<ComputingCache<?, ?>> caches = new CopyOnWriteArrayList<>();
+
+        private final LongAdder requests = new LongAdder();
+
+        private final Counter loadSuccess;
+
+        private final Counter loadFailure;
+
+        private final Tags tags;
+
+        CacheMeters(final String consumerId) {
+            this.tags = Tags.of("cache", consumerId);
+            Gauge.builder(CACHE_SIZE, caches, TrimouMetricsConfigurer::size).description("The number of cache entries")
+                    .tags(tags).register(registry);
+            FunctionCounter.builder(CACHE_REQUESTS, requests, LongAdder::doubleValue)
+                    .description("The number of cache lookups").tags(tags).register(registry);
+            this.loadSuccess = Counter.builder(CACHE_LOADS).description("The number of computed entries")
+                    .tags(tags).tag("outcome", "success").register(registry);
+            this.loadFailure = Counter.builder(CACHE_LOADS).description("The number of computed entries")
+                    .tags(tags).tag("outcome", "error").register(registry);
+        }
+
+        void evicted(final String cause) {
+            registry.counter(CACHE_EVICTIONS, tags.and("cause", cause)).increment();
+        }
+    }
+
+    private final class MeteredComputingCacheFactory implements ComputingCacheFactory {
+
+        private final ComputingCacheFactory delegate;
+
+        MeteredComputingCacheFactory(final ComputingCacheFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void init(final Configuration configuration) {
+            delegate.init(configuration);
+        }
+
+        @Override
+        public Set<ConfigurationKey> getConfigurationKeys() {
+            return delegate.getConfigurationKeys();
+        }
+
+        @Override
+        public <K, V> ComputingCache<K, V> create(final String consumerId,
+                final ComputingCache.Function<K, V> computingFunction, final Long expirationTimeout,
+                final Long maxSize, final ComputingCache.Listener<K> listener) {
+            final CacheMeters meters = getCacheMeters(consumerId);
+            final boolean templateCache = MustacheEngine.COMPUTING_CACHE_CONSUMER_ID.equals(consumerId);
+            final ComputingCache<K, V> cache = delegate.create(consumerId, key -> {
+                final V value;
+                try {
+                    value = computingFunction.compute(key);
+                } catch (RuntimeException e) {
+                    meters.loadFailure.increment();
+                    if (templateCache) {
+                        templateLoadFailed("error");
+                    }
+                    throw e;
+                }
+                meters.loadSuccess.increment();
+                if (templateCache && value instanceof Optional && !((Optional<?>) value).isPresent()) {
+                    templateLoadFailed("not_found");
+                }
+                return value;
+            }, expirationTimeout, maxSize, (key, cause) -> {
+                meters.evicted(cause);
+                if (listener != null) {
+                    listener.entryInvalidated(key, cause);
+                }
+            });
+            meters.caches.add(cache);
+            return new MeteredComputingCache<>(cache, meters);
+        }
+
+        private void templateLoadFailed(final String cause) {
+            registry.counter(TEMPLATE_LOAD_FAILURES, "cause", cause).increment();
+        }
+    }
+
+    private static final class MeteredComputingCache<K, V> implements ComputingCache<K, V> {
+
+        private final ComputingCache<K, V> delegate;
+
+        private final CacheMeters meters;
+
+        MeteredComputingCache(final ComputingCache<K, V> delegate, final CacheMeters meters) {
+            this.delegate = delegate;
+            this.meters = meters;
+        }
+
+        @Override
+        public V get(final K key) {
+            meters.requests.increment();
+            return delegate.get(key);
+        }
+
+        @Override
+        public V getIfPresent(final K key) {
+            meters.requests.increment();
+            return delegate.getIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            delegate.clear();
+        }
+
+        @Override
+        public long size() {
+            return delegate.size();
+        }
+
+        @Override
+        public void invalidate(final KeyPredicate<K> keyPredicate) {
+            delegate.invalidate(keyPredicate);
+        }
+
+        @Override
+        public Map<K, V> getAllPresent() {
+            return delegate.getAllPresent();
+        }
+    }
+
+    /**
+     * The futures returned from this executor record the time spent in {@code get()}.
+     */
+    private static final class TimedExecutorService extends AbstractExecutorService {
+
+        private final ExecutorService delegate;
+
+        private final Timer timer;
+
+        TimedExecutorService(final ExecutorService delegate, final Timer timer) {
+            this.delegate = delegate;
+            this.timer = timer;
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(final Callable<T> callable) {
+            return new TimedFutureTask<>(callable);
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(final Runnable runnable, final T value) {
+            return new TimedFutureTask<>(() -> {
+                runnable.run();
+                return value;
+            });
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            delegate.execute(command);
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+
+        private final class TimedFutureTask<T> extends FutureTask<T> {
+
+            TimedFutureTask(final Callable<T> callable) {
+                super(callable);
+            }
+
+            @Override
+            public T get() throws InterruptedException, ExecutionException {
+                final long start = System.nanoTime();
+                try {
+                    return super.get();
+                } finally {
+                    timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+
+            @Override
+            public T get(final long timeout, final TimeUnit unit)
+                    throws InterruptedException, ExecutionException, TimeoutException {
+                final long start = System.nanoTime();
+                try {
+                    return super.get(timeout, unit);
+                } finally {
+                    timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+}
@@ -133,6 +133,11 @@ public final class TrimouProperties extends AbstractTemplateViewResolverProperti
     private boolean cacheTemplateSources =
             getDefaultBooleanValue(EngineConfigurationKey.TEMPLATE_CACHE_USED_FOR_SOURCE);
 
+    /**
+     * Micrometer metrics
+     */
+    private final Metrics metrics = new Metrics();
+
     public TrimouProperties() {
         super(SpringResourceTemplateLocator.DEFAULT_PREFIX, SpringResourceTemplateLocator.DEFAULT_SUFFIX);
         final boolean cacheEnabled = getDefaultBooleanValue(EngineConfigurationKey.TEMPLATE_CACHE_ENABLED);
@@ -335,6 +340,10 @@ public final class TrimouProperties extends AbstractTemplateViewResolverProperti
         this.cacheTemplateSources = cacheTemplateSources;
     }
 
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Apply the {@link TrimouProperties} to a {@link MustacheEngineBuilder}.
      *
@@ -363,4 +372,49 @@ public final class TrimouProperties extends AbstractTemplateViewResolverProperti
                 .setProperty(EngineConfigurationKey.NESTED_TEMPLATE_SUPPORT_ENABLED, isEnableNestedTemplates())
                 .setProperty(EngineConfigurationKey.TEMPLATE_CACHE_USED_FOR_SOURCE, isCacheTemplateSources());
     }
+
+    /**
+     * Micrometer metrics properties.
+     */
+    public static class Metrics {
+
+        /**
+         * Publish metrics if a Micrometer MeterRegistry is available
+         */
+        private boolean enabled = true;
+
+        /**
+         * Tag the render timers with the template name
+         */
+        private boolean templateTag = true;
+
+        /**
+         * Maximum number of distinct template tag values, the remaining templates are tagged with "other"
+         */
+        private int maxTemplateTags = 100;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(final boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isTemplateTag() {
+            return templateTag;
+        }
+
+        public void setTemplateTag(final boolean templateTag) {
+            this.templateTag = templateTag;
+        }
+
+        public int getMaxTemplateTags() {
+            return maxTemplateTags;
+        }
+
+        public void setMaxTemplateTags(final int maxTemplateTags) {
+            this.maxTemplateTags = maxTemplateTags;
+        }
+    }
 }
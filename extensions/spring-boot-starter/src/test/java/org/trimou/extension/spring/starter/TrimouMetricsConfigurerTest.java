@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 Trimou Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trimou.extension.spring.starter;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.trimou.engine.MustacheEngine;
+import org.trimou.engine.MustacheEngineBuilder;
+import org.trimou.engine.locator.MapTemplateLocator;
+import org.trimou.exception.MustacheException;
+import org.trimou.handlebars.AbstractHelper;
+import org.trimou.handlebars.Options;
+import org.trimou.util.ImmutableMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests for {@link TrimouMetricsConfigurer}.
+ */
+public class TrimouMetricsConfigurerTest {
+
+    private MeterRegistry registry;
+
+    private MustacheEngine engine;
+
+    @Before
+    public void init() {
+        registry = new SimpleMeterRegistry();
+        final TrimouProperties.Metrics properties = new TrimouProperties.Metrics();
+        properties.setMaxTemplateTags(2);
+        final MustacheEngineBuilder builder = MustacheEngineBuilder.newBuilder()
+                .addTemplateLocator(new MapTemplateLocator(ImmutableMap.of("home", "{{message}}")))
+                .setExecutorService(Executors.newSingleThreadExecutor()).registerHelper("async", new AbstractHelper() {
+                    @Override
+                    public void execute(final Options options) {
+                        options.executeAsync(async -> async.append("async"));
+                    }
+                });
+        new TrimouMetricsConfigurer(registry, properties).configure(builder);
+        engine = builder.build();
+    }
+
+    @Test
+    public void renderTimers() throws Exception {
+        assertThat(engine.getMustache("home").render(ImmutableMap.of("message", "Trimou rocks!")),
+                is("Trimou rocks!"));
+        assertThat(registry.find(TrimouMetricsConfigurer.RENDER).tags("template", "home", "outcome", "success")
+                .timer().count(), is(1L));
+        try {
+            engine.compileMustache("metrics_error", "{{#each this}}{{/each}}").render(Boolean.TRUE);
+            fail();
+        } catch (MustacheException expected) {
+            // Expected
+        }
+        assertThat(registry.find(TrimouMetricsConfigurer.RENDER).tags("template", "metrics_error", "outcome", "error")
+                .timer().count(), is(1L));
+        // The max number of template tags is exceeded
+        assertThat(engine.compileMustache("metrics_foo", "foo").render(null), is("foo"));
+        assertThat(registry.find(TrimouMetricsConfigurer.RENDER)
+                .tags("template", TrimouMetricsConfigurer.OTHER_TEMPLATES, "outcome", "success").timer().count(),
+                is(1L));
+    }
+
+    @Test
+    public void cacheMeters() throws Exception {
+        assertThat(engine.getMustache("home"), is(notNullValue()));
+        assertThat(engine.getMustache("metrics_missing"), is(nullValue()));
+        assertThat(registry.find(TrimouMetricsConfigurer.TEMPLATE_LOAD_FAILURES).tags("cause", "not_found")
+                .counter().count(), is(1.0));
+        final String cache = MustacheEngine.COMPUTING_CACHE_CONSUMER_ID;
+        assertThat(registry.find(TrimouMetricsConfigurer.CACHE_REQUESTS).tags("cache", cache).functionCounter()
+                .count(), is(2.0));
+        assertThat(registry.find(TrimouMetricsConfigurer.CACHE_LOADS).tags("cache", cache, "outcome", "success")
+                .counter().count(), is(2.0));
+        assertThat(registry.find(TrimouMetricsConfigurer.CACHE_SIZE).tags("cache", cache).gauge().value(), is(2.0));
+        engine.invalidateTemplateCache(name -> name.equals("metrics_missing"));
+        assertThat(registry.find(TrimouMetricsConfigurer.CACHE_EVICTIONS)
+                .tags("cache", cache, "cause", "INVALIDATE").counter().count(), is(1.0));
+        assertThat(registry.find(TrimouMetricsConfigurer.CACHE_SIZE).tags("cache", cache).gauge().value(), is(1.0));
+    }
+
+    @Test
+    public void asyncWait() throws Exception {
+        assertThat(engine.compileMustache("metrics_async", "{{async}}!").render(null), is("async!"));
+        assertThat(registry.find(TrimouMetricsConfigurer.ASYNC_WAIT).timer().count(), greaterThan(0L));
+    }
+}